@@ -0,0 +1,202 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compara o engine bloqueante com pool fixo de 10 threads e com virtual threads
+ * sob N clientes lentos simultâneos. Cada cliente abre uma conexão keep-alive e faz
+ * {@code requests} requisições com {@code slowMillis} de pausa entre elas, ocupando a
+ * thread do servidor durante toda a conversa. Os clientes chegam espalhados ao longo
+ * de {@code rampMillis}.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.ExecutorModeBenchmark [clientes] [slowMillis] [requests] [rampMillis] [timeoutSegundos]
+ * </pre>
+ *
+ * Latências são por requisição (do envio ao fim da resposta), incluindo a espera na fila
+ * do servidor. O servidor roda em outra JVM (subcomando {@code server}) para que clientes
+ * e servidor não disputem o mesmo limite de descritores de arquivo.
+ */
+public class ExecutorModeBenchmark {
+
+    private static final int PORT = 18080;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("server")) {
+            runServer(args[1]);
+            return;
+        }
+
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int slowMillis = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int rampMillis = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        int timeoutSeconds = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+
+        System.out.printf("%d clientes keep-alive, %d requests cada, %d ms de pausa, chegando em %d ms, timeout %d s%n%n",
+                clients, requests, slowMillis, rampMillis, timeoutSeconds);
+        System.out.printf("%-14s %10s %10s %12s %10s %10s%n", "MODO", "OK", "FALHAS", "REQ/S", "P50 (ms)", "P99 (ms)");
+
+        for (String mode : List.of("pool", "virtual")) {
+            Process server = new ProcessBuilder(
+                    ProcessHandle.current().info().command().orElse("java"),
+                    "-cp", System.getProperty("java.class.path"),
+                    ExecutorModeBenchmark.class.getName(), "server", mode)
+                    .inheritIO()
+                    .start();
+            try {
+                waitForServer();
+                runClients(mode, clients, slowMillis, requests, rampMillis, timeoutSeconds);
+            } finally {
+                server.destroy();
+                server.waitFor(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static void runServer(String mode) throws Exception {
+        HttpRequestHandler handler = new HttpRequestHandler() {
+            @Override
+            public HttpResponse handle(HttpRequest request, String clientAddress) {
+                return HttpResponse.ofBody(200, "OK", "ok", "text/plain");
+            }
+
+            @Override
+            public HttpResponse error(int statusCode, String message) {
+                return HttpResponse.ofBody(statusCode, message, message, "text/plain");
+            }
+
+            @Override
+            public void completed(HttpResponse response, String clientAddress) {
+            }
+        };
+
+        KeepAlivePolicy keepAlive = new KeepAlivePolicy(100, 5000);
+        ServerEngine engine = mode.equals("virtual")
+                ? BlockingServerEngine.withVirtualThreads(handler, message -> { }, keepAlive)
+                : new BlockingServerEngine(handler, message -> { }, 10, keepAlive);
+        engine.start(PORT);
+        Thread.currentThread().join();
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", PORT), 100);
+                return;
+            } catch (IOException ex) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Servidor não subiu na porta " + PORT);
+    }
+
+    private static void runClients(String mode, int clients, int slowMillis, int requests, int rampMillis,
+                                   int timeoutSeconds) throws InterruptedException {
+        long[] latencies = new long[clients * requests];
+        Arrays.fill(latencies, -1);
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        byte[] request = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                long arrival = start + TimeUnit.MILLISECONDS.toNanos((long) rampMillis * i / clients);
+                executor.submit(() -> {
+                    try {
+                        sleepUntil(arrival);
+                        try (Socket socket = new Socket()) {
+                            socket.connect(new InetSocketAddress("localhost", PORT), timeoutSeconds * 1000);
+                            socket.setSoTimeout(timeoutSeconds * 1000);
+                            OutputStream out = socket.getOutputStream();
+                            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+                            for (int r = 0; r < requests; r++) {
+                                if (r > 0) {
+                                    // Cliente lento: segura a conexão entre uma requisição e outra
+                                    Thread.sleep(slowMillis);
+                                }
+                                long begin = System.nanoTime();
+                                out.write(request);
+                                out.flush();
+                                readResponse(in);
+                                latencies[client * requests + r] = System.nanoTime() - begin;
+                                ok.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                    return null;
+                });
+            }
+            done.await();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] successful = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        System.out.printf("%-14s %10d %10d %12.1f %10.1f %10.1f%n", mode, ok.get(), failed.get(),
+                ok.get() / elapsedSeconds, percentile(successful, 0.50), percentile(successful, 0.99));
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long delay = deadline - System.nanoTime();
+        if (delay > 0) {
+            Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+        }
+    }
+
+    // Lê headers até a linha em branco e depois exatamente Content-Length bytes
+    private static void readResponse(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int contentLength = 0;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                String header = line.toString().trim();
+                if (header.isEmpty()) {
+                    break;
+                }
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            } else {
+                line.append((char) c);
+            }
+        }
+        if (c == -1) {
+            throw new IOException("conexão encerrada");
+        }
+        if (in.readNBytes(contentLength).length != contentLength) {
+            throw new IOException("corpo incompleto");
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Trechos do {@link FileServer} executados em toda requisição, sem rede: tipo de conteúdo
+ * pela extensão, HTML da listagem de diretório (sem o cache de listagens) e a página de erro.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FileServerBenchmark {
+
+    private static final String[] FILE_NAMES = {
+            "index.html", "style.css", "app.js", "logo.png", "photo.jpeg",
+            "manual.pdf", "backup.zip", "notes.txt", "data.bin", "README"
+    };
+
+    // Entradas no diretório listado
+    @Param({"10", "1000"})
+    public int entries;
+
+    private Path webRoot;
+    private File directory;
+    private FileServer server;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        webRoot = Files.createTempDirectory("file-server-bench");
+        Path listed = Files.createDirectory(webRoot.resolve("listed"));
+        for (int i = 0; i < entries; i++) {
+            if (i % 10 == 0) {
+                Files.createDirectory(listed.resolve("dir-" + i));
+            } else {
+                Files.write(listed.resolve(i + "-" + FILE_NAMES[i % FILE_NAMES.length]), new byte[i]);
+            }
+        }
+        directory = listed.toFile();
+        server = new FileServer(new ServerConfig().setWebRoot(webRoot.toFile()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(webRoot)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String getContentType() {
+        next = (next + 1) % FILE_NAMES.length;
+        return server.getContentType(FILE_NAMES[next]);
+    }
+
+    @Benchmark
+    public byte[] renderListing() {
+        return server.renderListing(directory);
+    }
+
+    @Benchmark
+    public HttpResponse sendErrorResponse() {
+        return server.error(404, "File Not Found");
+    }
+
+}
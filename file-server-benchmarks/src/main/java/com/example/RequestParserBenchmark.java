@@ -0,0 +1,82 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do {@link HttpRequestParser}: request line + headers de uma requisição típica do
+ * curl (3 headers) e de um navegador (12 headers), só a análise e a análise seguida da
+ * leitura dos headers que o {@link FileServer} consulta em todo GET.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestParserBenchmark {
+
+    private static final String CURL = """
+            GET /docs/index.html HTTP/1.1\r
+            Host: localhost:8080\r
+            User-Agent: curl/8.5.0\r
+            Accept: */*\r
+            \r
+            """;
+
+    private static final String BROWSER = """
+            GET /docs/manual/chapter-03/networking.html?lang=pt-BR HTTP/1.1\r
+            Host: localhost:8080\r
+            Connection: keep-alive\r
+            Cache-Control: max-age=0\r
+            Upgrade-Insecure-Requests: 1\r
+            User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36\r
+            Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r
+            Sec-Fetch-Site: same-origin\r
+            Sec-Fetch-Mode: navigate\r
+            Referer: http://localhost:8080/docs/manual/\r
+            Accept-Encoding: gzip, deflate, br\r
+            Accept-Language: pt-BR,pt;q=0.9,en-US;q=0.8,en;q=0.7\r
+            If-None-Match: "1a2b3c-18f0a9c7e20"\r
+            \r
+            """;
+
+    @Param({"curl", "browser"})
+    public String request;
+
+    private HttpRequestParser parser;
+    private ByteBuffer buffer;
+    private int length;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = (request.equals("curl") ? CURL : BROWSER).getBytes(StandardCharsets.US_ASCII);
+        buffer = ByteBuffer.allocate(HttpRequestParser.INITIAL_BUFFER_SIZE);
+        buffer.put(bytes);
+        length = bytes.length;
+        parser = new HttpRequestParser();
+    }
+
+    @Benchmark
+    public int parse() throws HttpParseException {
+        parser.reset();
+        return parser.parse(buffer, 0, length);
+    }
+
+    @Benchmark
+    public void parseAndReadHeaders(Blackhole blackhole) throws HttpParseException {
+        parser.reset();
+        parser.parse(buffer, 0, length);
+        HttpRequest parsed = parser.request();
+        blackhole.consume(parsed.path());
+        blackhole.consume(parsed.isConnectionClose());
+        blackhole.consume(parsed.header(HttpHeader.RANGE));
+        blackhole.consume(parsed.header(HttpHeader.IF_NONE_MATCH));
+        blackhole.consume(parsed.header(HttpHeader.IF_MODIFIED_SINCE));
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * GET completo de um arquivo pelo loopback: servidor real ({@link FileServer}) com o engine
+ * escolhido e um cliente keep-alive que envia a requisição e descarta o corpo. Cada operação
+ * é uma requisição; o tempo médio dividido pelo tamanho dá a vazão. Com o cache padrão
+ * (64 MB) os arquivos de 1 KB e 1 MB saem da memória e o de 1 GB vai por zero-copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ServeFileBenchmark {
+
+    @Param({"1KB", "1MB", "1GB"})
+    public String size;
+
+    @Param({"BLOCKING", "SELECTOR"})
+    public ServerConfig.Engine engine;
+
+    private Path webRoot;
+    private FileServer server;
+    private SocketChannel channel;
+    private ByteBuffer request;
+    private final ByteBuffer head = ByteBuffer.allocate(8192);
+    private final ByteBuffer body = ByteBuffer.allocateDirect(256 * 1024);
+
+    @Setup
+    public void setup() throws IOException {
+        webRoot = Files.createTempDirectory("file-server-bench");
+        String fileName = "file-" + size + ".bin";
+        writeRandomFile(webRoot.resolve(fileName), parseSize(size));
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new FileServer(new ServerConfig()
+                .setPort(port)
+                .setWebRoot(webRoot.toFile())
+                .setEngine(engine)
+                .setKeepAliveMaxRequests(Integer.MAX_VALUE)
+                .setKeepAliveIdleSeconds(600));
+        server.start();
+
+        channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        request = ByteBuffer.wrap(("GET /" + fileName + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+
+        // Confere a resposta antes de medir
+        long received = get();
+        if (received != parseSize(size)) {
+            throw new IllegalStateException("Corpo com " + received + " bytes, esperado " + parseSize(size));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        server.stop();
+        try (Stream<Path> paths = Files.walk(webRoot)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long serveFile() throws IOException {
+        return get();
+    }
+
+    // Uma requisição na conexão keep-alive; devolve o tamanho do corpo recebido
+    private long get() throws IOException {
+        request.rewind();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+
+        head.clear();
+        int headEnd;
+        while ((headEnd = headEnd(head)) < 0) {
+            if (channel.read(head) < 0) {
+                throw new EOFException("Conexão encerrada antes dos headers");
+            }
+        }
+        long contentLength = contentLength(head, headEnd);
+
+        // Parte do corpo pode ter vindo junto com os headers
+        long remaining = contentLength - (head.position() - headEnd);
+        while (remaining > 0) {
+            body.clear();
+            if (remaining < body.capacity()) {
+                body.limit((int) remaining);
+            }
+            int read = channel.read(body);
+            if (read < 0) {
+                throw new EOFException("Conexão encerrada no meio do corpo");
+            }
+            remaining -= read;
+        }
+        return contentLength;
+    }
+
+    private static int headEnd(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = 3; i < buffer.position(); i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static long contentLength(ByteBuffer buffer, int headEnd) {
+        String headers = new String(buffer.array(), 0, headEnd, StandardCharsets.US_ASCII);
+        if (!headers.startsWith("HTTP/1.1 200")) {
+            throw new IllegalStateException("Resposta inesperada: " + headers.lines().findFirst().orElse(""));
+        }
+        for (String line : headers.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                return Long.parseLong(line.substring(15).trim());
+            }
+        }
+        throw new IllegalStateException("Resposta sem Content-Length");
+    }
+
+    static long parseSize(String size) {
+        long value = Long.parseLong(size.substring(0, size.length() - 2));
+        return switch (size.substring(size.length() - 2)) {
+            case "KB" -> value * 1024;
+            case "MB" -> value * 1024 * 1024;
+            case "GB" -> value * 1024 * 1024 * 1024;
+            default -> throw new IllegalArgumentException("Tamanho inválido: " + size);
+        };
+    }
+
+    // Conteúdo aleatório (gravado em blocos de 1 MB) para que nada seja esparso ou compressível
+    private static void writeRandomFile(Path path, long length) throws IOException {
+        byte[] block = new byte[(int) Math.min(length, 1024 * 1024)];
+        new Random(42).nextBytes(block);
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < length) {
+                ByteBuffer chunk = ByteBuffer.wrap(block, 0, (int) Math.min(block.length, length - written));
+                while (chunk.hasRemaining()) {
+                    written += file.write(chunk);
+                }
+            }
+        }
+    }
+
+}
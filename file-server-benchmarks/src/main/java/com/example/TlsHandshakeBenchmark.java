@@ -0,0 +1,128 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Conexão HTTPS nova por operação: TCP, handshake TLS, GET de um arquivo pequeno e fechamento.
+ * Com {@code FULL} a sessão do cliente é invalidada depois de cada conexão e todo handshake
+ * é completo (certificado + acordo de chaves); com {@code RESUMED} o cliente reaproveita a
+ * sessão (ticket no TLS 1.3) e o servidor faz só o handshake abreviado. A diferença entre os
+ * dois é o que o cache de sessões e os tickets economizam por conexão.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TlsHandshakeBenchmark {
+
+    private static final String PASSWORD = "benchmark";
+
+    @Param({"FULL", "RESUMED"})
+    public String handshake;
+
+    private Path webRoot;
+    private FileServer server;
+    private SSLContext client;
+    private int port;
+    private byte[] request;
+    private final byte[] response = new byte[8192];
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        webRoot = Files.createTempDirectory("file-server-tls-bench");
+        Files.writeString(webRoot.resolve("hello.txt"), "hello");
+        Path keystore = webRoot.resolve("keystore.p12");
+
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new FileServer(new ServerConfig()
+                .setPort(port)
+                .setWebRoot(webRoot.toFile())
+                .setEngine(ServerConfig.Engine.SELECTOR)
+                .setTls(true)
+                .setTlsKeystore(keystore.toFile())
+                .setTlsPassword(PASSWORD));
+        server.start();
+
+        // O cliente confia só no certificado autoassinado que o servidor acabou de gerar
+        KeyStore trusted = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            trusted.load(in, PASSWORD.toCharArray());
+        }
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trusted);
+        client = SSLContext.getInstance("TLS");
+        client.init(null, trustManagers.getTrustManagers(), null);
+
+        request = "GET /hello.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII);
+
+        // Confere a resposta antes de medir
+        String head = new String(response, 0, connectAndGet(), StandardCharsets.US_ASCII);
+        if (!head.startsWith("HTTP/1.1 200") || !head.endsWith("hello")) {
+            throw new IllegalStateException("Resposta inesperada: " + head.lines().findFirst().orElse(""));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        // Confere que o servidor fez o tipo de handshake medido
+        ServerMetrics metrics = server.getMetrics();
+        long full = metrics.handshakes(false).getCount();
+        long resumed = metrics.handshakes(true).getCount();
+        server.stop();
+        try (Stream<Path> paths = Files.walk(webRoot)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        if (handshake.equals("FULL") ? resumed > 0 : resumed < full) {
+            throw new IllegalStateException("Handshakes no servidor: " + full + " completos, " + resumed + " retomados");
+        }
+    }
+
+    @Benchmark
+    public int connect() throws IOException {
+        return connectAndGet();
+    }
+
+    // Uma conexão com um GET; devolve o tamanho da resposta (headers + corpo)
+    private int connectAndGet() throws IOException {
+        try (SSLSocket socket = (SSLSocket) client.getSocketFactory().createSocket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            out.write(request);
+            out.flush();
+
+            // Lido até o servidor fechar: no TLS 1.3 o ticket chega depois do handshake
+            InputStream in = socket.getInputStream();
+            int length = 0;
+            int read;
+            while ((read = in.read(response, length, response.length - length)) > 0) {
+                length += read;
+            }
+            if (handshake.equals("FULL")) {
+                socket.getSession().invalidate();
+            }
+            return length;
+        }
+    }
+
+}
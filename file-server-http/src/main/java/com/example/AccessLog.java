@@ -0,0 +1,519 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Access log em arquivo. As threads que atendem só publicam um {@link Entry} num anel
+ * circular sem locks (vários produtores, um consumidor); se o anel estiver cheio a linha é
+ * descartada e contada, nunca esperada. Uma única thread esvazia o anel em lotes, formata e
+ * escreve num arquivo mapeado em memória, e só chama {@code force()} a cada lote (no máximo uma
+ * vez por segundo ou por MB escrito), não a cada linha.
+ *
+ * O arquivo é pré-alocado com o tamanho máximo e, ao encher, vira {@code access.log.1} (os
+ * anteriores sobem um número, até {@value #ROTATED_FILES}). No fechamento ele é truncado no
+ * fim dos dados; depois de uma queda sobra um rabo de zeros, que a próxima partida encontra e
+ * continua escrevendo por cima. Em {@link Format#BINARY} cada registro ocupa poucos bytes e o
+ * {@link AccessLogReader} converte para texto.
+ */
+public class AccessLog implements Closeable {
+
+    public enum Format {
+        CLF, BINARY;
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Formato de access log inválido: " + value + " (use clf ou binary)");
+        }
+    }
+
+    /**
+     * Uma requisição atendida. {@code method}, {@code target} e {@code version} são null quando
+     * a requisição nem chegou a ser entendida (400, 431...).
+     */
+    public record Entry(long timeMillis, String client, String method, String target, String version,
+                        int status, long bytes, long durationMicros) {
+    }
+
+    // Cabeçalho do formato binário: "FSAL", versão e a data de criação do arquivo
+    static final int MAGIC = 0x4653414C;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    // Registro: tamanho (u16), data (ms), duração (µs), status, bytes e as strings com tamanho
+    static final int FIXED_RECORD_SIZE = 2 + 8 + 4 + 2 + 8 + 1 + 1 + 1 + 2;
+    static final int MAX_SHORT_STRING = 255;
+    static final int MAX_TARGET = 8 * 1024;
+
+    static final DateTimeFormatter CLF_TIME = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+
+    private static final int RING_SIZE = 8192;
+    private static final int ROTATED_FILES = 10;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FORCE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int FORCE_BYTES = 1024 * 1024;
+    public static final long MIN_FILE_SIZE = 1024 * 1024;
+
+    private final Path path;
+    private final Format format;
+    private final long maxBytes;
+    private final Consumer<String> log;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Anel: o slot i está livre para a volta v quando sequences[i] == v * RING_SIZE + i, e
+    // pronto para leitura quando vale uma posição a mais
+    private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(RING_SIZE);
+    private final AtomicLongArray sequences = new AtomicLongArray(RING_SIZE);
+    private final AtomicLong tail = new AtomicLong();
+    // Só a thread de escrita mexe
+    private long head = 0;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    private volatile boolean running = false;
+    private Thread writer;
+
+    // Arquivo corrente (só a thread de escrita mexe depois do start)
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int forcedUpTo;
+    private long firstUnforcedNanos;
+    private final StringBuilder line = new StringBuilder(256);
+    private long clfSecond = -1;
+    private String clfTime;
+
+    public AccessLog(File file, Format format, long maxBytes, Consumer<String> log) {
+        this.path = file.toPath().toAbsolutePath();
+        this.format = format;
+        this.maxBytes = Math.max(maxBytes, MIN_FILE_SIZE);
+        this.log = log;
+        for (int i = 0; i < RING_SIZE; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    // Abre (ou continua) o arquivo e sobe a thread de escrita
+    public void start() throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+        running = true;
+        writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Publica a requisição no anel, sem bloquear. Chamado pelas threads que atendem;
+     * devolve false quando o anel está cheio (ou o log fechado) e a linha foi descartada.
+     */
+    public boolean append(Entry entry) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & (RING_SIZE - 1));
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, entry);
+                    // Publica: a escrita do slot fica visível antes da sequência
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // O slot ainda guarda a volta anterior: o writer não acompanhou
+                dropped.increment();
+                return false;
+            }
+            // Outra thread pegou a posição: tentar a seguinte
+        }
+    }
+
+    // Monta o registro a partir da resposta entregue
+    public boolean record(HttpResponse response, String clientAddress) {
+        long now = System.currentTimeMillis();
+        long durationMicros = response.getStartNanos() != 0 ? (System.nanoTime() - response.getStartNanos()) / 1000 : 0;
+        return append(new Entry(now - durationMicros / 1000, clientAddress, response.getRequestMethod(),
+                response.getTarget(), response.getVersion(), response.getStatusCode(),
+                response.getBytesSent(), durationMicros));
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getForces() {
+        return forces.sum();
+    }
+
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    // Esvazia o anel, grava o que faltou e trunca o arquivo no fim dos dados
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                boolean stopping = !running;
+                int drained = drain();
+                if (drained > 0) {
+                    forceIfDue(false);
+                } else if (stopping) {
+                    break;
+                } else {
+                    forceIfDue(false);
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            running = false;
+            log.accept("❌ Access log interrompido: " + ex.getMessage());
+        } finally {
+            finish();
+        }
+    }
+
+    // Um lote: tudo o que estiver pronto no anel, em ordem
+    private int drain() throws IOException {
+        int count = 0;
+        while (true) {
+            int index = (int) (head & (RING_SIZE - 1));
+            if (sequences.get(index) != head + 1) {
+                return count;
+            }
+            Entry entry = slots.get(index);
+            slots.set(index, null);
+            // Libera o slot para a próxima volta
+            sequences.set(index, head + RING_SIZE);
+            head++;
+            write(entry);
+            count++;
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        if (format == Format.BINARY) {
+            int size = binarySize(entry);
+            if (mapped.remaining() < size) {
+                rotate();
+            }
+            encode(entry, mapped);
+        } else {
+            byte[] bytes = clfLine(entry).getBytes(StandardCharsets.UTF_8);
+            if (mapped.remaining() < bytes.length) {
+                rotate();
+            }
+            mapped.put(bytes);
+        }
+        if (firstUnforcedNanos == 0) {
+            firstUnforcedNanos = System.nanoTime();
+        }
+        written.increment();
+    }
+
+    // Group commit: um force para o lote inteiro, e só quando passou o intervalo ou juntou 1 MB
+    private void forceIfDue(boolean always) {
+        int dirty = mapped.position() - forcedUpTo;
+        if (dirty <= 0) {
+            return;
+        }
+        if (always || dirty >= FORCE_BYTES || System.nanoTime() - firstUnforcedNanos >= FORCE_INTERVAL_NANOS) {
+            mapped.force(forcedUpTo, dirty);
+            forcedUpTo = mapped.position();
+            firstUnforcedNanos = 0;
+            forces.increment();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existing = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(maxBytes, existing));
+        int end = existing > 0 ? dataEnd() : -1;
+        if (end < 0 || end >= maxBytes - FIXED_RECORD_SIZE) {
+            // Arquivo de outro formato, corrompido ou já cheio: vai para a rotação
+            if (existing > 0) {
+                rotateFiles();
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxBytes);
+            }
+            end = 0;
+            if (format == Format.BINARY) {
+                mapped.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(System.currentTimeMillis());
+                end = HEADER_SIZE;
+            }
+        }
+        mapped.position(end);
+        mapped.limit((int) Math.min(maxBytes, Integer.MAX_VALUE));
+        forcedUpTo = end;
+    }
+
+    // Onde terminam os dados de um arquivo existente; -1 se não for do formato configurado
+    private int dataEnd() {
+        int capacity = mapped.capacity();
+        if (format == Format.BINARY) {
+            if (capacity < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getShort(4) != VERSION) {
+                return -1;
+            }
+            return binaryEnd(mapped, HEADER_SIZE);
+        }
+        if (capacity >= 4 && mapped.getInt(0) == MAGIC) {
+            return -1;
+        }
+        // Texto nunca tem byte zero: busca binária pelo começo do rabo de zeros
+        int low = 0;
+        int high = capacity;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mapped.get(middle) == 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    // Fim da cadeia de registros binários a partir de {@code offset}: o primeiro tamanho zero ou inválido
+    static int binaryEnd(ByteBuffer buffer, int offset) {
+        int position = offset;
+        while (position + 2 <= buffer.limit()) {
+            int size = buffer.getShort(position) & 0xFFFF;
+            if (size < FIXED_RECORD_SIZE || position + size > buffer.limit()) {
+                break;
+            }
+            position += size;
+        }
+        return position;
+    }
+
+    private void rotate() throws IOException {
+        finish();
+        rotateFiles();
+        open();
+        rotations.increment();
+    }
+
+    // access.log -> access.log.1 -> ... -> access.log.N (o mais antigo é apagado)
+    private void rotateFiles() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.close();
+        }
+        Path oldest = rotated(ROTATED_FILES);
+        Files.deleteIfExists(oldest);
+        for (int i = ROTATED_FILES - 1; i >= 1; i--) {
+            Path from = rotated(i);
+            if (Files.exists(from)) {
+                Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (Files.exists(path)) {
+            Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path rotated(int number) {
+        return path.resolveSibling(path.getFileName() + "." + number);
+    }
+
+    // Grava o que falta e corta o arquivo no fim dos dados
+    private void finish() {
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        try {
+            forceIfDue(true);
+            int end = mapped.position();
+            // O mapeamento só some com o GC; nada mais é escrito nele depois do truncate
+            channel.truncate(end);
+            channel.close();
+        } catch (IOException | UncheckedIOException ex) {
+            log.accept("⚠️ Access log: não foi possível fechar " + path.getFileName() + ": " + ex.getMessage());
+        }
+    }
+
+    static int binarySize(Entry entry) {
+        return FIXED_RECORD_SIZE + utf8(entry.client(), MAX_SHORT_STRING).length
+                + utf8(entry.method(), MAX_SHORT_STRING).length + utf8(entry.target(), MAX_TARGET).length;
+    }
+
+    /**
+     * Registro binário: tamanho total (u16), data em ms, duração em µs (u32), status (u16),
+     * bytes enviados, versão HTTP (10, 11 ou 20; 0 = desconhecida) e as strings cliente,
+     * método (u8 + UTF-8) e target (u16 + UTF-8, cortado em {@value #MAX_TARGET} bytes).
+     */
+    static void encode(Entry entry, ByteBuffer out) {
+        byte[] client = utf8(entry.client(), MAX_SHORT_STRING);
+        byte[] method = utf8(entry.method(), MAX_SHORT_STRING);
+        byte[] target = utf8(entry.target(), MAX_TARGET);
+        int size = FIXED_RECORD_SIZE + client.length + method.length + target.length;
+        out.putShort((short) size)
+                .putLong(entry.timeMillis())
+                .putInt((int) Math.min(entry.durationMicros(), 0xFFFFFFFFL))
+                .putShort((short) entry.status())
+                .putLong(entry.bytes())
+                .put(versionCode(entry.version()))
+                .put((byte) client.length).put(client)
+                .put((byte) method.length).put(method)
+                .putShort((short) target.length).put(target);
+    }
+
+    static Entry decode(ByteBuffer in) {
+        in.getShort();
+        long time = in.getLong();
+        long duration = in.getInt() & 0xFFFFFFFFL;
+        int status = in.getShort() & 0xFFFF;
+        long bytes = in.getLong();
+        String version = versionName(in.get());
+        String client = string(in, in.get() & 0xFF);
+        String method = string(in, in.get() & 0xFF);
+        String target = string(in, in.getShort() & 0xFFFF);
+        return new Entry(time, client, method.isEmpty() ? null : method, target.isEmpty() ? null : target,
+                version, status, bytes, duration);
+    }
+
+    private static byte versionCode(String version) {
+        if (version == null) {
+            return 0;
+        }
+        return switch (version) {
+            case "HTTP/1.0" -> 10;
+            case "HTTP/1.1" -> 11;
+            case "HTTP/2" -> 20;
+            default -> 0;
+        };
+    }
+
+    private static String versionName(byte code) {
+        return switch (code) {
+            case 10 -> "HTTP/1.0";
+            case 11 -> "HTTP/1.1";
+            case 20 -> "HTTP/2";
+            default -> null;
+        };
+    }
+
+    private static byte[] utf8(String value, int max) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= max ? bytes : Arrays.copyOf(bytes, max);
+    }
+
+    private static String string(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Common Log Format: host ident authuser [data] "request line" status bytes
+    private String clfLine(Entry entry) {
+        line.setLength(0);
+        long second = entry.timeMillis() / 1000;
+        if (second != clfSecond) {
+            clfSecond = second;
+            clfTime = CLF_TIME.format(Instant.ofEpochSecond(second).atZone(zone));
+        }
+        appendClf(line, entry, clfTime);
+        return line.append('\n').toString();
+    }
+
+    static void appendClf(StringBuilder out, Entry entry, String time) {
+        out.append(entry.client() != null ? entry.client() : "-").append(" - - [").append(time).append("] \"");
+        if (entry.method() == null) {
+            out.append('-');
+        } else {
+            out.append(entry.method()).append(' ');
+            escape(out, entry.target());
+            if (entry.version() != null) {
+                out.append(' ').append(entry.version());
+            }
+        }
+        out.append("\" ").append(entry.status()).append(' ');
+        if (entry.bytes() > 0) {
+            out.append(entry.bytes());
+        } else {
+            out.append('-');
+        }
+    }
+
+    // Aspas, barras e caracteres de controle escapados como no Apache
+    private static void escape(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7F) {
+                out.append(String.format("\\x%02x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+}
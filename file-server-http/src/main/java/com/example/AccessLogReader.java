@@ -0,0 +1,98 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * Converte o access log binário ({@code --access-log-format=binary}) para texto, no Common Log
+ * Format; com {@code --duration} cada linha ganha no fim o tempo de atendimento em ms.
+ * Vários arquivos são lidos na ordem dada (para a ordem cronológica, do {@code .N} para o atual).
+ *
+ * <pre>
+ * java -cp target/classes com.example.AccessLogReader [--duration] access.log.2 access.log.1 access.log
+ * </pre>
+ *
+ * Um arquivo interrompido por uma queda termina num rabo de zeros: a leitura para ali.
+ */
+public class AccessLogReader {
+
+    public static void main(String[] args) throws IOException {
+        boolean duration = false;
+        int first = 0;
+        if (args.length > 0 && args[0].equals("--duration")) {
+            duration = true;
+            first = 1;
+        }
+        if (first >= args.length) {
+            System.err.println("Uso: AccessLogReader [--duration] ARQUIVO...");
+            System.exit(2);
+            return;
+        }
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        int status = 0;
+        for (int i = first; i < args.length; i++) {
+            try {
+                convert(Path.of(args[i]), duration, out);
+            } catch (IOException | IllegalArgumentException ex) {
+                out.flush();
+                System.err.println("❌ " + args[i] + ": " + ex.getMessage());
+                status = 1;
+            }
+        }
+        out.flush();
+        System.exit(status);
+    }
+
+    // Escreve em {@code out} uma linha por registro; devolve quantos registros foram lidos
+    public static long convert(Path file, boolean duration, Appendable out) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < AccessLog.HEADER_SIZE || buffer.getInt(0) != AccessLog.MAGIC) {
+            throw new IllegalArgumentException("não é um access log binário");
+        }
+        if (buffer.getShort(4) != AccessLog.VERSION) {
+            throw new IllegalArgumentException("versão de access log não suportada: " + buffer.getShort(4));
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        int end = AccessLog.binaryEnd(buffer, AccessLog.HEADER_SIZE);
+        buffer.position(AccessLog.HEADER_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        long second = -1;
+        String time = null;
+        long count = 0;
+        while (buffer.position() < end) {
+            int start = buffer.position();
+            int size = buffer.getShort(start) & 0xFFFF;
+            AccessLog.Entry entry = AccessLog.decode(buffer);
+            buffer.position(start + size);
+
+            if (entry.timeMillis() / 1000 != second) {
+                second = entry.timeMillis() / 1000;
+                time = AccessLog.CLF_TIME.format(Instant.ofEpochSecond(second).atZone(zone));
+            }
+            line.setLength(0);
+            AccessLog.appendClf(line, entry, time);
+            if (duration) {
+                line.append(' ').append(String.format(Locale.ROOT, "%.3f", entry.durationMicros() / 1000.0));
+            }
+            out.append(line).append('\n');
+            count++;
+        }
+        return count;
+    }
+
+}
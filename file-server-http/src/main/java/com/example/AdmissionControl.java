@@ -0,0 +1,215 @@
+package com.example;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Controle de admissão compartilhado pelos engines. Uma conexão pode ser recusada em três
+ * pontos, sempre com um 503 pronto (com {@code Retry-After}) e sem passar pelo parser:
+ *
+ * <ul>
+ *   <li>no accept, se a fila de conexões à espera de uma thread (ou do event loop) está cheia;</li>
+ *   <li>no accept, se o IP do cliente já tem conexões demais abertas;</li>
+ *   <li>quando sai da fila, pelo CoDel: se o tempo de espera na fila ficou acima do alvo por
+ *       um intervalo inteiro, a fila é considerada "ruim" e conexões passam a ser descartadas
+ *       num ritmo que cresce com a raiz quadrada do número de descartes, até a espera voltar
+ *       para baixo do alvo.</li>
+ * </ul>
+ *
+ * Recusar cedo é barato: o cliente recebe a resposta em microssegundos e tenta de novo, em vez
+ * de esperar na fila até o timeout dele enquanto a memória do servidor cresce.
+ */
+public class AdmissionControl {
+
+    // Motivo da recusa; vira o label "reason" nas métricas
+    public enum Reason {
+        QUEUE_FULL("queue_full"), PER_IP("per_ip"), CODEL("codel");
+
+        private final String label;
+
+        Reason(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final int queueCapacity;
+    private final int maxPerIp;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final ServerMetrics metrics;
+    private final Consumer<String> log;
+    private final byte[] serviceUnavailable;
+
+    // Conexões abertas por IP; a entrada some quando a última conexão do IP fecha
+    private final ConcurrentHashMap<String, Integer> perIp = new ConcurrentHashMap<>();
+
+    // Estado do CoDel (RFC 8289), protegido pelo monitor do objeto
+    private long firstAboveTime = 0;
+    private boolean dropping = false;
+    private long dropNext = 0;
+    private int dropCount = 0;
+    private int lastDropCount = 0;
+
+    public AdmissionControl(int queueCapacity, int maxPerIp, int targetMillis, int intervalMillis,
+                            int retryAfterSeconds, ServerMetrics metrics, Consumer<String> log) {
+        this.queueCapacity = queueCapacity;
+        this.maxPerIp = maxPerIp;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.metrics = metrics;
+        this.log = log;
+
+        String body = "503 Service Unavailable: servidor sobrecarregado, tente novamente em "
+                + retryAfterSeconds + " s.\n";
+        this.serviceUnavailable = ("HTTP/1.1 503 Service Unavailable\r\n"
+                + "Server: SwingHTTPServer/1.0\r\n"
+                + "Content-Type: text/plain; charset=utf-8\r\n"
+                + "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n"
+                + "Retry-After: " + retryAfterSeconds + "\r\n"
+                + "Connection: close\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Conexões que podem esperar na fila por uma thread ou pelo registro no event loop
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Reserva uma vaga para o IP da conexão recém-aceita. Se não houver, a conexão é recusada
+     * aqui mesmo e o retorno é null; senão devolve o IP, que deve ir para {@link #release}
+     * quando a conexão fechar.
+     */
+    public String admit(SocketChannel channel, boolean plaintext) {
+        String clientAddress;
+        try {
+            clientAddress = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        } catch (Exception ex) {
+            closeQuietly(channel);
+            return null;
+        }
+        if (maxPerIp <= 0) {
+            return clientAddress;
+        }
+
+        boolean[] admitted = {false};
+        perIp.compute(clientAddress, (ip, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxPerIp) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        if (!admitted[0]) {
+            reject(channel, Reason.PER_IP, plaintext);
+            return null;
+        }
+        return clientAddress;
+    }
+
+    public void release(String clientAddress) {
+        if (maxPerIp > 0 && clientAddress != null) {
+            perIp.computeIfPresent(clientAddress, (ip, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Decisão do CoDel quando a conexão sai da fila, com o tempo que ela esperou.
+     * True: a conexão deve ser descartada com {@link #reject}.
+     */
+    public synchronized boolean shouldShed(long sojournNanos) {
+        if (intervalNanos <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+
+        if (sojournNanos < targetNanos) {
+            // Fila boa de novo: sai do modo de descarte
+            firstAboveTime = 0;
+            if (dropping) {
+                dropping = false;
+                log.accept("🚦 Descarte de carga desativado (espera na fila abaixo de "
+                        + TimeUnit.NANOSECONDS.toMillis(targetNanos) + " ms)");
+            }
+            return false;
+        }
+        if (firstAboveTime == 0) {
+            firstAboveTime = now + intervalNanos;
+            return false;
+        }
+
+        if (dropping) {
+            if (now - dropNext >= 0) {
+                dropCount++;
+                dropNext = controlLaw(dropNext);
+                return true;
+            }
+            return false;
+        }
+
+        if (now - firstAboveTime >= 0) {
+            // Acima do alvo por um intervalo inteiro: começa a descartar. Se o último episódio
+            // foi recente, retoma perto do ritmo em que parou
+            dropping = true;
+            int delta = dropCount - lastDropCount;
+            dropCount = delta > 1 && now - dropNext < 16 * intervalNanos ? delta : 1;
+            lastDropCount = dropCount;
+            dropNext = controlLaw(now);
+            log.accept("🚦 Descarte de carga ativado: espera na fila de "
+                    + TimeUnit.NANOSECONDS.toMillis(sojournNanos) + " ms");
+            return true;
+        }
+        return false;
+    }
+
+    // Próximo descarte: intervalo / raiz(número de descartes)
+    private long controlLaw(long time) {
+        return time + (long) (intervalNanos / Math.sqrt(dropCount));
+    }
+
+    /**
+     * Recusa a conexão: conta, responde 503 sem bloquear (a resposta cabe no buffer do socket)
+     * e fecha. O que o cliente já enviou é lido e descartado antes do close, para o kernel não
+     * mandar um RST que faria o cliente perder a resposta. Com TLS não há como responder sem
+     * um handshake, então a conexão só é fechada.
+     */
+    public void reject(SocketChannel channel, Reason reason, boolean plaintext) {
+        metrics.recordAdmissionRejected(reason);
+        try {
+            if (plaintext) {
+                channel.configureBlocking(false);
+                channel.write(ByteBuffer.wrap(serviceUnavailable));
+                BufferPool.Lease discard = BufferPool.shared().acquire(4096);
+                try {
+                    while (channel.read(discard.buffer()) > 0) {
+                        discard.buffer().clear();
+                    }
+                } finally {
+                    discard.release();
+                }
+                channel.shutdownOutput();
+            }
+        } catch (Exception ignored) {
+            // O cliente já foi embora: nada a responder
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grava um arquivo em um temporário no mesmo diretório do destino e só o renomeia
+ * para o nome final no {@link #commit}: quem baixa o arquivo nunca vê um upload pela metade.
+ */
+public class AtomicFileWriter implements Closeable {
+
+    // Temporários de upload em andamento; ficam fora das listagens
+    public static final String TEMP_PREFIX = ".upload-";
+
+    private final Path temp;
+    private final FileChannel channel;
+    private long size = 0;
+    private boolean committed = false;
+
+    public AtomicFileWriter(Path directory) throws IOException {
+        this.temp = Files.createTempFile(directory, TEMP_PREFIX, ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+    }
+
+    public void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            size += channel.write(data);
+        }
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    // Renomeia o temporário para target, substituindo o arquivo existente
+    public void commit(Path target) throws IOException {
+        channel.close();
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+        }
+    }
+
+}
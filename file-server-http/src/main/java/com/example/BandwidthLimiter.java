@@ -0,0 +1,215 @@
+package com.example;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limite de banda das respostas com token buckets em três níveis: por conexão, por IP do
+ * cliente (somando as conexões dele) e global. Uma escrita só sai com o que os três baldes
+ * permitem; sem tokens, quem escreve recebe o tempo até o próximo lote e decide como esperar.
+ * O engine selector tira o OP_WRITE e retoma a conexão por um prazo do event loop (nenhuma
+ * thread fica parada); os bloqueantes e o writer do HTTP/2 estacionam a própria thread.
+ *
+ * Os limites (bytes/s, 0 = sem limite) podem mudar com o servidor rodando e valem já para as
+ * conexões abertas. Cada balde acumula no máximo 100 ms de tráfego, então uma conexão ociosa
+ * não ganha uma rajada grande.
+ */
+public class BandwidthLimiter {
+
+    private static final long MIN_BURST = 1024;
+
+    private volatile long connectionRate;
+    private volatile long ipRate;
+    private volatile long globalRate;
+
+    private final TokenBucket global = new TokenBucket();
+    private final Map<String, SharedBucket> perIp = new ConcurrentHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+
+    public BandwidthLimiter(long connectionRate, long ipRate, long globalRate) {
+        setRates(connectionRate, ipRate, globalRate);
+    }
+
+    // Limites em bytes/s; 0 desliga o nível (final: o construtor também passa por aqui)
+    public final void setRates(long connectionRate, long ipRate, long globalRate) {
+        if (connectionRate < 0 || ipRate < 0 || globalRate < 0) {
+            throw new IllegalArgumentException("Limites de banda inválidos! Use KB/s >= 0 (0 = sem limite).");
+        }
+        this.connectionRate = connectionRate;
+        this.ipRate = ipRate;
+        this.globalRate = globalRate;
+    }
+
+    public long getConnectionRate() {
+        return connectionRate;
+    }
+
+    public long getIpRate() {
+        return ipRate;
+    }
+
+    public long getGlobalRate() {
+        return globalRate;
+    }
+
+    // Vezes em que uma escrita teve de esperar por tokens
+    public long getThrottledWrites() {
+        return throttled.sum();
+    }
+
+    public Throttle open(String clientAddress) {
+        SharedBucket shared = perIp.compute(clientAddress, (ip, current) -> {
+            SharedBucket bucket = current != null ? current : new SharedBucket();
+            bucket.references++;
+            return bucket;
+        });
+        return new Throttle(clientAddress, shared);
+    }
+
+    private void release(String clientAddress) {
+        perIp.computeIfPresent(clientAddress, (ip, bucket) -> --bucket.references == 0 ? null : bucket);
+    }
+
+    /**
+     * Os baldes de uma conexão. Usado por uma thread de cada vez (a que escreve a resposta).
+     */
+    public final class Throttle implements Closeable {
+
+        private final String clientAddress;
+        private final SharedBucket ip;
+        private final TokenBucket own = new TokenBucket();
+        private boolean closed = false;
+
+        private Throttle(String clientAddress, SharedBucket ip) {
+            this.clientAddress = clientAddress;
+            this.ip = ip;
+        }
+
+        /**
+         * Quantos dos {@code wanted} bytes podem ser escritos agora; 0 quando é preciso esperar
+         * {@link #delayNanos()}. Depois de escrever, informar o que saiu em {@link #consumed}.
+         */
+        public long allowance(long wanted) {
+            if (wanted <= 0) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            long allowed = wanted;
+            allowed = own.allowance(connectionRate, allowed, now);
+            allowed = ip.bucket.allowance(ipRate, allowed, now);
+            allowed = global.allowance(globalRate, allowed, now);
+            if (allowed == 0) {
+                throttled.increment();
+            }
+            return allowed;
+        }
+
+        public void consumed(long bytes) {
+            if (bytes <= 0) {
+                return;
+            }
+            own.take(connectionRate, bytes);
+            ip.bucket.take(ipRate, bytes);
+            global.take(globalRate, bytes);
+        }
+
+        // Tempo até os três baldes terem um lote mínimo; 0 se já dá para escrever
+        public long delayNanos() {
+            long now = System.nanoTime();
+            return Math.max(own.delayNanos(connectionRate, now),
+                    Math.max(ip.bucket.delayNanos(ipRate, now), global.delayNanos(globalRate, now)));
+        }
+
+        /**
+         * Versão bloqueante de {@link #allowance}: estaciona a thread até haver tokens e devolve
+         * quantos bytes podem sair.
+         */
+        public long acquire(long wanted) {
+            if (wanted <= 0) {
+                return 0;
+            }
+            long allowed;
+            while ((allowed = allowance(wanted)) == 0) {
+                LockSupport.parkNanos(Math.max(delayNanos(), TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+            return allowed;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(clientAddress);
+            }
+        }
+    }
+
+    private static final class SharedBucket {
+        final TokenBucket bucket = new TokenBucket();
+        // Conexões abertas do IP; só mexido dentro do compute do mapa
+        int references;
+    }
+
+    /**
+     * Tokens em bytes, reabastecidos pelo tempo decorrido na taxa corrente. Pode ficar negativo
+     * quando várias conexões escrevem ao mesmo tempo: a dívida é paga antes da próxima escrita.
+     */
+    private static final class TokenBucket {
+
+        private double tokens = Double.NaN;
+        private long refilledAt;
+
+        // 100 ms de tráfego
+        private static long burst(long rate) {
+            return Math.max(rate / 10, MIN_BURST);
+        }
+
+        // Abaixo disso a escrita espera: evita escrever alguns bytes por vez
+        private static long quantum(long rate) {
+            return burst(rate) / 8;
+        }
+
+        synchronized long allowance(long rate, long wanted, long now) {
+            if (rate <= 0 || wanted == 0) {
+                return wanted;
+            }
+            refill(rate, now);
+            if (tokens < Math.min(quantum(rate), wanted)) {
+                return 0;
+            }
+            return Math.min(wanted, (long) tokens);
+        }
+
+        synchronized void take(long rate, long bytes) {
+            if (rate > 0) {
+                refill(rate, System.nanoTime());
+                tokens -= bytes;
+            }
+        }
+
+        synchronized long delayNanos(long rate, long now) {
+            if (rate <= 0) {
+                return 0;
+            }
+            refill(rate, now);
+            double missing = quantum(rate) - tokens;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing * 1_000_000_000.0 / rate);
+        }
+
+        private void refill(long rate, long now) {
+            long burst = burst(rate);
+            if (Double.isNaN(tokens)) {
+                // Balde novo começa cheio
+                tokens = burst;
+            } else {
+                tokens = Math.min(burst, tokens + (now - refilledAt) * (rate / 1_000_000_000.0));
+            }
+            refilledAt = now;
+        }
+    }
+
+}
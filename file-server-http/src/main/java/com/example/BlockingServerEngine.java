@@ -0,0 +1,397 @@
+package com.example;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Engine clássico: uma thread por conexão, com accept() bloqueante.
+ * As threads vêm de um pool fixo de plataforma ou são virtuais (uma por conexão, JDK 21).
+ * Usa canais em modo bloqueante para que o corpo dos arquivos possa ir por zero-copy.
+ * Com {@link AdmissionControl} a fila do pool é limitada e a espera nela passa pelo CoDel.
+ * Os prazos de cada conexão ({@link ConnectionTimeouts}) ficam numa {@link TimerWheel}: quando
+ * um vence, o socket é fechado e a leitura ou escrita bloqueada na thread da conexão falha.
+ */
+public class BlockingServerEngine implements ServerEngine {
+
+    // Fila de conexões pendentes no kernel; o padrão (50) descarta SYNs em rajadas
+    static final int ACCEPT_BACKLOG = 1024;
+    // Buffer da conexão durante uploads: leituras maiores que o buffer de cabeçalhos
+    static final int BODY_BUFFER_SIZE = 64 * 1024;
+
+    private final HttpRequestHandler handler;
+    private final Consumer<String> log;
+    private final int poolSize;
+    private final boolean virtualThreads;
+    private final KeepAlivePolicy keepAlivePolicy;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private TlsContext tls;
+    private int http2MaxStreams = 0;
+    private AdmissionControl admission;
+    private ConnectionTimeouts timeouts;
+    private TimerWheel wheel;
+    private boolean reusePort = false;
+    private BandwidthLimiter bandwidth;
+
+    private ServerSocketChannel serverChannel;
+    private ExecutorService executorService;
+    private volatile boolean isRunning = false;
+
+    public BlockingServerEngine(HttpRequestHandler handler, Consumer<String> log, int poolSize,
+                                KeepAlivePolicy keepAlivePolicy) {
+        this(handler, log, poolSize, false, keepAlivePolicy);
+    }
+
+    private BlockingServerEngine(HttpRequestHandler handler, Consumer<String> log, int poolSize,
+                                 boolean virtualThreads, KeepAlivePolicy keepAlivePolicy) {
+        this.handler = handler;
+        this.log = log;
+        this.poolSize = poolSize;
+        this.virtualThreads = virtualThreads;
+        this.keepAlivePolicy = keepAlivePolicy;
+        this.timeouts = ConnectionTimeouts.withDefaults(keepAlivePolicy);
+    }
+
+    // Uma virtual thread por conexão: sem limite fixo, um cliente lento não trava os demais
+    public static BlockingServerEngine withVirtualThreads(HttpRequestHandler handler, Consumer<String> log,
+                                                          KeepAlivePolicy keepAlivePolicy) {
+        return new BlockingServerEngine(handler, log, 0, true, keepAlivePolicy);
+    }
+
+    // HTTPS em todas as conexões (null = texto puro); chamar antes do start
+    public BlockingServerEngine useTls(TlsContext tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    // h2c (conhecimento prévio ou Upgrade) com até maxConcurrentStreams por conexão; 0 desativa
+    public BlockingServerEngine useHttp2(int maxConcurrentStreams) {
+        this.http2MaxStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    // Fila limitada, limite por IP e CoDel (null = fila sem limite, como um pool fixo comum)
+    public BlockingServerEngine useAdmission(AdmissionControl admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    // Prazos de cabeçalhos, corpo, escrita e keep-alive; chamar antes do start
+    public BlockingServerEngine useTimeouts(ConnectionTimeouts timeouts) {
+        this.timeouts = timeouts;
+        return this;
+    }
+
+    // SO_REUSEPORT: vários engines escutando na mesma porta, com o kernel dividindo as conexões
+    public BlockingServerEngine useReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+        return this;
+    }
+
+    // Limite de banda das respostas (por conexão, por IP e global), ajustável em execução
+    public BlockingServerEngine useBandwidth(BandwidthLimiter bandwidth) {
+        this.bandwidth = bandwidth;
+        return this;
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        wheel = timeouts.newWheel(log);
+        serverChannel = ServerSocketChannel.open();
+        if (reusePort) {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        executorService = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                        admission != null ? new ArrayBlockingQueue<>(admission.getQueueCapacity()) : new LinkedBlockingQueue<>());
+        isRunning = true;
+
+        // Thread para aceitar conexões
+        new Thread(() -> {
+            while (isRunning && serverChannel.isOpen()) {
+                try {
+                    SocketChannel client = serverChannel.accept();
+                    acceptedConnections.increment();
+                    String clientAddress = admission != null
+                            ? admission.admit(client, tls == null)
+                            : client.socket().getInetAddress().getHostAddress();
+                    if (clientAddress == null) {
+                        continue;
+                    }
+                    long acceptedNanos = System.nanoTime();
+                    activeConnections.incrementAndGet();
+                    try {
+                        executorService.execute(() -> handleClient(client, clientAddress, acceptedNanos));
+                    } catch (RejectedExecutionException ex) {
+                        // Fila cheia: 503 imediato em vez de esperar por uma thread
+                        activeConnections.decrementAndGet();
+                        if (admission != null) {
+                            admission.release(clientAddress);
+                            admission.reject(client, AdmissionControl.Reason.QUEUE_FULL, tls == null);
+                        } else {
+                            client.close();
+                        }
+                    }
+                } catch (IOException ex) {
+                    if (isRunning) {
+                        log.accept("Erro ao aceitar conexão: " + ex.getMessage());
+                    }
+                }
+            }
+        }, "blocking-acceptor").start();
+    }
+
+    @Override
+    public void stop() {
+        isRunning = false;
+
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+            if (executorService != null) {
+                executorService.shutdown();
+            }
+            if (wheel != null) {
+                wheel.close();
+            }
+        } catch (IOException ex) {
+            log.accept("Erro ao parar servidor: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public int activeConnections() {
+        return activeConnections.get();
+    }
+
+    @Override
+    public long acceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    // Virtual threads não têm fila: cada conexão ganha a sua thread na hora
+    @Override
+    public int queueDepth() {
+        return executorService instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    private void handleClient(SocketChannel client, String clientAddress, long acceptedNanos) {
+        try {
+            // Espera longa demais na fila do pool: o CoDel decide se a conexão é descartada
+            if (admission != null && admission.shouldShed(System.nanoTime() - acceptedNanos)) {
+                admission.reject(client, AdmissionControl.Reason.CODEL, tls == null);
+            } else {
+                serve(client, clientAddress);
+            }
+        } finally {
+            activeConnections.decrementAndGet();
+            if (admission != null) {
+                admission.release(clientAddress);
+            }
+        }
+    }
+
+    private void serve(SocketChannel client, String clientAddress) {
+        // Prazo vencido: fechar o socket desbloqueia a thread presa no read/write
+        ConnectionTimeouts.Watch watch = timeouts.watch(wheel, phase -> {
+            if (phase != ConnectionTimeouts.Phase.IDLE) {
+                log.accept("⏱ Tempo esgotado (" + phase.getLabel() + ") na conexão com " + clientAddress);
+            }
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        });
+
+        // Com TLS tudo passa pelo canal cifrado; o handshake acontece na primeira leitura
+        ByteChannel io = tls != null ? tls.wrap(client) : client;
+        BandwidthLimiter.Throttle throttle = bandwidth != null ? bandwidth.open(clientAddress) : null;
+        // Buffer (direto, do pool) e parser vivem enquanto a conexão viver; requisições
+        // enfileiradas (pipelining) ficam no buffer e são atendidas em ordem
+        BufferPool.Lease lease = BufferPool.shared().acquire(HttpRequestParser.INITIAL_BUFFER_SIZE);
+        try (io) {
+            // A primeira requisição (e o handshake TLS) tem o prazo de cabeçalhos desde o connect
+            watch.enter(ConnectionTimeouts.Phase.HEADER);
+            HttpRequestParser parser = new HttpRequestParser();
+            ByteBuffer buffer = lease.buffer();
+
+            // HTTP/2 por conhecimento prévio: a conexão começa com o prefácio em vez de uma requisição
+            // O HTTP/2 cuida da própria ociosidade
+            boolean http2 = http2MaxStreams > 0 && tls == null;
+            if (http2 && awaitPreface(io, buffer)) {
+                watch.stop();
+                http2Connection(client, clientAddress, throttle).serve(buffer);
+                return;
+            }
+
+            int requestsServed = 0;
+            boolean keepAlive = true;
+            while (keepAlive) {
+                // Entre requisições vale o keep-alive; o prazo de cabeçalhos conta do primeiro byte
+                boolean idle = requestsServed > 0 && buffer.position() == 0;
+                if (requestsServed > 0) {
+                    watch.enter(idle ? ConnectionTimeouts.Phase.IDLE : ConnectionTimeouts.Phase.HEADER);
+                }
+                int headLength;
+                try {
+                    while ((headLength = parser.parse(buffer, 0, buffer.position())) < 0) {
+                        lease = HttpRequestParser.ensureSpace(BufferPool.shared(), lease);
+                        buffer = lease.buffer();
+                        if (io.read(buffer) == -1) {
+                            if (requestsServed == 0) {
+                                handler.error(400, "Bad Request").writeTo(io);
+                            }
+                            return;
+                        }
+                        if (idle) {
+                            idle = false;
+                            watch.enter(ConnectionTimeouts.Phase.HEADER);
+                        }
+                    }
+                } catch (HttpParseException ex) {
+                    reject(io, clientAddress, ex, requestsServed);
+                    return;
+                }
+
+                HttpRequest request = parser.request();
+                requestsServed++;
+                // O tempo do handler não conta contra o cliente
+                watch.stop();
+
+                // "Upgrade: h2c": esta requisição é respondida já como o stream 1 do HTTP/2
+                if (http2 && Http2Connection.isUpgrade(request)) {
+                    Http2Connection connection = http2Connection(client, clientAddress, throttle);
+                    connection.upgrade(request);
+                    consume(buffer, headLength);
+                    connection.serve(buffer);
+                    return;
+                }
+
+                // Corpo (PUT/POST): o handler decide antes se quer recebê-lo
+                RequestBodySink body = null;
+                BodyDecoder decoder = null;
+                boolean expectsContinue = false;
+                if (request.hasBody()) {
+                    try {
+                        decoder = BodyDecoder.forRequest(request);
+                        body = handler.openBody(request, clientAddress);
+                    } catch (HttpParseException ex) {
+                        reject(io, clientAddress, ex, requestsServed);
+                        return;
+                    }
+                    expectsContinue = request.expectsContinue();
+                }
+                keepAlive = isRunning && keepAlivePolicy.shouldKeepAlive(request, requestsServed, body != null);
+
+                HttpResponse response;
+                if (body == null) {
+                    response = handler.handle(request, clientAddress);
+                    // A visão da requisição aponta para o buffer: só descartar depois do handle
+                    consume(buffer, headLength);
+                } else {
+                    consume(buffer, headLength);
+                    lease = BufferPool.shared().grow(lease, BODY_BUFFER_SIZE);
+                    buffer = lease.buffer();
+                    watch.enter(ConnectionTimeouts.Phase.BODY);
+                    try {
+                        response = receiveBody(io, buffer, decoder, body, expectsContinue, watch);
+                    } catch (HttpParseException ex) {
+                        reject(io, clientAddress, ex, requestsServed);
+                        return;
+                    }
+                }
+
+                // Corpo sem tamanho conhecido para um cliente HTTP/1.0: termina com a conexão
+                keepAlive &= !response.closesConnection();
+                keepAlivePolicy.apply(response, keepAlive, requestsServed);
+                watch.enter(ConnectionTimeouts.Phase.WRITE);
+                response.writeTo(io, watch::progress, throttle);
+                handler.completed(response, clientAddress);
+            }
+
+        } catch (IOException ex) {
+            // Fechado pelo timeout: já foi registrado quando o prazo venceu
+            if (!watch.isExpired()) {
+                log.accept("❌ Erro na conexão com " + clientAddress + ": " + ex.getMessage());
+            }
+        } finally {
+            watch.stop();
+            lease.release();
+            if (throttle != null) {
+                throttle.close();
+            }
+        }
+    }
+
+    // Lê até saber se os primeiros bytes são o prefácio do HTTP/2; o que foi lido fica no buffer
+    private static boolean awaitPreface(ByteChannel in, ByteBuffer buffer) throws IOException {
+        int match;
+        while ((match = Http2Frame.matchPreface(buffer)) == 0) {
+            if (in.read(buffer) == -1) {
+                return false;
+            }
+        }
+        return match > 0;
+    }
+
+    private Http2Connection http2Connection(SocketChannel client, String clientAddress, BandwidthLimiter.Throttle throttle) {
+        return new Http2Connection(client, clientAddress, handler, log, http2MaxStreams,
+                keepAlivePolicy.getIdleTimeoutMillis(), () -> isRunning).throttle(throttle);
+    }
+
+    // Lê o corpo direto do socket para o sink, sem acumulá-lo; sobras (pipelining) ficam no buffer
+    private HttpResponse receiveBody(ByteChannel client, ByteBuffer buffer, BodyDecoder decoder,
+                                     RequestBodySink body, boolean expectsContinue, ConnectionTimeouts.Watch watch)
+            throws IOException, HttpParseException {
+        try (body) {
+            if (expectsContinue) {
+                client.write(ByteBuffer.wrap(HttpResponse.CONTINUE));
+            }
+            while (true) {
+                buffer.flip();
+                boolean done = decoder.decode(buffer, body);
+                buffer.compact();
+                if (done) {
+                    return body.finish();
+                }
+                if (client.read(buffer) == -1) {
+                    throw new EOFException("conexão encerrada no meio do corpo");
+                }
+                watch.progress();
+            }
+        }
+    }
+
+    // Corpo recusado ou inválido: responde com o erro e encerra a conexão
+    private void reject(ByteChannel client, String clientAddress, HttpParseException ex, int requestsServed) throws IOException {
+        HttpResponse response = handler.error(ex.getStatusCode(), ex.getMessage());
+        keepAlivePolicy.apply(response, false, requestsServed);
+        response.writeTo(client);
+        handler.completed(response, clientAddress);
+    }
+
+    private static void consume(ByteBuffer buffer, int length) {
+        buffer.flip();
+        buffer.position(length);
+        buffer.compact();
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodificador incremental do corpo da requisição: tamanho fixo (Content-Length) ou
+ * {@code Transfer-Encoding: chunked}. Recebe o buffer de leitura da conexão a cada leitura,
+ * repassa ao {@link RequestBodySink} só os bytes do corpo e para exatamente no fim dele,
+ * deixando no buffer o que for da próxima requisição (pipelining).
+ */
+public class BodyDecoder {
+
+    private static final int MAX_CHUNK_LINE = 1024;
+    private static final int MAX_TRAILERS = 8192;
+
+    private enum State { FIXED, CHUNK_SIZE, CHUNK_EXTENSION, CHUNK_DATA, CHUNK_DATA_END, TRAILERS, DONE }
+
+    private State state;
+    private long remaining;
+    private long bodyBytes = 0;
+    private int lineLength = 0;
+    private int trailerBytes = 0;
+    private boolean sizeDigits = false;
+
+    private BodyDecoder(State state, long remaining) {
+        this.state = state;
+        this.remaining = remaining;
+    }
+
+    // Captura o enquadramento antes que a visão da requisição seja descartada
+    public static BodyDecoder forRequest(HttpRequest request) throws HttpParseException {
+        if (request.hasHeader(HttpHeader.TRANSFER_ENCODING)) {
+            if (!request.isChunked()) {
+                throw new HttpParseException(501, "Not Implemented");
+            }
+            return new BodyDecoder(State.CHUNK_SIZE, 0);
+        }
+        long length = Math.max(0, request.contentLength());
+        return new BodyDecoder(length == 0 ? State.DONE : State.FIXED, length);
+    }
+
+    public long getBodyBytes() {
+        return bodyBytes;
+    }
+
+    /**
+     * Consome bytes de {@code src} (em modo leitura) e devolve true quando o corpo terminou;
+     * nesse caso a posição de {@code src} fica logo depois do corpo.
+     */
+    public boolean decode(ByteBuffer src, RequestBodySink sink) throws IOException, HttpParseException {
+        while (state != State.DONE && src.hasRemaining()) {
+            switch (state) {
+                case FIXED, CHUNK_DATA -> {
+                    int length = (int) Math.min(remaining, src.remaining());
+                    ByteBuffer slice = src.slice(src.position(), length);
+                    src.position(src.position() + length);
+                    remaining -= length;
+                    bodyBytes += length;
+                    sink.write(slice);
+                    if (remaining == 0) {
+                        state = state == State.FIXED ? State.DONE : State.CHUNK_DATA_END;
+                    }
+                }
+                case CHUNK_SIZE -> chunkSize(src.get());
+                case CHUNK_EXTENSION -> {
+                    // Extensões (";nome=valor") são ignoradas
+                    if (src.get() == '\n') {
+                        endOfSizeLine();
+                    } else if (++lineLength > MAX_CHUNK_LINE) {
+                        throw new HttpParseException(400, "Bad Request");
+                    }
+                }
+                case CHUNK_DATA_END -> {
+                    byte b = src.get();
+                    if (b == '\n') {
+                        state = State.CHUNK_SIZE;
+                        lineLength = 0;
+                    } else if (b != '\r') {
+                        throw new HttpParseException(400, "Bad Request");
+                    }
+                }
+                case TRAILERS -> {
+                    // Trailers são descartados; uma linha vazia encerra o corpo
+                    byte b = src.get();
+                    if (++trailerBytes > MAX_TRAILERS) {
+                        throw new HttpParseException(431, "Request Header Fields Too Large");
+                    }
+                    if (b == '\n') {
+                        if (lineLength == 0) {
+                            state = State.DONE;
+                        }
+                        lineLength = 0;
+                    } else if (b != '\r') {
+                        lineLength++;
+                    }
+                }
+                default -> throw new IllegalStateException(state.name());
+            }
+        }
+        return state == State.DONE;
+    }
+
+    private void chunkSize(byte b) throws HttpParseException {
+        int digit = Character.digit(b, 16);
+        if (digit >= 0) {
+            // Mais de 15 dígitos hexadecimais estouraria o long
+            if (remaining > (Long.MAX_VALUE >> 4)) {
+                throw new HttpParseException(413, "Payload Too Large");
+            }
+            remaining = remaining * 16 + digit;
+            sizeDigits = true;
+        } else if (b == ';' || b == ' ' || b == '\t') {
+            state = State.CHUNK_EXTENSION;
+        } else if (b == '\n') {
+            endOfSizeLine();
+            return;
+        } else if (b != '\r') {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        if (++lineLength > MAX_CHUNK_LINE) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+    }
+
+    private void endOfSizeLine() throws HttpParseException {
+        if (!sizeDigits) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        sizeDigits = false;
+        lineLength = 0;
+        state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+    }
+
+}
@@ -0,0 +1,321 @@
+package com.example;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pool de ByteBuffers diretos para as leituras e escritas nos sockets. Os buffers são
+ * separados por classe de tamanho (4 KB a 64 KB); pedidos maiores são alocados fora do pool.
+ * Cada thread de plataforma guarda alguns buffers de cada classe só para ela, e o que sobra
+ * volta para uma lista global compartilhada. Threads virtuais vão direto à lista global: são
+ * muitas e curtas, um cache por thread só prenderia memória.
+ *
+ * Quem pede recebe um {@link Lease} e precisa devolvê-lo com {@link Lease#release()}. Com
+ * -Dfileserver.bufferPool.debug=true cada empréstimo guarda a pilha de onde veio, e um Lease
+ * coletado sem ter sido devolvido é contado e logado como vazamento.
+ */
+public class BufferPool {
+
+    static final boolean DEBUG = Boolean.getBoolean("fileserver.bufferPool.debug");
+
+    private static final int MIN_SIZE = 4 * 1024;
+    private static final int MAX_SIZE = 64 * 1024;
+    // Buffers de cada classe guardados por thread de plataforma
+    private static final int LOCAL_CACHE_SIZE = 4;
+    // Teto da lista global, em bytes por classe
+    private static final int MAX_FREE_BYTES = 8 * 1024 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool(DEBUG);
+
+    // Pool de todo o processo (os servidores do mesmo processo dividem os buffers)
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    private final SizeClass[] classes;
+    private final ThreadLocal<LocalCache> local = ThreadLocal.withInitial(LocalCache::new);
+    private final boolean debug;
+    private final Cleaner cleaner;
+    private final LongAdder unpooled = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private volatile Consumer<String> leakLog = System.err::println;
+
+    public BufferPool(boolean debug) {
+        int count = Integer.numberOfTrailingZeros(MAX_SIZE / MIN_SIZE) + 1;
+        this.classes = new SizeClass[count];
+        for (int i = 0; i < count; i++) {
+            classes[i] = new SizeClass(MIN_SIZE << i);
+        }
+        this.debug = debug;
+        this.cleaner = debug ? Cleaner.create() : null;
+    }
+
+    // Para onde vão os avisos de vazamento (modo debug)
+    public void onLeak(Consumer<String> leakLog) {
+        this.leakLog = leakLog;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Empresta um buffer direto com pelo menos {@code capacity} bytes, limpo (posição 0,
+     * limite na capacidade).
+     */
+    public Lease acquire(int capacity) {
+        SizeClass sizeClass = sizeClass(capacity);
+        if (sizeClass == null) {
+            unpooled.increment();
+            return new Lease(ByteBuffer.allocateDirect(capacity), null);
+        }
+        ByteBuffer buffer = null;
+        LocalCache cache = localCache();
+        if (cache != null) {
+            buffer = cache.poll(sizeClass.index);
+        }
+        if (buffer == null) {
+            buffer = sizeClass.free.poll();
+            if (buffer != null) {
+                sizeClass.freeCount.decrementAndGet();
+            }
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(sizeClass.size);
+            sizeClass.allocated.incrementAndGet();
+            sizeClass.misses.increment();
+        }
+        sizeClass.acquires.increment();
+        sizeClass.inUse.incrementAndGet();
+        return new Lease(buffer, sizeClass);
+    }
+
+    /**
+     * Troca o buffer (em modo escrita) por um de pelo menos {@code capacity} bytes, com o mesmo
+     * conteúdo, e devolve o antigo ao pool. Se já for grande o bastante devolve o mesmo Lease.
+     */
+    public Lease grow(Lease lease, int capacity) {
+        if (lease.capacity() >= capacity) {
+            return lease;
+        }
+        Lease larger = acquire(capacity);
+        larger.buffer().put(lease.buffer().flip());
+        lease.release();
+        return larger;
+    }
+
+    private void recycle(ByteBuffer buffer, SizeClass sizeClass) {
+        sizeClass.inUse.decrementAndGet();
+        buffer.clear();
+        LocalCache cache = localCache();
+        if (cache != null && cache.offer(sizeClass.index, buffer)) {
+            return;
+        }
+        if (sizeClass.freeCount.incrementAndGet() * (long) sizeClass.size <= MAX_FREE_BYTES) {
+            sizeClass.free.offer(buffer);
+        } else {
+            // Lista global cheia: o buffer fica para o GC
+            sizeClass.freeCount.decrementAndGet();
+            sizeClass.allocated.decrementAndGet();
+        }
+    }
+
+    private SizeClass sizeClass(int capacity) {
+        if (capacity > MAX_SIZE) {
+            return null;
+        }
+        int index = capacity <= MIN_SIZE ? 0 : 32 - Integer.numberOfLeadingZeros((capacity - 1) / MIN_SIZE);
+        return classes[index];
+    }
+
+    private LocalCache localCache() {
+        return Thread.currentThread().isVirtual() ? null : local.get();
+    }
+
+    public int sizeClassCount() {
+        return classes.length;
+    }
+
+    public int classSize(int index) {
+        return classes[index].size;
+    }
+
+    // Buffers da classe emprestados agora
+    public long inUse(int index) {
+        return classes[index].inUse.get();
+    }
+
+    // Buffers da classe parados na lista global
+    public long free(int index) {
+        return classes[index].freeCount.get();
+    }
+
+    // Buffers da classe parados nos caches das threads (inclui os de threads que já terminaram)
+    public long cached(int index) {
+        SizeClass sizeClass = classes[index];
+        return Math.max(0, sizeClass.allocated.get() - sizeClass.inUse.get() - sizeClass.freeCount.get());
+    }
+
+    public long acquires(int index) {
+        return classes[index].acquires.sum();
+    }
+
+    // Empréstimos que precisaram alocar um buffer novo
+    public long allocations(int index) {
+        return classes[index].misses.sum();
+    }
+
+    // Pedidos maiores que a maior classe, alocados fora do pool
+    public long getUnpooledAllocations() {
+        return unpooled.sum();
+    }
+
+    public long getLeaks() {
+        return leaks.sum();
+    }
+
+    // Memória direta presa no pool (emprestada, em cache ou livre)
+    public long getPooledBytes() {
+        long bytes = 0;
+        for (SizeClass sizeClass : classes) {
+            bytes += sizeClass.allocated.get() * sizeClass.size;
+        }
+        return bytes;
+    }
+
+    /**
+     * Um buffer emprestado. Usado por uma thread de cada vez; depois de {@link #release()} o
+     * buffer volta ao pool e não pode mais ser tocado.
+     */
+    public final class Lease {
+
+        private ByteBuffer buffer;
+        private final SizeClass sizeClass;
+        private final Tracker tracker;
+
+        private Lease(ByteBuffer buffer, SizeClass sizeClass) {
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+            if (debug && sizeClass != null) {
+                tracker = new Tracker(sizeClass, new Throwable("buffer de " + sizeClass.size + " bytes emprestado aqui"));
+                tracker.cleanable = cleaner.register(this, tracker);
+            } else {
+                tracker = null;
+            }
+        }
+
+        public ByteBuffer buffer() {
+            if (buffer == null) {
+                throw new IllegalStateException("Buffer já devolvido ao pool");
+            }
+            return buffer;
+        }
+
+        public int capacity() {
+            return buffer().capacity();
+        }
+
+        // Devolve o buffer ao pool; chamadas repetidas não fazem nada (em debug, são logadas)
+        public void release() {
+            if (buffer == null) {
+                if (tracker != null) {
+                    leakLog.accept("⚠️ Buffer devolvido duas vezes ao pool");
+                }
+                return;
+            }
+            ByteBuffer released = buffer;
+            buffer = null;
+            if (tracker != null) {
+                tracker.released = true;
+                tracker.cleanable.clean();
+            }
+            if (sizeClass != null) {
+                recycle(released, sizeClass);
+            }
+        }
+    }
+
+    // Roda quando o Lease é coletado (ou devolvido); não pode referenciar o Lease
+    private final class Tracker implements Runnable {
+
+        private final SizeClass sizeClass;
+        private final Throwable origin;
+        private volatile boolean released;
+        private Cleaner.Cleanable cleanable;
+
+        Tracker(SizeClass sizeClass, Throwable origin) {
+            this.sizeClass = sizeClass;
+            this.origin = origin;
+        }
+
+        @Override
+        public void run() {
+            if (released) {
+                return;
+            }
+            // O buffer pode ainda estar em uso por quem perdeu o Lease: não volta ao pool
+            leaks.increment();
+            sizeClass.inUse.decrementAndGet();
+            sizeClass.allocated.decrementAndGet();
+            StringBuilder message = new StringBuilder("💧 Vazamento no pool de buffers: ").append(origin.getMessage());
+            for (StackTraceElement element : origin.getStackTrace()) {
+                // Só a partir de quem pediu o buffer
+                if (!element.getClassName().startsWith(BufferPool.class.getName())) {
+                    message.append("\n    at ").append(element);
+                }
+            }
+            leakLog.accept(message.toString());
+        }
+    }
+
+    private static final class SizeClass {
+        final int size;
+        final int index;
+        final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        // ConcurrentLinkedQueue.size() percorre a fila toda
+        final AtomicInteger freeCount = new AtomicInteger();
+        final AtomicLong allocated = new AtomicLong();
+        final AtomicLong inUse = new AtomicLong();
+        final LongAdder acquires = new LongAdder();
+        final LongAdder misses = new LongAdder();
+
+        SizeClass(int size) {
+            this.size = size;
+            this.index = Integer.numberOfTrailingZeros(size / MIN_SIZE);
+        }
+    }
+
+    // Pilhas por classe de uma thread de plataforma
+    private final class LocalCache {
+        private final List<ArrayDeque<ByteBuffer>> stacks = new ArrayList<>(classes.length);
+
+        LocalCache() {
+            for (int i = 0; i < classes.length; i++) {
+                stacks.add(new ArrayDeque<>(LOCAL_CACHE_SIZE));
+            }
+        }
+
+        ByteBuffer poll(int index) {
+            return stacks.get(index).pollFirst();
+        }
+
+        boolean offer(int index, ByteBuffer buffer) {
+            ArrayDeque<ByteBuffer> stack = stacks.get(index);
+            if (stack.size() >= LOCAL_CACHE_SIZE) {
+                return false;
+            }
+            stack.addFirst(buffer);
+            return true;
+        }
+    }
+
+}
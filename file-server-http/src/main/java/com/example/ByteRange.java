@@ -0,0 +1,78 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Intervalo de bytes (inclusivo) pedido no header Range.
+ */
+public record ByteRange(long start, long end) {
+
+    // Mais intervalos que isso faz o servidor ignorar o Range e responder 200
+    private static final int MAX_RANGES = 16;
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long totalLength) {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+
+    /**
+     * Interpreta "bytes=0-99,200-,-500" para um arquivo de {@code length} bytes.
+     * Retorna null se o header for inválido (deve ser ignorado) e uma lista vazia
+     * se nenhum intervalo puder ser satisfeito (416).
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        try {
+            for (String spec : header.substring(6).split(",")) {
+                spec = spec.trim();
+                if (spec.isEmpty()) {
+                    continue;
+                }
+
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+
+                if (first.isEmpty()) {
+                    // Sufixo: últimos N bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    }
+                    continue;
+                }
+
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                if (start < length) {
+                    ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+
+        if (ranges.size() > MAX_RANGES) {
+            return null;
+        }
+        return ranges;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache-Control por extensão de arquivo.
+ * Formato: regras separadas por ';', cada uma "ext1,ext2=valor"; '*' é o padrão.
+ * Ex.: {@code html,htm=no-cache;css,js,png=public, max-age=86400;*=public, max-age=60}
+ */
+public class CacheControlPolicy {
+
+    public static final String DEFAULT_RULES =
+            "html,htm=no-cache;css,js,png,jpg,jpeg,gif=public, max-age=86400;*=public, max-age=60";
+
+    private final Map<String, String> byExtension = new HashMap<>();
+    private String fallback;
+
+    private CacheControlPolicy() {
+    }
+
+    public static CacheControlPolicy parse(String rules) {
+        CacheControlPolicy policy = new CacheControlPolicy();
+        for (String rule : rules.split(";")) {
+            int equals = rule.indexOf('=');
+            if (equals <= 0) {
+                if (rule.isBlank()) {
+                    continue;
+                }
+                throw new IllegalArgumentException("Regra de Cache-Control inválida: " + rule.trim());
+            }
+            String value = rule.substring(equals + 1).trim();
+            for (String extension : rule.substring(0, equals).split(",")) {
+                extension = extension.trim().toLowerCase();
+                if (extension.equals("*")) {
+                    policy.fallback = value;
+                } else if (!extension.isEmpty()) {
+                    policy.byExtension.put(extension.startsWith(".") ? extension.substring(1) : extension, value);
+                }
+            }
+        }
+        return policy;
+    }
+
+    // null quando nenhuma regra se aplica (sem header)
+    public String forFile(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot >= 0) {
+            String value = byExtension.get(fileName.substring(dot + 1).toLowerCase());
+            if (value != null) {
+                return value;
+            }
+        }
+        return fallback;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Validadores HTTP (ETag forte e Last-Modified) e avaliação dos headers condicionais.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    // ETag forte derivado de tamanho + mtime: muda sempre que o arquivo muda
+    public static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    // ETag forte derivado de tamanho + hash do conteúdo (manifesto do webroot); o ponto o distingue do anterior
+    public static String contentEtag(long length, long hash) {
+        return "\"" + Long.toHexString(length) + "." + Long.toHexString(hash) + "\"";
+    }
+
+    public static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    // Segundos desde a época, ou -1 se a data não puder ser interpretada
+    public static long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        } catch (DateTimeParseException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * True quando a cópia do cliente ainda vale e a resposta deve ser 304.
+     * If-None-Match tem precedência sobre If-Modified-Since (RFC 9110, 13.2.2).
+     */
+    public static boolean isNotModified(HttpRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.header(HttpHeader.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, etag);
+        }
+
+        String ifModifiedSince = request.header(HttpHeader.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            long since = parseHttpDate(ifModifiedSince);
+            return since >= 0 && lastModified / 1000 <= since;
+        }
+        return false;
+    }
+
+    // If-Range: ETag exige comparação forte; data precisa ser exatamente a do Last-Modified
+    public static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(etag);
+        }
+        long date = parseHttpDate(value);
+        return date >= 0 && lastModified / 1000 == date;
+    }
+
+    // Comparação fraca: W/"x" casa com "x"
+    private static boolean matchesAny(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Modelo da tabela de conexões guardado em um anel de tamanho fixo: ao encher,
+ * a linha mais antiga sai. Deve ser usado só na EDT; as alterações de um lote são
+ * anunciadas à JTable uma única vez com {@link #flush()}.
+ */
+public class ConnectionTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"IP", "Método", "Path", "Status", "Hora"};
+
+    private static final class Row {
+        final long id;
+        final Object[] values;
+
+        Row(long id, String clientAddress, String method, String path, String status, String time) {
+            this.id = id;
+            this.values = new Object[]{clientAddress, method, path, status, time};
+        }
+    }
+
+    private transient Row[] ring;
+    private int first = 0;
+    private int size = 0;
+    private boolean changed = false;
+    // Linhas ainda "Processando", para a conclusão achar a linha certa
+    private final transient Map<Long, Row> inFlight = new HashMap<>();
+
+    public ConnectionTableModel(int capacity) {
+        this.ring = new Row[Math.max(1, capacity)];
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    // Mantém as linhas mais recentes que couberem na nova capacidade
+    public void setCapacity(int capacity) {
+        Row[] resized = new Row[Math.max(1, capacity)];
+        int keep = Math.min(size, resized.length);
+        for (int i = 0; i < keep; i++) {
+            resized[i] = ring[(first + size - keep + i) % ring.length];
+        }
+        for (int i = 0; i < size - keep; i++) {
+            forget(ring[(first + i) % ring.length]);
+        }
+        ring = resized;
+        first = 0;
+        size = keep;
+        changed = true;
+        flush();
+    }
+
+    public void add(long id, String clientAddress, String method, String path, String time) {
+        Row row = new Row(id, clientAddress, method, path, "Processando", time);
+        if (size == ring.length) {
+            forget(ring[first]);
+            ring[first] = row;
+            first = (first + 1) % ring.length;
+        } else {
+            ring[(first + size) % ring.length] = row;
+            size++;
+        }
+        if (id != 0) {
+            inFlight.put(id, row);
+        }
+        changed = true;
+    }
+
+    public void complete(long id, String status) {
+        Row row = inFlight.remove(id);
+        if (row != null) {
+            row.values[3] = status;
+            changed = true;
+        }
+    }
+
+    public void flush() {
+        if (changed) {
+            changed = false;
+            fireTableDataChanged();
+        }
+    }
+
+    private void forget(Row row) {
+        inFlight.remove(row.id, row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return ring[(first + rowIndex) % ring.length].values[columnIndex];
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Prazos de uma conexão HTTP/1.x, vigiados por um {@link TimerWheel} em vez de um
+ * {@code SO_TIMEOUT} por leitura (que um cliente lento renova mandando um byte por vez):
+ *
+ * <ul>
+ *   <li>{@code HEADER}: do primeiro byte da requisição (ou do connect) ao fim dos cabeçalhos;
+ *       prazo fixo, gotejar bytes não o estende (slowloris);</li>
+ *   <li>{@code BODY}: tempo máximo sem receber nada do corpo de um upload;</li>
+ *   <li>{@code WRITE}: tempo máximo com a resposta parada porque o cliente não lê;</li>
+ *   <li>{@code IDLE}: keep-alive ocioso entre uma requisição e a próxima.</li>
+ * </ul>
+ */
+public class ConnectionTimeouts {
+
+    public static final int DEFAULT_HEADER_MILLIS = 10_000;
+    public static final int DEFAULT_BODY_MILLIS = 30_000;
+    public static final int DEFAULT_WRITE_MILLIS = 30_000;
+
+    public enum Phase {
+        HEADER("cabeçalhos"), BODY("corpo"), WRITE("envio"), IDLE("keep-alive ocioso");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final int headerMillis;
+    private final int bodyMillis;
+    private final int writeMillis;
+    private final int idleMillis;
+
+    public ConnectionTimeouts(int headerMillis, int bodyMillis, int writeMillis, int idleMillis) {
+        this.headerMillis = headerMillis;
+        this.bodyMillis = bodyMillis;
+        this.writeMillis = writeMillis;
+        this.idleMillis = idleMillis;
+    }
+
+    // Prazos padrão com o keep-alive da política da conexão
+    public static ConnectionTimeouts withDefaults(KeepAlivePolicy keepAlivePolicy) {
+        return new ConnectionTimeouts(DEFAULT_HEADER_MILLIS, DEFAULT_BODY_MILLIS, DEFAULT_WRITE_MILLIS,
+                keepAlivePolicy.getIdleTimeoutMillis());
+    }
+
+    public int millis(Phase phase) {
+        return switch (phase) {
+            case HEADER -> headerMillis;
+            case BODY -> bodyMillis;
+            case WRITE -> writeMillis;
+            case IDLE -> idleMillis;
+        };
+    }
+
+    // Roda com ticks de 100 ms e uma volta de ~51 s: os prazos comuns cabem numa volta só
+    public TimerWheel newWheel(Consumer<String> log) {
+        return new TimerWheel("connection-timeouts", 100, 512, log);
+    }
+
+    public Watch watch(TimerWheel wheel, Consumer<Phase> onExpire) {
+        return new Watch(wheel, onExpire);
+    }
+
+    /**
+     * Prazo corrente de uma conexão. Cada fase tem um único timeout na roda: {@link #progress()}
+     * só grava o instante (sem reagendar), e quando o timeout dispara ele confere o progresso e
+     * se reagenda pelo que falta. Assim um upload ou download ativo custa uma escrita volátil por
+     * leitura/escrita, não um reagendamento.
+     */
+    public final class Watch {
+
+        private final TimerWheel wheel;
+        private final Consumer<Phase> onExpire;
+        private Phase phase;
+        private long phaseStart;
+        private volatile long lastProgress;
+        private TimerWheel.Timeout timeout;
+        // Muda a cada fase: um timeout antigo que dispare atrasado não age sobre a fase nova
+        private int generation = 0;
+        private boolean expired = false;
+
+        private Watch(TimerWheel wheel, Consumer<Phase> onExpire) {
+            this.wheel = wheel;
+            this.onExpire = onExpire;
+        }
+
+        public synchronized void enter(Phase phase) {
+            if (expired) {
+                return;
+            }
+            cancelTimeout();
+            this.phase = phase;
+            this.phaseStart = System.nanoTime();
+            this.lastProgress = phaseStart;
+            int current = ++generation;
+            timeout = wheel.schedule(millis(phase), () -> check(current));
+        }
+
+        public synchronized Phase getPhase() {
+            return phase;
+        }
+
+        // Bytes do corpo recebidos ou resposta andando: renova os prazos de BODY e WRITE
+        public void progress() {
+            lastProgress = System.nanoTime();
+        }
+
+        public synchronized void stop() {
+            cancelTimeout();
+            phase = null;
+            generation++;
+        }
+
+        // True depois que um prazo venceu (a conexão foi ou está sendo fechada)
+        public synchronized boolean isExpired() {
+            return expired;
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+
+        // Na thread da roda
+        private void check(int scheduledGeneration) {
+            Phase expiredPhase;
+            synchronized (this) {
+                if (scheduledGeneration != generation || phase == null || expired) {
+                    return;
+                }
+                // HEADER e IDLE contam da entrada na fase; BODY e WRITE, do último progresso
+                long since = phase == Phase.BODY || phase == Phase.WRITE ? lastProgress : phaseStart;
+                long remaining = millis(phase) - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+                if (remaining > 0) {
+                    timeout = wheel.schedule(remaining, () -> check(scheduledGeneration));
+                    return;
+                }
+                expired = true;
+                timeout = null;
+                expiredPhase = phase;
+            }
+            onExpire.accept(expiredPhase);
+        }
+    }
+
+}
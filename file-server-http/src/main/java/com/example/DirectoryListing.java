@@ -0,0 +1,495 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Listagem de diretório gerada aos poucos, direto de um {@link DirectoryStream}: nem a lista
+ * de arquivos nem a página inteira ficam na memória. Cada {@link #next()} devolve o HTML
+ * (ou JSON) de até {@value #CHUNK_ENTRIES} entradas, que o {@link ResponseWriter} envia como
+ * um chunk assim que o socket aceitar.
+ * <p>
+ * Sem {@code sort} as entradas saem na ordem do sistema de arquivos, a única que não exige
+ * ler o diretório inteiro antes do primeiro byte. Com {@code sort} e {@code limit} só as
+ * {@code offset + limit} primeiras ficam num heap; sem {@code limit}, todas (só nome, tipo,
+ * tamanho e data, não o HTML).
+ */
+public class DirectoryListing implements HttpResponse.BodyStream {
+
+    static final int CHUNK_ENTRIES = 256;
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    public enum Format { HTML, JSON }
+
+    public enum Sort { NONE, NAME, SIZE, MTIME }
+
+    /**
+     * Parâmetros da query: {@code format=html|json}, {@code sort=name|size|mtime},
+     * {@code order=asc|desc}, {@code offset} e {@code limit} (0 = sem limite).
+     * Parâmetros desconhecidos são ignorados.
+     */
+    public record Options(Format format, Sort sort, boolean descending, long offset, long limit) {
+
+        public static final Options DEFAULT = new Options(Format.HTML, Sort.NONE, false, 0, 0);
+
+        public static Options parse(String query) throws HttpParseException {
+            if (query == null || query.isEmpty()) {
+                return DEFAULT;
+            }
+            Format format = Format.HTML;
+            Sort sort = Sort.NONE;
+            boolean descending = false;
+            long offset = 0;
+            long limit = 0;
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = equals >= 0 ? parameter.substring(0, equals) : parameter;
+                String value = equals >= 0 ? parameter.substring(equals + 1).toLowerCase() : "";
+                switch (name) {
+                    case "format" -> format = switch (value) {
+                        case "html" -> Format.HTML;
+                        case "json" -> Format.JSON;
+                        default -> throw invalid();
+                    };
+                    case "sort" -> sort = switch (value) {
+                        case "name" -> Sort.NAME;
+                        case "size" -> Sort.SIZE;
+                        case "mtime" -> Sort.MTIME;
+                        case "", "none" -> Sort.NONE;
+                        default -> throw invalid();
+                    };
+                    case "order" -> descending = switch (value) {
+                        case "asc" -> false;
+                        case "desc" -> true;
+                        default -> throw invalid();
+                    };
+                    case "offset" -> offset = number(value);
+                    case "limit" -> limit = number(value);
+                    default -> {
+                    }
+                }
+            }
+            return new Options(format, sort, descending, offset, limit);
+        }
+
+        public boolean isDefault() {
+            return equals(DEFAULT);
+        }
+
+        public String contentType() {
+            return format == Format.JSON ? "application/json" : "text/html";
+        }
+
+        // Query das mesmas opções em outra página (links de paginação e ordenação)
+        String toQuery(Sort sort, boolean descending, long offset) {
+            StringBuilder query = new StringBuilder();
+            if (format == Format.JSON) {
+                query.append("&format=json");
+            }
+            if (sort != Sort.NONE) {
+                query.append("&sort=").append(sort.name().toLowerCase());
+            }
+            if (descending) {
+                query.append("&order=desc");
+            }
+            if (offset > 0) {
+                query.append("&offset=").append(offset);
+            }
+            if (limit > 0) {
+                query.append("&limit=").append(limit);
+            }
+            return query.isEmpty() ? "?" : "?" + query.substring(1);
+        }
+
+        private static long number(String value) throws HttpParseException {
+            try {
+                long number = Long.parseLong(value);
+                if (number >= 0) {
+                    return number;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            throw invalid();
+        }
+
+        private static HttpParseException invalid() {
+            return new HttpParseException(400, "Bad Request");
+        }
+    }
+
+    private record Entry(String name, boolean directory, long size, long modified) {
+    }
+
+    private final File directory;
+    private final File webRoot;
+    private final String requestPath;
+    private final Options options;
+    // Tamanho e data das entradas já conhecidas; null (ou entrada ausente) = stat
+    private final WebrootManifest manifest;
+    private final DirectoryStream<Path> stream;
+    private final Iterator<Path> iterator;
+
+    // Modo ordenado: a página já escolhida, montada na primeira leitura
+    private Iterator<Entry> sortedPage;
+
+    private boolean started = false;
+    private boolean exhausted = false;
+    private boolean done = false;
+    private boolean more = false;
+    private long skipped = 0;
+    private long emitted = 0;
+
+    public DirectoryListing(File directory, File webRoot, String requestPath, Options options) throws IOException {
+        this(directory, webRoot, requestPath, options, null);
+    }
+
+    public DirectoryListing(File directory, File webRoot, String requestPath, Options options,
+                            WebrootManifest manifest) throws IOException {
+        this.directory = directory;
+        this.webRoot = webRoot;
+        this.requestPath = requestPath;
+        this.options = options;
+        this.manifest = manifest;
+        this.stream = Files.newDirectoryStream(directory.toPath());
+        this.iterator = stream.iterator();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Renderiza de uma vez até {@code maxEntries} entradas. Se a listagem terminou
+     * ({@link #isDone()}), o resultado é o corpo inteiro; senão é só o começo dele.
+     */
+    public byte[] prefetch(int maxEntries) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (!done && emitted < maxEntries) {
+            body.writeBytes(next());
+        }
+        return body.toByteArray();
+    }
+
+    @Override
+    public byte[] next() throws IOException {
+        if (done) {
+            return null;
+        }
+
+        StringBuilder out = new StringBuilder(CHUNK_ENTRIES * 256);
+        if (!started) {
+            started = true;
+            appendHead(out);
+        }
+
+        int rows = 0;
+        while (rows < CHUNK_ENTRIES) {
+            Entry entry = nextEntry();
+            if (entry == null) {
+                break;
+            }
+            appendRow(out, entry);
+            emitted++;
+            rows++;
+        }
+
+        if (exhausted) {
+            appendTail(out);
+            done = true;
+            close();
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Entry nextEntry() throws IOException {
+        if (exhausted) {
+            return null;
+        }
+
+        if (options.sort() != Sort.NONE) {
+            if (sortedPage == null) {
+                sortedPage = sortedPage();
+            }
+            if (sortedPage.hasNext()) {
+                return sortedPage.next();
+            }
+            exhausted = true;
+            return null;
+        }
+
+        Entry entry;
+        while ((entry = readEntry()) != null) {
+            if (skipped < options.offset()) {
+                skipped++;
+                continue;
+            }
+            if (options.limit() > 0 && emitted >= options.limit()) {
+                // Já existe pelo menos uma entrada para a próxima página
+                more = true;
+                break;
+            }
+            return entry;
+        }
+        exhausted = true;
+        return null;
+    }
+
+    // Lê o diretório inteiro guardando só as entradas que podem cair na página pedida
+    private Iterator<Entry> sortedPage() throws IOException {
+        Comparator<Entry> order = switch (options.sort()) {
+            case SIZE -> Comparator.comparingLong(Entry::size).thenComparing(Entry::name);
+            case MTIME -> Comparator.comparingLong(Entry::modified).thenComparing(Entry::name);
+            default -> Comparator.comparing(Entry::name);
+        };
+        if (options.descending()) {
+            order = order.reversed();
+        }
+
+        long keep = options.limit() > 0 ? options.offset() + options.limit() : Long.MAX_VALUE;
+        List<Entry> page;
+        if (keep < Integer.MAX_VALUE) {
+            // Heap com a pior entrada no topo: cada nova entrada melhor que ela a substitui
+            PriorityQueue<Entry> best = new PriorityQueue<>(order.reversed());
+            Entry entry;
+            while ((entry = readEntry()) != null) {
+                best.add(entry);
+                if (best.size() > keep) {
+                    best.poll();
+                    more = true;
+                }
+            }
+            page = new ArrayList<>(best);
+        } else {
+            page = new ArrayList<>();
+            Entry entry;
+            while ((entry = readEntry()) != null) {
+                page.add(entry);
+            }
+        }
+
+        page.sort(order);
+        int from = (int) Math.min(options.offset(), page.size());
+        return page.subList(from, page.size()).iterator();
+    }
+
+    // Próxima entrada visível do diretório (do manifesto ou de um único stat), ou null no fim
+    private Entry readEntry() throws IOException {
+        try {
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                String name = path.getFileName().toString();
+                if (name.startsWith(AtomicFileWriter.TEMP_PREFIX)) {
+                    // Upload ainda em andamento
+                    continue;
+                }
+                WebrootManifest.Entry known = manifest != null ? manifest.lookup(new File(directory, name)) : null;
+                if (known != null) {
+                    return new Entry(name, known.directory(), known.size(), known.lastModified());
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    continue;
+                }
+                return new Entry(name, attributes.isDirectory(), attributes.size(),
+                        attributes.lastModifiedTime().toMillis());
+            }
+            return null;
+        } catch (DirectoryIteratorException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void appendHead(StringBuilder out) {
+        if (options.format() == Format.JSON) {
+            out.append("{\"path\":\"").append(escapeJson(requestPath))
+                    .append("\",\"offset\":").append(options.offset())
+                    .append(",\"limit\":").append(options.limit())
+                    .append(",\"sort\":\"").append(options.sort().name().toLowerCase())
+                    .append("\",\"order\":\"").append(options.descending() ? "desc" : "asc")
+                    .append("\",\"entries\":[");
+            return;
+        }
+
+        out.append("""
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <meta charset='UTF-8'>
+                <title>Index of %s</title>
+                <style>
+                    body { font-family: Arial, sans-serif; margin: 40px; background: #f5f5f5; }
+                    .container { background: white; padding: 20px; border-radius: 10px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
+                    h1 { color: #333; border-bottom: 2px solid #007bff; padding-bottom: 10px; }
+                    table { width: 100%%; border-collapse: collapse; margin-top: 20px; }
+                    th, td { padding: 12px; text-align: left; border-bottom: 1px solid #ddd; }
+                    th { background-color: #007bff; color: white; }
+                    th a { color: white; text-decoration: none; }
+                    tr:hover { background-color: #f8f9fa; }
+                    .file { color: #28a745; }
+                    .dir { color: #007bff; }
+                    .size { text-align: right; }
+                    .back { margin-bottom: 20px; }
+                    .pages { margin-top: 20px; }
+                </style>
+            </head>
+            <body>
+                <div class='container'>
+                    <h1>📁 Index of %s</h1>
+                    <div class='back'>
+                        <a href='%s'>↩ Voltar</a>
+                    </div>
+                    <table>
+                        <tr>
+                            <th><a href='%s'>Nome</a></th>
+                            <th><a href='%s'>Tamanho</a></th>
+                            <th><a href='%s'>Modificado</a></th>
+                            <th>Tipo</th>
+                        </tr>
+            """.formatted(escapeHtml(directory.getName()), escapeHtml(directory.getName()),
+                webRoot.equals(directory.getParentFile()) ? "/" : "../",
+                sortLink(Sort.NAME), sortLink(Sort.SIZE), sortLink(Sort.MTIME)));
+
+        // Link para diretório pai (se não for o root)
+        if (!directory.equals(webRoot)) {
+            out.append("""
+                <tr>
+                    <td colspan='4'><a href='../'>📁 ../</a></td>
+                </tr>
+                """);
+        }
+    }
+
+    // Clicar de novo na coluna já ordenada inverte a ordem
+    private String sortLink(Sort sort) {
+        boolean descending = options.sort() == sort && !options.descending();
+        return options.toQuery(sort, descending, 0);
+    }
+
+    private void appendRow(StringBuilder out, Entry entry) {
+        boolean isDirectory = entry.directory();
+        if (options.format() == Format.JSON) {
+            if (emitted > 0) {
+                out.append(',');
+            }
+            out.append("{\"name\":\"").append(escapeJson(entry.name()))
+                    .append("\",\"type\":\"").append(isDirectory ? "dir" : "file")
+                    .append("\",\"size\":").append(isDirectory ? 0 : entry.size())
+                    .append(",\"modified\":").append(entry.modified())
+                    .append('}');
+            return;
+        }
+
+        String name = escapeHtml(entry.name());
+        out.append("<tr>\n    <td><a href='").append(isDirectory ? name + "/" : name)
+                .append("' class='").append(isDirectory ? "dir" : "file").append("'>")
+                .append(isDirectory ? "📁" : "📄").append(' ').append(name).append("</a></td>\n")
+                .append("    <td class='size'>").append(isDirectory ? "-" : FileServer.formatFileSize(entry.size())).append("</td>\n")
+                .append("    <td>").append(DATE_FORMAT.format(Instant.ofEpochMilli(entry.modified()))).append("</td>\n")
+                .append("    <td>").append(isDirectory ? "Diretório" : "Arquivo").append("</td>\n")
+                .append("</tr>\n");
+    }
+
+    private void appendTail(StringBuilder out) {
+        if (options.format() == Format.JSON) {
+            out.append("],\"count\":").append(emitted).append(",\"more\":").append(more).append("}\n");
+            return;
+        }
+
+        StringBuilder pages = new StringBuilder();
+        if (options.limit() > 0) {
+            if (options.offset() > 0) {
+                long previous = Math.max(0, options.offset() - options.limit());
+                pages.append("<a href='").append(options.toQuery(options.sort(), options.descending(), previous))
+                        .append("'>← Anterior</a> ");
+            }
+            if (more) {
+                pages.append("<a href='").append(options.toQuery(options.sort(), options.descending(), options.offset() + emitted))
+                        .append("'>Próxima →</a>");
+            }
+        }
+
+        out.append("""
+                    </table>
+                    <div class='pages'>%s</div>
+                </div>
+            </body>
+            </html>
+            """.formatted(pages));
+    }
+
+    private static String escapeHtml(String text) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '\'' -> "&#39;";
+                case '"' -> "&quot;";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+
+    private static String escapeJson(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 2);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Cache do HTML já renderizado das listagens de diretório.
+ * Cada diretório listado passa a ser observado por um {@link WatchService}; qualquer
+ * criação, remoção ou modificação dentro dele invalida só a listagem dele (e a do pai,
+ * que mostra a data de modificação do subdiretório). Só guarda listagens pequenas, sem
+ * parâmetros; as grandes são geradas de novo a cada pedido por {@link DirectoryListing}.
+ * Nenhum pedido consulta o disco: vale o que o WatchService avisou, e um OVERFLOW (eventos
+ * perdidos) descarta todas as listagens.
+ */
+public class DirectoryListingCache implements Closeable {
+
+    private final Map<Path, byte[]> entries = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedKeys = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final WatchService watchService;
+    private final Consumer<String> log;
+
+    public DirectoryListingCache(Consumer<String> log) throws IOException {
+        this.log = log;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Thread watcher = new Thread(this::watchLoop, "listing-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Renderização em andamento: a geração de invalidações quando ela começou
+    public record Ticket(Path path, long generation) {
+    }
+
+    // HTML da listagem ainda válido, ou null
+    public byte[] get(File directory) {
+        return entries.get(directory.toPath());
+    }
+
+    /**
+     * Chamado antes de renderizar: passa a observar o diretório e marca a geração atual.
+     * Null se o diretório não pôde ser observado; a listagem dele então não é guardada.
+     */
+    public Ticket prepare(File directory) {
+        Path path = directory.toPath();
+        Ticket ticket = new Ticket(path, invalidations.get());
+        return watch(path) ? ticket : null;
+    }
+
+    // Guarda o HTML, a menos que o diretório tenha mudado durante a renderização
+    public void put(Ticket ticket, byte[] html) {
+        if (invalidations.get() == ticket.generation()) {
+            entries.put(ticket.path(), html);
+        }
+    }
+
+    // Mudança conhecida antes do WatchService avisar (upload concluído, manifesto reindexando um arquivo)
+    public void invalidate(File directory) {
+        invalidations.incrementAndGet();
+        invalidate(directory.toPath());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean watch(Path directory) {
+        if (watchedDirectories.containsKey(directory)) {
+            return true;
+        }
+        try {
+            WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchedKeys.put(key, directory);
+            watchedDirectories.put(directory, key);
+            return true;
+        } catch (IOException | ClosedWatchServiceException ex) {
+            log.accept("Não foi possível observar " + directory + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void invalidate(Path directory) {
+        if (directory != null) {
+            entries.remove(directory);
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+
+            Path directory = watchedKeys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // Eventos perdidos: não dá para saber o que mudou
+                    entries.clear();
+                    invalidations.incrementAndGet();
+                }
+            }
+
+            // Renderizações em andamento não devem ser guardadas
+            invalidations.incrementAndGet();
+            invalidate(directory);
+            if (directory != null) {
+                invalidate(directory.getParent());
+            }
+
+            if (!key.reset()) {
+                // Diretório removido ou inacessível
+                watchedKeys.remove(key);
+                if (directory != null) {
+                    watchedDirectories.remove(directory);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        entries.clear();
+        watchedKeys.clear();
+        watchedDirectories.clear();
+    }
+
+}
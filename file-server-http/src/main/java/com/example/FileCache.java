@@ -0,0 +1,192 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache em memória dos arquivos pequenos mais pedidos, limitado por um orçamento de bytes.
+ * Guarda o conteúdo e os headers já serializados; despeja por LRU e só admite um
+ * arquivo na segunda vez que ele é pedido, para que acessos únicos não expulsem os quentes.
+ */
+public class FileCache {
+
+    private static final int DOORKEEPER_SIZE = 10_000;
+
+    public static final class Entry {
+        private final byte[] content;
+        private final long length;
+        private final long lastModified;
+        private final Map<String, String> headers;
+        private final byte[] headPrefix;
+
+        Entry(byte[] content, long lastModified, Map<String, String> headers, byte[] headPrefix) {
+            this.content = content;
+            this.length = content.length;
+            this.lastModified = lastModified;
+            this.headers = headers;
+            this.headPrefix = headPrefix;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getHeadPrefix() {
+            return headPrefix;
+        }
+    }
+
+    private final long budgetBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> doorkeeper = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DOORKEEPER_SIZE;
+        }
+    };
+    private long usedBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FileCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        // Nenhum arquivo pode ocupar mais que 1/8 do orçamento (e nunca mais que 1 MB)
+        this.maxEntryBytes = Math.min(budgetBytes / 8, 1024 * 1024);
+    }
+
+    public boolean isEnabled() {
+        return budgetBytes > 0;
+    }
+
+    /**
+     * Retorna a entrada em cache do arquivo, carregando-a se o arquivo já foi pedido antes.
+     * Retorna null quando o arquivo não deve (ou ainda não pode) ser servido da memória.
+     * {@code length} e {@code lastModified} são os atuais, já conhecidos por quem chama (manifesto
+     * do webroot ou um stat): a entrada só vale se corresponder a eles, sem stat aqui.
+     * {@code headersFor} monta os headers fixos da resposta 200 do arquivo.
+     */
+    public Entry get(File file, long length, long lastModified, Function<File, HttpResponse> headersFor) throws IOException {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        String key = file.getPath();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            if (entry.length == length && entry.lastModified == lastModified) {
+                hits.increment();
+                return entry;
+            }
+            // Tamanho ou data de modificação mudaram
+            remove(key, entry);
+        }
+
+        misses.increment();
+
+        if (length > maxEntryBytes) {
+            return null;
+        }
+        synchronized (this) {
+            if (doorkeeper.put(key, Boolean.TRUE) == null) {
+                return null;
+            }
+        }
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length != length) {
+            // Arquivo mudou desde o que quem chama conhece: não guardar
+            return null;
+        }
+
+        // Connection/Keep-Alive variam por requisição e ficam fora dos headers pré-montados
+        HttpResponse template = headersFor.apply(file);
+        template.getHeaders().remove("Connection");
+        Map<String, String> headers = Collections.unmodifiableMap(new LinkedHashMap<>(template.getHeaders()));
+        entry = new Entry(content, lastModified, headers, template.headerPrefixBytes());
+        put(key, entry);
+        return entry;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            usedBytes -= previous.length;
+        }
+        usedBytes += entry.length;
+
+        // Despejar os menos usados recentemente até caber no orçamento
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getValue() == entry) {
+                continue;
+            }
+            usedBytes -= eldest.getValue().length;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            usedBytes -= entry.length;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        doorkeeper.clear();
+        usedBytes = 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+}
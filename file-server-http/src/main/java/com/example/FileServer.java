@@ -0,0 +1,625 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Núcleo do servidor de arquivos, sem nenhuma dependência de Swing: monta engine,
+ * caches e políticas a partir de um {@link ServerConfig} e atende as requisições
+ * (GET de arquivos, listagens, uploads por PUT/POST, métricas em {@code /_metrics} e erros).
+ * Pode rodar embutido, pela linha de comando ({@link FileServerMain}) ou monitorado pela
+ * janela {@link HttpServerSwingApp}.
+ */
+public class FileServer implements HttpRequestHandler {
+
+    // Listagens com até esse número de entradas saem inteiras (com Content-Length e cache)
+    private static final int BUFFERED_LISTING_ENTRIES = 1000;
+
+    private final ServerConfig config;
+    private final File webRootDirectory;
+    private final FileCache fileCache;
+    private final CacheControlPolicy cacheControlPolicy;
+    private final List<ServerListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final ServerMetrics metrics;
+    // Vive mais que o engine: os limites podem ser ajustados a qualquer momento
+    private final BandwidthLimiter bandwidth;
+
+    private volatile ServerEngine serverEngine;
+    private volatile DirectoryListingCache listingCache;
+    private volatile WebrootManifest manifest;
+    private volatile AccessLog accessLog;
+
+    public FileServer(ServerConfig config) {
+        config.validate();
+        this.config = config;
+        this.webRootDirectory = config.getWebRoot();
+        this.fileCache = new FileCache(config.getCacheBudgetMb() * 1024 * 1024);
+        this.cacheControlPolicy = CacheControlPolicy.parse(config.getCacheControlRules());
+        this.bandwidth = new BandwidthLimiter(config.getBandwidthConnectionKb() * 1024,
+                config.getBandwidthIpKb() * 1024, config.getBandwidthGlobalKb() * 1024);
+        this.metrics = new ServerMetrics(
+                () -> serverEngine != null ? serverEngine.activeConnections() : 0,
+                () -> serverEngine != null ? serverEngine.queueDepth() : 0,
+                () -> serverEngine != null ? serverEngine.shards() : List.of());
+    }
+
+    public void addListener(ServerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ServerListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverEngine != null) {
+            return;
+        }
+
+        // HTTPS: o keystore é carregado (ou gerado) antes de abrir a porta
+        TlsContext tls = config.isTls() ? TlsContext.create(config, metrics, this::log) : null;
+
+        KeepAlivePolicy keepAlivePolicy = config.keepAlivePolicy();
+        AdmissionControl admission = config.admissionControl(metrics, this::log);
+        ConnectionTimeouts timeouts = config.connectionTimeouts();
+        // h2c só existe sem TLS (HTTP/2 cifrado exigiria ALPN)
+        int http2MaxStreams = config.isHttp2() && tls == null ? config.getHttp2MaxStreams() : 0;
+
+        // Com shards, cada canal SO_REUSEPORT recebe a sua parte das threads (ou event loops)
+        int shardCount = config.getShards();
+        int poolSize = Math.max(1, config.effectivePoolSize() / shardCount);
+        List<ServerEngine> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(createEngine(poolSize, keepAlivePolicy, tls, http2MaxStreams, admission, timeouts, shardCount > 1));
+        }
+        ServerEngine engine = shardCount > 1 ? new ShardedServerEngine(shards) : shards.get(0);
+
+        listingCache = new DirectoryListingCache(this::log);
+        if (config.isManifest()) {
+            // O manifesto salvo vale já; a varredura e o WatchService seguem em segundo plano
+            File manifestFile = config.getManifestFile() != null ? config.getManifestFile() : WebrootManifest.defaultFile(webRootDirectory);
+            manifest = new WebrootManifest(webRootDirectory, manifestFile, this::getContentType,
+                    listingCache::invalidate, this::log);
+            manifest.start();
+        }
+        try {
+            if (config.getAccessLog() != null) {
+                accessLog = new AccessLog(config.getAccessLog(), config.getAccessLogFormat(),
+                        config.getAccessLogMaxMb() * 1024 * 1024, this::log);
+                accessLog.start();
+                metrics.setAccessLog(accessLog);
+            }
+            engine.start(config.getPort());
+        } catch (IOException ex) {
+            listingCache.close();
+            listingCache = null;
+            closeManifest();
+            closeAccessLog();
+            throw ex;
+        }
+        serverEngine = engine;
+
+        log("Servidor iniciado na porta " + config.getPort());
+        log("Webroot: " + webRootDirectory.getAbsolutePath());
+        log("Engine: " + config.getEngine().getLabel());
+        if (shardCount > 1) {
+            log("Shards: " + shardCount + " canais com SO_REUSEPORT"
+                    + (config.getEngine() == ServerConfig.Engine.VIRTUAL ? "" : ", " + poolSize
+                    + (config.getEngine() == ServerConfig.Engine.SELECTOR ? " event loop" : " thread")
+                    + (poolSize > 1 ? "s" : "") + " cada"));
+        }
+        if (http2MaxStreams > 0) {
+            log("HTTP/2: h2c (conhecimento prévio e Upgrade), até " + http2MaxStreams + " streams por conexão");
+        }
+        log("Admissão: fila de " + config.getAcceptQueue() + " conexões, "
+                + (config.getMaxPerIp() > 0 ? config.getMaxPerIp() + " por IP" : "sem limite por IP")
+                + (config.getCodelIntervalMs() > 0
+                        ? ", CoDel com alvo de " + config.getCodelTargetMs() + " ms em " + config.getCodelIntervalMs() + " ms"
+                        : ", sem CoDel"));
+        log("Timeouts: cabeçalhos " + config.getHeaderTimeoutSeconds() + " s, corpo " + config.getBodyTimeoutSeconds()
+                + " s, envio parado " + config.getWriteTimeoutSeconds() + " s, keep-alive " + config.getKeepAliveIdleSeconds() + " s");
+        logBandwidth();
+        if (accessLog != null) {
+            log("📝 Access log: " + accessLog.getPath() + " (" + (accessLog.getFormat() == AccessLog.Format.BINARY
+                    ? "binário" : "Common Log Format") + ", rotação a cada " + config.getAccessLogMaxMb() + " MB)");
+        }
+        if (BufferPool.shared().isDebug()) {
+            BufferPool.shared().onLeak(this::log);
+            log("🧪 Pool de buffers em modo debug: empréstimos rastreados para detectar vazamentos");
+        }
+        log("Acesse: " + (tls != null ? "https" : "http") + "://localhost:" + config.getPort());
+        log("Servidor rodando...");
+    }
+
+    private ServerEngine createEngine(int poolSize, KeepAlivePolicy keepAlivePolicy, TlsContext tls, int http2MaxStreams,
+                                      AdmissionControl admission, ConnectionTimeouts timeouts, boolean reusePort) {
+        return switch (config.getEngine()) {
+            case SELECTOR -> new SelectorServerEngine(this, this::log, poolSize, keepAlivePolicy)
+                    .useTls(tls).useHttp2(http2MaxStreams).useAdmission(admission).useTimeouts(timeouts)
+                    .useReusePort(reusePort).useBandwidth(bandwidth);
+            case VIRTUAL -> BlockingServerEngine.withVirtualThreads(this, this::log, keepAlivePolicy)
+                    .useTls(tls).useHttp2(http2MaxStreams).useAdmission(admission).useTimeouts(timeouts)
+                    .useReusePort(reusePort).useBandwidth(bandwidth);
+            case BLOCKING -> new BlockingServerEngine(this, this::log, poolSize, keepAlivePolicy)
+                    .useTls(tls).useHttp2(http2MaxStreams).useAdmission(admission).useTimeouts(timeouts)
+                    .useReusePort(reusePort).useBandwidth(bandwidth);
+        };
+    }
+
+    public synchronized void stop() {
+        if (serverEngine == null) {
+            return;
+        }
+        serverEngine.stop();
+        serverEngine = null;
+        if (listingCache != null) {
+            listingCache.close();
+            listingCache = null;
+        }
+        closeManifest();
+        closeAccessLog();
+        log("Servidor parado");
+    }
+
+    // Espera a thread do access log gravar o que ainda estava no anel
+    private void closeAccessLog() {
+        if (accessLog != null) {
+            accessLog.close();
+            accessLog = null;
+        }
+    }
+
+    // Fecha o WatchService e grava o manifesto para a próxima partida
+    private void closeManifest() {
+        if (manifest != null) {
+            manifest.close();
+            manifest = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return serverEngine != null;
+    }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    public FileCache getFileCache() {
+        return fileCache;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public BandwidthLimiter getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * Muda os limites de banda (KB/s, 0 = sem limite); valem na hora, inclusive para as
+     * respostas em andamento.
+     */
+    public void setBandwidthLimits(long connectionKb, long ipKb, long globalKb) {
+        bandwidth.setRates(connectionKb * 1024, ipKb * 1024, globalKb * 1024);
+        config.setBandwidthConnectionKb(connectionKb).setBandwidthIpKb(ipKb).setBandwidthGlobalKb(globalKb);
+        logBandwidth();
+    }
+
+    private void logBandwidth() {
+        log("🚰 Limite de banda: conexão " + formatRate(bandwidth.getConnectionRate()) + ", IP "
+                + formatRate(bandwidth.getIpRate()) + ", global " + formatRate(bandwidth.getGlobalRate()));
+    }
+
+    private static String formatRate(long bytesPerSecond) {
+        return bytesPerSecond > 0 ? formatFileSize(bytesPerSecond) + "/s" : "sem limite";
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest request, String clientAddress) throws IOException {
+        long start = System.nanoTime();
+        String method = request.methodName();
+        String path = request.path();
+
+        long requestId = nextRequestId.incrementAndGet();
+        for (ServerListener listener : listeners) {
+            listener.requestStarted(requestId, clientAddress, method, path);
+        }
+
+        // Processar request
+        HttpResponse response;
+        if (request.method() == HttpMethod.GET && isMetricsPath(path)) {
+            response = HttpResponse.ofBody(200, "OK", metrics.toPrometheus(), ServerMetrics.CONTENT_TYPE)
+                    .header("Cache-Control", "no-store")
+                    .route(ServerMetrics.Route.METRICS);
+        } else if (request.method() == HttpMethod.GET) {
+            response = handleGetRequest(path, request, clientAddress);
+        } else {
+            response = sendErrorResponse(405, "Method Not Allowed");
+        }
+        if (response.getRoute() == null) {
+            response.route(ServerMetrics.Route.FILE);
+        }
+        return response.requestId(requestId).startedAt(request.method(), start).requestLine(method, path, request.version());
+    }
+
+    private static boolean isMetricsPath(String path) {
+        return path.startsWith(ServerMetrics.PATH)
+                && (path.length() == ServerMetrics.PATH.length() || path.charAt(ServerMetrics.PATH.length()) == '?');
+    }
+
+    @Override
+    public RequestBodySink openBody(HttpRequest request, String clientAddress) throws IOException, HttpParseException {
+        long start = System.nanoTime();
+        long maxBytes = config.getUploadMaxMb() * 1024 * 1024;
+        HttpMethod method = request.method();
+        if (maxBytes == 0 || (method != HttpMethod.PUT && method != HttpMethod.POST)) {
+            return null;
+        }
+        if (request.contentLength() > maxBytes) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+
+        // A query não faz parte do nome do arquivo (PUT /a.txt?v=1 grava a.txt)
+        String requestTarget = request.path();
+        int queryStart = requestTarget.indexOf('?');
+        String path = queryStart >= 0 ? requestTarget.substring(0, queryStart) : requestTarget;
+        if (path.contains("..")) {
+            throw new HttpParseException(403, "Forbidden");
+        }
+        File target = new File(webRootDirectory, path.substring(1));
+        if (!target.getCanonicalPath().startsWith(webRootDirectory.getCanonicalPath())) {
+            throw new HttpParseException(403, "Forbidden");
+        }
+
+        // O id sai antes para a resposta do upload já nascer com ele
+        long requestId = nextRequestId.incrementAndGet();
+        String methodName = request.methodName();
+        String version = request.version();
+        RequestBodySink sink;
+        if (method == HttpMethod.PUT) {
+            // PUT grava exatamente no caminho pedido; o diretório pai já tem que existir
+            if (target.isDirectory() || !target.getParentFile().isDirectory()
+                    || target.getName().startsWith(AtomicFileWriter.TEMP_PREFIX)) {
+                throw new HttpParseException(409, "Conflict");
+            }
+            sink = new PutUpload(target, maxBytes, result -> uploadResponse(result, path).requestId(requestId)
+                    .startedAt(method, start).requestLine(methodName, requestTarget, version));
+        } else {
+            // POST de formulário: os arquivos vão para o diretório pedido
+            if (!target.isDirectory()) {
+                throw new HttpParseException(404, "File Not Found");
+            }
+            String boundary = MultipartUpload.boundary(request.header(HttpHeader.CONTENT_TYPE));
+            if (boundary == null) {
+                throw new HttpParseException(415, "Unsupported Media Type");
+            }
+            sink = new MultipartUpload(target, boundary, maxBytes, result -> uploadResponse(result, path).requestId(requestId)
+                    .startedAt(method, start).requestLine(methodName, requestTarget, version));
+        }
+
+        for (ServerListener listener : listeners) {
+            listener.requestStarted(requestId, clientAddress, request.methodName(), path);
+        }
+        return sink;
+    }
+
+    private HttpResponse uploadResponse(UploadSink.Result result, String path) {
+        metrics.recordBodyBytes(result.bodyBytes());
+
+        // Vazão medida sobre o corpo inteiro, do primeiro byte lido até o rename final
+        List<UploadSink.SavedFile> files = result.files();
+        String what = files.size() == 1 ? files.get(0).file().getName() : files.size() + " arquivos";
+        log("📥 Upload recebido: " + what + " (" + formatFileSize(result.bodyBytes()) + ") "
+                + formatThroughput(result.bodyBytes(), result.nanos()));
+
+        StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html>\n<head><meta charset='UTF-8'><title>Upload</title></head>\n<body>\n<ul>\n");
+        boolean created = false;
+        WebrootManifest manifest = this.manifest;
+        DirectoryListingCache listingCache = this.listingCache;
+        for (UploadSink.SavedFile saved : files) {
+            // Sem esperar o WatchService: o próximo GET não pode ver o tamanho antigo
+            if (manifest != null) {
+                manifest.invalidate(saved.file());
+            }
+            if (listingCache != null) {
+                listingCache.invalidate(saved.file().getParentFile());
+            }
+            created |= !saved.replaced();
+            html.append("    <li>").append(saved.file().getName()).append(" (").append(formatFileSize(saved.size()))
+                    .append(saved.replaced() ? ", substituído" : ", criado").append(")</li>\n");
+        }
+        html.append("</ul>\n<p><a href='").append(path.endsWith("/") ? path : "/").append("'>↩ Voltar</a></p>\n</body>\n</html>\n");
+
+        HttpResponse response = created
+                ? sendResponse(201, "Created", html.toString())
+                : sendResponse(200, "OK", html.toString());
+        if (created && files.size() == 1 && !path.endsWith("/")) {
+            response.header("Location", path);
+        }
+        return response.route(ServerMetrics.Route.UPLOAD);
+    }
+
+    @Override
+    public HttpResponse error(int statusCode, String message) {
+        return sendErrorResponse(statusCode, message);
+    }
+
+    @Override
+    public void completed(HttpResponse response, String clientAddress) {
+        metrics.record(response);
+        AccessLog accessLog = this.accessLog;
+        if (accessLog != null) {
+            accessLog.record(response, clientAddress);
+        }
+        if (response.hasFile()) {
+            log("📤 Arquivo enviado: " + response.getFile().getName() + " (" + formatFileSize(response.getBytesSent()) + ") "
+                    + formatThroughput(response.getBytesSent(), response.getTransferNanos())
+                    + (response.isCached() ? " [cache]" : response.isZeroCopy() ? " [zero-copy]" : " [cópia]"));
+        }
+
+        for (ServerListener listener : listeners) {
+            listener.requestCompleted(response.getRequestId(), response);
+        }
+    }
+
+    private HttpResponse handleGetRequest(String target, HttpRequest request, String clientAddress) throws IOException {
+        // A query só interessa às listagens; arquivos são servidos pelo caminho
+        int queryStart = target.indexOf('?');
+        String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        String query = queryStart >= 0 ? target.substring(queryStart + 1) : null;
+
+        // Prevenir path traversal attacks
+        if (path.contains("..")) {
+            return sendErrorResponse(403, "Forbidden");
+        }
+
+        // Mapear path para arquivo
+        File requestedFile;
+        if (path.equals("/")) {
+            // Listar diretório
+            return listDirectory(webRootDirectory, path, query, request, clientAddress);
+        } else {
+            String filePath = path.substring(1); // Remover a barra inicial
+            requestedFile = new File(webRootDirectory, filePath);
+        }
+
+        // Uma entrada do manifesto já garante que o arquivo existe dentro do webroot, sem stat
+        WebrootManifest manifest = this.manifest;
+        WebrootManifest.Entry known = manifest != null ? manifest.lookup(requestedFile) : null;
+
+        // Verificar se o arquivo existe
+        if (known == null && (!requestedFile.exists()
+                || !requestedFile.getCanonicalPath().startsWith(webRootDirectory.getCanonicalPath()))) {
+            return sendErrorResponse(404, "File Not Found");
+        }
+
+        if (known != null ? known.directory() : requestedFile.isDirectory()) {
+            // Listar conteúdo do diretório
+            return listDirectory(requestedFile, path, query, request, clientAddress);
+        } else {
+            // Servir arquivo
+            return serveFile(requestedFile, known, request);
+        }
+    }
+
+    private HttpResponse listDirectory(File directory, String path, String query, HttpRequest request, String clientAddress) {
+        DirectoryListing.Options options;
+        try {
+            options = DirectoryListing.Options.parse(query);
+        } catch (HttpParseException ex) {
+            return sendErrorResponse(ex.getStatusCode(), ex.getMessage());
+        }
+
+        // Listagens repetidas (só a página padrão) saem da memória até o WatchService avisar que o diretório mudou
+        DirectoryListingCache cache = options.isDefault() ? listingCache : null;
+        byte[] cached = cache != null ? cache.get(directory) : null;
+        if (cached != null) {
+            log("📋 Listagem de diretório: " + directory.getName() + " para " + clientAddress);
+            return HttpResponse.ofBytes(200, "OK", cached, options.contentType()).route(ServerMetrics.Route.LISTING);
+        }
+
+        DirectoryListingCache.Ticket ticket = cache != null ? cache.prepare(directory) : null;
+        DirectoryListing listing;
+        byte[] body;
+        try {
+            listing = new DirectoryListing(directory, webRootDirectory, path, options, manifest);
+        } catch (IOException ex) {
+            return sendErrorResponse(403, "Forbidden");
+        }
+        try {
+            body = listing.prefetch(BUFFERED_LISTING_ENTRIES);
+        } catch (IOException ex) {
+            listing.close();
+            return sendErrorResponse(500, "Internal Server Error");
+        }
+
+        HttpResponse response;
+        if (listing.isDone()) {
+            if (ticket != null) {
+                cache.put(ticket, body);
+            }
+            log("📋 Listagem de diretório: " + directory.getName() + " para " + clientAddress);
+            response = HttpResponse.ofBytes(200, "OK", body, options.contentType());
+        } else {
+            // Diretório grande: o primeiro bloco sai já, o resto em chunks enquanto o DirectoryStream avança
+            log("📋 Listagem de diretório: " + directory.getName() + " para " + clientAddress + " [streaming]");
+            response = HttpResponse.ofStream(200, "OK", body, listing, options.contentType(), request.isHttp11() && !request.isHttp2());
+        }
+        return response.route(ServerMetrics.Route.LISTING);
+    }
+
+    // Listagem padrão inteira em memória, sem cache (usada pelos benchmarks)
+    byte[] renderListing(File directory) {
+        try (DirectoryListing listing = new DirectoryListing(directory, webRootDirectory, "/", DirectoryListing.Options.DEFAULT)) {
+            return listing.prefetch(Integer.MAX_VALUE);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // known: entrada do manifesto (tamanho, data, tipo e hash já conhecidos), ou null para consultar o disco
+    private HttpResponse serveFile(File file, WebrootManifest.Entry known, HttpRequest request) throws IOException {
+        // Fora do manifesto (desligado, ainda indexando ou arquivo mudando): só um stat, sem ler o conteúdo;
+        // o ETag fica por tamanho + data até a indexação em segundo plano calcular o hash
+        long size;
+        long modified;
+        String entryEtag;
+        if (known != null) {
+            size = known.size();
+            modified = known.lastModified();
+            entryEtag = known.etag();
+        } else {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            } catch (IOException ex) {
+                return sendErrorResponse(404, "File Not Found");
+            }
+            if (!attributes.isRegularFile()) {
+                return sendErrorResponse(404, "File Not Found");
+            }
+            size = attributes.size();
+            modified = attributes.lastModifiedTime().toMillis();
+            entryEtag = ConditionalGet.etag(size, modified);
+        }
+        String contentType = known != null && known.contentType() != null ? known.contentType() : getContentType(file.getName());
+        String cacheControl = cacheControlPolicy.forFile(file.getName());
+        String rangeHeader = request.header(HttpHeader.RANGE);
+
+        // Arquivos pequenos e quentes saem da memória, com headers (e validadores) pré-montados
+        FileCache.Entry cached = null;
+        if (rangeHeader == null) {
+            cached = fileCache.get(file, size, modified, f -> withValidators(
+                    HttpResponse.ofFile(f, size, contentType), entryEtag, modified, cacheControl));
+        }
+
+        // O ETag comparado é sempre o mesmo que foi (ou será) enviado nos headers
+        long length;
+        long lastModified;
+        String etag;
+        if (cached != null) {
+            length = cached.getLength();
+            lastModified = cached.getLastModified();
+            etag = cached.getHeaders().get("ETag");
+        } else {
+            length = size;
+            lastModified = modified;
+            etag = entryEtag;
+        }
+
+        // Revalidação: a cópia do cliente ainda vale
+        if (ConditionalGet.isNotModified(request, etag, lastModified)) {
+            log("♻ 304 Not Modified: " + file.getName());
+            return HttpResponse.notModified(etag, lastModified, cacheControl);
+        }
+
+        // Range só vale se o If-Range (quando presente) ainda corresponder ao arquivo
+        if (rangeHeader != null && ConditionalGet.ifRangeMatches(request.header(HttpHeader.IF_RANGE), etag, lastModified)) {
+            List<ByteRange> ranges = ByteRange.parse(rangeHeader, length);
+            if (ranges != null) {
+                if (ranges.isEmpty()) {
+                    return sendErrorResponse(416, "Range Not Satisfiable")
+                            .header("Content-Range", "bytes */" + length);
+                }
+                log("✂ Range " + rangeHeader + " em " + file.getName());
+                HttpResponse partial = ranges.size() == 1
+                        ? HttpResponse.ofFileRange(file, length, contentType, ranges.get(0))
+                        : HttpResponse.ofFileRanges(file, length, contentType, ranges);
+                return withValidators(partial, etag, lastModified, cacheControl);
+            }
+        }
+
+        if (cached != null) {
+            return HttpResponse.ofCached(file, cached);
+        }
+        return withValidators(HttpResponse.ofFile(file, length, contentType), etag, lastModified, cacheControl);
+    }
+
+    private HttpResponse withValidators(HttpResponse response, String etag, long lastModified, String cacheControl) {
+        response.header("ETag", etag);
+        response.header("Last-Modified", ConditionalGet.httpDate(lastModified));
+        if (cacheControl != null) {
+            response.header("Cache-Control", cacheControl);
+        }
+        return response;
+    }
+
+    String getContentType(String fileName) {
+        if (fileName.endsWith(".html") || fileName.endsWith(".htm")) return "text/html";
+        if (fileName.endsWith(".css")) return "text/css";
+        if (fileName.endsWith(".js")) return "application/javascript";
+        if (fileName.endsWith(".png")) return "image/png";
+        if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) return "image/jpeg";
+        if (fileName.endsWith(".gif")) return "image/gif";
+        if (fileName.endsWith(".pdf")) return "application/pdf";
+        if (fileName.endsWith(".zip")) return "application/zip";
+        if (fileName.endsWith(".txt")) return "text/plain";
+        return "application/octet-stream";
+    }
+
+    static String formatFileSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+
+    static String formatThroughput(long bytes, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1_000_000_000.0;
+        return String.format("em %.1f ms, %s/s", nanos / 1_000_000.0, formatFileSize((long) (bytes / seconds)));
+    }
+
+    private HttpResponse sendErrorResponse(int statusCode, String message) {
+        String responseBody = """
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <meta charset='UTF-8'>
+                <title>Erro %d</title>
+                <style>
+                    body { font-family: Arial, sans-serif; margin: 40px; background: #ffe6e6; }
+                    .container { background: white; padding: 20px; border-radius: 10px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); text-align: center; }
+                    h1 { color: #c0392b; }
+                    .error-code { font-size: 4em; color: #c0392b; margin: 0; }
+                </style>
+            </head>
+            <body>
+                <div class='container'>
+                    <h1 class='error-code'>%d</h1>
+                    <h2>%s</h2>
+                    <p>O servidor encontrou um erro ao processar sua requisição.</p>
+                    <p><a href='/'>Voltar para a página inicial</a></p>
+                </div>
+            </body>
+            </html>
+            """.formatted(statusCode, statusCode, statusCode, message);
+
+        log("❌ Erro " + statusCode + ": " + message);
+        return sendResponse(statusCode, message, responseBody, "text/html").route(ServerMetrics.Route.ERROR);
+    }
+
+    private HttpResponse sendResponse(int statusCode, String statusMessage,
+                                      String body, String contentType) {
+        return HttpResponse.ofBody(statusCode, statusMessage, body, contentType);
+    }
+
+    private HttpResponse sendResponse(int statusCode, String statusMessage, String body) {
+        return sendResponse(statusCode, statusMessage, body, "text/html");
+    }
+
+    private void log(String message) {
+        for (ServerListener listener : listeners) {
+            listener.log(message);
+        }
+    }
+
+}
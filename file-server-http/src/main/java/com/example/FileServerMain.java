@@ -0,0 +1,52 @@
+package com.example;
+
+import javax.swing.*;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Sobe o {@link FileServer} sem interface gráfica, com log no console:
+ *
+ * <pre>
+ * java -cp target/classes com.example.FileServerMain --webroot=/srv/www --engine=selector --port=8080
+ * java -cp target/classes com.example.FileServerMain --config=server.properties --gui
+ * java -cp target/classes com.example.FileServerMain --webroot=/srv/www --port=8443 --tls
+ * </pre>
+ *
+ * {@code --gui} abre a janela Swing como monitor do servidor já em execução.
+ */
+public class FileServerMain {
+
+    private static final DateTimeFormatter LOG_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    public static void main(String[] args) throws Exception {
+        FileServer server;
+        try {
+            server = new FileServer(ServerConfig.fromArgs(args));
+        } catch (IllegalArgumentException ex) {
+            System.err.println("❌ " + ex.getMessage());
+            System.err.println("Uso: FileServerMain [--config=arquivo.properties] --webroot=DIR [--port=8080]"
+                    + " [--engine=blocking|virtual|selector] [--pool-size=N] [--shards=1] [--cache-mb=64]"
+                    + " [--keepalive-max=100] [--keepalive-idle=5] [--header-timeout=10] [--body-timeout=30]"
+                    + " [--write-timeout=30] [--cache-control=REGRAS] [--upload-max-mb=100]"
+                    + " [--manifest=true|false] [--manifest-file=ARQUIVO]"
+                    + " [--access-log=ARQUIVO] [--access-log-format=clf|binary] [--access-log-max-mb=64]"
+                    + " [--tls] [--tls-keystore=ARQUIVO.p12] [--tls-password=SENHA] [--tls-session-cache=20480]"
+                    + " [--tls-session-timeout=86400] [--tls-tickets=true|false] [--http2=true|false]"
+                    + " [--http2-max-streams=100] [--accept-queue=256] [--max-per-ip=256] [--codel-target-ms=100]"
+                    + " [--codel-interval-ms=1000] [--retry-after=1]"
+                    + " [--bandwidth-connection-kb=0] [--bandwidth-ip-kb=0] [--bandwidth-global-kb=0] [--gui]");
+            System.exit(2);
+            return;
+        }
+
+        server.addListener(message -> System.out.println("[" + LocalTime.now().format(LOG_TIME_FORMAT) + "] " + message));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "file-server-shutdown"));
+        server.start();
+
+        if (server.getConfig().isGui()) {
+            SwingUtilities.invokeLater(() -> new HttpServerSwingApp(server));
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Envio de um trecho de arquivo para o socket.
+ * Usa {@link FileChannel#transferTo} (sendfile no Linux), deixando o kernel copiar direto do
+ * page cache para o socket; se o zero-copy não for possível, copia por um ByteBuffer direto
+ * emprestado do {@link BufferPool}, devolvido quando o trecho termina ou em {@link #release()}.
+ * Funciona tanto com canais bloqueantes quanto não bloqueantes.
+ */
+public class FileTransfer {
+
+    // -Dfileserver.zeroCopy=false desativa o transferTo (útil para comparar os dois caminhos)
+    static final boolean ZERO_COPY_ENABLED = !"false".equals(System.getProperty("fileserver.zeroCopy"));
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Teto de cada transferTo: num canal bloqueante o sendfile só volta quando envia tudo o que
+    // foi pedido, e sem voltas intermediárias não há como notar um cliente que parou de ler
+    private static final long MAX_TRANSFER = 1024 * 1024;
+
+    private final FileChannel file;
+    private final long end;
+    private long position;
+    private boolean zeroCopy;
+    private BufferPool.Lease copyLease;
+    private ByteBuffer copyBuffer;
+    private Runnable progress;
+    private BandwidthLimiter.Throttle throttle;
+
+    public FileTransfer(FileChannel file, long position, long count, WritableByteChannel target) {
+        this.file = file;
+        this.position = position;
+        this.end = position + count;
+        // transferTo só evita a cópia quando o destino é um socket ou arquivo
+        this.zeroCopy = ZERO_COPY_ENABLED && (target instanceof SocketChannel || target instanceof FileChannel);
+    }
+
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    // Chamado a cada escrita que avançou (vigia de escrita parada)
+    public FileTransfer onProgress(Runnable progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    // Limite de banda: sem tokens, writeTo devolve false como se o socket tivesse enchido
+    public FileTransfer throttle(BandwidthLimiter.Throttle throttle) {
+        this.throttle = throttle;
+        return this;
+    }
+
+    /**
+     * Escreve o máximo possível sem bloquear além do que o canal bloquearia.
+     * Retorna true quando o trecho foi enviado por completo, false quando o socket encheu.
+     */
+    public boolean writeTo(WritableByteChannel target) throws IOException {
+        while (true) {
+            if (copyBuffer != null && copyBuffer.hasRemaining()) {
+                long allowed = allowance(copyBuffer.remaining());
+                if (allowed == 0) {
+                    return false;
+                }
+                int limit = copyBuffer.limit();
+                copyBuffer.limit(copyBuffer.position() + (int) allowed);
+                int written = target.write(copyBuffer);
+                copyBuffer.limit(limit);
+                if (written == 0) {
+                    return false;
+                }
+                consumed(written);
+                progressed();
+                continue;
+            }
+
+            if (position >= end) {
+                release();
+                return true;
+            }
+
+            if (zeroCopy) {
+                long allowed = allowance(Math.min(end - position, MAX_TRANSFER));
+                if (allowed == 0) {
+                    return false;
+                }
+                long written;
+                try {
+                    written = file.transferTo(position, allowed, target);
+                } catch (UnsupportedOperationException | IOException ex) {
+                    if (!isZeroCopyUnsupported(ex)) {
+                        throw ex;
+                    }
+                    // Fallback: plataforma/canal não suporta zero-copy
+                    zeroCopy = false;
+                    continue;
+                }
+                if (written == 0) {
+                    if (position >= file.size()) {
+                        throw new IOException("Arquivo truncado durante o envio");
+                    }
+                    return false;
+                }
+                position += written;
+                consumed(written);
+                progressed();
+            } else {
+                if (copyBuffer == null) {
+                    copyLease = BufferPool.shared().acquire((int) Math.min(COPY_BUFFER_SIZE, end - position));
+                    copyBuffer = copyLease.buffer();
+                }
+                copyBuffer.clear();
+                copyBuffer.limit((int) Math.min(copyBuffer.capacity(), end - position));
+                int read = file.read(copyBuffer, position);
+                if (read == -1) {
+                    throw new IOException("Arquivo truncado durante o envio");
+                }
+                position += read;
+                copyBuffer.flip();
+            }
+        }
+    }
+
+    // Devolve o buffer de cópia ao pool; chamar também quando o envio for abandonado
+    public void release() {
+        if (copyLease != null) {
+            copyLease.release();
+            copyLease = null;
+            copyBuffer = null;
+        }
+    }
+
+    private long allowance(long wanted) {
+        return throttle != null ? throttle.allowance(wanted) : wanted;
+    }
+
+    private void consumed(long bytes) {
+        if (throttle != null) {
+            throttle.consumed(bytes);
+        }
+    }
+
+    private void progressed() {
+        if (progress != null) {
+            progress.run();
+        }
+    }
+
+    private static boolean isZeroCopyUnsupported(Exception ex) {
+        if (ex instanceof UnsupportedOperationException) {
+            return true;
+        }
+        String message = ex.getMessage();
+        return message != null && (message.contains("not supported") || message.contains("Invalid argument"));
+    }
+
+}
@@ -0,0 +1,499 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * HPACK (RFC 7541), a compressão de headers do HTTP/2: tabela estática, tabela dinâmica
+ * (uma por sentido da conexão) e o código de Huffman do Apêndice B. O {@link Decoder} lê os
+ * blocos enviados pelo cliente; o {@link Encoder} escreve os das respostas, indexando os
+ * headers que se repetem (content-type, server, cache-control...) para que a partir da
+ * segunda resposta eles custem um byte cada.
+ */
+public final class Hpack {
+
+    public static final int DEFAULT_TABLE_SIZE = 4096;
+
+    // Custo de cada entrada na tabela dinâmica além do nome e do valor (RFC 7541, 4.1)
+    private static final int ENTRY_OVERHEAD = 32;
+
+    public record Header(String name, String value) {
+
+        int size() {
+            return name.length() + value.length() + ENTRY_OVERHEAD;
+        }
+    }
+
+    // Índices 1 a 61; a posição 0 não é usada
+    private static final Header[] STATIC_TABLE = {
+            null,
+            new Header(":authority", ""),
+            new Header(":method", "GET"),
+            new Header(":method", "POST"),
+            new Header(":path", "/"),
+            new Header(":path", "/index.html"),
+            new Header(":scheme", "http"),
+            new Header(":scheme", "https"),
+            new Header(":status", "200"),
+            new Header(":status", "204"),
+            new Header(":status", "206"),
+            new Header(":status", "304"),
+            new Header(":status", "400"),
+            new Header(":status", "404"),
+            new Header(":status", "500"),
+            new Header("accept-charset", ""),
+            new Header("accept-encoding", "gzip, deflate"),
+            new Header("accept-language", ""),
+            new Header("accept-ranges", ""),
+            new Header("accept", ""),
+            new Header("access-control-allow-origin", ""),
+            new Header("age", ""),
+            new Header("allow", ""),
+            new Header("authorization", ""),
+            new Header("cache-control", ""),
+            new Header("content-disposition", ""),
+            new Header("content-encoding", ""),
+            new Header("content-language", ""),
+            new Header("content-length", ""),
+            new Header("content-location", ""),
+            new Header("content-range", ""),
+            new Header("content-type", ""),
+            new Header("cookie", ""),
+            new Header("date", ""),
+            new Header("etag", ""),
+            new Header("expect", ""),
+            new Header("expires", ""),
+            new Header("from", ""),
+            new Header("host", ""),
+            new Header("if-match", ""),
+            new Header("if-modified-since", ""),
+            new Header("if-none-match", ""),
+            new Header("if-range", ""),
+            new Header("if-unmodified-since", ""),
+            new Header("last-modified", ""),
+            new Header("link", ""),
+            new Header("location", ""),
+            new Header("max-forwards", ""),
+            new Header("proxy-authenticate", ""),
+            new Header("proxy-authorization", ""),
+            new Header("range", ""),
+            new Header("referer", ""),
+            new Header("refresh", ""),
+            new Header("retry-after", ""),
+            new Header("server", ""),
+            new Header("set-cookie", ""),
+            new Header("strict-transport-security", ""),
+            new Header("transfer-encoding", ""),
+            new Header("user-agent", ""),
+            new Header("vary", ""),
+            new Header("via", ""),
+            new Header("www-authenticate", ""),
+    };
+
+    // Código de Huffman de cada byte (alinhado à direita) e seu tamanho em bits
+    private static final int[] HUFFMAN_CODES = {
+            0x1ff8, 0x7fffd8, 0xfffffe2, 0xfffffe3, 0xfffffe4, 0xfffffe5, 0xfffffe6, 0xfffffe7,
+            0xfffffe8, 0xffffea, 0x3ffffffc, 0xfffffe9, 0xfffffea, 0x3ffffffd, 0xfffffeb, 0xfffffec,
+            0xfffffed, 0xfffffee, 0xfffffef, 0xffffff0, 0xffffff1, 0xffffff2, 0x3ffffffe, 0xffffff3,
+            0xffffff4, 0xffffff5, 0xffffff6, 0xffffff7, 0xffffff8, 0xffffff9, 0xffffffa, 0xffffffb,
+            0x14, 0x3f8, 0x3f9, 0xffa, 0x1ff9, 0x15, 0xf8, 0x7fa,
+            0x3fa, 0x3fb, 0xf9, 0x7fb, 0xfa, 0x16, 0x17, 0x18,
+            0x0, 0x1, 0x2, 0x19, 0x1a, 0x1b, 0x1c, 0x1d,
+            0x1e, 0x1f, 0x5c, 0xfb, 0x7ffc, 0x20, 0xffb, 0x3fc,
+            0x1ffa, 0x21, 0x5d, 0x5e, 0x5f, 0x60, 0x61, 0x62,
+            0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a,
+            0x6b, 0x6c, 0x6d, 0x6e, 0x6f, 0x70, 0x71, 0x72,
+            0xfc, 0x73, 0xfd, 0x1ffb, 0x7fff0, 0x1ffc, 0x3ffc, 0x22,
+            0x7ffd, 0x3, 0x23, 0x4, 0x24, 0x5, 0x25, 0x26,
+            0x27, 0x6, 0x74, 0x75, 0x28, 0x29, 0x2a, 0x7,
+            0x2b, 0x76, 0x2c, 0x8, 0x9, 0x2d, 0x77, 0x78,
+            0x79, 0x7a, 0x7b, 0x7ffe, 0x7fc, 0x3ffd, 0x1ffd, 0xffffffc,
+            0xfffe6, 0x3fffd2, 0xfffe7, 0xfffe8, 0x3fffd3, 0x3fffd4, 0x3fffd5, 0x7fffd9,
+            0x3fffd6, 0x7fffda, 0x7fffdb, 0x7fffdc, 0x7fffdd, 0x7fffde, 0xffffeb, 0x7fffdf,
+            0xffffec, 0xffffed, 0x3fffd7, 0x7fffe0, 0xffffee, 0x7fffe1, 0x7fffe2, 0x7fffe3,
+            0x7fffe4, 0x1fffdc, 0x3fffd8, 0x7fffe5, 0x3fffd9, 0x7fffe6, 0x7fffe7, 0xffffef,
+            0x3fffda, 0x1fffdd, 0xfffe9, 0x3fffdb, 0x3fffdc, 0x7fffe8, 0x7fffe9, 0x1fffde,
+            0x7fffea, 0x3fffdd, 0x3fffde, 0xfffff0, 0x1fffdf, 0x3fffdf, 0x7fffeb, 0x7fffec,
+            0x1fffe0, 0x1fffe1, 0x3fffe0, 0x1fffe2, 0x7fffed, 0x3fffe1, 0x7fffee, 0x7fffef,
+            0xfffea, 0x3fffe2, 0x3fffe3, 0x3fffe4, 0x7ffff0, 0x3fffe5, 0x3fffe6, 0x7ffff1,
+            0x3ffffe0, 0x3ffffe1, 0xfffeb, 0x7fff1, 0x3fffe7, 0x7ffff2, 0x3fffe8, 0x1ffffec,
+            0x3ffffe2, 0x3ffffe3, 0x3ffffe4, 0x7ffffde, 0x7ffffdf, 0x3ffffe5, 0xfffff1, 0x1ffffed,
+            0x7fff2, 0x1fffe3, 0x3ffffe6, 0x7ffffe0, 0x7ffffe1, 0x3ffffe7, 0x7ffffe2, 0xfffff2,
+            0x1fffe4, 0x1fffe5, 0x3ffffe8, 0x3ffffe9, 0xffffffd, 0x7ffffe3, 0x7ffffe4, 0x7ffffe5,
+            0xfffec, 0xfffff3, 0xfffed, 0x1fffe6, 0x3fffe9, 0x1fffe7, 0x1fffe8, 0x7ffff3,
+            0x3fffea, 0x3fffeb, 0x1ffffee, 0x1ffffef, 0xfffff4, 0xfffff5, 0x3ffffea, 0x7ffff4,
+            0x3ffffeb, 0x7ffffe6, 0x3ffffec, 0x3ffffed, 0x7ffffe7, 0x7ffffe8, 0x7ffffe9, 0x7ffffea,
+            0x7ffffeb, 0xffffffe, 0x7ffffec, 0x7ffffed, 0x7ffffee, 0x7ffffef, 0x7fffff0, 0x3ffffee
+    };
+
+    private static final byte[] HUFFMAN_LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26
+    };
+
+    private static final int EOS_LENGTH = 30;
+
+    // Árvore de decodificação: filhos 0 e 1 de cada nó; folhas guardam -(símbolo + 1)
+    private static final int[][] HUFFMAN_TREE = new int[2][512];
+
+    static {
+        int nodes = 1;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int node = 0;
+            for (int bit = HUFFMAN_LENGTHS[symbol] - 1; bit >= 0; bit--) {
+                int branch = (HUFFMAN_CODES[symbol] >>> bit) & 1;
+                if (bit == 0) {
+                    HUFFMAN_TREE[branch][node] = -(symbol + 1);
+                } else {
+                    if (HUFFMAN_TREE[branch][node] == 0) {
+                        HUFFMAN_TREE[branch][node] = nodes++;
+                    }
+                    node = HUFFMAN_TREE[branch][node];
+                }
+            }
+        }
+    }
+
+    private Hpack() {
+    }
+
+    /**
+     * Tabela dinâmica: a entrada mais nova tem o menor índice (62) e as mais antigas
+     * são despejadas quando o tamanho passa do máximo combinado.
+     */
+    static final class DynamicTable {
+
+        private final ArrayDeque<Header> entries = new ArrayDeque<>();
+        private int size = 0;
+        private int maxSize;
+
+        DynamicTable(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        int length() {
+            return entries.size();
+        }
+
+        // index começa em 1 (a entrada mais nova)
+        Header get(int index) {
+            Iterator<Header> iterator = entries.iterator();
+            for (int i = 1; i < index; i++) {
+                iterator.next();
+            }
+            return iterator.next();
+        }
+
+        void add(Header header) {
+            size += header.size();
+            entries.addFirst(header);
+            evict();
+        }
+
+        void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            evict();
+        }
+
+        private void evict() {
+            while (size > maxSize) {
+                size -= entries.removeLast().size();
+            }
+        }
+    }
+
+    /**
+     * Lê os blocos de headers do cliente. Um erro aqui dessincroniza a tabela dinâmica dos
+     * dois lados, então é sempre erro de conexão (COMPRESSION_ERROR). A lista decodificada
+     * também é limitada (tamanho do RFC 7541: nome + valor + 32 por header): um bloco pequeno
+     * que repete o índice de uma entrada grande da tabela vira megabytes de headers.
+     */
+    public static final class Decoder {
+
+        private final DynamicTable table;
+        private final int maxTableSize;
+        private final int maxHeaderListSize;
+
+        public Decoder(int maxTableSize, int maxHeaderListSize) {
+            this.maxTableSize = maxTableSize;
+            this.maxHeaderListSize = maxHeaderListSize;
+            this.table = new DynamicTable(maxTableSize);
+        }
+
+        public List<Header> decode(byte[] block, int offset, int length) throws Http2Exception {
+            List<Header> headers = new ArrayList<>();
+            int[] position = {offset};
+            int end = offset + length;
+            boolean headerSeen = false;
+            long listSize = 0;
+            while (position[0] < end) {
+                int b = block[position[0]] & 0xff;
+                Header header;
+                if ((b & 0x80) != 0) {
+                    // Campo indexado
+                    header = entry(readInt(block, position, end, 7));
+                } else if ((b & 0xc0) == 0x40) {
+                    // Literal com indexação incremental
+                    header = literal(block, position, end, 6);
+                    table.add(header);
+                } else if ((b & 0xe0) == 0x20) {
+                    // Atualização do tamanho da tabela: só no começo do bloco
+                    int size = readInt(block, position, end, 5);
+                    if (headerSeen || size > maxTableSize) {
+                        throw compressionError("atualização de tamanho da tabela inválida");
+                    }
+                    table.setMaxSize(size);
+                    continue;
+                } else {
+                    // Literal sem indexação (0000) ou nunca indexado (0001)
+                    header = literal(block, position, end, 4);
+                }
+                listSize += header.size();
+                if (listSize > maxHeaderListSize) {
+                    // O resto do bloco não é lido: a tabela dinâmica fica dessincronizada
+                    throw new Http2Exception(Http2Frame.ENHANCE_YOUR_CALM,
+                            "HPACK: lista de headers acima de " + maxHeaderListSize + " bytes");
+                }
+                headers.add(header);
+                headerSeen = true;
+            }
+            return headers;
+        }
+
+        private Header literal(byte[] block, int[] position, int end, int prefixBits) throws Http2Exception {
+            int index = readInt(block, position, end, prefixBits);
+            String name = index == 0 ? readString(block, position, end) : entry(index).name();
+            return new Header(name, readString(block, position, end));
+        }
+
+        private Header entry(int index) throws Http2Exception {
+            if (index >= 1 && index < STATIC_TABLE.length) {
+                return STATIC_TABLE[index];
+            }
+            int dynamic = index - STATIC_TABLE.length + 1;
+            if (dynamic < 1 || dynamic > table.length()) {
+                throw compressionError("índice " + index + " fora da tabela");
+            }
+            return table.get(dynamic);
+        }
+
+        private static String readString(byte[] block, int[] position, int end) throws Http2Exception {
+            if (position[0] >= end) {
+                throw compressionError("string truncada");
+            }
+            boolean huffman = (block[position[0]] & 0x80) != 0;
+            int length = readInt(block, position, end, 7);
+            if (length > end - position[0]) {
+                throw compressionError("string truncada");
+            }
+            int start = position[0];
+            position[0] += length;
+            return huffman
+                    ? huffmanDecode(block, start, length)
+                    : new String(block, start, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Escreve os blocos de headers das respostas. Headers cujo valor muda a cada resposta
+     * (tamanho, datas, ETag) vão como literais sem indexação, para não despejar da tabela
+     * os que se repetem.
+     */
+    public static final class Encoder {
+
+        private static final Set<String> NOT_INDEXED = Set.of(
+                "content-length", "content-range", "content-disposition", "etag", "last-modified",
+                "date", "location", "set-cookie");
+
+        private final DynamicTable table = new DynamicTable(DEFAULT_TABLE_SIZE);
+        private int maxTableSize = DEFAULT_TABLE_SIZE;
+        private boolean sizeUpdatePending = false;
+
+        // SETTINGS_HEADER_TABLE_SIZE do cliente: a tabela nunca passa do que ele aceita
+        public void setMaxTableSize(int size) {
+            int limited = Math.min(size, DEFAULT_TABLE_SIZE);
+            if (limited != maxTableSize) {
+                maxTableSize = limited;
+                table.setMaxSize(limited);
+                sizeUpdatePending = true;
+            }
+        }
+
+        public byte[] encode(List<Header> headers) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+            if (sizeUpdatePending) {
+                writeInt(out, 0x20, 5, maxTableSize);
+                sizeUpdatePending = false;
+            }
+            for (Header header : headers) {
+                encode(out, header);
+            }
+            return out.toByteArray();
+        }
+
+        private void encode(ByteArrayOutputStream out, Header header) {
+            int nameIndex = 0;
+            for (int i = 1; i < STATIC_TABLE.length; i++) {
+                if (STATIC_TABLE[i].name().equals(header.name())) {
+                    if (STATIC_TABLE[i].value().equals(header.value())) {
+                        writeInt(out, 0x80, 7, i);
+                        return;
+                    }
+                    if (nameIndex == 0) {
+                        nameIndex = i;
+                    }
+                }
+            }
+            int index = STATIC_TABLE.length;
+            for (Iterator<Header> iterator = table.entries.iterator(); iterator.hasNext(); index++) {
+                Header entry = iterator.next();
+                if (entry.equals(header)) {
+                    writeInt(out, 0x80, 7, index);
+                    return;
+                }
+                if (nameIndex == 0 && entry.name().equals(header.name())) {
+                    nameIndex = index;
+                }
+            }
+
+            boolean indexed = !header.name().startsWith(":") && !NOT_INDEXED.contains(header.name())
+                    && header.size() <= maxTableSize;
+            if (indexed) {
+                writeInt(out, 0x40, 6, nameIndex);
+                table.add(header);
+            } else {
+                writeInt(out, 0x00, 4, nameIndex);
+            }
+            if (nameIndex == 0) {
+                writeString(out, header.name());
+            }
+            writeString(out, header.value());
+        }
+
+        // Huffman só quando fica menor que o texto puro
+        private static void writeString(ByteArrayOutputStream out, String value) {
+            byte[] raw = value.getBytes(StandardCharsets.ISO_8859_1);
+            long bits = 0;
+            for (byte b : raw) {
+                bits += HUFFMAN_LENGTHS[b & 0xff];
+            }
+            int huffmanLength = (int) ((bits + 7) / 8);
+            if (huffmanLength >= raw.length) {
+                writeInt(out, 0x00, 7, raw.length);
+                out.write(raw, 0, raw.length);
+                return;
+            }
+
+            writeInt(out, 0x80, 7, huffmanLength);
+            long buffer = 0;
+            int pending = 0;
+            for (byte b : raw) {
+                int length = HUFFMAN_LENGTHS[b & 0xff];
+                buffer = (buffer << length) | HUFFMAN_CODES[b & 0xff];
+                pending += length;
+                while (pending >= 8) {
+                    pending -= 8;
+                    out.write((int) (buffer >>> pending));
+                }
+            }
+            if (pending > 0) {
+                // Completa o último byte com o prefixo do EOS (só bits 1)
+                out.write((int) ((buffer << (8 - pending)) | (0xff >>> pending)));
+            }
+        }
+    }
+
+    // Inteiro com prefixo de N bits (RFC 7541, 5.1); first traz os bits de tipo do primeiro byte
+    static void writeInt(ByteArrayOutputStream out, int first, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            out.write(first | value);
+            return;
+        }
+        out.write(first | max);
+        value -= max;
+        while (value >= 0x80) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readInt(byte[] block, int[] position, int end, int prefixBits) throws Http2Exception {
+        int max = (1 << prefixBits) - 1;
+        int value = block[position[0]++] & max;
+        if (value < max) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (position[0] >= end) {
+                throw compressionError("inteiro truncado");
+            }
+            int b = block[position[0]++] & 0xff;
+            value += (b & 0x7f) << shift;
+            if (value < 0 || shift > 21) {
+                throw compressionError("inteiro grande demais");
+            }
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    static String huffmanDecode(byte[] data, int offset, int length) throws Http2Exception {
+        StringBuilder result = new StringBuilder(length * 8 / 5);
+        int node = 0;
+        // Bits lidos desde o último símbolo e se todos foram 1 (o único preenchimento válido)
+        int pendingBits = 0;
+        boolean allOnes = true;
+        for (int i = offset; i < offset + length; i++) {
+            int b = data[i] & 0xff;
+            for (int bit = 7; bit >= 0; bit--) {
+                int branch = (b >>> bit) & 1;
+                int next = HUFFMAN_TREE[branch][node];
+                pendingBits++;
+                allOnes &= branch == 1;
+                if (next < 0) {
+                    result.append((char) (-next - 1));
+                    node = 0;
+                    pendingBits = 0;
+                    allOnes = true;
+                } else if (next == 0 || pendingBits >= EOS_LENGTH) {
+                    throw compressionError("código de Huffman inválido");
+                } else {
+                    node = next;
+                }
+            }
+        }
+        if (pendingBits > 7 || !allOnes) {
+            throw compressionError("preenchimento de Huffman inválido");
+        }
+        return result.toString();
+    }
+
+    private static Http2Exception compressionError(String message) {
+        return new Http2Exception(Http2Frame.COMPRESSION_ERROR, "HPACK: " + message);
+    }
+
+}
@@ -0,0 +1,1067 @@
+package com.example;
+
+import java.io.*;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static com.example.Http2Frame.*;
+
+/**
+ * Uma conexão HTTP/2 em texto puro (h2c), iniciada por conhecimento prévio (o cliente já
+ * começa com o prefácio) ou por {@code Upgrade: h2c} numa requisição HTTP/1.1.
+ * <p>
+ * Duas threads por conexão: a que chamou {@link #serve} lê os frames, monta as requisições e
+ * chama o {@link HttpRequestHandler} (cada stream vira uma requisição HTTP/1.1 equivalente
+ * analisada pelo {@link HttpRequestParser}, então o servidor não sabe a diferença); um writer
+ * (virtual thread) envia as respostas, alternando frames DATA entre os streams ativos dentro
+ * das janelas de controle de fluxo do cliente. Só o writer escreve no socket e só ele usa o
+ * encoder HPACK, então os blocos de headers saem na ordem em que foram comprimidos. Fatias
+ * de arquivo vão como cabeçalho de frame + {@link FileTransfer} (zero-copy quando possível).
+ */
+public class Http2Connection {
+
+    // Janelas de recepção anunciadas ao cliente (uploads): por stream e da conexão
+    static final int STREAM_WINDOW = 1024 * 1024;
+    static final int CONNECTION_WINDOW = 16 * 1024 * 1024;
+    // Blocos de headers maiores que isso (HEADERS + CONTINUATION) encerram a conexão
+    private static final int MAX_HEADER_BLOCK = 2 * HttpRequestParser.MAX_HEAD_SIZE;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Headers de conexão do HTTP/1.1, proibidos no HTTP/2
+    private static final Set<String> CONNECTION_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "upgrade", "proxy-connection");
+
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\nUpgrade: h2c\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final SocketChannel channel;
+    private final String clientAddress;
+    private final HttpRequestHandler handler;
+    private final Consumer<String> log;
+    private final int maxConcurrentStreams;
+    private final int idleTimeoutMillis;
+    private final BooleanSupplier running;
+
+    // Só a thread de leitura
+    private final Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE, HttpRequestParser.MAX_HEAD_SIZE);
+    private final HttpRequestParser parser = new HttpRequestParser();
+    private final byte[] frameHeader = new byte[HEADER_LENGTH];
+    private InputStream in;
+    private boolean upgraded = false;
+    private int lastStreamId = 0;
+    private int streamsOpened = 0;
+    private int connectionReceiveWindow = CONNECTION_WINDOW;
+    private int connectionCredit = 0;
+    // Bloco de headers em andamento (HEADERS seguido de CONTINUATION)
+    private ByteArrayOutputStream headerBlock;
+    private int headerBlockStream = 0;
+    private boolean headerBlockEndStream;
+
+    // Compartilhado entre leitura e writer, sempre sob lock
+    private final Object lock = new Object();
+    private final Map<Integer, Stream> streams = new HashMap<>();
+    private final ArrayDeque<byte[]> control = new ArrayDeque<>();
+    private final ArrayDeque<Stream> ready = new ArrayDeque<>();
+    private int connectionSendWindow = DEFAULT_WINDOW_SIZE;
+    private int initialSendWindow = DEFAULT_WINDOW_SIZE;
+    private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private int peerHeaderTableSize = -1;
+    // closing: enviar o controle pendente (GOAWAY) e parar; aborted: parar já
+    private boolean closing = false;
+    private boolean aborted = false;
+
+    // Só o writer
+    private final Hpack.Encoder encoder = new Hpack.Encoder();
+    private Thread writer;
+    private BandwidthLimiter.Throttle throttle;
+
+    /**
+     * Estado de um stream. Os campos de envio do corpo são só do writer; os de recepção, só
+     * da leitura; o resto é acessado sob lock.
+     */
+    private static final class Stream {
+
+        final int id;
+        int sendWindow;
+        HttpResponse response;
+        boolean remoteClosed;
+        boolean reset;
+
+        // Recepção do corpo (upload)
+        RequestBodySink sink;
+        int receiveWindow = STREAM_WINDOW;
+        int credit;
+
+        // Envio da resposta
+        long start;
+        boolean headersSent;
+        int segmentIndex;
+        ByteBuffer bytes;
+        long filePosition;
+        long fileEnd;
+        FileChannel file;
+        HttpResponse.BodyStream body;
+        long bytesSent;
+        boolean zeroCopy;
+
+        Stream(int id, int sendWindow) {
+            this.id = id;
+            this.sendWindow = sendWindow;
+        }
+    }
+
+    public Http2Connection(SocketChannel channel, String clientAddress, HttpRequestHandler handler, Consumer<String> log,
+                           int maxConcurrentStreams, int idleTimeoutMillis, BooleanSupplier running) {
+        this.channel = channel;
+        this.clientAddress = clientAddress;
+        this.handler = handler;
+        this.log = log;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.running = running;
+    }
+
+    // Limite de banda da conexão inteira: o writer espera os tokens antes de cada frame DATA
+    public Http2Connection throttle(BandwidthLimiter.Throttle throttle) {
+        this.throttle = throttle;
+        return this;
+    }
+
+    // "Upgrade: h2c" com HTTP2-Settings numa requisição sem corpo (RFC 7540, 3.2)
+    public static boolean isUpgrade(HttpRequest request) {
+        String upgrade = request.header("Upgrade");
+        String connection = request.header(HttpHeader.CONNECTION);
+        return upgrade != null && connection != null && request.header("HTTP2-Settings") != null
+                && !request.hasBody()
+                && Arrays.stream(upgrade.split(",")).anyMatch(token -> token.trim().equalsIgnoreCase("h2c"))
+                && connection.toLowerCase(Locale.ROOT).contains("upgrade");
+    }
+
+    /**
+     * Aceita o upgrade: a requisição HTTP/1.1 vira o stream 1 (já atendida aqui, enquanto a
+     * visão dela é válida) e as configurações do header HTTP2-Settings valem como o primeiro
+     * SETTINGS do cliente. O 101 sai no começo de {@link #serve}.
+     */
+    public void upgrade(HttpRequest request) throws IOException {
+        upgraded = true;
+        try {
+            byte[] settings = Base64.getUrlDecoder().decode(request.header("HTTP2-Settings").trim());
+            applySettings(settings, 0, settings.length);
+        } catch (IllegalArgumentException | Http2Exception ex) {
+            // Configurações ilegíveis: seguem os valores padrão
+        }
+
+        request.markHttp2();
+        lastStreamId = 1;
+        streamsOpened = 1;
+        Stream stream = new Stream(1, initialSendWindow);
+        stream.remoteClosed = true;
+        streams.put(1, stream);
+        respond(stream, handler.handle(request, clientAddress));
+    }
+
+    /**
+     * Atende a conexão até o fim. {@code received} tem, em [0, position), o que já foi lido do
+     * socket (o prefácio, ou o que veio depois da requisição de upgrade). O canal precisa estar
+     * em modo bloqueante; quem chamou fecha o canal depois.
+     */
+    public void serve(ByteBuffer received) {
+        try {
+            channel.socket().setSoTimeout(idleTimeoutMillis);
+            // O buffer recebido pode ser direto e voltar ao pool: o que já chegou é copiado
+            byte[] early = new byte[received.position()];
+            received.get(0, early);
+            in = new BufferedInputStream(new SequenceInputStream(new ByteArrayInputStream(early),
+                    channel.socket().getInputStream()), READ_BUFFER_SIZE);
+            if (upgraded) {
+                writeFully(ByteBuffer.wrap(SWITCHING_PROTOCOLS));
+            }
+
+            synchronized (lock) {
+                // MAX_HEADER_LIST_SIZE é o mesmo limite do HTTP/1.1, imposto pelo decoder HPACK
+                control.add(settings(
+                        SETTINGS_MAX_CONCURRENT_STREAMS, maxConcurrentStreams,
+                        SETTINGS_INITIAL_WINDOW_SIZE, STREAM_WINDOW,
+                        SETTINGS_MAX_HEADER_LIST_SIZE, HttpRequestParser.MAX_HEAD_SIZE));
+                control.add(windowUpdate(0, CONNECTION_WINDOW - DEFAULT_WINDOW_SIZE));
+            }
+            writer = Thread.ofVirtual().name("h2-writer-" + clientAddress).start(this::writeLoop);
+
+            readPreface();
+            while (readFrame()) {
+            }
+        } catch (Http2Exception ex) {
+            goAway(ex.getErrorCode(), ex.getMessage());
+        } catch (IOException ex) {
+            if (channel.isOpen()) {
+                log.accept("❌ Erro na conexão HTTP/2 com " + clientAddress + ": " + ex.getMessage());
+            }
+            abort();
+        } finally {
+            finish();
+        }
+    }
+
+    private void readPreface() throws IOException, Http2Exception {
+        byte[] preface = in.readNBytes(PREFACE.length);
+        if (!Arrays.equals(preface, PREFACE)) {
+            throw new Http2Exception(PROTOCOL_ERROR, "prefácio HTTP/2 inválido");
+        }
+    }
+
+    // Lê e trata um frame; false quando a conexão deve terminar
+    private boolean readFrame() throws IOException, Http2Exception {
+        int first;
+        while (true) {
+            try {
+                first = in.read();
+                break;
+            } catch (SocketTimeoutException ex) {
+                // Ociosidade só encerra a conexão se nenhum stream estiver em andamento
+                boolean idle;
+                synchronized (lock) {
+                    idle = streams.isEmpty();
+                }
+                if (idle || !running.getAsBoolean()) {
+                    goAway(NO_ERROR, "ociosa");
+                    return false;
+                }
+            }
+        }
+        if (first < 0) {
+            abort();
+            return false;
+        }
+        frameHeader[0] = (byte) first;
+        if (in.readNBytes(frameHeader, 1, HEADER_LENGTH - 1) < HEADER_LENGTH - 1) {
+            abort();
+            return false;
+        }
+
+        int length = ((frameHeader[0] & 0xff) << 16) | ((frameHeader[1] & 0xff) << 8) | (frameHeader[2] & 0xff);
+        int type = frameHeader[3] & 0xff;
+        int flags = frameHeader[4] & 0xff;
+        int streamId = ByteBuffer.wrap(frameHeader, 5, 4).getInt() & MAX_WINDOW_SIZE;
+        if (length > DEFAULT_MAX_FRAME_SIZE) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "frame de " + length + " bytes");
+        }
+        byte[] payload = in.readNBytes(length);
+        if (payload.length < length) {
+            abort();
+            return false;
+        }
+
+        if (headerBlockStream != 0 && (type != CONTINUATION || streamId != headerBlockStream)) {
+            throw new Http2Exception(PROTOCOL_ERROR, "CONTINUATION esperado no stream " + headerBlockStream);
+        }
+
+        try {
+            switch (type) {
+                case DATA -> onData(flags, streamId, payload);
+                case HEADERS -> onHeaders(flags, streamId, payload);
+                case PRIORITY -> {
+                    requireStream(streamId);
+                    if (length != 5) {
+                        throw new Http2Exception(FRAME_SIZE_ERROR, streamId, "PRIORITY com " + length + " bytes");
+                    }
+                }
+                case RST_STREAM -> onReset(streamId, payload);
+                case SETTINGS -> onSettings(flags, streamId, payload);
+                case PUSH_PROMISE -> throw new Http2Exception(PROTOCOL_ERROR, "PUSH_PROMISE enviado pelo cliente");
+                case PING -> onPing(flags, streamId, payload);
+                case GOAWAY -> {
+                    if (streamId != 0) {
+                        throw new Http2Exception(PROTOCOL_ERROR, "GOAWAY num stream");
+                    }
+                    // O cliente não abre mais streams; os em andamento terminam e ele fecha a conexão
+                }
+                case WINDOW_UPDATE -> onWindowUpdate(streamId, payload);
+                case CONTINUATION -> onContinuation(flags, streamId, payload);
+                default -> {
+                    // Tipos desconhecidos são ignorados (RFC 9113, 4.1)
+                }
+            }
+        } catch (Http2Exception ex) {
+            if (!ex.isStreamError()) {
+                throw ex;
+            }
+            resetStream(ex.getStreamId(), ex.getErrorCode());
+        }
+        return true;
+    }
+
+    private void onData(int flags, int streamId, byte[] payload) throws IOException, Http2Exception {
+        requireStream(streamId);
+
+        // O frame inteiro (com padding) conta para o controle de fluxo
+        connectionReceiveWindow -= payload.length;
+        if (connectionReceiveWindow < 0) {
+            throw new Http2Exception(FLOW_CONTROL_ERROR, "janela da conexão excedida");
+        }
+        connectionCredit += payload.length;
+        if (connectionCredit >= CONNECTION_WINDOW / 2) {
+            sendControl(windowUpdate(0, connectionCredit));
+            connectionReceiveWindow += connectionCredit;
+            connectionCredit = 0;
+        }
+
+        int[] data = unpad(flags, streamId, payload);
+        Stream stream;
+        boolean remoteClosed;
+        synchronized (lock) {
+            stream = streams.get(streamId);
+            remoteClosed = stream != null && stream.remoteClosed;
+        }
+        if (stream == null) {
+            if (streamId > lastStreamId) {
+                throw new Http2Exception(PROTOCOL_ERROR, "DATA num stream não aberto");
+            }
+            // Stream já encerrado (resposta enviada ou RST_STREAM): o resto do corpo é descartado
+            return;
+        }
+        if (remoteClosed) {
+            throw new Http2Exception(STREAM_CLOSED, streamId, "DATA depois do fim do stream");
+        }
+        stream.receiveWindow -= payload.length;
+        if (stream.receiveWindow < 0) {
+            throw new Http2Exception(FLOW_CONTROL_ERROR, streamId, "janela do stream excedida");
+        }
+
+        if (stream.sink != null) {
+            try {
+                stream.sink.write(ByteBuffer.wrap(payload, data[0], data[1]));
+            } catch (HttpParseException ex) {
+                // Upload recusado no meio (413...): a resposta sai e o resto do corpo é descartado
+                closeSink(stream);
+                respond(stream, handler.error(ex.getStatusCode(), ex.getMessage()));
+            }
+        }
+
+        if ((flags & FLAG_END_STREAM) != 0) {
+            endOfRequestBody(stream);
+            return;
+        }
+        stream.credit += payload.length;
+        if (stream.credit >= STREAM_WINDOW / 2) {
+            sendControl(windowUpdate(streamId, stream.credit));
+            stream.receiveWindow += stream.credit;
+            stream.credit = 0;
+        }
+    }
+
+    private void onHeaders(int flags, int streamId, byte[] payload) throws Http2Exception {
+        requireStream(streamId);
+        int[] fragment = unpad(flags, streamId, payload);
+        if ((flags & FLAG_PRIORITY) != 0) {
+            // Dependência e peso: prioridades não são usadas
+            if (fragment[1] < 5) {
+                throw new Http2Exception(PROTOCOL_ERROR, "HEADERS com prioridade truncada");
+            }
+            fragment[0] += 5;
+            fragment[1] -= 5;
+        }
+        if ((streamId & 1) == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "stream " + streamId + " par aberto pelo cliente");
+        }
+
+        headerBlock = new ByteArrayOutputStream(Math.max(fragment[1], 256));
+        headerBlock.write(payload, fragment[0], fragment[1]);
+        headerBlockStream = streamId;
+        headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            onHeaderBlock();
+        }
+    }
+
+    private void onContinuation(int flags, int streamId, byte[] payload) throws Http2Exception {
+        if (headerBlockStream == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "CONTINUATION sem HEADERS");
+        }
+        if (headerBlock.size() + payload.length > MAX_HEADER_BLOCK) {
+            throw new Http2Exception(ENHANCE_YOUR_CALM, "bloco de headers grande demais");
+        }
+        headerBlock.write(payload, 0, payload.length);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            onHeaderBlock();
+        }
+    }
+
+    // Bloco de headers completo: abre um stream (requisição) ou encerra um corpo (trailers)
+    private void onHeaderBlock() throws Http2Exception {
+        int streamId = headerBlockStream;
+        boolean endStream = headerBlockEndStream;
+        byte[] block = headerBlock.toByteArray();
+        headerBlock = null;
+        headerBlockStream = 0;
+        // Decodificado mesmo que o stream seja recusado: a tabela dinâmica precisa acompanhar o cliente
+        List<Hpack.Header> headers = decoder.decode(block, 0, block.length);
+
+        if (streamId <= lastStreamId) {
+            Stream stream;
+            synchronized (lock) {
+                stream = streams.get(streamId);
+            }
+            if (stream == null || stream.remoteClosed) {
+                throw new Http2Exception(STREAM_CLOSED, "HEADERS num stream encerrado");
+            }
+            if (!endStream) {
+                throw new Http2Exception(PROTOCOL_ERROR, streamId, "trailers sem END_STREAM");
+            }
+            // Trailers: ignorados, só marcam o fim do corpo
+            endOfRequestBody(stream);
+            return;
+        }
+        lastStreamId = streamId;
+
+        Stream stream;
+        synchronized (lock) {
+            if (streams.size() >= maxConcurrentStreams || !running.getAsBoolean()) {
+                throw new Http2Exception(REFUSED_STREAM, streamId, "limite de streams simultâneos");
+            }
+            stream = new Stream(streamId, initialSendWindow);
+            stream.remoteClosed = endStream;
+            streams.put(streamId, stream);
+        }
+        streamsOpened++;
+
+        // A requisição é reescrita como HTTP/1.1 e analisada pelo parser de sempre
+        byte[] head = requestHead(streamId, headers);
+        ByteBuffer buffer = ByteBuffer.wrap(head);
+        HttpResponse response;
+        try {
+            if (parser.parse(buffer, 0, head.length) < 0) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            HttpRequest request = parser.request();
+            request.markHttp2();
+            if (!endStream) {
+                stream.sink = handler.openBody(request, clientAddress);
+                if (stream.sink != null) {
+                    // A resposta sai quando o corpo terminar
+                    return;
+                }
+            }
+            response = handler.handle(request, clientAddress);
+        } catch (HttpParseException ex) {
+            parser.reset();
+            response = handler.error(ex.getStatusCode(), ex.getMessage());
+        } catch (IOException ex) {
+            log.accept("❌ Erro no stream " + streamId + " de " + clientAddress + ": " + ex.getMessage());
+            throw new Http2Exception(INTERNAL_ERROR, streamId, ex.getMessage());
+        }
+        // Sem sink o corpo (se houver) é descartado à medida que chega
+        respond(stream, response);
+    }
+
+    private void endOfRequestBody(Stream stream) {
+        synchronized (lock) {
+            stream.remoteClosed = true;
+        }
+        if (stream.sink == null) {
+            return;
+        }
+        HttpResponse response;
+        try {
+            response = stream.sink.finish();
+        } catch (HttpParseException ex) {
+            response = handler.error(ex.getStatusCode(), ex.getMessage());
+        } catch (IOException ex) {
+            log.accept("❌ Erro no upload de " + clientAddress + ": " + ex.getMessage());
+            response = handler.error(500, "Internal Server Error");
+        }
+        closeSink(stream);
+        respond(stream, response);
+    }
+
+    private void onReset(int streamId, byte[] payload) throws Http2Exception {
+        requireStream(streamId);
+        if (payload.length != 4) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "RST_STREAM com " + payload.length + " bytes");
+        }
+        if (streamId > lastStreamId) {
+            throw new Http2Exception(PROTOCOL_ERROR, "RST_STREAM num stream não aberto");
+        }
+        cancel(streamId);
+    }
+
+    private void onSettings(int flags, int streamId, byte[] payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "SETTINGS num stream");
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            if (payload.length != 0) {
+                throw new Http2Exception(FRAME_SIZE_ERROR, "SETTINGS ACK com payload");
+            }
+            return;
+        }
+        applySettings(payload, 0, payload.length);
+        sendControl(settingsAck());
+    }
+
+    private void applySettings(byte[] payload, int offset, int length) throws Http2Exception {
+        if (length % 6 != 0) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "SETTINGS com " + length + " bytes");
+        }
+        ByteBuffer settings = ByteBuffer.wrap(payload, offset, length);
+        synchronized (lock) {
+            while (settings.hasRemaining()) {
+                int id = settings.getShort() & 0xffff;
+                int value = settings.getInt();
+                switch (id) {
+                    case SETTINGS_HEADER_TABLE_SIZE -> peerHeaderTableSize = value < 0 ? Integer.MAX_VALUE : value;
+                    case SETTINGS_ENABLE_PUSH -> {
+                        if (value != 0 && value != 1) {
+                            throw new Http2Exception(PROTOCOL_ERROR, "ENABLE_PUSH inválido");
+                        }
+                    }
+                    case SETTINGS_INITIAL_WINDOW_SIZE -> {
+                        if (value < 0) {
+                            throw new Http2Exception(FLOW_CONTROL_ERROR, "INITIAL_WINDOW_SIZE acima do máximo");
+                        }
+                        // A diferença vale também para os streams já abertos
+                        int delta = value - initialSendWindow;
+                        for (Stream stream : streams.values()) {
+                            long window = (long) stream.sendWindow + delta;
+                            if (window > MAX_WINDOW_SIZE) {
+                                throw new Http2Exception(FLOW_CONTROL_ERROR, "janela do stream " + stream.id + " estourou");
+                            }
+                            stream.sendWindow = (int) window;
+                        }
+                        initialSendWindow = value;
+                    }
+                    case SETTINGS_MAX_FRAME_SIZE -> {
+                        if (value < DEFAULT_MAX_FRAME_SIZE || value > MAX_MAX_FRAME_SIZE) {
+                            throw new Http2Exception(PROTOCOL_ERROR, "MAX_FRAME_SIZE inválido");
+                        }
+                        peerMaxFrameSize = value;
+                    }
+                    default -> {
+                        // MAX_CONCURRENT_STREAMS e MAX_HEADER_LIST_SIZE limitam o servidor só com push
+                    }
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private void onPing(int flags, int streamId, byte[] payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "PING num stream");
+        }
+        if (payload.length != 8) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "PING com " + payload.length + " bytes");
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            sendControl(pingAck(payload));
+        }
+    }
+
+    private void onWindowUpdate(int streamId, byte[] payload) throws Http2Exception {
+        if (payload.length != 4) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "WINDOW_UPDATE com " + payload.length + " bytes");
+        }
+        int increment = ByteBuffer.wrap(payload).getInt() & MAX_WINDOW_SIZE;
+        if (increment == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, streamId, "WINDOW_UPDATE com incremento 0");
+        }
+        synchronized (lock) {
+            if (streamId == 0) {
+                if ((long) connectionSendWindow + increment > MAX_WINDOW_SIZE) {
+                    throw new Http2Exception(FLOW_CONTROL_ERROR, "janela da conexão estourou");
+                }
+                connectionSendWindow += increment;
+            } else {
+                Stream stream = streams.get(streamId);
+                if (stream == null) {
+                    // Stream já encerrado: a atualização chegou atrasada
+                    return;
+                }
+                if ((long) stream.sendWindow + increment > MAX_WINDOW_SIZE) {
+                    throw new Http2Exception(FLOW_CONTROL_ERROR, streamId, "janela do stream estourou");
+                }
+                stream.sendWindow += increment;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    // Posição e tamanho do conteúdo de um frame com FLAG_PADDED
+    private static int[] unpad(int flags, int streamId, byte[] payload) throws Http2Exception {
+        if ((flags & FLAG_PADDED) == 0) {
+            return new int[]{0, payload.length};
+        }
+        if (payload.length == 0 || (payload[0] & 0xff) >= payload.length) {
+            throw new Http2Exception(PROTOCOL_ERROR, "padding maior que o frame no stream " + streamId);
+        }
+        return new int[]{1, payload.length - 1 - (payload[0] & 0xff)};
+    }
+
+    private static void requireStream(int streamId) throws Http2Exception {
+        if (streamId == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "frame de stream no stream 0");
+        }
+    }
+
+    /**
+     * Monta a requisição HTTP/1.1 equivalente aos headers do stream. Pseudo-headers viram a
+     * request line e o Host; headers de conexão e caracteres que quebrariam a reescrita
+     * (CR, LF, NUL, maiúsculas no nome) tornam o stream malformado.
+     */
+    private static byte[] requestHead(int streamId, List<Hpack.Header> headers) throws Http2Exception {
+        String method = null;
+        String path = null;
+        String scheme = null;
+        String authority = null;
+        String host = null;
+        StringBuilder cookies = null;
+        StringBuilder fields = new StringBuilder();
+        boolean regularSeen = false;
+
+        for (Hpack.Header header : headers) {
+            String name = header.name();
+            String value = header.value();
+            if (!isValidValue(value) || name.isEmpty()) {
+                throw malformed(streamId, "header inválido");
+            }
+            if (name.charAt(0) == ':') {
+                if (regularSeen) {
+                    throw malformed(streamId, "pseudo-header depois dos headers");
+                }
+                switch (name) {
+                    case ":method" -> method = pseudo(streamId, method, value);
+                    case ":path" -> path = pseudo(streamId, path, value);
+                    case ":scheme" -> scheme = pseudo(streamId, scheme, value);
+                    case ":authority" -> authority = pseudo(streamId, authority, value);
+                    default -> throw malformed(streamId, "pseudo-header desconhecido " + name);
+                }
+                continue;
+            }
+            regularSeen = true;
+            if (!isValidName(name) || CONNECTION_HEADERS.contains(name)) {
+                throw malformed(streamId, "header " + name + " não permitido");
+            }
+            switch (name) {
+                case "te" -> {
+                    if (!value.equalsIgnoreCase("trailers")) {
+                        throw malformed(streamId, "TE diferente de trailers");
+                    }
+                }
+                case "host" -> host = value;
+                // Cookies podem vir divididos em vários campos (RFC 9113, 8.2.3)
+                case "cookie" -> cookies = cookies == null ? new StringBuilder(value) : cookies.append("; ").append(value);
+                default -> fields.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (method == null || scheme == null || path == null || path.isEmpty() || path.indexOf(' ') >= 0) {
+            throw malformed(streamId, "pseudo-headers obrigatórios ausentes");
+        }
+
+        StringBuilder head = new StringBuilder(64 + fields.length());
+        head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        String hostValue = authority != null ? authority : host;
+        if (hostValue != null) {
+            head.append("Host: ").append(hostValue).append("\r\n");
+        }
+        if (cookies != null) {
+            head.append("cookie: ").append(cookies).append("\r\n");
+        }
+        head.append(fields).append("\r\n");
+        // Cada char veio de um octeto (ISO-8859-1): os bytes originais são preservados
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String pseudo(int streamId, String current, String value) throws Http2Exception {
+        if (current != null) {
+            throw malformed(streamId, "pseudo-header repetido");
+        }
+        return value;
+    }
+
+    private static boolean isValidName(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c <= ' ' || c == ':' || (c >= 'A' && c <= 'Z') || c >= 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValidValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\r' || c == '\n' || c == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Http2Exception malformed(int streamId, String message) {
+        return new Http2Exception(PROTOCOL_ERROR, streamId, "requisição malformada: " + message);
+    }
+
+    // Entrega a resposta ao writer
+    private void respond(Stream stream, HttpResponse response) {
+        synchronized (lock) {
+            if (stream.reset) {
+                closeResponse(response);
+                return;
+            }
+            stream.response = response;
+            stream.start = System.nanoTime();
+            ready.add(stream);
+            lock.notifyAll();
+        }
+    }
+
+    // Erro de stream: avisa o cliente e esquece o stream
+    private void resetStream(int streamId, int errorCode) {
+        sendControl(rstStream(streamId, errorCode));
+        cancel(streamId);
+    }
+
+    // Cancela o stream: o writer libera a resposta; o upload, se houver, é descartado aqui
+    private void cancel(int streamId) {
+        Stream stream;
+        synchronized (lock) {
+            stream = streams.get(streamId);
+            if (stream == null) {
+                return;
+            }
+            stream.reset = true;
+            if (stream.response == null) {
+                streams.remove(streamId);
+            }
+            lock.notifyAll();
+        }
+        closeSink(stream);
+    }
+
+    private void closeSink(Stream stream) {
+        if (stream.sink != null) {
+            stream.sink.close();
+            stream.sink = null;
+        }
+    }
+
+    private void sendControl(byte[] frame) {
+        synchronized (lock) {
+            control.add(frame);
+            lock.notifyAll();
+        }
+    }
+
+    // Encerramento educado: GOAWAY com o último stream aceito, depois o writer para
+    private void goAway(int errorCode, String reason) {
+        synchronized (lock) {
+            control.add(Http2Frame.goAway(lastStreamId, errorCode, reason == null ? "" : reason));
+            closing = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void abort() {
+        synchronized (lock) {
+            aborted = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void finish() {
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                // O GOAWAY não pode prender a thread se o cliente parou de ler
+                if (!writer.join(Duration.ofSeconds(1))) {
+                    closeQuietly();
+                    writer.join();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeQuietly();
+
+        List<Stream> remaining;
+        synchronized (lock) {
+            remaining = new ArrayList<>(streams.values());
+            streams.clear();
+        }
+        for (Stream stream : remaining) {
+            closeSink(stream);
+            if (stream.response != null) {
+                closeResponse(stream);
+            }
+        }
+        log.accept("🔀 Conexão HTTP/2 com " + clientAddress + " encerrada (" + streamsOpened + " streams)");
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                List<byte[]> frames = null;
+                List<Stream> cancelled = new ArrayList<>();
+                Stream stream = null;
+                int allowed = 0;
+                int maxFrameSize;
+                int tableSize;
+                synchronized (lock) {
+                    while (true) {
+                        if (aborted) {
+                            return;
+                        }
+                        if (!control.isEmpty()) {
+                            frames = new ArrayList<>(control);
+                            control.clear();
+                            break;
+                        }
+                        if (closing) {
+                            return;
+                        }
+                        stream = nextStream(cancelled);
+                        if (stream != null || !cancelled.isEmpty()) {
+                            break;
+                        }
+                        lock.wait();
+                    }
+                    if (stream != null && stream.headersSent) {
+                        allowed = Math.min(Math.min(stream.sendWindow, connectionSendWindow), peerMaxFrameSize);
+                    }
+                    maxFrameSize = peerMaxFrameSize;
+                    tableSize = peerHeaderTableSize;
+                    peerHeaderTableSize = -1;
+                }
+
+                if (tableSize >= 0) {
+                    encoder.setMaxTableSize(tableSize);
+                }
+                for (Stream reset : cancelled) {
+                    closeResponse(reset);
+                }
+                if (frames != null) {
+                    for (byte[] frame : frames) {
+                        writeFully(ByteBuffer.wrap(frame));
+                    }
+                } else if (stream != null) {
+                    if (throttle != null && allowed > 0) {
+                        // Fora do lock: a leitura e os outros streams seguem enquanto o writer espera
+                        allowed = (int) throttle.acquire(allowed);
+                    }
+                    writeStream(stream, allowed, maxFrameSize);
+                }
+            }
+        } catch (IOException ex) {
+            if (channel.isOpen()) {
+                log.accept("❌ Erro ao enviar HTTP/2 para " + clientAddress + ": " + ex.getMessage());
+            }
+            abort();
+            // Desbloqueia a leitura: sem writer a conexão não tem mais como responder
+            closeQuietly();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Próximo stream com algo que possa sair agora (round-robin): headers ainda não enviados,
+     * ou corpo com janela disponível no stream e na conexão. Streams cancelados saem da fila.
+     */
+    private Stream nextStream(List<Stream> cancelled) {
+        for (int i = ready.size(); i > 0; i--) {
+            Stream stream = ready.poll();
+            if (stream.reset) {
+                streams.remove(stream.id);
+                cancelled.add(stream);
+                continue;
+            }
+            ready.add(stream);
+            if (!stream.headersSent || (stream.sendWindow > 0 && connectionSendWindow > 0)) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    private void writeStream(Stream stream, int allowed, int maxFrameSize) throws IOException {
+        if (!stream.headersSent) {
+            stream.headersSent = true;
+            boolean hasBody = advance(stream);
+            writeHeaders(stream, maxFrameSize, !hasBody);
+            if (!hasBody) {
+                complete(stream);
+            }
+            return;
+        }
+
+        int length;
+        boolean more;
+        if (stream.bytes != null) {
+            length = Math.min(allowed, stream.bytes.remaining());
+            ByteBuffer payload = stream.bytes.slice(stream.bytes.position(), length);
+            stream.bytes.position(stream.bytes.position() + length);
+            more = advance(stream);
+            writeFully(header(length, DATA, more ? 0 : FLAG_END_STREAM, stream.id), payload);
+        } else {
+            long position = stream.filePosition;
+            length = (int) Math.min(allowed, stream.fileEnd - position);
+            stream.filePosition += length;
+            more = advance(stream);
+            writeFully(header(length, DATA, more ? 0 : FLAG_END_STREAM, stream.id));
+            // Só o payload do frame: o kernel copia direto do page cache para o socket
+            FileTransfer transfer = new FileTransfer(stream.file, position, length, channel);
+            try {
+                transfer.writeTo(channel);
+            } finally {
+                transfer.release();
+            }
+            stream.zeroCopy |= transfer.isZeroCopy();
+        }
+        stream.bytesSent += length;
+        if (throttle != null) {
+            throttle.consumed(length);
+        }
+
+        synchronized (lock) {
+            stream.sendWindow -= length;
+            connectionSendWindow -= length;
+        }
+        if (!more) {
+            complete(stream);
+        }
+    }
+
+    private void writeHeaders(Stream stream, int maxFrameSize, boolean endStream) throws IOException {
+        HttpResponse response = stream.response;
+        List<Hpack.Header> headers = new ArrayList<>(response.getHeaders().size() + 1);
+        headers.add(new Hpack.Header(":status", String.valueOf(response.getStatusCode())));
+        for (Map.Entry<String, String> entry : response.getHeaders().entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (!CONNECTION_HEADERS.contains(name)) {
+                // HPACK trabalha com octetos: o valor vai em UTF-8, um char por byte
+                headers.add(new Hpack.Header(name,
+                        new String(entry.getValue().getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1)));
+            }
+        }
+
+        // Blocos maiores que um frame continuam em frames CONTINUATION
+        byte[] block = encoder.encode(headers);
+        int offset = 0;
+        do {
+            int length = Math.min(maxFrameSize, block.length - offset);
+            boolean first = offset == 0;
+            boolean last = offset + length == block.length;
+            int flags = (last ? FLAG_END_HEADERS : 0) | (first && endStream ? FLAG_END_STREAM : 0);
+            writeFully(header(length, first ? HEADERS : CONTINUATION, flags, stream.id), ByteBuffer.wrap(block, offset, length));
+            offset += length;
+        } while (offset < block.length);
+    }
+
+    /**
+     * Posiciona o stream no próximo trecho não vazio do corpo (bytes em memória, fatia de
+     * arquivo ou próximo pedaço do {@link HttpResponse.BodyStream}); false no fim do corpo.
+     * Chamado antes de cada frame para saber se ele leva END_STREAM.
+     */
+    private boolean advance(Stream stream) throws IOException {
+        HttpResponse response = stream.response;
+        List<HttpResponse.Segment> segments = response.getSegments();
+        while (true) {
+            if (stream.bytes != null && stream.bytes.hasRemaining()) {
+                return true;
+            }
+            stream.bytes = null;
+            if (stream.filePosition < stream.fileEnd) {
+                return true;
+            }
+
+            if (stream.segmentIndex < segments.size()) {
+                HttpResponse.Segment segment = segments.get(stream.segmentIndex++);
+                if (segment.isFile()) {
+                    if (stream.file == null) {
+                        stream.file = FileChannel.open(response.getFile().toPath(), StandardOpenOption.READ);
+                    }
+                    stream.filePosition = segment.offset();
+                    stream.fileEnd = segment.offset() + segment.length();
+                } else {
+                    stream.bytes = ByteBuffer.wrap(segment.bytes());
+                }
+                continue;
+            }
+
+            if (stream.segmentIndex == segments.size()) {
+                stream.segmentIndex++;
+                stream.body = response.getStream();
+            }
+            if (stream.body == null) {
+                return false;
+            }
+            byte[] next = stream.body.next();
+            if (next == null) {
+                stream.body = null;
+                return false;
+            }
+            stream.bytes = ByteBuffer.wrap(next);
+        }
+    }
+
+    // Resposta enviada por inteiro: libera o stream e avisa o handler
+    private void complete(Stream stream) throws IOException {
+        boolean remoteOpen;
+        synchronized (lock) {
+            ready.remove(stream);
+            streams.remove(stream.id);
+            remoteOpen = !stream.remoteClosed;
+        }
+        if (remoteOpen) {
+            // O corpo da requisição não interessa mais (erro ou descarte): o cliente pode parar
+            writeFully(ByteBuffer.wrap(rstStream(stream.id, NO_ERROR)));
+        }
+        HttpResponse response = stream.response;
+        response.recordTransfer(stream.bytesSent, System.nanoTime() - stream.start, stream.zeroCopy);
+        closeResponse(stream);
+        handler.completed(response, clientAddress);
+    }
+
+    private void closeResponse(Stream stream) {
+        if (stream.file != null) {
+            try {
+                stream.file.close();
+            } catch (IOException ignored) {
+            }
+            stream.file = null;
+        }
+        closeResponse(stream.response);
+    }
+
+    private static void closeResponse(HttpResponse response) {
+        if (response != null && response.getStream() != null) {
+            response.getStream().close();
+        }
+    }
+
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+}
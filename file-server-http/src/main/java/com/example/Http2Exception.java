@@ -0,0 +1,36 @@
+package com.example;
+
+/**
+ * Violação do protocolo HTTP/2. Com {@code streamId} 0 é erro de conexão (GOAWAY e fim da
+ * conexão); com um stream, só ele é cancelado (RST_STREAM) e os demais seguem.
+ */
+public class Http2Exception extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int errorCode;
+    private final int streamId;
+
+    public Http2Exception(int errorCode, String message) {
+        this(errorCode, 0, message);
+    }
+
+    public Http2Exception(int errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public boolean isStreamError() {
+        return streamId != 0;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constantes e serialização dos frames HTTP/2 (RFC 9113): cabeçalho de 9 bytes (tamanho,
+ * tipo, flags e stream) seguido do payload. Os frames de controle saem prontos daqui; os
+ * de DATA só têm o cabeçalho montado, o payload vai direto do arquivo para o socket.
+ */
+public final class Http2Frame {
+
+    public static final int HEADER_LENGTH = 9;
+
+    // Prefácio que o cliente envia antes de qualquer frame
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Tipos
+    public static final int DATA = 0x0;
+    public static final int HEADERS = 0x1;
+    public static final int PRIORITY = 0x2;
+    public static final int RST_STREAM = 0x3;
+    public static final int SETTINGS = 0x4;
+    public static final int PUSH_PROMISE = 0x5;
+    public static final int PING = 0x6;
+    public static final int GOAWAY = 0x7;
+    public static final int WINDOW_UPDATE = 0x8;
+    public static final int CONTINUATION = 0x9;
+
+    // Flags
+    public static final int FLAG_END_STREAM = 0x1;
+    public static final int FLAG_ACK = 0x1;
+    public static final int FLAG_END_HEADERS = 0x4;
+    public static final int FLAG_PADDED = 0x8;
+    public static final int FLAG_PRIORITY = 0x20;
+
+    // Parâmetros de SETTINGS
+    public static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    public static final int SETTINGS_ENABLE_PUSH = 0x2;
+    public static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    public static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    public static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    public static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    // Códigos de erro (RST_STREAM e GOAWAY)
+    public static final int NO_ERROR = 0x0;
+    public static final int PROTOCOL_ERROR = 0x1;
+    public static final int INTERNAL_ERROR = 0x2;
+    public static final int FLOW_CONTROL_ERROR = 0x3;
+    public static final int STREAM_CLOSED = 0x5;
+    public static final int FRAME_SIZE_ERROR = 0x6;
+    public static final int REFUSED_STREAM = 0x7;
+    public static final int CANCEL = 0x8;
+    public static final int COMPRESSION_ERROR = 0x9;
+    public static final int ENHANCE_YOUR_CALM = 0xb;
+
+    // Limites do protocolo
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    public static final int MAX_MAX_FRAME_SIZE = 16777215;
+    public static final int DEFAULT_WINDOW_SIZE = 65535;
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private Http2Frame() {
+    }
+
+    // Cabeçalho de 9 bytes em modo leitura
+    public static ByteBuffer header(int length, int type, int flags, int streamId) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length);
+        header.put((byte) type).put((byte) flags).putInt(streamId & MAX_WINDOW_SIZE);
+        return header.flip();
+    }
+
+    // Frame completo (cabeçalho + payload) em um único array
+    public static byte[] frame(int type, int flags, int streamId, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+        frame.put(header(payload.length, type, flags, streamId)).put(payload);
+        return frame.array();
+    }
+
+    public static byte[] settings(int... pairs) {
+        ByteBuffer payload = ByteBuffer.allocate(pairs.length / 2 * 6);
+        for (int i = 0; i < pairs.length; i += 2) {
+            payload.putShort((short) pairs[i]).putInt(pairs[i + 1]);
+        }
+        return frame(SETTINGS, 0, 0, payload.array());
+    }
+
+    public static byte[] settingsAck() {
+        return frame(SETTINGS, FLAG_ACK, 0, new byte[0]);
+    }
+
+    public static byte[] pingAck(byte[] opaque) {
+        return frame(PING, FLAG_ACK, 0, opaque);
+    }
+
+    public static byte[] windowUpdate(int streamId, int increment) {
+        return frame(WINDOW_UPDATE, 0, streamId, ByteBuffer.allocate(4).putInt(increment).array());
+    }
+
+    public static byte[] rstStream(int streamId, int errorCode) {
+        return frame(RST_STREAM, 0, streamId, ByteBuffer.allocate(4).putInt(errorCode).array());
+    }
+
+    public static byte[] goAway(int lastStreamId, int errorCode, String debug) {
+        byte[] debugBytes = debug.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(8 + debugBytes.length)
+                .putInt(lastStreamId).putInt(errorCode).put(debugBytes);
+        return frame(GOAWAY, 0, 0, payload.array());
+    }
+
+    /**
+     * Compara o começo do buffer (modo escrita, dados em [0, position)) com o prefácio:
+     * 1 se ele chegou inteiro, 0 se os bytes recebidos até agora batem mas falta o resto,
+     * -1 se não é HTTP/2.
+     */
+    public static int matchPreface(ByteBuffer buffer) {
+        int available = Math.min(buffer.position(), PREFACE.length);
+        for (int i = 0; i < available; i++) {
+            if (buffer.get(i) != PREFACE[i]) {
+                return -1;
+            }
+        }
+        return available == PREFACE.length ? 1 : 0;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Headers que o servidor consulta com frequência. O parser os identifica uma única vez,
+ * comparando bytes sem diferenciar maiúsculas, e guarda o índice de cada um.
+ */
+public enum HttpHeader {
+
+    HOST("Host"),
+    CONNECTION("Connection"),
+    CONTENT_LENGTH("Content-Length"),
+    CONTENT_TYPE("Content-Type"),
+    TRANSFER_ENCODING("Transfer-Encoding"),
+    EXPECT("Expect"),
+    RANGE("Range"),
+    IF_RANGE("If-Range"),
+    IF_NONE_MATCH("If-None-Match"),
+    IF_MODIFIED_SINCE("If-Modified-Since"),
+    ACCEPT("Accept"),
+    USER_AGENT("User-Agent");
+
+    private static final HttpHeader[] VALUES = values();
+
+    private final String headerName;
+    private final byte[] lowerCase;
+
+    HttpHeader(String headerName) {
+        this.headerName = headerName;
+        this.lowerCase = headerName.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String headerName() {
+        return headerName;
+    }
+
+    static HttpHeader match(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        for (HttpHeader header : VALUES) {
+            if (header.lowerCase.length == length && equalsIgnoreCase(buffer, start, header.lowerCase)) {
+                return header;
+            }
+        }
+        return null;
+    }
+
+    // Compara bytes ASCII com um token já em minúsculas
+    static boolean equalsIgnoreCase(ByteBuffer buffer, int start, byte[] lowerCase) {
+        for (int i = 0; i < lowerCase.length; i++) {
+            if (toLowerCase(buffer.get(start + i)) != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+}
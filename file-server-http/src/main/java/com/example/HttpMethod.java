@@ -0,0 +1,38 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Métodos HTTP reconhecidos pelo parser direto nos bytes, sem criar Strings.
+ */
+public enum HttpMethod {
+
+    GET, HEAD, POST, PUT, DELETE, OPTIONS, PATCH, TRACE, CONNECT,
+    // Qualquer outro token; o nome original fica disponível em HttpRequest.methodName()
+    OTHER;
+
+    private static final HttpMethod[] KNOWN = {GET, HEAD, POST, PUT, DELETE, OPTIONS, PATCH, TRACE, CONNECT};
+
+    private final byte[] token = name().getBytes(StandardCharsets.US_ASCII);
+
+    // Métodos são case-sensitive (RFC 9110, 9.1)
+    static HttpMethod match(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        for (HttpMethod method : KNOWN) {
+            byte[] token = method.token;
+            if (token.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && buffer.get(start + i) == token[i]) {
+                i++;
+            }
+            if (i == length) {
+                return method;
+            }
+        }
+        return OTHER;
+    }
+
+}
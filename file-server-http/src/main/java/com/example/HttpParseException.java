@@ -0,0 +1,21 @@
+package com.example;
+
+/**
+ * Requisição malformada ou acima dos limites; o engine responde com o status e fecha a conexão.
+ */
+public class HttpParseException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpParseException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+}
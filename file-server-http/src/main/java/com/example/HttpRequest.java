@@ -0,0 +1,178 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Visão (flyweight) de uma requisição já analisada pelo {@link HttpRequestParser}.
+ * Não copia nada: guarda só posições dentro do buffer de leitura da conexão, e Strings
+ * são criadas apenas quando alguém pede o valor. O mesmo objeto é reaproveitado a cada
+ * requisição, então ele só é válido durante {@link HttpRequestHandler#handle}.
+ */
+public final class HttpRequest {
+
+    private static final byte[] CLOSE = {'c', 'l', 'o', 's', 'e'};
+    private static final byte[] KEEP_ALIVE = {'k', 'e', 'e', 'p', '-', 'a', 'l', 'i', 'v', 'e'};
+    private static final byte[] CHUNKED = {'c', 'h', 'u', 'n', 'k', 'e', 'd'};
+    private static final byte[] CONTINUE = {'1', '0', '0', '-', 'c', 'o', 'n', 't', 'i', 'n', 'u', 'e'};
+
+    private ByteBuffer buffer;
+
+    HttpMethod method;
+    int methodStart;
+    int methodEnd;
+    int targetStart;
+    int targetEnd;
+    int versionMinor;
+    long contentLength;
+
+    int headerCount;
+    final int[] nameStart;
+    final int[] nameEnd;
+    final int[] valueStart;
+    final int[] valueEnd;
+    // Índice do header em nameStart/valueStart para cada HttpHeader, ou -1
+    final int[] known = new int[HttpHeader.values().length];
+
+    private String path;
+    // Reescrita de um stream HTTP/2 (ver Http2Connection)
+    private boolean http2;
+
+    HttpRequest(int maxHeaders) {
+        nameStart = new int[maxHeaders];
+        nameEnd = new int[maxHeaders];
+        valueStart = new int[maxHeaders];
+        valueEnd = new int[maxHeaders];
+    }
+
+    void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.headerCount = 0;
+        this.contentLength = -1;
+        this.path = null;
+        this.http2 = false;
+        Arrays.fill(known, -1);
+    }
+
+    public HttpMethod method() {
+        return method;
+    }
+
+    // Nome do método; só aloca para métodos fora de HttpMethod
+    public String methodName() {
+        return method != HttpMethod.OTHER ? method.name() : string(methodStart, methodEnd);
+    }
+
+    // Request target como veio na request line ("/docs/a.txt?x=1")
+    public String path() {
+        if (path == null) {
+            path = string(targetStart, targetEnd);
+        }
+        return path;
+    }
+
+    public String version() {
+        return http2 ? "HTTP/2" : versionMinor == 1 ? "HTTP/1.1" : "HTTP/1.0";
+    }
+
+    // O corpo é delimitado pelos frames do stream: sem chunked nem fechamento da conexão
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    void markHttp2() {
+        this.http2 = true;
+    }
+
+    public boolean isHttp11() {
+        return versionMinor >= 1;
+    }
+
+    // Valor de Content-Length já validado, ou -1 se ausente
+    public long contentLength() {
+        return contentLength;
+    }
+
+    // Há corpo a ler (mesmo que vazio, como em "Content-Length: 0")
+    public boolean hasBody() {
+        return contentLength >= 0 || hasHeader(HttpHeader.TRANSFER_ENCODING);
+    }
+
+    public boolean isChunked() {
+        return containsIgnoreCase(HttpHeader.TRANSFER_ENCODING, CHUNKED);
+    }
+
+    // "Expect: 100-continue": o cliente espera o aval do servidor antes de mandar o corpo
+    public boolean expectsContinue() {
+        return isHttp11() && containsIgnoreCase(HttpHeader.EXPECT, CONTINUE);
+    }
+
+    public boolean hasHeader(HttpHeader header) {
+        return known[header.ordinal()] >= 0;
+    }
+
+    public String header(HttpHeader header) {
+        int index = known[header.ordinal()];
+        return index < 0 ? null : string(valueStart[index], valueEnd[index]);
+    }
+
+    // Busca por nome arbitrário (sem diferenciar maiúsculas); o último repetido vence
+    public String header(String name) {
+        byte[] lowerCase = name.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        for (int i = headerCount - 1; i >= 0; i--) {
+            if (nameEnd[i] - nameStart[i] == lowerCase.length
+                    && HttpHeader.equalsIgnoreCase(buffer, nameStart[i], lowerCase)) {
+                return string(valueStart[i], valueEnd[i]);
+            }
+        }
+        return null;
+    }
+
+    public int headerCount() {
+        return headerCount;
+    }
+
+    public String headerName(int index) {
+        return string(nameStart[index], nameEnd[index]);
+    }
+
+    public String headerValue(int index) {
+        return string(valueStart[index], valueEnd[index]);
+    }
+
+    public boolean isConnectionClose() {
+        return containsIgnoreCase(HttpHeader.CONNECTION, CLOSE);
+    }
+
+    public boolean isConnectionKeepAlive() {
+        return containsIgnoreCase(HttpHeader.CONNECTION, KEEP_ALIVE);
+    }
+
+    // Procura um token (em minúsculas) no valor do header, sem criar String
+    private boolean containsIgnoreCase(HttpHeader header, byte[] token) {
+        int index = known[header.ordinal()];
+        if (index < 0) {
+            return false;
+        }
+        int last = valueEnd[index] - token.length;
+        for (int i = valueStart[index]; i <= last; i++) {
+            if (HttpHeader.equalsIgnoreCase(buffer, i, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String string(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return methodName() + " " + path() + " " + version();
+    }
+
+}
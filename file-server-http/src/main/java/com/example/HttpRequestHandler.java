@@ -0,0 +1,28 @@
+package com.example;
+
+import java.io.IOException;
+
+/**
+ * Lógica de aplicação compartilhada pelos engines de I/O (GET, listagem e erros).
+ */
+public interface HttpRequestHandler {
+
+    // request é uma visão sobre o buffer do engine: válida só durante a chamada
+    HttpResponse handle(HttpRequest request, String clientAddress) throws IOException;
+
+    /**
+     * Chamado antes de {@link #handle} quando a requisição tem corpo. Devolve quem vai
+     * recebê-lo (o engine então lê o corpo e usa a resposta de {@link RequestBodySink#finish()}),
+     * ou null para seguir para {@link #handle} sem ler o corpo. Uma {@link HttpParseException}
+     * recusa o corpo com o status dela (413, 415...) e encerra a conexão.
+     */
+    default RequestBodySink openBody(HttpRequest request, String clientAddress) throws IOException, HttpParseException {
+        return null;
+    }
+
+    HttpResponse error(int statusCode, String message);
+
+    // Chamado pelo engine depois que a resposta foi totalmente escrita no socket
+    void completed(HttpResponse response, String clientAddress);
+
+}
@@ -0,0 +1,215 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parser de request line + headers que trabalha direto sobre o {@link ByteBuffer} de leitura.
+ * Uma instância por conexão, reaproveitada entre requisições: não cria objetos por requisição
+ * e lembra até onde já procurou o fim dos headers, para não reler o buffer a cada leitura parcial.
+ * Aceita linhas terminadas em CRLF ou só LF.
+ */
+public class HttpRequestParser {
+
+    public static final int INITIAL_BUFFER_SIZE = 8192;
+    public static final int MAX_HEAD_SIZE = 64 * 1024;
+    public static final int MAX_REQUEST_LINE = 8192;
+    public static final int MAX_HEADERS = 100;
+
+    private final HttpRequest request = new HttpRequest(MAX_HEADERS);
+
+    // Bytes depois de "start" que já foram varridos sem achar o fim dos headers
+    private int scanned = 0;
+
+    /**
+     * Analisa os bytes [start, end) do buffer (índices absolutos, a posição não é alterada).
+     * Retorna quantos bytes a partir de {@code start} formam os headers (incluindo a linha em
+     * branco), ou -1 se eles ainda não chegaram por completo. Em caso de sucesso a requisição
+     * fica em {@link #request()} até a próxima chamada.
+     */
+    public int parse(ByteBuffer buffer, int start, int end) throws HttpParseException {
+        // Linhas em branco antes da request line são ignoradas (RFC 9112, 2.2)
+        int head = start;
+        while (head < end && (buffer.get(head) == '\r' || buffer.get(head) == '\n')) {
+            head++;
+        }
+
+        int headEnd = findHeadEnd(buffer, head, end);
+        if (headEnd < 0) {
+            if (end - start >= MAX_HEAD_SIZE) {
+                throw new HttpParseException(431, "Request Header Fields Too Large");
+            }
+            if (end - head > MAX_REQUEST_LINE && indexOf(buffer, head, head + MAX_REQUEST_LINE, (byte) '\n') < 0) {
+                throw new HttpParseException(414, "URI Too Long");
+            }
+            return -1;
+        }
+        scanned = 0;
+
+        if (headEnd - start > MAX_HEAD_SIZE) {
+            throw new HttpParseException(431, "Request Header Fields Too Large");
+        }
+
+        request.reset(buffer);
+        int lineEnd = indexOf(buffer, head, headEnd, (byte) '\n');
+        if (lineEnd - head > MAX_REQUEST_LINE) {
+            throw new HttpParseException(414, "URI Too Long");
+        }
+        parseRequestLine(buffer, head, trimCr(buffer, head, lineEnd));
+
+        int lineStart = lineEnd + 1;
+        while (lineStart < headEnd) {
+            lineEnd = indexOf(buffer, lineStart, headEnd, (byte) '\n');
+            int contentEnd = trimCr(buffer, lineStart, lineEnd);
+            if (contentEnd == lineStart) {
+                break;
+            }
+            parseHeader(buffer, lineStart, contentEnd);
+            lineStart = lineEnd + 1;
+        }
+
+        return headEnd - start;
+    }
+
+    public HttpRequest request() {
+        return request;
+    }
+
+    // Descarta o progresso da varredura (conexão reiniciada ou buffer trocado de lugar)
+    public void reset() {
+        scanned = 0;
+    }
+
+    /**
+     * Garante espaço livre no buffer de leitura (em modo escrita), dobrando-o até
+     * {@link #MAX_HEAD_SIZE}; o buffer menor volta ao pool. Se já estiver no limite devolve o
+     * mesmo buffer cheio, e o próximo {@link #parse} responde 431.
+     */
+    public static BufferPool.Lease ensureSpace(BufferPool pool, BufferPool.Lease lease) {
+        ByteBuffer buffer = lease.buffer();
+        if (buffer.hasRemaining() || buffer.capacity() >= MAX_HEAD_SIZE) {
+            return lease;
+        }
+        return pool.grow(lease, Math.min(buffer.capacity() * 2, MAX_HEAD_SIZE));
+    }
+
+    // Posição logo depois da linha em branco que encerra os headers, ou -1
+    private int findHeadEnd(ByteBuffer buffer, int head, int end) {
+        int from = Math.max(head, head + scanned);
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) != '\n' || i == head) {
+                continue;
+            }
+            // "\n\n" ou "\n\r\n"
+            if (buffer.get(i - 1) == '\n') {
+                return i + 1;
+            }
+            if (buffer.get(i - 1) == '\r' && i - 2 >= head && buffer.get(i - 2) == '\n') {
+                return i + 1;
+            }
+        }
+        // Os dois últimos bytes podem ser o começo do terminador: revarrer a partir deles
+        scanned = Math.max(0, end - head - 2);
+        return -1;
+    }
+
+    private void parseRequestLine(ByteBuffer buffer, int start, int end) throws HttpParseException {
+        int methodEnd = indexOf(buffer, start, end, (byte) ' ');
+        int targetEnd = methodEnd < 0 ? -1 : indexOf(buffer, methodEnd + 1, end, (byte) ' ');
+        if (methodEnd <= start || targetEnd <= methodEnd + 1) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+
+        request.methodStart = start;
+        request.methodEnd = methodEnd;
+        request.method = HttpMethod.match(buffer, start, methodEnd);
+        request.targetStart = methodEnd + 1;
+        request.targetEnd = targetEnd;
+
+        // "HTTP/x.y"
+        int version = targetEnd + 1;
+        if (end - version != 8 || buffer.get(version) != 'H' || buffer.get(version + 1) != 'T'
+                || buffer.get(version + 2) != 'T' || buffer.get(version + 3) != 'P' || buffer.get(version + 4) != '/'
+                || !isDigit(buffer.get(version + 5)) || buffer.get(version + 6) != '.' || !isDigit(buffer.get(version + 7))) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        if (buffer.get(version + 5) != '1') {
+            throw new HttpParseException(505, "HTTP Version Not Supported");
+        }
+        request.versionMinor = buffer.get(version + 7) - '0';
+    }
+
+    private void parseHeader(ByteBuffer buffer, int start, int end) throws HttpParseException {
+        int colon = indexOf(buffer, start, end, (byte) ':');
+        if (colon <= start) {
+            // Linha sem "nome:" é ignorada, como sempre foi
+            return;
+        }
+        if (request.headerCount == MAX_HEADERS) {
+            throw new HttpParseException(431, "Request Header Fields Too Large");
+        }
+
+        int nameEnd = colon;
+        while (nameEnd > start && isWhitespace(buffer.get(nameEnd - 1))) {
+            nameEnd--;
+        }
+        int valueStart = colon + 1;
+        while (valueStart < end && isWhitespace(buffer.get(valueStart))) {
+            valueStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+            valueEnd--;
+        }
+
+        int index = request.headerCount++;
+        request.nameStart[index] = start;
+        request.nameEnd[index] = nameEnd;
+        request.valueStart[index] = valueStart;
+        request.valueEnd[index] = valueEnd;
+
+        HttpHeader header = HttpHeader.match(buffer, start, nameEnd);
+        if (header != null) {
+            request.known[header.ordinal()] = index;
+            if (header == HttpHeader.CONTENT_LENGTH) {
+                request.contentLength = parseContentLength(buffer, valueStart, valueEnd);
+            }
+        }
+    }
+
+    private static long parseContentLength(ByteBuffer buffer, int start, int end) throws HttpParseException {
+        if (start == end || end - start > 18) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b)) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimCr(ByteBuffer buffer, int start, int lineEnd) {
+        return lineEnd > start && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+}
@@ -0,0 +1,478 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Resposta HTTP independente do engine de I/O.
+ * O corpo é uma sequência de trechos: bytes em memória (listagens, erros, cabeçalhos
+ * multipart) ou fatias de um arquivo, que são lidas do disco só na hora do envio.
+ * Corpos de tamanho desconhecido terminam com um {@link BodyStream}, enviado em chunks.
+ */
+public class HttpResponse {
+
+    // Resposta provisória para "Expect: 100-continue"
+    static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Fim do corpo chunked (chunk vazio, sem trailers)
+    static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Corpo gerado enquanto é enviado. {@link #next()} é chamado cada vez que o trecho
+     * anterior saiu por completo, então o produtor anda no ritmo do cliente.
+     */
+    public interface BodyStream extends Closeable {
+
+        // Próximo trecho do corpo (nunca vazio), ou null no fim
+        byte[] next() throws IOException;
+
+        @Override
+        void close();
+    }
+
+    // Trecho do corpo: bytes em memória ou uma fatia [offset, offset + length) do arquivo
+    public record Segment(byte[] bytes, long offset, long length) {
+
+        static Segment of(byte[] bytes) {
+            return new Segment(bytes, 0, bytes.length);
+        }
+
+        static Segment fileSlice(long offset, long length) {
+            return new Segment(null, offset, length);
+        }
+
+        public boolean isFile() {
+            return bytes == null;
+        }
+    }
+
+    private final int statusCode;
+    private final String statusMessage;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private File file;
+    private long fileLength;
+
+    // Resto do corpo, depois dos segmentos; chunked, ou até o fechamento da conexão em HTTP/1.0
+    private BodyStream stream;
+    private boolean chunked;
+
+    // Headers já serializados de uma entrada do cache (status line + primeiros headers do mapa)
+    private byte[] headPrefix;
+    private int headPrefixCount;
+    private boolean cached;
+
+    // Identifica a requisição na interface (linha da tabela de conexões)
+    private long requestId;
+
+    // Para as métricas: rota que atendeu, método e início do atendimento (System.nanoTime)
+    private ServerMetrics.Route route;
+    private HttpMethod method;
+    private long startNanos;
+
+    // Para o access log: a request line como o cliente enviou
+    private String requestMethod;
+    private String target;
+    private String version;
+
+    // Estatísticas do envio, preenchidas pelo engine
+    private long bytesSent;
+    private long transferNanos;
+    private boolean zeroCopy;
+
+    public HttpResponse(int statusCode, String statusMessage) {
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+    }
+
+    public static HttpResponse ofBody(int statusCode, String statusMessage, String body, String contentType) {
+        return ofBytes(statusCode, statusMessage, body.getBytes(StandardCharsets.UTF_8), contentType);
+    }
+
+    public static HttpResponse ofBytes(int statusCode, String statusMessage, byte[] bodyBytes, String contentType) {
+        HttpResponse response = new HttpResponse(statusCode, statusMessage);
+        response.segments.add(Segment.of(bodyBytes));
+        response.header("Content-Type", contentType + "; charset=utf-8");
+        response.header("Content-Length", String.valueOf(bodyBytes.length));
+        response.header("Connection", "close");
+        response.header("Server", "SwingHTTPServer/1.0");
+        return response;
+    }
+
+    // length: tamanho já conhecido (manifesto ou stat de quem chama), sem outro stat aqui
+    public static HttpResponse ofFile(File file, long length, String contentType) {
+        HttpResponse response = fileResponse(200, "OK", file, length);
+        response.segments.add(Segment.fileSlice(0, response.fileLength));
+        response.header("Content-Type", contentType);
+        response.header("Content-Length", String.valueOf(response.fileLength));
+        response.header("Accept-Ranges", "bytes");
+        response.header("Content-Disposition", "inline; filename=\"" + file.getName() + "\"");
+        response.header("Connection", "close");
+        response.header("Server", "SwingHTTPServer/1.0");
+        return response;
+    }
+
+    // 206 com um único intervalo
+    public static HttpResponse ofFileRange(File file, long length, String contentType, ByteRange range) {
+        HttpResponse response = fileResponse(206, "Partial Content", file, length);
+        response.segments.add(Segment.fileSlice(range.start(), range.length()));
+        response.header("Content-Type", contentType);
+        response.header("Content-Length", String.valueOf(range.length()));
+        response.header("Content-Range", range.contentRange(response.fileLength));
+        response.header("Accept-Ranges", "bytes");
+        response.header("Content-Disposition", "inline; filename=\"" + file.getName() + "\"");
+        response.header("Connection", "close");
+        response.header("Server", "SwingHTTPServer/1.0");
+        return response;
+    }
+
+    // 206 multipart/byteranges: cada parte tem seu próprio Content-Type e Content-Range
+    public static HttpResponse ofFileRanges(File file, long length, String contentType, List<ByteRange> ranges) {
+        HttpResponse response = fileResponse(206, "Partial Content", file, length);
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            byte[] partHeader = ((i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: " + range.contentRange(response.fileLength) + "\r\n" +
+                    "\r\n").getBytes(StandardCharsets.US_ASCII);
+            response.segments.add(Segment.of(partHeader));
+            response.segments.add(Segment.fileSlice(range.start(), range.length()));
+            contentLength += partHeader.length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        response.segments.add(Segment.of(closing));
+        contentLength += closing.length;
+
+        response.header("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        response.header("Content-Length", String.valueOf(contentLength));
+        response.header("Accept-Ranges", "bytes");
+        response.header("Connection", "close");
+        response.header("Server", "SwingHTTPServer/1.0");
+        return response;
+    }
+
+    // 304: a cópia do cliente continua válida, resposta sem corpo
+    public static HttpResponse notModified(String etag, long lastModified, String cacheControl) {
+        HttpResponse response = new HttpResponse(304, "Not Modified");
+        response.header("ETag", etag);
+        response.header("Last-Modified", ConditionalGet.httpDate(lastModified));
+        if (cacheControl != null) {
+            response.header("Cache-Control", cacheControl);
+        }
+        response.header("Connection", "close");
+        response.header("Server", "SwingHTTPServer/1.0");
+        return response;
+    }
+
+    /**
+     * Corpo de tamanho desconhecido: {@code first} já pronto e o resto vindo de {@code stream}.
+     * Sem {@code chunked} (clientes HTTP/1.0) o fim do corpo é o fechamento da conexão.
+     */
+    public static HttpResponse ofStream(int statusCode, String statusMessage, byte[] first, BodyStream stream,
+                                        String contentType, boolean chunked) {
+        HttpResponse response = new HttpResponse(statusCode, statusMessage);
+        response.stream = stream;
+        response.chunked = chunked;
+        response.segments.add(Segment.of(chunked ? chunk(first) : first));
+        response.header("Content-Type", contentType + "; charset=utf-8");
+        if (chunked) {
+            response.header("Transfer-Encoding", "chunked");
+        }
+        response.header("Connection", "close");
+        response.header("Server", "SwingHTTPServer/1.0");
+        return response;
+    }
+
+    // Um chunk: tamanho em hexa, CRLF, dados, CRLF
+    static byte[] chunk(byte[] data) {
+        byte[] size = (Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] framed = new byte[size.length + data.length + 2];
+        System.arraycopy(size, 0, framed, 0, size.length);
+        System.arraycopy(data, 0, framed, size.length, data.length);
+        framed[framed.length - 2] = '\r';
+        framed[framed.length - 1] = '\n';
+        return framed;
+    }
+
+    // 200 servido da memória, com os headers fixos já serializados
+    public static HttpResponse ofCached(File file, FileCache.Entry entry) {
+        HttpResponse response = new HttpResponse(200, "OK");
+        response.file = file;
+        response.fileLength = entry.getContent().length;
+        response.cached = true;
+        response.segments.add(Segment.of(entry.getContent()));
+        response.headers.putAll(entry.getHeaders());
+        response.headPrefix = entry.getHeadPrefix();
+        response.headPrefixCount = response.headers.size();
+        response.header("Connection", "close");
+        return response;
+    }
+
+    private static HttpResponse fileResponse(int statusCode, String statusMessage, File file, long length) {
+        HttpResponse response = new HttpResponse(statusCode, statusMessage);
+        response.file = file;
+        response.fileLength = length;
+        return response;
+    }
+
+    public HttpResponse header(String name, String value) {
+        if (headPrefix != null && headers.containsKey(name)) {
+            // Sobrescrever um header pré-montado invalida o prefixo
+            headPrefix = null;
+        }
+        headers.put(name, value);
+        return this;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public long getContentLength() {
+        long length = 0;
+        for (Segment segment : segments) {
+            length += segment.length();
+        }
+        return length;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public boolean hasFile() {
+        return file != null;
+    }
+
+    public BodyStream getStream() {
+        return stream;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    // Corpo sem Content-Length nem chunked: a conexão precisa fechar no fim dele
+    public boolean closesConnection() {
+        return stream != null && !chunked;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public HttpResponse requestId(long requestId) {
+        this.requestId = requestId;
+        return this;
+    }
+
+    public ServerMetrics.Route getRoute() {
+        return route;
+    }
+
+    public HttpResponse route(ServerMetrics.Route route) {
+        this.route = route;
+        return this;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public HttpResponse startedAt(HttpMethod method, long startNanos) {
+        this.method = method;
+        this.startNanos = startNanos;
+        return this;
+    }
+
+    public String getRequestMethod() {
+        return requestMethod;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public HttpResponse requestLine(String requestMethod, String target, String version) {
+        this.requestMethod = requestMethod;
+        this.target = target;
+        this.version = version;
+        return this;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getTransferNanos() {
+        return transferNanos;
+    }
+
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    public void recordTransfer(long bytesSent, long transferNanos, boolean zeroCopy) {
+        this.bytesSent = bytesSent;
+        this.transferNanos = transferNanos;
+        this.zeroCopy = zeroCopy;
+    }
+
+    public byte[] headerBytes() {
+        if (headPrefix == null) {
+            return (headerPrefixString() + "\r\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        // Só os headers adicionados depois do prefixo (Connection, Keep-Alive...) são montados
+        StringBuilder sb = new StringBuilder();
+        int index = 0;
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (index++ >= headPrefixCount) {
+                sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+            }
+        }
+        sb.append("\r\n");
+        byte[] suffix = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[headPrefix.length + suffix.length];
+        System.arraycopy(headPrefix, 0, result, 0, headPrefix.length);
+        System.arraycopy(suffix, 0, result, headPrefix.length, suffix.length);
+        return result;
+    }
+
+    /**
+     * Status line, headers e a linha em branco codificados direto em um buffer do pool, sem
+     * byte[] intermediário; o buffer sai em modo escrita com {@code extra} bytes livres pelo menos.
+     */
+    public BufferPool.Lease headerBuffer(BufferPool pool, int extra) {
+        StringBuilder sb = new StringBuilder();
+        if (headPrefix == null) {
+            sb.append(headerPrefixString());
+        } else {
+            int index = 0;
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                if (index++ >= headPrefixCount) {
+                    sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+                }
+            }
+        }
+        sb.append("\r\n");
+        int prefix = headPrefix != null ? headPrefix.length : 0;
+        BufferPool.Lease lease = pool.acquire(prefix + utf8Length(sb) + extra);
+        ByteBuffer buffer = lease.buffer();
+        if (headPrefix != null) {
+            buffer.put(headPrefix);
+        }
+        putUtf8(buffer, sb);
+        return lease;
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+        }
+        return length;
+    }
+
+    // Mesmo resultado de getBytes(UTF_8): surrogate sem par vira '?'
+    private static void putUtf8(ByteBuffer buffer, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | code >> 18)).put((byte) (0x80 | code >> 12 & 0x3F))
+                        .put((byte) (0x80 | code >> 6 & 0x3F)).put((byte) (0x80 | code & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    // Status line e headers atuais, sem a linha em branco final
+    public byte[] headerPrefixBytes() {
+        return headerPrefixString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String headerPrefixString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HTTP/1.1 ").append(statusCode).append(' ').append(statusMessage).append("\r\n");
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+        }
+        return sb.toString();
+    }
+
+    // Escrita bloqueante (engine de threads)
+    public void writeTo(WritableByteChannel out) throws IOException {
+        writeTo(out, null);
+    }
+
+    // Idem, avisando {@code progress} a cada escrita que avançou
+    public void writeTo(WritableByteChannel out, Runnable progress) throws IOException {
+        writeTo(out, progress, null);
+    }
+
+    // Idem, com limite de banda: sem tokens a thread estaciona até o próximo lote
+    public void writeTo(WritableByteChannel out, Runnable progress, BandwidthLimiter.Throttle throttle) throws IOException {
+        try (ResponseWriter writer = new ResponseWriter(this, out).onProgress(progress).throttle(throttle)) {
+            while (!writer.write()) {
+                long wait = writer.getThrottleNanos();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+}
@@ -3,39 +3,61 @@ package com.example;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+
+/**
+ * Janela de controle e monitoramento do {@link FileServer}. Pode criar o próprio servidor
+ * a partir dos campos ou se acoplar a um que já roda sem interface ({@code --gui} no
+ * {@link FileServerMain}); nesse caso fechar a janela não derruba o servidor.
+ */
 public class HttpServerSwingApp extends JFrame {
 
+    private static final DateTimeFormatter LOG_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    // Eventos aguardando a interface; acima disso são descartados e contados
+    private static final int MAX_PENDING_UI_EVENTS = 10_000;
+    private static final int DEFAULT_HISTORY_SIZE = 500;
+
     private final JTextField portField;
+    private final JCheckBox tlsCheckBox;
     private final JTextField webrootField;
+    private final JComboBox<ServerConfig.Engine> engineCombo;
+    private final JTextField maxRequestsField;
+    private final JTextField idleTimeoutField;
+    private final JTextField cacheBudgetField;
+    private final JLabel cacheStatsLabel;
+    private final JTextField cacheControlField;
+    private final JTextField historySizeField;
+    private final JTextField bandwidthConnectionField;
+    private final JTextField bandwidthIpField;
+    private final JTextField bandwidthGlobalField;
     private final JButton startButton;
     private final JButton stopButton;
     private final JButton browseButton;
     private final JTextArea logArea;
+    private final JTextArea metricsArea;
     private final JTable connectionsTable;
-    private final DefaultTableModel connectionsModel;
+    private final ConnectionTableModel connectionsModel;
+    private final transient UiEventQueue uiEvents = new UiEventQueue(MAX_PENDING_UI_EVENTS);
+    private int historySize = DEFAULT_HISTORY_SIZE;
 
-    private ServerSocket serverSocket;
-    private ExecutorService executorService;
-    private volatile boolean isRunning = false;
+    private FileServer server;
     private File webRootDirectory;
-    private int currentPort = 8080;
+    // Pool e limite de upload vêm só da linha de comando; preservados ao reiniciar pela janela
+    private int poolSize = 0;
+    private long uploadMaxMb = new ServerConfig().getUploadMaxMb();
+    // Keystore, senha e sessões TLS e HTTP/2 idem; a janela só liga ou desliga o HTTPS
+    private ServerConfig commandLineSettings = new ServerConfig();
 
 
     public static void main(String[] args) {
@@ -51,8 +73,13 @@ public class HttpServerSwingApp extends JFrame {
 
 
     public HttpServerSwingApp() {
+        this(null);
+    }
+
+    // Monitor de um servidor já criado (e possivelmente já rodando)
+    public HttpServerSwingApp(FileServer attached) {
         setTitle("HTTP File Server");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setDefaultCloseOperation(attached == null ? JFrame.EXIT_ON_CLOSE : JFrame.DISPOSE_ON_CLOSE);
         setSize(900, 700);
         setLocationRelativeTo(null);
 
@@ -75,6 +102,11 @@ public class HttpServerSwingApp extends JFrame {
         portField = new JTextField("8080");
         configPanel.add(portField, gbc);
 
+        gbc.gridx = 2; gbc.weightx = 0;
+        tlsCheckBox = new JCheckBox("HTTPS (TLS)");
+        tlsCheckBox.setToolTipText("Certificado autoassinado gerado em " + commandLineSettings.getTlsKeystore() + " na primeira vez");
+        configPanel.add(tlsCheckBox, gbc);
+
         // Webroot
         gbc.gridx = 0; gbc.gridy = 1;
         configPanel.add(new JLabel("Webroot:"), gbc);
@@ -89,6 +121,85 @@ public class HttpServerSwingApp extends JFrame {
         browseButton.addActionListener(this::browseWebroot);
         configPanel.add(browseButton, gbc);
 
+        // Engine de I/O
+        gbc.gridx = 0; gbc.gridy = 2;
+        configPanel.add(new JLabel("Engine:"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1;
+        engineCombo = new JComboBox<>(ServerConfig.Engine.values());
+        configPanel.add(engineCombo, gbc);
+
+        // Keep-Alive: máximo de requisições por conexão e tempo ocioso
+        gbc.gridx = 0; gbc.gridy = 3; gbc.weightx = 0;
+        configPanel.add(new JLabel("Keep-Alive:"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1;
+        JPanel keepAlivePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        keepAlivePanel.add(new JLabel("Máx. requisições"));
+        maxRequestsField = new JTextField("100", 5);
+        keepAlivePanel.add(maxRequestsField);
+        keepAlivePanel.add(new JLabel("Ocioso (s)"));
+        idleTimeoutField = new JTextField("5", 5);
+        keepAlivePanel.add(idleTimeoutField);
+        configPanel.add(keepAlivePanel, gbc);
+
+        // Cache de arquivos quentes: orçamento em MB (0 desativa) e contadores
+        gbc.gridx = 0; gbc.gridy = 4; gbc.weightx = 0;
+        configPanel.add(new JLabel("Cache (MB):"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1;
+        JPanel cachePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        cacheBudgetField = new JTextField("64", 5);
+        cachePanel.add(cacheBudgetField);
+        cacheStatsLabel = new JLabel();
+        cachePanel.add(cacheStatsLabel);
+        configPanel.add(cachePanel, gbc);
+        new Timer(1000, ev -> {
+            updateCacheStats();
+            updateMetrics();
+        }).start();
+
+        // Cache-Control por extensão
+        gbc.gridx = 0; gbc.gridy = 5; gbc.weightx = 0;
+        configPanel.add(new JLabel("Cache-Control:"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1;
+        cacheControlField = new JTextField(CacheControlPolicy.DEFAULT_RULES);
+        cacheControlField.setToolTipText("ext1,ext2=valor;...;*=padrão");
+        configPanel.add(cacheControlField, gbc);
+
+        // Quantas linhas a tabela de conexões e o log guardam
+        gbc.gridx = 0; gbc.gridy = 6; gbc.weightx = 0;
+        configPanel.add(new JLabel("Histórico:"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1;
+        JPanel historyPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        historySizeField = new JTextField(String.valueOf(DEFAULT_HISTORY_SIZE), 5);
+        historyPanel.add(historySizeField);
+        historyPanel.add(new JLabel("linhas (tabela e log)"));
+        configPanel.add(historyPanel, gbc);
+
+        // Limites de banda (KB/s, 0 = sem limite): o "Aplicar" vale na hora, com o servidor rodando
+        gbc.gridx = 0; gbc.gridy = 7; gbc.weightx = 0;
+        configPanel.add(new JLabel("Banda (KB/s):"), gbc);
+
+        gbc.gridx = 1; gbc.weightx = 1;
+        JPanel bandwidthPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        bandwidthPanel.add(new JLabel("Conexão"));
+        bandwidthConnectionField = new JTextField("0", 6);
+        bandwidthPanel.add(bandwidthConnectionField);
+        bandwidthPanel.add(new JLabel("IP"));
+        bandwidthIpField = new JTextField("0", 6);
+        bandwidthPanel.add(bandwidthIpField);
+        bandwidthPanel.add(new JLabel("Global"));
+        bandwidthGlobalField = new JTextField("0", 6);
+        bandwidthPanel.add(bandwidthGlobalField);
+        JButton bandwidthButton = new JButton("Aplicar");
+        bandwidthButton.setToolTipText("0 = sem limite; vale também para os downloads em andamento");
+        bandwidthButton.addActionListener(this::applyBandwidth);
+        bandwidthPanel.add(bandwidthButton);
+        configPanel.add(bandwidthPanel, gbc);
+
         // Botões de controle
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         startButton = new JButton("Iniciar Servidor");
@@ -100,11 +211,11 @@ public class HttpServerSwingApp extends JFrame {
         buttonPanel.add(startButton);
         buttonPanel.add(stopButton);
 
-        gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 3;
+        gbc.gridx = 0; gbc.gridy = 8; gbc.gridwidth = 3; gbc.weightx = 0;
         configPanel.add(buttonPanel, gbc);
 
         // Tabela de conexões
-        connectionsModel = new DefaultTableModel(new String[]{"IP", "Método", "Path", "Status", "Hora"}, 0);
+        connectionsModel = new ConnectionTableModel(DEFAULT_HISTORY_SIZE);
         connectionsTable = new JTable(connectionsModel);
         JScrollPane tableScroll = new JScrollPane(connectionsTable);
         tableScroll.setBorder(new TitledBorder("Conexões Ativas"));
@@ -114,15 +225,36 @@ public class HttpServerSwingApp extends JFrame {
         logArea = new JTextArea();
         logArea.setEditable(false);
         JScrollPane logScroll = new JScrollPane(logArea);
-        logScroll.setBorder(new TitledBorder("Log do Servidor"));
+
+        // Métricas: o mesmo conteúdo de /_metrics, resumido
+        metricsArea = new JTextArea();
+        metricsArea.setEditable(false);
+        metricsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JTabbedPane bottomTabs = new JTabbedPane();
+        bottomTabs.addTab("Log do Servidor", logScroll);
+        bottomTabs.addTab("Métricas", new JScrollPane(metricsArea));
 
         // Layout
         mainPanel.add(configPanel, BorderLayout.NORTH);
         mainPanel.add(tableScroll, BorderLayout.CENTER);
-        mainPanel.add(logScroll, BorderLayout.SOUTH);
+        mainPanel.add(bottomTabs, BorderLayout.SOUTH);
 
         add(mainPanel);
+
+        if (attached != null) {
+            attach(attached);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    server.removeListener(uiEvents);
+                }
+            });
+        }
         setVisible(true);
+
+        // Logs e conexões chegam pela fila e são aplicados em lote
+        new Timer(100, ev -> drainUiEvents()).start();
     }
 
     private void browseWebroot(ActionEvent e) {
@@ -137,363 +269,254 @@ public class HttpServerSwingApp extends JFrame {
         }
     }
 
-    private void startServer(ActionEvent e) {
-        if (webRootDirectory == null || !webRootDirectory.exists() || !webRootDirectory.isDirectory()) {
-            JOptionPane.showMessageDialog(this, "Selecione um diretório webroot válido!", "Erro", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
+    private void attach(FileServer attached) {
+        ServerConfig config = attached.getConfig();
+        server = attached;
+        webRootDirectory = config.getWebRoot();
+        poolSize = config.getPoolSize();
+        uploadMaxMb = config.getUploadMaxMb();
+        commandLineSettings = config;
+
+        portField.setText(String.valueOf(config.getPort()));
+        webrootField.setText(webRootDirectory.getAbsolutePath());
+        engineCombo.setSelectedItem(config.getEngine());
+        tlsCheckBox.setSelected(config.isTls());
+        maxRequestsField.setText(String.valueOf(config.getKeepAliveMaxRequests()));
+        idleTimeoutField.setText(String.valueOf(config.getKeepAliveIdleSeconds()));
+        cacheBudgetField.setText(String.valueOf(config.getCacheBudgetMb()));
+        cacheControlField.setText(config.getCacheControlRules());
+        bandwidthConnectionField.setText(String.valueOf(config.getBandwidthConnectionKb()));
+        bandwidthIpField.setText(String.valueOf(config.getBandwidthIpKb()));
+        bandwidthGlobalField.setText(String.valueOf(config.getBandwidthGlobalKb()));
+
+        attached.addListener(uiEvents);
+        setRunning(attached.isRunning());
+        log("Monitorando servidor na porta " + config.getPort());
+    }
 
+    private void startServer(ActionEvent e) {
+        ServerConfig config = new ServerConfig()
+                .setWebRoot(webRootDirectory)
+                .setEngine((ServerConfig.Engine) engineCombo.getSelectedItem())
+                .setPoolSize(poolSize)
+                .setUploadMaxMb(uploadMaxMb)
+                .setTls(tlsCheckBox.isSelected())
+                .setTlsKeystore(commandLineSettings.getTlsKeystore())
+                .setTlsPassword(commandLineSettings.getTlsPassword())
+                .setTlsSessionCache(commandLineSettings.getTlsSessionCache())
+                .setTlsSessionTimeout(commandLineSettings.getTlsSessionTimeout())
+                .setTlsTickets(commandLineSettings.isTlsTickets())
+                .setHttp2(commandLineSettings.isHttp2())
+                .setHttp2MaxStreams(commandLineSettings.getHttp2MaxStreams())
+                .setAcceptQueue(commandLineSettings.getAcceptQueue())
+                .setMaxPerIp(commandLineSettings.getMaxPerIp())
+                .setCodelTargetMs(commandLineSettings.getCodelTargetMs())
+                .setCodelIntervalMs(commandLineSettings.getCodelIntervalMs())
+                .setRetryAfterSeconds(commandLineSettings.getRetryAfterSeconds())
+                .setHeaderTimeoutSeconds(commandLineSettings.getHeaderTimeoutSeconds())
+                .setBodyTimeoutSeconds(commandLineSettings.getBodyTimeoutSeconds())
+                .setWriteTimeoutSeconds(commandLineSettings.getWriteTimeoutSeconds())
+                .setShards(commandLineSettings.getShards())
+                .setManifest(commandLineSettings.isManifest())
+                .setManifestFile(commandLineSettings.getManifestFile())
+                .setAccessLog(commandLineSettings.getAccessLog())
+                .setAccessLogFormat(commandLineSettings.getAccessLogFormat())
+                .setAccessLogMaxMb(commandLineSettings.getAccessLogMaxMb())
+                .setCacheControlRules(cacheControlField.getText());
         try {
-            currentPort = Integer.parseInt(portField.getText());
-            if (currentPort < 1024 || currentPort > 65535) {
+            int port = Integer.parseInt(portField.getText());
+            if (port < 1024 || port > 65535) {
                 throw new NumberFormatException();
             }
+            config.setPort(port);
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Porta inválida! Use uma porta entre 1024 e 65535.", "Erro", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         try {
-            serverSocket = new ServerSocket(currentPort);
-            executorService = Executors.newFixedThreadPool(10);
-            isRunning = true;
-
-            startButton.setEnabled(false);
-            stopButton.setEnabled(true);
-            portField.setEnabled(false);
-            browseButton.setEnabled(false);
-
-            log("Servidor iniciado na porta " + currentPort);
-            log("Webroot: " + webRootDirectory.getAbsolutePath());
-            log("Acesse: http://localhost:" + currentPort);
-            log("Servidor rodando...");
-
-            // Thread para aceitar conexões
-            new Thread(() -> {
-                while (isRunning && !serverSocket.isClosed()) {
-                    try {
-                        Socket client = serverSocket.accept();
-                        executorService.submit(() -> handleClient(client));
-                    } catch (IOException ex) {
-                        if (isRunning) {
-                            log("Erro ao aceitar conexão: " + ex.getMessage());
-                        }
-                    }
-                }
-            }).start();
-
-        } catch (IOException ex) {
-            log("Erro ao iniciar servidor: " + ex.getMessage());
-            JOptionPane.showMessageDialog(this, "Erro ao iniciar servidor: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+            config.setKeepAliveMaxRequests(Integer.parseInt(maxRequestsField.getText().trim()));
+            config.setKeepAliveIdleSeconds(Integer.parseInt(idleTimeoutField.getText().trim()));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Keep-Alive inválido! Use valores inteiros maiores que zero.", "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-    }
-
-    private void stopServer(ActionEvent e) {
-        isRunning = false;
 
         try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
-            }
-            if (executorService != null) {
-                executorService.shutdown();
-            }
-        } catch (IOException ex) {
-            log("Erro ao parar servidor: " + ex.getMessage());
-        }
-
-        startButton.setEnabled(true);
-        stopButton.setEnabled(false);
-        portField.setEnabled(true);
-        browseButton.setEnabled(true);
-
-        log("Servidor parado");
-    }
-
-    private void handleClient(Socket client) {
-        String clientAddress = client.getInetAddress().getHostAddress();
-
-        try (client;
-             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()));
-             OutputStream out = client.getOutputStream()) {
-
-            // Ler request line
-            String requestLine = in.readLine();
-            if (requestLine == null) {
-                sendErrorResponse(out, 400, "Bad Request");
-                return;
-            }
-
-            // Ler headers
-            Map<String, String> headers = new HashMap<>();
-            String line;
-            while ((line = in.readLine()) != null && !line.isEmpty()) {
-                int colonIndex = line.indexOf(':');
-                if (colonIndex > 0) {
-                    String key = line.substring(0, colonIndex).trim();
-                    String value = line.substring(colonIndex + 1).trim();
-                    headers.put(key, value);
-                }
-            }
-
-            // Parse request
-            String[] requestParts = requestLine.split(" ");
-            if (requestParts.length < 3) {
-                sendErrorResponse(out, 400, "Bad Request");
-                return;
-            }
-
-            String method = requestParts[0];
-            String path = requestParts[1];
-            String httpVersion = requestParts[2];
-
-            // Log da conexão
-            SwingUtilities.invokeLater(() -> {
-                String timestamp = new SimpleDateFormat("HH:mm:ss").format(new Date());
-                connectionsModel.addRow(new Object[]{clientAddress, method, path, "Processando", timestamp});
-                log("📨 " + method + " " + path + " from " + clientAddress);
-            });
-
-            // Processar request
-            if (method.equals("GET")) {
-                handleGetRequest(out, path, clientAddress);
-            } else {
-                sendErrorResponse(out, 405, "Method Not Allowed");
-            }
-
-            // Atualizar status na tabela
-            SwingUtilities.invokeLater(() -> {
-                int rowCount = connectionsModel.getRowCount();
-                if (rowCount > 0) {
-                    connectionsModel.setValueAt("Concluído", rowCount - 1, 3);
-                }
-            });
-
-        } catch (IOException ex) {
-            log("❌ Erro na conexão com " + clientAddress + ": " + ex.getMessage());
+            config.setCacheBudgetMb(Long.parseLong(cacheBudgetField.getText().trim()));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Orçamento de cache inválido! Use um inteiro em MB (0 desativa).", "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-    }
 
-    private void handleGetRequest(OutputStream out, String path, String clientAddress) throws IOException {
-        // Prevenir path traversal attacks
-        if (path.contains("..")) {
-            sendErrorResponse(out, 403, "Forbidden");
+        long[] bandwidth = parseBandwidth();
+        if (bandwidth == null) {
             return;
         }
+        config.setBandwidthConnectionKb(bandwidth[0]).setBandwidthIpKb(bandwidth[1]).setBandwidthGlobalKb(bandwidth[2]);
 
-        // Mapear path para arquivo
-        File requestedFile;
-        if (path.equals("/")) {
-            // Listar diretório
-            listDirectory(out, webRootDirectory, clientAddress);
+        try {
+            historySize = Integer.parseInt(historySizeField.getText().trim());
+            if (historySize < 1) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Histórico inválido! Use um inteiro maior que zero.", "Erro", JOptionPane.ERROR_MESSAGE);
             return;
-        } else {
-            String filePath = path.substring(1); // Remover a barra inicial
-            requestedFile = new File(webRootDirectory, filePath);
         }
+        connectionsModel.setCapacity(historySize);
 
-        // Verificar se o arquivo existe
-        if (!requestedFile.exists() || !requestedFile.getCanonicalPath().startsWith(webRootDirectory.getCanonicalPath())) {
-            sendErrorResponse(out, 404, "File Not Found");
+        FileServer newServer;
+        try {
+            newServer = new FileServer(config);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        if (requestedFile.isDirectory()) {
-            // Listar conteúdo do diretório
-            listDirectory(out, requestedFile, clientAddress);
-        } else {
-            // Servir arquivo
-            serveFile(out, requestedFile);
+        if (server != null) {
+            server.removeListener(uiEvents);
         }
-    }
+        server = newServer;
+        server.addListener(uiEvents);
 
-    private void listDirectory(OutputStream out, File directory, String clientAddress) throws IOException {
-        File[] files = directory.listFiles();
-        if (files == null) {
-            sendErrorResponse(out, 403, "Forbidden");
-            return;
+        try {
+            server.start();
+            setRunning(true);
+        } catch (IOException ex) {
+            log("Erro ao iniciar servidor: " + ex.getMessage());
+            JOptionPane.showMessageDialog(this, "Erro ao iniciar servidor: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
         }
+    }
 
-        StringBuilder html = new StringBuilder();
-        html.append("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset='UTF-8'>
-                <title>Index of %s</title>
-                <style>
-                    body { font-family: Arial, sans-serif; margin: 40px; background: #f5f5f5; }
-                    .container { background: white; padding: 20px; border-radius: 10px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-                    h1 { color: #333; border-bottom: 2px solid #007bff; padding-bottom: 10px; }
-                    table { width: 100%%; border-collapse: collapse; margin-top: 20px; }
-                    th, td { padding: 12px; text-align: left; border-bottom: 1px solid #ddd; }
-                    th { background-color: #007bff; color: white; }
-                    tr:hover { background-color: #f8f9fa; }
-                    .file { color: #28a745; }
-                    .dir { color: #007bff; }
-                    .size { text-align: right; }
-                    .back { margin-bottom: 20px; }
-                </style>
-            </head>
-            <body>
-                <div class='container'>
-                    <h1>📁 Index of %s</h1>
-                    <div class='back'>
-                        <a href='%s'>↩ Voltar</a>
-                    </div>
-                    <table>
-                        <tr>
-                            <th>Nome</th>
-                            <th>Tamanho</th>
-                            <th>Modificado</th>
-                            <th>Tipo</th>
-                        </tr>
-            """.formatted(directory.getName(), directory.getName(),
-                directory.getParentFile().equals(webRootDirectory) ? "/" : "../"));
-
-        // Link para diretório pai (se não for o root)
-        if (!directory.equals(webRootDirectory)) {
-            html.append("""
-                <tr>
-                    <td colspan='4'><a href='../'>📁 ../</a></td>
-                </tr>
-                """);
+    private void applyBandwidth(ActionEvent e) {
+        long[] bandwidth = parseBandwidth();
+        if (bandwidth != null && server != null) {
+            server.setBandwidthLimits(bandwidth[0], bandwidth[1], bandwidth[2]);
         }
+    }
 
-        // Listar arquivos e diretórios
-        for (File file : files) {
-            String name = file.getName();
-            String size = file.isDirectory() ? "-" : formatFileSize(file.length());
-            String modified = new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(file.lastModified()));
-            String type = file.isDirectory() ? "Diretório" : "Arquivo";
-            String cssClass = file.isDirectory() ? "dir" : "file";
-            String icon = file.isDirectory() ? "📁" : "📄";
-            String link = file.isDirectory() ? name + "/" : name;
-
-            html.append(String.format("""
-                <tr>
-                    <td><a href='%s' class='%s'>%s %s</a></td>
-                    <td class='size'>%s</td>
-                    <td>%s</td>
-                    <td>%s</td>
-                </tr>
-                """, link, cssClass, icon, name, size, modified, type));
+    // Conexão, IP e global em KB/s, ou null (com o erro já mostrado)
+    private long[] parseBandwidth() {
+        try {
+            long[] limits = {
+                    Long.parseLong(bandwidthConnectionField.getText().trim()),
+                    Long.parseLong(bandwidthIpField.getText().trim()),
+                    Long.parseLong(bandwidthGlobalField.getText().trim())
+            };
+            for (long limit : limits) {
+                if (limit < 0) {
+                    throw new NumberFormatException();
+                }
+            }
+            return limits;
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Limites de banda inválidos! Use KB/s >= 0 (0 = sem limite).", "Erro", JOptionPane.ERROR_MESSAGE);
+            return null;
         }
-
-        html.append("""
-                    </table>
-                </div>
-            </body>
-            </html>
-            """);
-
-        sendResponse(out, 200, "OK", html.toString(), "text/html");
-        log("📋 Listagem de diretório: " + directory.getName() + " para " + clientAddress);
     }
 
-    private void serveFile(OutputStream out, File file) throws IOException {
-        String contentType = getContentType(file.getName());
-        long fileLength = file.length();
-
-        // Headers
-        String headers = "HTTP/1.1 200 OK\r\n" +
-                "Content-Type: " + contentType + "\r\n" +
-                "Content-Length: " + fileLength + "\r\n" +
-                "Content-Disposition: inline; filename=\"" + file.getName() + "\"\r\n" +
-                "Connection: close\r\n" +
-                "Server: SwingHTTPServer/1.0\r\n" +
-                "\r\n";
-
-        out.write(headers.getBytes(StandardCharsets.UTF_8));
-
-        // Enviar arquivo
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-            }
+    private void stopServer(ActionEvent e) {
+        if (server != null) {
+            server.stop();
         }
+        setRunning(false);
+    }
 
-        out.flush();
-        log("📤 Arquivo enviado: " + file.getName() + " (" + formatFileSize(fileLength) + ")");
+    private void setRunning(boolean running) {
+        startButton.setEnabled(!running);
+        stopButton.setEnabled(running);
+        portField.setEnabled(!running);
+        tlsCheckBox.setEnabled(!running);
+        browseButton.setEnabled(!running);
+        engineCombo.setEnabled(!running);
+        maxRequestsField.setEnabled(!running);
+        idleTimeoutField.setEnabled(!running);
+        cacheBudgetField.setEnabled(!running);
+        cacheControlField.setEnabled(!running);
+        historySizeField.setEnabled(!running);
     }
 
-    private String getContentType(String fileName) {
-        if (fileName.endsWith(".html") || fileName.endsWith(".htm")) return "text/html";
-        if (fileName.endsWith(".css")) return "text/css";
-        if (fileName.endsWith(".js")) return "application/javascript";
-        if (fileName.endsWith(".png")) return "image/png";
-        if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) return "image/jpeg";
-        if (fileName.endsWith(".gif")) return "image/gif";
-        if (fileName.endsWith(".pdf")) return "application/pdf";
-        if (fileName.endsWith(".zip")) return "application/zip";
-        if (fileName.endsWith(".txt")) return "text/plain";
-        return "application/octet-stream";
+    private void updateMetrics() {
+        if (server == null) {
+            metricsArea.setText("");
+            return;
+        }
+        ServerConfig config = server.getConfig();
+        metricsArea.setText(server.getMetrics().summary() + System.lineSeparator() + "Formato Prometheus: "
+                + (config.isTls() ? "https" : "http") + "://localhost:" + config.getPort() + ServerMetrics.PATH);
     }
 
-    private String formatFileSize(long bytes) {
-        if (bytes < 1024) return bytes + " B";
-        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
-        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
-        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    private void updateCacheStats() {
+        if (server == null) {
+            cacheStatsLabel.setText("");
+            return;
+        }
+        FileCache cache = server.getFileCache();
+        if (!cache.isEnabled()) {
+            cacheStatsLabel.setText("desativado");
+            return;
+        }
+        cacheStatsLabel.setText(String.format("hits: %d | misses: %d | despejos: %d | %d arquivos, %s de %s",
+                cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getEntryCount(),
+                FileServer.formatFileSize(cache.getUsedBytes()), FileServer.formatFileSize(cache.getBudgetBytes())));
     }
 
-    private void sendErrorResponse(OutputStream out, int statusCode, String message) throws IOException {
-        String responseBody = """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset='UTF-8'>
-                <title>Erro %d</title>
-                <style>
-                    body { font-family: Arial, sans-serif; margin: 40px; background: #ffe6e6; }
-                    .container { background: white; padding: 20px; border-radius: 10px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); text-align: center; }
-                    h1 { color: #c0392b; }
-                    .error-code { font-size: 4em; color: #c0392b; margin: 0; }
-                </style>
-            </head>
-            <body>
-                <div class='container'>
-                    <h1 class='error-code'>%d</h1>
-                    <h2>%s</h2>
-                    <p>O servidor encontrou um erro ao processar sua requisição.</p>
-                    <p><a href='/'>Voltar para a página inicial</a></p>
-                </div>
-            </body>
-            </html>
-            """.formatted(statusCode, statusCode, statusCode, message);
-
-        sendResponse(out, statusCode, message, responseBody, "text/html");
-        log("❌ Erro " + statusCode + ": " + message);
+    private void log(String message) {
+        uiEvents.log(message);
     }
 
-    private void sendResponse(OutputStream out, int statusCode, String statusMessage,
-                              String body, String contentType) throws IOException {
-        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    // Roda na EDT: aplica todos os eventos pendentes com um único append e um único aviso à tabela
+    private void drainUiEvents() {
+        ArrayDeque<String> lines = new ArrayDeque<>();
+        int[] skipped = {0};
+        uiEvents.drain(event -> {
+            switch (event) {
+                case UiEventQueue.LogLine line -> addLogLine(lines, skipped, line.timeMillis(), line.message());
+                case UiEventQueue.RequestStarted started -> {
+                    connectionsModel.add(started.id(), started.clientAddress(), started.method(), started.path(),
+                            LOG_TIME_FORMAT.format(Instant.ofEpochMilli(started.timeMillis())));
+                    addLogLine(lines, skipped, started.timeMillis(),
+                            "📨 " + started.method() + " " + started.path() + " from " + started.clientAddress());
+                }
+                case UiEventQueue.RequestCompleted completed -> connectionsModel.complete(completed.id(), completed.status());
+            }
+        });
+        connectionsModel.flush();
 
-        String response = "HTTP/1.1 " + statusCode + " " + statusMessage + "\r\n" +
-                "Content-Type: " + contentType + "; charset=utf-8\r\n" +
-                "Content-Length: " + bodyBytes.length + "\r\n" +
-                "Connection: close\r\n" +
-                "Server: SwingHTTPServer/1.0\r\n" +
-                "\r\n";
+        long dropped = uiEvents.takeDropped();
+        if (dropped > 0 || skipped[0] > 0) {
+            lines.addLast("[" + LOG_TIME_FORMAT.format(Instant.now()) + "] ⚠ Interface atrasada: "
+                    + (dropped + skipped[0]) + " eventos omitidos");
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
 
-        out.write(response.getBytes(StandardCharsets.UTF_8));
-        out.write(bodyBytes);
-        out.flush();
-    }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        logArea.append(text.toString());
 
-    private void sendResponse(OutputStream out, int statusCode, String statusMessage, String body) throws IOException {
-        sendResponse(out, statusCode, statusMessage, body, "text/html");
+        // Manter só as últimas historySize linhas
+        int excess = logArea.getLineCount() - 1 - historySize;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineStartOffset(excess));
+            } catch (BadLocationException ignored) {
+            }
+        }
+        logArea.setCaretPosition(logArea.getDocument().getLength());
     }
 
-    private void log(String message) {
-        SwingUtilities.invokeLater(() -> {
-            String timestamp = new SimpleDateFormat("HH:mm:ss").format(new Date());
-            logArea.append("[" + timestamp + "] " + message + "\n");
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+    // Só as últimas historySize linhas de um lote chegam à tela; as demais são contadas
+    private void addLogLine(ArrayDeque<String> lines, int[] skipped, long timeMillis, String message) {
+        if (lines.size() == historySize) {
+            lines.removeFirst();
+            skipped[0]++;
+        }
+        lines.addLast("[" + LOG_TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis)) + "] " + message);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example;
+
+/**
+ * Regras de conexão persistente (HTTP/1.1 keep-alive) compartilhadas pelos engines.
+ */
+public class KeepAlivePolicy {
+
+    private final int maxRequests;
+    private final int idleTimeoutMillis;
+
+    public KeepAlivePolicy(int maxRequests, int idleTimeoutMillis) {
+        this.maxRequests = maxRequests;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * HTTP/1.1 mantém a conexão aberta por padrão; HTTP/1.0 só com "Connection: keep-alive".
+     * Requisições com corpo que não será consumido ({@code bodyConsumed} false) encerram a conexão.
+     */
+    public boolean shouldKeepAlive(HttpRequest request, int requestsServed, boolean bodyConsumed) {
+        if (maxRequests <= 1 || requestsServed >= maxRequests) {
+            return false;
+        }
+
+        if (request.isConnectionClose()) {
+            return false;
+        }
+
+        if (!bodyConsumed && (request.hasHeader(HttpHeader.TRANSFER_ENCODING) || request.contentLength() > 0)) {
+            return false;
+        }
+
+        return request.isHttp11() || request.isConnectionKeepAlive();
+    }
+
+    public void apply(HttpResponse response, boolean keepAlive, int requestsServed) {
+        if (keepAlive) {
+            response.header("Connection", "keep-alive");
+            response.header("Keep-Alive", "timeout=" + Math.max(1, idleTimeoutMillis / 1000)
+                    + ", max=" + (maxRequests - requestsServed));
+        } else {
+            response.header("Connection", "close");
+        }
+    }
+
+}
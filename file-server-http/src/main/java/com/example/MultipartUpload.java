@@ -0,0 +1,230 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * POST multipart/form-data: cada parte com {@code filename} vira um arquivo no diretório
+ * de destino; campos comuns são ignorados. O corpo passa por um buffer fixo de 64 KB e é
+ * escrito no disco à medida que chega, guardando só o suficiente para reconhecer um
+ * delimitador partido entre duas leituras.
+ */
+public class MultipartUpload extends UploadSink {
+
+    private static final int WORK_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PART_HEADERS = 8192;
+    private static final int MAX_FILES = 64;
+    private static final Pattern BOUNDARY = Pattern.compile("(?i)boundary=(?:\"([^\"]+)\"|([^;\\s]+))");
+    private static final Pattern FILENAME = Pattern.compile("(?i);\\s*filename=(?:\"([^\"]*)\"|([^;\\s]*))");
+    private static final byte[] HEADERS_END = {'\r', '\n', '\r', '\n'};
+
+    private enum State { PREAMBLE, AFTER_DELIMITER, HEADERS, DATA, EPILOGUE }
+
+    private final File directory;
+    // "\r\n--boundary": o CRLF inicial faz parte do delimitador (RFC 2046, 5.1.1)
+    private final byte[] delimiter;
+    private final ByteBuffer work = ByteBuffer.allocate(WORK_BUFFER_SIZE);
+    private final List<SavedFile> saved = new ArrayList<>();
+
+    private State state = State.PREAMBLE;
+    private AtomicFileWriter writer;
+    private File target;
+
+    public MultipartUpload(File directory, String boundary, long maxBytes,
+                           Function<Result, HttpResponse> responder) {
+        super(maxBytes, responder);
+        this.directory = directory;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        // O primeiro delimitador vem sem o CRLF na frente
+        work.put((byte) '\r').put((byte) '\n');
+    }
+
+    // Boundary do Content-Type, ou null se não for multipart/form-data válido
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/form-data")) {
+            return null;
+        }
+        Matcher matcher = BOUNDARY.matcher(contentType);
+        if (!matcher.find()) {
+            return null;
+        }
+        String boundary = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+        return boundary.length() <= 70 ? boundary : null;
+    }
+
+    @Override
+    protected void receive(ByteBuffer data) throws IOException, HttpParseException {
+        while (data.hasRemaining()) {
+            int length = Math.min(data.remaining(), work.remaining());
+            work.put(work.position(), data, data.position(), length);
+            work.position(work.position() + length);
+            data.position(data.position() + length);
+
+            work.flip();
+            process();
+            work.compact();
+        }
+    }
+
+    private void process() throws IOException, HttpParseException {
+        while (true) {
+            switch (state) {
+                case PREAMBLE -> {
+                    int found = indexOf(delimiter);
+                    if (found < 0) {
+                        keepTail();
+                        return;
+                    }
+                    work.position(found + delimiter.length);
+                    state = State.AFTER_DELIMITER;
+                }
+                case AFTER_DELIMITER -> {
+                    if (work.remaining() < 2) {
+                        return;
+                    }
+                    byte first = work.get();
+                    byte second = work.get();
+                    if (first == '-' && second == '-') {
+                        state = State.EPILOGUE;
+                    } else if (first == '\r' && second == '\n') {
+                        state = State.HEADERS;
+                    } else {
+                        throw new HttpParseException(400, "Bad Request");
+                    }
+                }
+                case HEADERS -> {
+                    int found = indexOf(HEADERS_END);
+                    if (found < 0) {
+                        if (work.remaining() > MAX_PART_HEADERS) {
+                            throw new HttpParseException(431, "Request Header Fields Too Large");
+                        }
+                        return;
+                    }
+                    byte[] headers = new byte[found - work.position()];
+                    work.get(headers);
+                    work.position(found + HEADERS_END.length);
+                    startPart(new String(headers, StandardCharsets.UTF_8));
+                    state = State.DATA;
+                }
+                case DATA -> {
+                    int found = indexOf(delimiter);
+                    if (found < 0) {
+                        // Tudo menos o que ainda pode ser o começo de um delimitador vai para o disco
+                        int safeEnd = Math.max(work.position(), work.limit() - (delimiter.length - 1));
+                        writePart(safeEnd);
+                        return;
+                    }
+                    writePart(found);
+                    endPart();
+                    work.position(found + delimiter.length);
+                    state = State.AFTER_DELIMITER;
+                }
+                case EPILOGUE -> {
+                    work.position(work.limit());
+                    return;
+                }
+            }
+        }
+    }
+
+    private void startPart(String headers) throws IOException, HttpParseException {
+        String filename = null;
+        for (String line : headers.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Disposition:", 0, 20)) {
+                Matcher matcher = FILENAME.matcher(line);
+                if (matcher.find()) {
+                    filename = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+                }
+            }
+        }
+        if (filename == null || filename.isEmpty()) {
+            // Campo comum do formulário (ou input file vazio): dados descartados
+            return;
+        }
+        if (saved.size() == MAX_FILES) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+
+        target = new File(directory, safeFileName(filename));
+        writer = new AtomicFileWriter(directory.toPath());
+    }
+
+    private void writePart(int end) throws IOException {
+        if (writer == null) {
+            work.position(end);
+            return;
+        }
+        ByteBuffer slice = work.slice(work.position(), end - work.position());
+        work.position(end);
+        writer.write(slice);
+    }
+
+    private void endPart() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        boolean replaced = target.exists();
+        writer.commit(target.toPath());
+        saved.add(new SavedFile(target, writer.getSize(), replaced));
+        writer = null;
+        target = null;
+    }
+
+    // Navegadores antigos mandam o caminho completo ("C:\fotos\a.png"): fica só o nome
+    static String safeFileName(String filename) throws HttpParseException {
+        String name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1).trim();
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.startsWith(AtomicFileWriter.TEMP_PREFIX)) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isISOControl(name.charAt(i))) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+        }
+        return name;
+    }
+
+    // PREAMBLE: descarta o que já foi visto, menos um possível delimitador incompleto
+    private void keepTail() {
+        work.position(Math.max(work.position(), work.limit() - (delimiter.length - 1)));
+    }
+
+    private int indexOf(byte[] pattern) {
+        byte[] data = work.array();
+        int last = work.limit() - pattern.length;
+        outer:
+        for (int i = work.position(); i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    protected List<SavedFile> complete() throws HttpParseException {
+        if (state != State.EPILOGUE) {
+            throw new HttpParseException(400, "Bad Request");
+        }
+        return saved;
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * PUT: o corpo inteiro é o conteúdo do arquivo de destino.
+ */
+public class PutUpload extends UploadSink {
+
+    private final File target;
+    private final AtomicFileWriter writer;
+
+    public PutUpload(File target, long maxBytes, Function<Result, HttpResponse> responder) throws IOException {
+        super(maxBytes, responder);
+        this.target = target;
+        this.writer = new AtomicFileWriter(target.getParentFile().toPath());
+    }
+
+    @Override
+    protected void receive(ByteBuffer data) throws IOException {
+        writer.write(data);
+    }
+
+    @Override
+    protected List<SavedFile> complete() throws IOException {
+        boolean replaced = target.exists();
+        writer.commit(target.toPath());
+        return List.of(new SavedFile(target, writer.getSize(), replaced));
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+}
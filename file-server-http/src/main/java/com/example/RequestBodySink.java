@@ -0,0 +1,24 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Destino do corpo de uma requisição (PUT/POST). O engine decodifica o corpo
+ * (Content-Length ou chunked) com {@link BodyDecoder} e entrega os bytes aos poucos,
+ * conforme chegam do socket; nada do corpo precisa ficar inteiro em memória.
+ */
+public interface RequestBodySink extends Closeable {
+
+    // Consome todos os bytes restantes de data
+    void write(ByteBuffer data) throws IOException, HttpParseException;
+
+    // Corpo terminou: conclui o trabalho e devolve a resposta
+    HttpResponse finish() throws IOException, HttpParseException;
+
+    // Descarta o que foi recebido se finish() não chegou a ser concluído
+    @Override
+    void close();
+
+}
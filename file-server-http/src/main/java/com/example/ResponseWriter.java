@@ -0,0 +1,212 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Escreve uma {@link HttpResponse} em um canal, trecho por trecho.
+ * Em canais não bloqueantes {@link #write()} devolve false quando o socket enche,
+ * e deve ser chamado de novo no próximo OP_WRITE.
+ *
+ * Headers e corpos em memória passam por um buffer direto do {@link BufferPool}: os headers são
+ * codificados nele e um corpo pequeno vai junto na mesma escrita. O buffer volta ao pool no
+ * {@link #close()}.
+ */
+public class ResponseWriter implements Closeable {
+
+    // Espaço para o corpo em memória além dos headers
+    private static final int STAGING_SIZE = 16 * 1024;
+
+    private final HttpResponse response;
+    private final WritableByteChannel channel;
+    private final List<HttpResponse.Segment> segments;
+    private final long start = System.nanoTime();
+
+    private BufferPool.Lease staging;
+    // Bytes prontos para o socket (modo leitura)
+    private final ByteBuffer out;
+    // Corpo em memória ainda não copiado para o buffer direto
+    private ByteBuffer source;
+    private int segmentIndex = 0;
+    private FileTransfer currentTransfer;
+    private FileChannel fileChannel;
+    private boolean zeroCopy;
+    private HttpResponse.BodyStream stream;
+    private long streamedBytes = 0;
+    private Runnable progress;
+    private BandwidthLimiter.Throttle throttle;
+
+    public ResponseWriter(HttpResponse response, WritableByteChannel channel) {
+        this.response = response;
+        this.channel = channel;
+        this.segments = response.getSegments();
+        this.stream = response.getStream();
+        this.staging = response.headerBuffer(BufferPool.shared(), stagingExtra());
+        this.out = staging.buffer().flip();
+    }
+
+    public HttpResponse getResponse() {
+        return response;
+    }
+
+    // Chamado a cada escrita que avançou; usado para detectar clientes que pararam de ler
+    public ResponseWriter onProgress(Runnable progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    // Limite de banda da resposta (headers inclusos)
+    public ResponseWriter throttle(BandwidthLimiter.Throttle throttle) {
+        this.throttle = throttle;
+        return this;
+    }
+
+    /**
+     * Depois de um {@link #write()} que devolveu false: quanto falta para haver tokens, ou 0 se
+     * quem parou foi o socket (aguardar OP_WRITE).
+     */
+    public long getThrottleNanos() {
+        return throttle != null ? throttle.delayNanos() : 0;
+    }
+
+    // Retorna true quando a resposta foi totalmente escrita
+    public boolean write() throws IOException {
+        while (true) {
+            fill();
+            if (out.hasRemaining()) {
+                if (!writeOut()) {
+                    return false;
+                }
+                continue;
+            }
+
+            if (currentTransfer != null) {
+                if (!currentTransfer.writeTo(channel)) {
+                    return false;
+                }
+                zeroCopy |= currentTransfer.isZeroCopy();
+                currentTransfer.release();
+                currentTransfer = null;
+            }
+
+            if (segmentIndex >= segments.size()) {
+                // Corpo gerado aos poucos: o próximo trecho só é pedido quando o anterior saiu
+                if (stream != null) {
+                    byte[] next = stream.next();
+                    if (next == null) {
+                        stream = null;
+                        if (response.isChunked()) {
+                            source = ByteBuffer.wrap(HttpResponse.LAST_CHUNK);
+                            streamedBytes += HttpResponse.LAST_CHUNK.length;
+                        }
+                    } else if (next.length > 0) {
+                        source = ByteBuffer.wrap(response.isChunked() ? HttpResponse.chunk(next) : next);
+                        streamedBytes += source.remaining();
+                    }
+                    continue;
+                }
+                // Com TLS o último registro cifrado pode ainda estar no buffer do canal
+                if (channel instanceof TlsChannel secure && !secure.flush()) {
+                    return false;
+                }
+                response.recordTransfer(response.getContentLength() + streamedBytes, System.nanoTime() - start, zeroCopy);
+                releaseStaging();
+                return true;
+            }
+
+            // Apenas as fatias pedidas do arquivo são lidas do disco
+            HttpResponse.Segment segment = segments.get(segmentIndex++);
+            if (segment.isFile()) {
+                if (fileChannel == null) {
+                    fileChannel = FileChannel.open(response.getFile().toPath(), StandardOpenOption.READ);
+                }
+                currentTransfer = new FileTransfer(fileChannel, segment.offset(), segment.length(), channel)
+                        .onProgress(progress).throttle(throttle);
+            } else {
+                source = ByteBuffer.wrap(segment.bytes());
+            }
+        }
+    }
+
+    // Quanto do corpo em memória cabe junto com os headers logo no primeiro buffer
+    private int stagingExtra() {
+        if (stream != null) {
+            return STAGING_SIZE;
+        }
+        if (!segments.isEmpty() && !segments.get(0).isFile()) {
+            return Math.min(segments.get(0).bytes().length, STAGING_SIZE);
+        }
+        return 0;
+    }
+
+    // Copia o corpo em memória para o espaço livre do buffer direto (o corpo pega carona nos headers)
+    private void fill() {
+        if (source == null || !source.hasRemaining() || out.limit() == out.capacity() && out.position() == 0) {
+            return;
+        }
+        out.compact();
+        int count = Math.min(out.remaining(), source.remaining());
+        out.put(source.array(), source.arrayOffset() + source.position(), count);
+        source.position(source.position() + count);
+        out.flip();
+    }
+
+    // Retorna false quando o socket encheu ou faltaram tokens
+    private boolean writeOut() throws IOException {
+        long allowed = throttle != null ? throttle.allowance(out.remaining()) : out.remaining();
+        if (allowed == 0) {
+            return false;
+        }
+        int limit = out.limit();
+        out.limit(out.position() + (int) allowed);
+        int written = channel.write(out);
+        out.limit(limit);
+        if (written > 0) {
+            consumed(written);
+            progressed();
+        }
+        return written == allowed;
+    }
+
+    private void consumed(long bytes) {
+        if (throttle != null) {
+            throttle.consumed(bytes);
+        }
+    }
+
+    private void progressed() {
+        if (progress != null) {
+            progress.run();
+        }
+    }
+
+    private void releaseStaging() {
+        if (staging != null) {
+            staging.release();
+            staging = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        releaseStaging();
+        if (currentTransfer != null) {
+            currentTransfer.release();
+        }
+        if (response.getStream() != null) {
+            response.getStream().close();
+        }
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+}
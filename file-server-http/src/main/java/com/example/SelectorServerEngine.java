@@ -0,0 +1,723 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Engine não bloqueante: poucas threads de event loop, cada uma com seu {@link Selector},
+ * multiplexam todas as conexões. Nenhuma thread fica presa esperando um cliente lento.
+ * Conexões HTTP/2 saem do selector: o canal volta ao modo bloqueante e passa para um
+ * {@link Http2Connection} numa virtual thread. Com {@link AdmissionControl} a fila de conexões
+ * aceitas à espera do registro num event loop é limitada e a espera nela passa pelo CoDel.
+ * Os prazos das conexões ({@link ConnectionTimeouts}) ficam numa {@link TimerWheel}; o que vence
+ * volta como tarefa para o event loop dono da conexão, sem varrer todas as chaves do selector.
+ */
+public class SelectorServerEngine implements ServerEngine {
+
+    private final HttpRequestHandler handler;
+    private final Consumer<String> log;
+    private final int eventLoopCount;
+    private final KeepAlivePolicy keepAlivePolicy;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private TlsContext tls;
+    private int http2MaxStreams = 0;
+    private AdmissionControl admission;
+    private ConnectionTimeouts timeouts;
+    private TimerWheel wheel;
+    private boolean reusePort = false;
+    private BandwidthLimiter bandwidth;
+    // Conexões aceitas ainda não registradas em um event loop
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] eventLoops;
+    private int nextLoop = 0;
+    private volatile boolean isRunning = false;
+
+    public SelectorServerEngine(HttpRequestHandler handler, Consumer<String> log, int eventLoopCount,
+                                KeepAlivePolicy keepAlivePolicy) {
+        this.handler = handler;
+        this.log = log;
+        this.eventLoopCount = Math.max(1, eventLoopCount);
+        this.keepAlivePolicy = keepAlivePolicy;
+        this.timeouts = ConnectionTimeouts.withDefaults(keepAlivePolicy);
+    }
+
+    // HTTPS em todas as conexões (null = texto puro); chamar antes do start
+    public SelectorServerEngine useTls(TlsContext tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    // h2c (conhecimento prévio ou Upgrade) com até maxConcurrentStreams por conexão; 0 desativa
+    public SelectorServerEngine useHttp2(int maxConcurrentStreams) {
+        this.http2MaxStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    // Fila limitada, limite por IP e CoDel (null = sem controle de admissão)
+    public SelectorServerEngine useAdmission(AdmissionControl admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    // Prazos de cabeçalhos, corpo, escrita e keep-alive; chamar antes do start
+    public SelectorServerEngine useTimeouts(ConnectionTimeouts timeouts) {
+        this.timeouts = timeouts;
+        return this;
+    }
+
+    // SO_REUSEPORT: vários engines escutando na mesma porta, com o kernel dividindo as conexões
+    public SelectorServerEngine useReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+        return this;
+    }
+
+    // Limite de banda das respostas (por conexão, por IP e global), ajustável em execução
+    public SelectorServerEngine useBandwidth(BandwidthLimiter bandwidth) {
+        this.bandwidth = bandwidth;
+        return this;
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        wheel = timeouts.newWheel(log);
+        serverChannel = ServerSocketChannel.open();
+        if (reusePort) {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        serverChannel.bind(new InetSocketAddress(port), BlockingServerEngine.ACCEPT_BACKLOG);
+        serverChannel.configureBlocking(false);
+        isRunning = true;
+
+        eventLoops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++) {
+            eventLoops[i] = new EventLoop();
+        }
+        // O primeiro event loop também é o acceptor
+        serverChannel.register(eventLoops[0].selector, SelectionKey.OP_ACCEPT);
+
+        for (int i = 0; i < eventLoopCount; i++) {
+            new Thread(eventLoops[i], "selector-loop-" + i).start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        isRunning = false;
+
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException ex) {
+            log.accept("Erro ao parar servidor: " + ex.getMessage());
+        }
+        if (wheel != null) {
+            wheel.close();
+        }
+
+        if (eventLoops != null) {
+            for (EventLoop loop : eventLoops) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    @Override
+    public int activeConnections() {
+        return activeConnections.get();
+    }
+
+    @Override
+    public long acceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    @Override
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            acceptedConnections.increment();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            String clientAddress;
+            if (admission == null) {
+                clientAddress = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+            } else {
+                clientAddress = admission.admit(channel, tls == null);
+                if (clientAddress == null) {
+                    continue;
+                }
+                // Event loops atrasados: 503 imediato em vez de acumular conexões sem dono
+                if (queued.get() >= admission.getQueueCapacity()) {
+                    admission.release(clientAddress);
+                    admission.reject(channel, AdmissionControl.Reason.QUEUE_FULL, tls == null);
+                    continue;
+                }
+            }
+
+            // Distribuir conexões entre os event loops (round-robin)
+            EventLoop loop = eventLoops[nextLoop];
+            nextLoop = (nextLoop + 1) % eventLoops.length;
+            queued.incrementAndGet();
+            loop.enqueue(new Accepted(channel, clientAddress, System.nanoTime()));
+        }
+    }
+
+    private void release(String clientAddress) {
+        if (admission != null) {
+            admission.release(clientAddress);
+        }
+    }
+
+    // Conexão aceita à espera do registro, com o instante do accept para medir a espera
+    private record Accepted(SocketChannel channel, String clientAddress, long acceptedNanos) {
+    }
+
+    // Tarefa adiada do event loop (conexão esperando tokens de banda)
+    private record Deferred(long deadline, Runnable task) {
+    }
+
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<Accepted> pending = new ConcurrentLinkedQueue<>();
+        // Conexões que viraram HTTP/2 nesta volta do loop, à espera de sair do selector
+        private final List<Runnable> handoffs = new ArrayList<>();
+        // Tarefas de outras threads (timeouts vencidos) a executar no event loop
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // Só o event loop mexe; o select dorme no máximo até o primeiro prazo
+        private final PriorityQueue<Deferred> deferred = new PriorityQueue<>(Comparator.comparingLong(Deferred::deadline));
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void enqueue(Accepted accepted) {
+            pending.add(accepted);
+            selector.wakeup();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        // No event loop: roda task daqui a delayNanos
+        void schedule(long delayNanos, Runnable task) {
+            deferred.add(new Deferred(System.nanoTime() + delayNanos, task));
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (isRunning) {
+                    selector.select(selectTimeout());
+                    registerPending();
+                    runTasks();
+                    runDeferred();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        process(key);
+                    }
+                    startHandoffs();
+                }
+            } catch (IOException ex) {
+                log.accept("Erro no event loop: " + ex.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection connection) {
+                        connection.close();
+                    } else {
+                        closeQuietly(key.channel());
+                    }
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        private void registerPending() {
+            Accepted accepted;
+            while ((accepted = pending.poll()) != null) {
+                queued.decrementAndGet();
+                SocketChannel channel = accepted.channel();
+                if (admission != null && admission.shouldShed(System.nanoTime() - accepted.acceptedNanos())) {
+                    admission.release(accepted.clientAddress());
+                    admission.reject(channel, AdmissionControl.Reason.CODEL, tls == null);
+                    continue;
+                }
+                Connection connection = null;
+                try {
+                    connection = new Connection(channel, accepted.clientAddress(), this);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    activeConnections.incrementAndGet();
+                    // A primeira requisição (e o handshake TLS) tem o prazo de cabeçalhos desde o accept
+                    connection.watch.enter(ConnectionTimeouts.Phase.HEADER);
+                } catch (IOException | RuntimeException ex) {
+                    release(accepted.clientAddress());
+                    if (connection != null) {
+                        closeQuietly(connection.throttle);
+                        connection.releaseInput();
+                    }
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        // O canal só pode voltar ao modo bloqueante depois que o selector descartar a chave cancelada
+        private void startHandoffs() throws IOException {
+            if (handoffs.isEmpty()) {
+                return;
+            }
+            selector.selectNow();
+            for (Runnable handoff : handoffs) {
+                Thread.ofVirtual().name("h2-connection").start(handoff);
+            }
+            handoffs.clear();
+        }
+
+        private long selectTimeout() {
+            Deferred next = deferred.peek();
+            if (next == null) {
+                return 1000;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(next.deadline() - System.nanoTime() + 999_999);
+            return Math.max(1, Math.min(millis, 1000));
+        }
+
+        private void runDeferred() {
+            long now = System.nanoTime();
+            while (!deferred.isEmpty() && deferred.peek().deadline() <= now) {
+                runGuarded(deferred.poll().task());
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                runGuarded(task);
+            }
+        }
+
+        // Uma tarefa com defeito não pode derrubar o event loop (e todas as conexões dele)
+        private void runGuarded(Runnable task) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.accept("❌ Erro numa tarefa do event loop: " + ex);
+            }
+        }
+
+        private void process(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+
+            if (key.isAcceptable()) {
+                try {
+                    accept();
+                } catch (IOException | RuntimeException ex) {
+                    if (isRunning) {
+                        log.accept("Erro ao aceitar conexão: " + ex.getMessage());
+                    }
+                }
+                return;
+            }
+
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+            } catch (IOException ex) {
+                log.accept("❌ Erro na conexão com " + connection.clientAddress + ": " + ex.getMessage());
+                connection.close();
+            } catch (RuntimeException ex) {
+                // Bug ao atender esta conexão: fecha só ela, o event loop segue com as outras
+                log.accept("❌ Erro inesperado na conexão com " + connection.clientAddress + ": " + ex);
+                connection.close();
+            }
+        }
+    }
+
+    private class Connection {
+
+        private final SocketChannel channel;
+        // Canal usado para ler e escrever: o próprio socket ou o TLS por cima dele
+        private final ByteChannel io;
+        private final TlsChannel secure;
+        private final String clientAddress;
+        private final EventLoop loop;
+        private SelectionKey key;
+
+        private final HttpRequestParser parser = new HttpRequestParser();
+        // Buffer de leitura do pool, devolvido quando a conexão fecha ou passa para o HTTP/2
+        private BufferPool.Lease inLease;
+        private ByteBuffer in;
+        private final ConnectionTimeouts.Watch watch;
+        private final BandwidthLimiter.Throttle throttle;
+        // Keep-alive sem nenhum byte da próxima requisição
+        private boolean idle = false;
+        private boolean closed = false;
+        private int requestsServed = 0;
+        private boolean keepAlive = true;
+
+        // Corpo em recepção (upload): o decoder entrega ao sink o que chegar a cada leitura
+        private BodyDecoder bodyDecoder;
+        private RequestBodySink bodySink;
+
+        // Resposta em andamento
+        private ResponseWriter writer;
+
+        Connection(SocketChannel channel, String clientAddress, EventLoop loop) throws IOException {
+            this.channel = channel;
+            this.loop = loop;
+            this.secure = tls != null ? tls.wrap(channel) : null;
+            this.io = secure != null ? secure : channel;
+            this.clientAddress = clientAddress;
+            this.watch = timeouts.watch(wheel, phase -> loop.execute(() -> timedOut(phase)));
+            this.throttle = bandwidth != null ? bandwidth.open(clientAddress) : null;
+            // Por último: se algo acima falhar, não há buffer a devolver
+            this.inLease = BufferPool.shared().acquire(HttpRequestParser.INITIAL_BUFFER_SIZE);
+            this.in = inLease.buffer();
+        }
+
+        // No event loop, quando um prazo venceu
+        private void timedOut(ConnectionTimeouts.Phase phase) {
+            if (closed) {
+                return;
+            }
+            if (phase != ConnectionTimeouts.Phase.IDLE) {
+                log.accept("⏱ Tempo esgotado (" + phase.getLabel() + ") na conexão com " + clientAddress);
+            }
+            close();
+        }
+
+        void onReadable() throws IOException {
+            // Registros TLS já lidos do socket não geram novo OP_READ: consumir tudo aqui
+            do {
+                if (writer != null || closed) {
+                    return;
+                }
+
+                int read = io.read(in);
+                if (read == -1) {
+                    close();
+                    return;
+                }
+                if (read > 0) {
+                    watch.progress();
+                    if (idle) {
+                        // O prazo de cabeçalhos conta do primeiro byte da requisição
+                        idle = false;
+                        watch.enter(ConnectionTimeouts.Phase.HEADER);
+                    }
+                }
+
+                serveBuffered();
+            } while (secure != null && channel.isOpen() && in.hasRemaining() && secure.hasBufferedInput());
+
+            // Handshake com resposta que não coube no socket: esperar OP_WRITE para terminar de enviar
+            if (secure != null && writer == null && channel.isOpen() && secure.hasPendingOutput()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void onWritable() throws IOException {
+            if (writer == null) {
+                // Só o handshake TLS estava pendente
+                if (secure != null && secure.flush()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    onReadable();
+                }
+                return;
+            }
+            if (writer.write()) {
+                finishResponse();
+                serveBuffered();
+                if (secure != null && writer == null && channel.isOpen() && secure.hasBufferedInput()) {
+                    onReadable();
+                }
+            } else {
+                awaitWrite();
+            }
+        }
+
+        // Socket cheio: aguardar o próximo OP_WRITE. Sem tokens de banda: sair do selector
+        // (o socket continua gravável) e voltar pelo prazo do event loop
+        private void awaitWrite() {
+            long wait = writer.getThrottleNanos();
+            if (wait > 0) {
+                key.interestOps(0);
+                loop.schedule(wait, this::resumeWrite);
+            } else {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void resumeWrite() {
+            if (closed || writer == null) {
+                return;
+            }
+            try {
+                onWritable();
+            } catch (IOException ex) {
+                log.accept("❌ Erro na conexão com " + clientAddress + ": " + ex.getMessage());
+                close();
+            }
+        }
+
+        // Atende, em ordem, todas as requisições completas já recebidas (pipelining)
+        private void serveBuffered() throws IOException {
+            while (writer == null && channel.isOpen() && !closed) {
+                if (bodySink != null) {
+                    if (!receiveBody()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                // HTTP/2 por conhecimento prévio: a conexão começa com o prefácio em vez de uma requisição
+                if (http2MaxStreams > 0 && secure == null && requestsServed == 0) {
+                    int preface = Http2Frame.matchPreface(in);
+                    if (preface == 0) {
+                        return;
+                    }
+                    if (preface > 0) {
+                        handOff(http2Connection());
+                        return;
+                    }
+                }
+
+                int headLength;
+                try {
+                    headLength = parser.parse(in, 0, in.position());
+                } catch (HttpParseException ex) {
+                    keepAlive = false;
+                    startResponse(handler.error(ex.getStatusCode(), ex.getMessage()));
+                    return;
+                }
+                if (headLength < 0) {
+                    inLease = HttpRequestParser.ensureSpace(BufferPool.shared(), inLease);
+                    in = inLease.buffer();
+                    return;
+                }
+
+                HttpRequest request = parser.request();
+                requestsServed++;
+
+                // "Upgrade: h2c": esta requisição é respondida já como o stream 1 do HTTP/2
+                if (http2MaxStreams > 0 && secure == null && Http2Connection.isUpgrade(request)) {
+                    Http2Connection connection = http2Connection();
+                    connection.upgrade(request);
+                    consume(headLength);
+                    handOff(connection);
+                    return;
+                }
+
+                // Corpo (PUT/POST): o handler decide antes se quer recebê-lo
+                RequestBodySink body = null;
+                boolean expectsContinue = false;
+                if (request.hasBody()) {
+                    try {
+                        bodyDecoder = BodyDecoder.forRequest(request);
+                        body = handler.openBody(request, clientAddress);
+                    } catch (HttpParseException ex) {
+                        keepAlive = false;
+                        startResponse(handler.error(ex.getStatusCode(), ex.getMessage()));
+                        return;
+                    }
+                    expectsContinue = request.expectsContinue();
+                }
+                keepAlive = isRunning && keepAlivePolicy.shouldKeepAlive(request, requestsServed, body != null);
+
+                if (body != null) {
+                    consume(headLength);
+                    bodySink = body;
+                    watch.enter(ConnectionTimeouts.Phase.BODY);
+                    if (expectsContinue) {
+                        sendContinue();
+                    }
+                    continue;
+                }
+
+                HttpResponse response = handler.handle(request, clientAddress);
+                // A visão da requisição aponta para o buffer: só descartar depois do handle
+                consume(headLength);
+                startResponse(response);
+            }
+        }
+
+        private Http2Connection http2Connection() {
+            return new Http2Connection(channel, clientAddress, handler, log, http2MaxStreams,
+                    keepAlivePolicy.getIdleTimeoutMillis(), () -> isRunning).throttle(throttle);
+        }
+
+        // A conexão deixa o event loop; a contagem de conexões ativas só cai quando o HTTP/2 terminar
+        private void handOff(Http2Connection connection) {
+            closed = true;
+            // O HTTP/2 cuida da própria ociosidade
+            watch.stop();
+            key.cancel();
+            // O que já chegou é copiado para fora do buffer do pool antes de devolvê-lo
+            ByteBuffer received = ByteBuffer.allocate(in.position()).put(in.flip());
+            releaseInput();
+            loop.handoffs.add(() -> {
+                try {
+                    channel.configureBlocking(true);
+                    connection.serve(received);
+                } catch (IOException ex) {
+                    log.accept("❌ Erro na conexão com " + clientAddress + ": " + ex.getMessage());
+                } finally {
+                    activeConnections.decrementAndGet();
+                    release(clientAddress);
+                    closeQuietly(throttle);
+                    closeQuietly(channel);
+                }
+            });
+        }
+
+        // Repassa ao sink o corpo já lido; true quando o corpo terminou e a resposta foi iniciada
+        private boolean receiveBody() throws IOException {
+            HttpResponse response;
+            try {
+                in.flip();
+                boolean done = bodyDecoder.decode(in, bodySink);
+                in.compact();
+                if (!done) {
+                    if (in.capacity() < BlockingServerEngine.BODY_BUFFER_SIZE) {
+                        inLease = BufferPool.shared().grow(inLease, BlockingServerEngine.BODY_BUFFER_SIZE);
+                        in = inLease.buffer();
+                    }
+                    return false;
+                }
+                response = bodySink.finish();
+            } catch (HttpParseException ex) {
+                // Corpo inválido ou grande demais: o resto dele não será lido, a conexão termina
+                keepAlive = false;
+                response = handler.error(ex.getStatusCode(), ex.getMessage());
+            }
+            closeBody();
+            startResponse(response);
+            return true;
+        }
+
+        // "100 Continue" é minúsculo: se nem ele coube no socket, o cliente não está lendo
+        private void sendContinue() throws IOException {
+            ByteBuffer interim = ByteBuffer.wrap(HttpResponse.CONTINUE);
+            io.write(interim);
+            if (interim.hasRemaining() || (secure != null && secure.hasPendingOutput())) {
+                throw new IOException("socket cheio ao enviar 100 Continue");
+            }
+        }
+
+        private void closeBody() {
+            if (bodySink != null) {
+                bodySink.close();
+                bodySink = null;
+                bodyDecoder = null;
+            }
+        }
+
+        private void consume(int length) {
+            in.flip();
+            in.position(length);
+            in.compact();
+        }
+
+        private void startResponse(HttpResponse response) throws IOException {
+            // Corpo sem tamanho conhecido para um cliente HTTP/1.0: termina com a conexão
+            keepAlive &= !response.closesConnection();
+            keepAlivePolicy.apply(response, keepAlive, requestsServed);
+            watch.enter(ConnectionTimeouts.Phase.WRITE);
+            writer = new ResponseWriter(response, io).onProgress(watch::progress).throttle(throttle);
+
+            if (writer.write()) {
+                finishResponse();
+            } else {
+                awaitWrite();
+            }
+        }
+
+        private void finishResponse() {
+            handler.completed(writer.getResponse(), clientAddress);
+            writer.close();
+            writer = null;
+
+            if (!keepAlive) {
+                close();
+                return;
+            }
+            // Requisição seguinte já no buffer (pipelining): direto para o prazo de cabeçalhos
+            idle = in.position() == 0;
+            watch.enter(idle ? ConnectionTimeouts.Phase.IDLE : ConnectionTimeouts.Phase.HEADER);
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            watch.stop();
+            activeConnections.decrementAndGet();
+            release(clientAddress);
+            if (key != null) {
+                key.cancel();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            closeBody();
+            closeQuietly(throttle);
+            closeQuietly(io);
+            releaseInput();
+        }
+
+        private void releaseInput() {
+            if (inLease != null) {
+                inLease.release();
+                inLease = null;
+                in = null;
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+}
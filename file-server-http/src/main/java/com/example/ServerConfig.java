@@ -0,0 +1,591 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Configuração do {@link FileServer}, montada a partir de um arquivo .properties
+ * e/ou de argumentos de linha de comando (que têm precedência):
+ *
+ * <pre>
+ * --config=server.properties --port=8080 --webroot=/srv/www --engine=selector
+ * --pool-size=4 --shards=1 --cache-mb=64 --keepalive-max=100 --keepalive-idle=5 --cache-control="..."
+ * --header-timeout=10 --body-timeout=30 --write-timeout=30
+ * --upload-max-mb=100 --manifest=true --manifest-file=/srv/.www.manifest --gui
+ * --access-log=/var/log/fileserver/access.log --access-log-format=clf --access-log-max-mb=64
+ * --tls --tls-keystore=~/.fileserver/keystore.p12 --tls-password=changeit
+ * --tls-session-cache=20480 --tls-session-timeout=86400 --tls-tickets=true
+ * --http2=true --http2-max-streams=100
+ * --accept-queue=256 --max-per-ip=256 --codel-target-ms=100 --codel-interval-ms=1000 --retry-after=1
+ * --bandwidth-connection-kb=0 --bandwidth-ip-kb=0 --bandwidth-global-kb=0
+ * </pre>
+ *
+ * No arquivo as chaves são as mesmas, sem os dois traços ({@code port=8080}).
+ * Valores inválidos geram {@link IllegalArgumentException} com a mensagem para o usuário.
+ */
+public class ServerConfig {
+
+    public enum Engine {
+        BLOCKING("Bloqueante (pool de threads)"),
+        VIRTUAL("Bloqueante (virtual threads)"),
+        SELECTOR("Selector (NIO)");
+
+        private final String label;
+
+        Engine(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Engine parse(String value) {
+            for (Engine engine : values()) {
+                if (engine.name().equalsIgnoreCase(value.trim()) || engine.label.equals(value)) {
+                    return engine;
+                }
+            }
+            throw new IllegalArgumentException("Engine inválido: " + value + " (use blocking, virtual ou selector)");
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private int port = 8080;
+    private File webRoot;
+    private Engine engine = Engine.BLOCKING;
+    // Threads do pool (engine bloqueante) ou event loops (selector); 0 = padrão do engine
+    private int poolSize = 0;
+    // Canais de escuta com SO_REUSEPORT na mesma porta, cada um com acceptor e pool próprios
+    private int shards = 1;
+    private long cacheBudgetMb = 64;
+    // Manifesto do webroot (tamanhos, datas, tipos e hashes); sem arquivo, fica ao lado do webroot
+    private boolean manifest = true;
+    private File manifestFile;
+    // Access log (null = desligado), formato (clf ou binary) e tamanho de cada arquivo antes da rotação
+    private File accessLog;
+    private AccessLog.Format accessLogFormat = AccessLog.Format.CLF;
+    private long accessLogMaxMb = 64;
+    private int keepAliveMaxRequests = 100;
+    private int keepAliveIdleSeconds = 5;
+    // Prazos (segundos): cabeçalhos completos, corpo sem chegar nada, resposta sem andar
+    private int headerTimeoutSeconds = ConnectionTimeouts.DEFAULT_HEADER_MILLIS / 1000;
+    private int bodyTimeoutSeconds = ConnectionTimeouts.DEFAULT_BODY_MILLIS / 1000;
+    private int writeTimeoutSeconds = ConnectionTimeouts.DEFAULT_WRITE_MILLIS / 1000;
+    private String cacheControlRules = CacheControlPolicy.DEFAULT_RULES;
+    // Limite de cada upload (PUT/POST); 0 desativa uploads
+    private long uploadMaxMb = 100;
+    // HTTPS: keystore PKCS12 (gerado na primeira vez se não existir) e retomada de sessões
+    private boolean tls = false;
+    private File tlsKeystore = new File(System.getProperty("user.home"), ".fileserver" + File.separator + "keystore.p12");
+    private String tlsPassword = "changeit";
+    private int tlsSessionCache = 20480;
+    private int tlsSessionTimeout = 86400;
+    private boolean tlsTickets = true;
+    // HTTP/2 em texto puro (h2c) nas conexões sem TLS e o limite de streams simultâneos por conexão
+    private boolean http2 = true;
+    private int http2MaxStreams = 100;
+    // Admissão: fila de conexões à espera de thread, conexões por IP (0 = sem limite),
+    // alvo e intervalo do CoDel (intervalo 0 desativa o descarte) e o Retry-After do 503
+    private int acceptQueue = 256;
+    private int maxPerIp = 256;
+    private int codelTargetMs = 100;
+    private int codelIntervalMs = 1000;
+    private int retryAfterSeconds = 1;
+    // Limites de banda das respostas em KB/s (0 = sem limite); ajustáveis com o servidor rodando
+    private long bandwidthConnectionKb = 0;
+    private long bandwidthIpKb = 0;
+    private long bandwidthGlobalKb = 0;
+    // Abrir a janela Swing como monitor (só usado pelo FileServerMain)
+    private boolean gui = false;
+
+    public static ServerConfig fromArgs(String[] args) throws IOException {
+        Properties properties = new Properties();
+        Properties overrides = new Properties();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg);
+            }
+            String key;
+            String value;
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                key = arg.substring(2, equals);
+                value = arg.substring(equals + 1);
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                key = arg.substring(2);
+                value = args[++i];
+            } else {
+                // Flag sem valor (ex.: --gui)
+                key = arg.substring(2);
+                value = "true";
+            }
+
+            if (key.equals("config")) {
+                try (Reader reader = Files.newBufferedReader(Path.of(value), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } else {
+                overrides.setProperty(key, value);
+            }
+        }
+
+        properties.putAll(overrides);
+        return fromProperties(properties);
+    }
+
+    public static ServerConfig fromProperties(Properties properties) {
+        ServerConfig config = new ServerConfig();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            switch (key) {
+                case "port" -> config.setPort(parseInt(key, value));
+                case "webroot" -> config.setWebRoot(new File(value));
+                case "engine" -> config.setEngine(Engine.parse(value));
+                case "pool-size" -> config.setPoolSize(parseInt(key, value));
+                case "shards" -> config.setShards(parseInt(key, value));
+                case "cache-mb" -> config.setCacheBudgetMb(parseInt(key, value));
+                case "manifest" -> config.setManifest(Boolean.parseBoolean(value));
+                case "manifest-file" -> config.setManifestFile(new File(value));
+                case "access-log" -> config.setAccessLog(value.isEmpty() ? null : new File(value));
+                case "access-log-format" -> config.setAccessLogFormat(AccessLog.Format.parse(value));
+                case "access-log-max-mb" -> config.setAccessLogMaxMb(parseInt(key, value));
+                case "keepalive-max" -> config.setKeepAliveMaxRequests(parseInt(key, value));
+                case "keepalive-idle" -> config.setKeepAliveIdleSeconds(parseInt(key, value));
+                case "header-timeout" -> config.setHeaderTimeoutSeconds(parseInt(key, value));
+                case "body-timeout" -> config.setBodyTimeoutSeconds(parseInt(key, value));
+                case "write-timeout" -> config.setWriteTimeoutSeconds(parseInt(key, value));
+                case "cache-control" -> config.setCacheControlRules(value);
+                case "upload-max-mb" -> config.setUploadMaxMb(parseInt(key, value));
+                case "tls" -> config.setTls(Boolean.parseBoolean(value));
+                case "tls-keystore" -> config.setTlsKeystore(new File(value));
+                case "tls-password" -> config.setTlsPassword(value);
+                case "tls-session-cache" -> config.setTlsSessionCache(parseInt(key, value));
+                case "tls-session-timeout" -> config.setTlsSessionTimeout(parseInt(key, value));
+                case "tls-tickets" -> config.setTlsTickets(Boolean.parseBoolean(value));
+                case "http2" -> config.setHttp2(Boolean.parseBoolean(value));
+                case "http2-max-streams" -> config.setHttp2MaxStreams(parseInt(key, value));
+                case "accept-queue" -> config.setAcceptQueue(parseInt(key, value));
+                case "max-per-ip" -> config.setMaxPerIp(parseInt(key, value));
+                case "codel-target-ms" -> config.setCodelTargetMs(parseInt(key, value));
+                case "codel-interval-ms" -> config.setCodelIntervalMs(parseInt(key, value));
+                case "retry-after" -> config.setRetryAfterSeconds(parseInt(key, value));
+                case "bandwidth-connection-kb" -> config.setBandwidthConnectionKb(parseInt(key, value));
+                case "bandwidth-ip-kb" -> config.setBandwidthIpKb(parseInt(key, value));
+                case "bandwidth-global-kb" -> config.setBandwidthGlobalKb(parseInt(key, value));
+                case "gui" -> config.setGui(Boolean.parseBoolean(value));
+                default -> throw new IllegalArgumentException("Opção desconhecida: " + key);
+            }
+        }
+        return config;
+    }
+
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor inválido para " + key + ": " + value);
+        }
+    }
+
+    // Confere tudo que o servidor precisa antes de abrir a porta
+    public void validate() {
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("Porta inválida! Use um número entre 1 e 65535.");
+        }
+        if (webRoot == null || !webRoot.isDirectory()) {
+            throw new IllegalArgumentException("Selecione um diretório webroot válido!");
+        }
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("Tamanho do pool inválido! Use 0 (padrão) ou um inteiro positivo.");
+        }
+        if (shards < 1) {
+            throw new IllegalArgumentException("Número de shards inválido! Use 1 (um acceptor) ou mais.");
+        }
+        if (keepAliveMaxRequests < 1 || keepAliveIdleSeconds < 1) {
+            throw new IllegalArgumentException("Keep-Alive inválido! Use valores inteiros maiores que zero.");
+        }
+        if (headerTimeoutSeconds < 1 || bodyTimeoutSeconds < 1 || writeTimeoutSeconds < 1) {
+            throw new IllegalArgumentException("Timeouts inválidos! Use segundos inteiros maiores que zero.");
+        }
+        if (cacheBudgetMb < 0) {
+            throw new IllegalArgumentException("Orçamento de cache inválido! Use um inteiro em MB (0 desativa).");
+        }
+        if (uploadMaxMb < 0) {
+            throw new IllegalArgumentException("Limite de upload inválido! Use um inteiro em MB (0 desativa).");
+        }
+        if (accessLogMaxMb < 1 || accessLogMaxMb > 2047) {
+            throw new IllegalArgumentException("Tamanho do access log inválido! Use de 1 a 2047 MB por arquivo.");
+        }
+        if (tlsSessionCache < 1 || tlsSessionTimeout < 1) {
+            throw new IllegalArgumentException("Cache de sessões TLS inválido! Use tamanho e validade maiores que zero.");
+        }
+        if (tls && tlsPassword.isEmpty()) {
+            throw new IllegalArgumentException("Senha do keystore TLS vazia!");
+        }
+        if (http2MaxStreams < 1) {
+            throw new IllegalArgumentException("Limite de streams HTTP/2 inválido! Use um inteiro maior que zero.");
+        }
+        if (acceptQueue < 1 || maxPerIp < 0) {
+            throw new IllegalArgumentException("Limites de admissão inválidos! Use fila maior que zero e limite por IP >= 0.");
+        }
+        if (codelTargetMs < 1 || codelIntervalMs < 0 || retryAfterSeconds < 0) {
+            throw new IllegalArgumentException("CoDel inválido! Use alvo maior que zero, intervalo e Retry-After >= 0.");
+        }
+        if (bandwidthConnectionKb < 0 || bandwidthIpKb < 0 || bandwidthGlobalKb < 0) {
+            throw new IllegalArgumentException("Limites de banda inválidos! Use KB/s >= 0 (0 = sem limite).");
+        }
+        CacheControlPolicy.parse(cacheControlRules);
+    }
+
+    public KeepAlivePolicy keepAlivePolicy() {
+        return new KeepAlivePolicy(keepAliveMaxRequests, keepAliveIdleSeconds * 1000);
+    }
+
+    public ConnectionTimeouts connectionTimeouts() {
+        return new ConnectionTimeouts(headerTimeoutSeconds * 1000, bodyTimeoutSeconds * 1000,
+                writeTimeoutSeconds * 1000, keepAliveIdleSeconds * 1000);
+    }
+
+    public AdmissionControl admissionControl(ServerMetrics metrics, Consumer<String> log) {
+        return new AdmissionControl(acceptQueue, maxPerIp, codelTargetMs, codelIntervalMs, retryAfterSeconds, metrics, log);
+    }
+
+    // Pool padrão: 10 threads no engine bloqueante, uma event loop por núcleo no selector
+    public int effectivePoolSize() {
+        if (poolSize > 0) {
+            return poolSize;
+        }
+        return engine == Engine.SELECTOR ? Runtime.getRuntime().availableProcessors() : 10;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerConfig setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public File getWebRoot() {
+        return webRoot;
+    }
+
+    // Sempre absoluto e sem "." ou "..": as listagens comparam o pai de cada diretório com o webroot
+    public ServerConfig setWebRoot(File webRoot) {
+        this.webRoot = webRoot != null ? webRoot.toPath().toAbsolutePath().normalize().toFile() : null;
+        return this;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public ServerConfig setEngine(Engine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public ServerConfig setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public ServerConfig setShards(int shards) {
+        this.shards = shards;
+        return this;
+    }
+
+    public long getCacheBudgetMb() {
+        return cacheBudgetMb;
+    }
+
+    public ServerConfig setCacheBudgetMb(long cacheBudgetMb) {
+        this.cacheBudgetMb = cacheBudgetMb;
+        return this;
+    }
+
+    public boolean isManifest() {
+        return manifest;
+    }
+
+    public ServerConfig setManifest(boolean manifest) {
+        this.manifest = manifest;
+        return this;
+    }
+
+    // Null = padrão ao lado do webroot ({@link WebrootManifest#defaultFile})
+    public File getManifestFile() {
+        return manifestFile;
+    }
+
+    public ServerConfig setManifestFile(File manifestFile) {
+        this.manifestFile = manifestFile;
+        return this;
+    }
+
+    public File getAccessLog() {
+        return accessLog;
+    }
+
+    public ServerConfig setAccessLog(File accessLog) {
+        this.accessLog = accessLog;
+        return this;
+    }
+
+    public AccessLog.Format getAccessLogFormat() {
+        return accessLogFormat;
+    }
+
+    public ServerConfig setAccessLogFormat(AccessLog.Format accessLogFormat) {
+        this.accessLogFormat = accessLogFormat;
+        return this;
+    }
+
+    public long getAccessLogMaxMb() {
+        return accessLogMaxMb;
+    }
+
+    public ServerConfig setAccessLogMaxMb(long accessLogMaxMb) {
+        this.accessLogMaxMb = accessLogMaxMb;
+        return this;
+    }
+
+    public int getKeepAliveMaxRequests() {
+        return keepAliveMaxRequests;
+    }
+
+    public ServerConfig setKeepAliveMaxRequests(int keepAliveMaxRequests) {
+        this.keepAliveMaxRequests = keepAliveMaxRequests;
+        return this;
+    }
+
+    public int getKeepAliveIdleSeconds() {
+        return keepAliveIdleSeconds;
+    }
+
+    public ServerConfig setKeepAliveIdleSeconds(int keepAliveIdleSeconds) {
+        this.keepAliveIdleSeconds = keepAliveIdleSeconds;
+        return this;
+    }
+
+    public int getHeaderTimeoutSeconds() {
+        return headerTimeoutSeconds;
+    }
+
+    public ServerConfig setHeaderTimeoutSeconds(int headerTimeoutSeconds) {
+        this.headerTimeoutSeconds = headerTimeoutSeconds;
+        return this;
+    }
+
+    public int getBodyTimeoutSeconds() {
+        return bodyTimeoutSeconds;
+    }
+
+    public ServerConfig setBodyTimeoutSeconds(int bodyTimeoutSeconds) {
+        this.bodyTimeoutSeconds = bodyTimeoutSeconds;
+        return this;
+    }
+
+    public int getWriteTimeoutSeconds() {
+        return writeTimeoutSeconds;
+    }
+
+    public ServerConfig setWriteTimeoutSeconds(int writeTimeoutSeconds) {
+        this.writeTimeoutSeconds = writeTimeoutSeconds;
+        return this;
+    }
+
+    public boolean isGui() {
+        return gui;
+    }
+
+    public ServerConfig setGui(boolean gui) {
+        this.gui = gui;
+        return this;
+    }
+
+    public long getUploadMaxMb() {
+        return uploadMaxMb;
+    }
+
+    public ServerConfig setUploadMaxMb(long uploadMaxMb) {
+        this.uploadMaxMb = uploadMaxMb;
+        return this;
+    }
+
+    public boolean isTls() {
+        return tls;
+    }
+
+    public ServerConfig setTls(boolean tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    public File getTlsKeystore() {
+        return tlsKeystore;
+    }
+
+    public ServerConfig setTlsKeystore(File tlsKeystore) {
+        this.tlsKeystore = tlsKeystore;
+        return this;
+    }
+
+    public String getTlsPassword() {
+        return tlsPassword;
+    }
+
+    public ServerConfig setTlsPassword(String tlsPassword) {
+        this.tlsPassword = tlsPassword;
+        return this;
+    }
+
+    public int getTlsSessionCache() {
+        return tlsSessionCache;
+    }
+
+    public ServerConfig setTlsSessionCache(int tlsSessionCache) {
+        this.tlsSessionCache = tlsSessionCache;
+        return this;
+    }
+
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public ServerConfig setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+        return this;
+    }
+
+    public boolean isTlsTickets() {
+        return tlsTickets;
+    }
+
+    public ServerConfig setTlsTickets(boolean tlsTickets) {
+        this.tlsTickets = tlsTickets;
+        return this;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public ServerConfig setHttp2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    public int getHttp2MaxStreams() {
+        return http2MaxStreams;
+    }
+
+    public ServerConfig setHttp2MaxStreams(int http2MaxStreams) {
+        this.http2MaxStreams = http2MaxStreams;
+        return this;
+    }
+
+    public int getAcceptQueue() {
+        return acceptQueue;
+    }
+
+    public ServerConfig setAcceptQueue(int acceptQueue) {
+        this.acceptQueue = acceptQueue;
+        return this;
+    }
+
+    public int getMaxPerIp() {
+        return maxPerIp;
+    }
+
+    public ServerConfig setMaxPerIp(int maxPerIp) {
+        this.maxPerIp = maxPerIp;
+        return this;
+    }
+
+    public int getCodelTargetMs() {
+        return codelTargetMs;
+    }
+
+    public ServerConfig setCodelTargetMs(int codelTargetMs) {
+        this.codelTargetMs = codelTargetMs;
+        return this;
+    }
+
+    public int getCodelIntervalMs() {
+        return codelIntervalMs;
+    }
+
+    public ServerConfig setCodelIntervalMs(int codelIntervalMs) {
+        this.codelIntervalMs = codelIntervalMs;
+        return this;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public ServerConfig setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    public long getBandwidthConnectionKb() {
+        return bandwidthConnectionKb;
+    }
+
+    public ServerConfig setBandwidthConnectionKb(long bandwidthConnectionKb) {
+        this.bandwidthConnectionKb = bandwidthConnectionKb;
+        return this;
+    }
+
+    public long getBandwidthIpKb() {
+        return bandwidthIpKb;
+    }
+
+    public ServerConfig setBandwidthIpKb(long bandwidthIpKb) {
+        this.bandwidthIpKb = bandwidthIpKb;
+        return this;
+    }
+
+    public long getBandwidthGlobalKb() {
+        return bandwidthGlobalKb;
+    }
+
+    public ServerConfig setBandwidthGlobalKb(long bandwidthGlobalKb) {
+        this.bandwidthGlobalKb = bandwidthGlobalKb;
+        return this;
+    }
+
+    public String getCacheControlRules() {
+        return cacheControlRules;
+    }
+
+    public ServerConfig setCacheControlRules(String cacheControlRules) {
+        this.cacheControlRules = cacheControlRules;
+        return this;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Engine de I/O do servidor: aceita conexões e entrega as requisições ao {@link HttpRequestHandler}.
+ */
+public interface ServerEngine {
+
+    void start(int port) throws IOException;
+
+    void stop();
+
+    // Conexões abertas (atendidas ou aguardando atendimento)
+    default int activeConnections() {
+        return 0;
+    }
+
+    // Conexões aceitas que ainda esperam uma thread (pool) ou o registro no event loop
+    default int queueDepth() {
+        return 0;
+    }
+
+    // Conexões aceitas desde o start (antes do controle de admissão)
+    default long acceptedConnections() {
+        return 0;
+    }
+
+    // Engines que de fato aceitam conexões: ele mesmo, ou um por canal com SO_REUSEPORT
+    default List<ServerEngine> shards() {
+        return List.of(this);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.example;
+
+/**
+ * Observador do {@link FileServer}: recebe o log e o ciclo de vida de cada requisição.
+ * O servidor roda sem nenhum; a janela Swing e o console são só ouvintes.
+ * Chamado pelas threads do servidor, então as implementações não devem bloquear.
+ */
+public interface ServerListener {
+
+    void log(String message);
+
+    default void requestStarted(long requestId, String clientAddress, String method, String path) {
+    }
+
+    default void requestCompleted(long requestId, HttpResponse response) {
+    }
+
+}
@@ -0,0 +1,363 @@
+package com.example;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Contadores do servidor, exportados em {@code /_metrics} no formato texto do Prometheus
+ * e resumidos na janela Swing. Tudo é gravado sem locks pelas threads que atendem as
+ * requisições: {@link LongAdder} para contadores e {@link LatencyHistogram} por rota
+ * (e por tipo de handshake TLS).
+ */
+public class ServerMetrics {
+
+    public static final String PATH = "/_metrics";
+    // HttpResponse acrescenta o "; charset=utf-8"
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    // Tipo de atendimento; vira o label "route" (cardinalidade fixa, ao contrário do path)
+    public enum Route {
+        FILE("file"), LISTING("listing"), UPLOAD("upload"), METRICS("metrics"), ERROR("error");
+
+        private final String label;
+
+        Route(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int MIN_STATUS = 100;
+    private static final int STATUS_SLOTS = 500;
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    // Um contador por (método, status), criado na primeira resposta com essa combinação
+    private final AtomicReferenceArray<LongAdder> responses =
+            new AtomicReferenceArray<>(METHODS.length * STATUS_SLOTS);
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Route.values().length];
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    // Handshakes TLS: completos e retomados (sessão do cache ou ticket)
+    private final LatencyHistogram fullHandshakes = new LatencyHistogram();
+    private final LatencyHistogram resumedHandshakes = new LatencyHistogram();
+    private final LongAdder failedHandshakes = new LongAdder();
+    // Conexões recusadas pelo controle de admissão, por motivo
+    private final LongAdder[] admissionRejected = new LongAdder[AdmissionControl.Reason.values().length];
+    private final IntSupplier activeConnections;
+    private final IntSupplier queueDepth;
+    // Engines que aceitam conexões; mais de um com SO_REUSEPORT
+    private final Supplier<List<ServerEngine>> shards;
+    // Buffers diretos das leituras e escritas nos sockets
+    private final BufferPool bufferPool = BufferPool.shared();
+    private volatile AccessLog accessLog;
+
+    public ServerMetrics(IntSupplier activeConnections, IntSupplier queueDepth, Supplier<List<ServerEngine>> shards) {
+        this.activeConnections = activeConnections;
+        this.queueDepth = queueDepth;
+        this.shards = shards;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < admissionRejected.length; i++) {
+            admissionRejected[i] = new LongAdder();
+        }
+    }
+
+    // Chamado quando a resposta terminou de ser escrita no socket
+    public void record(HttpResponse response) {
+        int status = response.getStatusCode();
+        if (status >= MIN_STATUS && status < MIN_STATUS + STATUS_SLOTS) {
+            HttpMethod method = response.getMethod() != null ? response.getMethod() : HttpMethod.OTHER;
+            counter(method.ordinal() * STATUS_SLOTS + status - MIN_STATUS).increment();
+        }
+        bytesSent.add(response.getBytesSent());
+
+        if (response.getStartNanos() != 0) {
+            Route route = response.getRoute() != null ? response.getRoute() : Route.ERROR;
+            latencies[route.ordinal()].record((System.nanoTime() - response.getStartNanos()) / 1000);
+        }
+    }
+
+    // Access log do servidor em execução (null sem access log)
+    public void setAccessLog(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    public void recordBodyBytes(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    // Do primeiro byte do ClientHello ao handshake concluído
+    public void recordHandshake(boolean resumed, long nanos) {
+        (resumed ? resumedHandshakes : fullHandshakes).record(nanos / 1000);
+    }
+
+    public void recordHandshakeFailure() {
+        failedHandshakes.increment();
+    }
+
+    public void recordAdmissionRejected(AdmissionControl.Reason reason) {
+        admissionRejected[reason.ordinal()].increment();
+    }
+
+    public long admissionRejected(AdmissionControl.Reason reason) {
+        return admissionRejected[reason.ordinal()].sum();
+    }
+
+    public LatencyHistogram.Snapshot handshakes(boolean resumed) {
+        return (resumed ? resumedHandshakes : fullHandshakes).snapshot();
+    }
+
+    private LongAdder counter(int index) {
+        LongAdder counter = responses.get(index);
+        if (counter == null) {
+            LongAdder created = new LongAdder();
+            counter = responses.compareAndExchange(index, null, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public LatencyHistogram.Snapshot latency(Route route) {
+        return latencies[route.ordinal()].snapshot();
+    }
+
+    public long totalRequests() {
+        long total = 0;
+        for (int i = 0; i < responses.length(); i++) {
+            LongAdder counter = responses.get(i);
+            if (counter != null) {
+                total += counter.sum();
+            }
+        }
+        return total;
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.getAsInt();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    // Exposição no formato texto 0.0.4 do Prometheus
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "fileserver_requests_total", "counter", "Requisições atendidas por método e status.");
+        for (int i = 0; i < responses.length(); i++) {
+            LongAdder counter = responses.get(i);
+            if (counter != null) {
+                out.append("fileserver_requests_total{method=\"").append(METHODS[i / STATUS_SLOTS].name())
+                        .append("\",status=\"").append(i % STATUS_SLOTS + MIN_STATUS).append("\"} ")
+                        .append(counter.sum()).append('\n');
+            }
+        }
+
+        header(out, "fileserver_response_bytes_total", "counter", "Bytes de corpo enviados nas respostas.");
+        out.append("fileserver_response_bytes_total ").append(bytesSent.sum()).append('\n');
+        header(out, "fileserver_request_body_bytes_total", "counter", "Bytes de corpo recebidos em uploads.");
+        out.append("fileserver_request_body_bytes_total ").append(bytesReceived.sum()).append('\n');
+        header(out, "fileserver_active_connections", "gauge", "Conexões abertas no engine.");
+        out.append("fileserver_active_connections ").append(activeConnections.getAsInt()).append('\n');
+        header(out, "fileserver_executor_queue_depth", "gauge", "Conexões aceitas aguardando uma thread ou event loop.");
+        out.append("fileserver_executor_queue_depth ").append(queueDepth.getAsInt()).append('\n');
+
+        List<ServerEngine> engines = shards.get();
+        header(out, "fileserver_shard_connections_accepted_total", "counter",
+                "Conexões aceitas por canal de escuta (shard SO_REUSEPORT).");
+        for (int i = 0; i < engines.size(); i++) {
+            out.append("fileserver_shard_connections_accepted_total{shard=\"").append(i).append("\"} ")
+                    .append(engines.get(i).acceptedConnections()).append('\n');
+        }
+        header(out, "fileserver_shard_active_connections", "gauge", "Conexões abertas por shard.");
+        for (int i = 0; i < engines.size(); i++) {
+            out.append("fileserver_shard_active_connections{shard=\"").append(i).append("\"} ")
+                    .append(engines.get(i).activeConnections()).append('\n');
+        }
+
+        header(out, "fileserver_admission_rejected_total", "counter",
+                "Conexões recusadas com 503 no accept: fila cheia ou limite por IP.");
+        for (AdmissionControl.Reason reason : AdmissionControl.Reason.values()) {
+            if (reason != AdmissionControl.Reason.CODEL) {
+                out.append("fileserver_admission_rejected_total{reason=\"").append(reason.getLabel()).append("\"} ")
+                        .append(admissionRejected(reason)).append('\n');
+            }
+        }
+        header(out, "fileserver_admission_shed_total", "counter",
+                "Conexões descartadas com 503 pelo CoDel por espera excessiva na fila.");
+        out.append("fileserver_admission_shed_total ").append(admissionRejected(AdmissionControl.Reason.CODEL)).append('\n');
+
+        header(out, "fileserver_request_duration_seconds", "summary",
+                "Latência por rota, da requisição completa ao último byte da resposta.");
+        for (Route route : Route.values()) {
+            LatencyHistogram.Snapshot snapshot = latency(route);
+            String label = "route=\"" + route.getLabel() + "\"";
+            for (double quantile : QUANTILES) {
+                out.append("fileserver_request_duration_seconds{").append(label).append(",quantile=\"")
+                        .append(quantile).append("\"} ").append(seconds(snapshot.percentile(quantile))).append('\n');
+            }
+            out.append("fileserver_request_duration_seconds_sum{").append(label).append("} ")
+                    .append(seconds(snapshot.getTotalMicros())).append('\n');
+            out.append("fileserver_request_duration_seconds_count{").append(label).append("} ")
+                    .append(snapshot.getCount()).append('\n');
+        }
+
+        LatencyHistogram.Snapshot full = handshakes(false);
+        LatencyHistogram.Snapshot resumed = handshakes(true);
+        header(out, "fileserver_tls_handshakes_total", "counter", "Handshakes TLS concluídos, completos ou retomados.");
+        out.append("fileserver_tls_handshakes_total{type=\"full\"} ").append(full.getCount()).append('\n');
+        out.append("fileserver_tls_handshakes_total{type=\"resumed\"} ").append(resumed.getCount()).append('\n');
+        header(out, "fileserver_tls_handshake_failures_total", "counter", "Handshakes TLS abortados.");
+        out.append("fileserver_tls_handshake_failures_total ").append(failedHandshakes.sum()).append('\n');
+        header(out, "fileserver_tls_handshake_duration_seconds", "summary",
+                "Duração do handshake TLS no servidor, do primeiro byte do ClientHello ao fim.");
+        for (boolean isResumed : new boolean[]{false, true}) {
+            LatencyHistogram.Snapshot snapshot = isResumed ? resumed : full;
+            String label = "type=\"" + (isResumed ? "resumed" : "full") + "\"";
+            for (double quantile : QUANTILES) {
+                out.append("fileserver_tls_handshake_duration_seconds{").append(label).append(",quantile=\"")
+                        .append(quantile).append("\"} ").append(seconds(snapshot.percentile(quantile))).append('\n');
+            }
+            out.append("fileserver_tls_handshake_duration_seconds_sum{").append(label).append("} ")
+                    .append(seconds(snapshot.getTotalMicros())).append('\n');
+            out.append("fileserver_tls_handshake_duration_seconds_count{").append(label).append("} ")
+                    .append(snapshot.getCount()).append('\n');
+        }
+
+        header(out, "fileserver_buffer_pool_buffers", "gauge",
+                "Buffers diretos do pool por tamanho: emprestados, no cache das threads e na lista global.");
+        for (int i = 0; i < bufferPool.sizeClassCount(); i++) {
+            String size = "fileserver_buffer_pool_buffers{size=\"" + bufferPool.classSize(i) + "\",state=\"";
+            out.append(size).append("in_use\"} ").append(bufferPool.inUse(i)).append('\n');
+            out.append(size).append("cached\"} ").append(bufferPool.cached(i)).append('\n');
+            out.append(size).append("free\"} ").append(bufferPool.free(i)).append('\n');
+        }
+        header(out, "fileserver_buffer_pool_acquires_total", "counter", "Empréstimos de buffer por tamanho.");
+        for (int i = 0; i < bufferPool.sizeClassCount(); i++) {
+            out.append("fileserver_buffer_pool_acquires_total{size=\"").append(bufferPool.classSize(i)).append("\"} ")
+                    .append(bufferPool.acquires(i)).append('\n');
+        }
+        header(out, "fileserver_buffer_pool_allocations_total", "counter",
+                "Empréstimos que precisaram alocar um buffer novo, por tamanho.");
+        for (int i = 0; i < bufferPool.sizeClassCount(); i++) {
+            out.append("fileserver_buffer_pool_allocations_total{size=\"").append(bufferPool.classSize(i)).append("\"} ")
+                    .append(bufferPool.allocations(i)).append('\n');
+        }
+        header(out, "fileserver_buffer_pool_unpooled_total", "counter", "Buffers maiores que a maior classe, alocados fora do pool.");
+        out.append("fileserver_buffer_pool_unpooled_total ").append(bufferPool.getUnpooledAllocations()).append('\n');
+        header(out, "fileserver_buffer_pool_bytes", "gauge", "Memória direta presa no pool.");
+        out.append("fileserver_buffer_pool_bytes ").append(bufferPool.getPooledBytes()).append('\n');
+        header(out, "fileserver_buffer_pool_leaks_total", "counter",
+                "Buffers coletados sem terem sido devolvidos (só com -Dfileserver.bufferPool.debug=true).");
+        out.append("fileserver_buffer_pool_leaks_total ").append(bufferPool.getLeaks()).append('\n');
+
+        AccessLog accessLog = this.accessLog;
+        if (accessLog != null) {
+            header(out, "fileserver_access_log_records_total", "counter",
+                    "Linhas do access log gravadas ou descartadas com o anel cheio.");
+            out.append("fileserver_access_log_records_total{result=\"written\"} ").append(accessLog.getWritten()).append('\n');
+            out.append("fileserver_access_log_records_total{result=\"dropped\"} ").append(accessLog.getDropped()).append('\n');
+            header(out, "fileserver_access_log_forces_total", "counter", "Lotes do access log forçados para o disco.");
+            out.append("fileserver_access_log_forces_total ").append(accessLog.getForces()).append('\n');
+            header(out, "fileserver_access_log_rotations_total", "counter", "Rotações do arquivo de access log.");
+            out.append("fileserver_access_log_rotations_total ").append(accessLog.getRotations()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    // Resumo legível para a janela Swing
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Requisições: %d   Enviado: %s   Conexões ativas: %d   Fila: %d%n%n",
+                totalRequests(), FileServer.formatFileSize(bytesSent.sum()),
+                activeConnections.getAsInt(), queueDepth.getAsInt()));
+        out.append(String.format("%-8s %9s %10s %10s %10s %10s%n", "Rota", "Total", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p999 (ms)"));
+        for (Route route : Route.values()) {
+            LatencyHistogram.Snapshot snapshot = latency(route);
+            out.append(String.format("%-8s %9d", route.getLabel(), snapshot.getCount()));
+            for (double quantile : QUANTILES) {
+                out.append(String.format(" %10.2f", snapshot.percentile(quantile) / 1000.0));
+            }
+            out.append(System.lineSeparator());
+        }
+
+        List<ServerEngine> engines = shards.get();
+        if (engines.size() > 1) {
+            out.append(String.format("%nShards (aceitas/ativas):"));
+            for (int i = 0; i < engines.size(); i++) {
+                out.append(String.format("  #%d %d/%d", i, engines.get(i).acceptedConnections(),
+                        engines.get(i).activeConnections()));
+            }
+            out.append(System.lineSeparator());
+        }
+
+        long queueFull = admissionRejected(AdmissionControl.Reason.QUEUE_FULL);
+        long perIp = admissionRejected(AdmissionControl.Reason.PER_IP);
+        long shed = admissionRejected(AdmissionControl.Reason.CODEL);
+        if (queueFull + perIp + shed > 0) {
+            out.append(String.format("%nAdmissão (503): %d fila cheia, %d limite por IP, %d descartadas pelo CoDel%n",
+                    queueFull, perIp, shed));
+        }
+
+        LatencyHistogram.Snapshot full = handshakes(false);
+        LatencyHistogram.Snapshot resumed = handshakes(true);
+        if (full.getCount() + resumed.getCount() + failedHandshakes.sum() > 0) {
+            out.append(String.format("%nTLS: %d completos (p50 %.2f ms), %d retomados (p50 %.2f ms), %d falhas%n",
+                    full.getCount(), full.percentile(0.5) / 1000.0,
+                    resumed.getCount(), resumed.percentile(0.5) / 1000.0, failedHandshakes.sum()));
+        }
+
+        long inUse = 0;
+        long idle = 0;
+        long acquires = 0;
+        long allocations = 0;
+        for (int i = 0; i < bufferPool.sizeClassCount(); i++) {
+            inUse += bufferPool.inUse(i);
+            idle += bufferPool.cached(i) + bufferPool.free(i);
+            acquires += bufferPool.acquires(i);
+            allocations += bufferPool.allocations(i);
+        }
+        if (acquires > 0) {
+            out.append(String.format("%nBuffers: %d em uso, %d livres (%s), %.1f%% reaproveitados",
+                    inUse, idle, FileServer.formatFileSize(bufferPool.getPooledBytes()),
+                    100.0 * (acquires - allocations) / acquires));
+            if (bufferPool.isDebug()) {
+                out.append(String.format(", %d vazamentos", bufferPool.getLeaks()));
+            }
+            out.append(System.lineSeparator());
+        }
+
+        AccessLog accessLog = this.accessLog;
+        if (accessLog != null) {
+            out.append(String.format("%nAccess log: %d linhas, %d descartadas, %d forces, %d rotações%n",
+                    accessLog.getWritten(), accessLog.getDropped(), accessLog.getForces(), accessLog.getRotations()));
+        }
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+
+/**
+ * Vários engines independentes na mesma porta, cada um com o seu canal de escuta aberto com
+ * {@code SO_REUSEPORT}, a sua thread de accept e o seu grupo de threads ou event loops.
+ * O kernel (Linux) distribui as conexões novas entre os canais por hash da origem, então não
+ * existe um acceptor único por onde todas passam. As contagens por shard
+ * ({@link ServerEngine#acceptedConnections()}) mostram se a divisão está equilibrada.
+ */
+public class ShardedServerEngine implements ServerEngine {
+
+    private final List<ServerEngine> shards;
+
+    // Os engines precisam ter sido criados com useReusePort(true)
+    public ShardedServerEngine(List<ServerEngine> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    public static boolean isSupported() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("SO_REUSEPORT não é suportado nesta plataforma; use shards=1");
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            try {
+                shards.get(i).start(port);
+            } catch (IOException ex) {
+                // Sem todos os shards o servidor não sobe: desfaz os que já escutam
+                for (int j = 0; j < i; j++) {
+                    shards.get(j).stop();
+                }
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (ServerEngine shard : shards) {
+            shard.stop();
+        }
+    }
+
+    @Override
+    public int activeConnections() {
+        int total = 0;
+        for (ServerEngine shard : shards) {
+            total += shard.activeConnections();
+        }
+        return total;
+    }
+
+    @Override
+    public int queueDepth() {
+        int total = 0;
+        for (ServerEngine shard : shards) {
+            total += shard.queueDepth();
+        }
+        return total;
+    }
+
+    @Override
+    public long acceptedConnections() {
+        long total = 0;
+        for (ServerEngine shard : shards) {
+            total += shard.acceptedConnections();
+        }
+        return total;
+    }
+
+    @Override
+    public List<ServerEngine> shards() {
+        return shards;
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.example;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Timer de roda com hash (Varghese e Lauck): um array circular de baldes, um por tick, e uma
+ * única thread que avança um balde por tick e dispara o que venceu nele. Agendar e cancelar são
+ * O(1) e não disputam lock com a thread da roda: as operações entram em filas sem lock e são
+ * aplicadas por ela no tick seguinte. Prazos além de uma volta da roda guardam quantas voltas
+ * ainda faltam.
+ *
+ * A precisão é de um tick, o suficiente para timeouts de conexão. As tarefas rodam na thread
+ * da roda e precisam ser curtas (fechar um socket, avisar um event loop).
+ */
+public class TimerWheel implements Closeable {
+
+    // Limite de agendamentos transferidos por tick, para um pico não atrasar os disparos
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Consumer<String> log;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    // Só a thread da roda usa
+    private long tick = 0;
+
+    public TimerWheel(String name, int tickMillis, int ticksPerWheel, Consumer<String> log) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        // Potência de 2: o balde sai de uma máscara em vez de um resto de divisão
+        int size = Integer.highestOneBit(Math.max(ticksPerWheel, 2) - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.log = log;
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Agenda {@code task} para daqui a {@code delayMillis}. Pode ser chamado de qualquer thread.
+     */
+    public Timeout schedule(long delayMillis, Runnable task) {
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, deadline);
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    // Timeouts agendados que ainda não venceram nem foram cancelados
+    public int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while (running && (sleep = deadline - (System.nanoTime() - startNanos)) > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+            if (!running) {
+                break;
+            }
+            removeCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK && (timeout = scheduled.poll()) != null; i++) {
+            if (timeout.state.get() != Timeout.WAITING) {
+                continue;
+            }
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            // Prazo já vencido: vai para o balde atual e dispara neste tick
+            wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Um agendamento. {@link #cancel()} é O(1): marca o estado e deixa a retirada do balde para a
+     * thread da roda.
+     */
+    public final class Timeout {
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        // Lista duplamente ligada do balde; só a thread da roda mexe
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // False se já tinha disparado (ou sido cancelado)
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(WAITING, EXPIRED)) {
+                return;
+            }
+            pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.accept("Erro em tarefa do timer: " + ex.getMessage());
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        // Dispara o que vence nesta volta; o resto perde uma volta
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.state.get() == Timeout.CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+        }
+    }
+
+}
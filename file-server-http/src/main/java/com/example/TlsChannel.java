@@ -0,0 +1,271 @@
+package com.example;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+
+import static javax.net.ssl.SSLEngineResult.HandshakeStatus.*;
+
+/**
+ * Canal TLS sobre um {@link SocketChannel}: um {@link SSLEngine} decifra o que chega e cifra o
+ * que sai, e o handshake anda conforme os dados passam por {@link #read}. Funciona nos dois
+ * engines: em modo não bloqueante read/write devolvem 0 quando o socket está vazio ou cheio,
+ * e {@link #hasPendingOutput()} diz se ainda há registros cifrados por enviar. Os buffers
+ * (cifrados e decifrado) são diretos, do {@link BufferPool}, e voltam ao pool no {@link #close()}.
+ * Como tudo precisa ser cifrado, não existe zero-copy: o {@link FileTransfer} copia por buffer.
+ */
+public class TlsChannel implements ByteChannel {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final int RECORD_HEADER = 5;
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final TlsContext context;
+
+    // Recebido e ainda não decifrado (modo escrita)
+    private BufferPool.Lease netInLease;
+    private ByteBuffer netIn;
+    // Decifrado e ainda não entregue (modo leitura)
+    private BufferPool.Lease appInLease;
+    private ByteBuffer appIn;
+    // Cifrado e ainda não enviado (modo leitura)
+    private BufferPool.Lease netOutLease;
+    private ByteBuffer netOut;
+
+    private long handshakeStartNanos = 0;
+    private long handshakeStartMillis;
+    private boolean handshakeDone = false;
+    private boolean inboundClosed = false;
+    private boolean open = true;
+
+    TlsChannel(SocketChannel channel, SSLEngine engine, TlsContext context) {
+        this.channel = channel;
+        this.engine = engine;
+        this.context = context;
+        SSLSession session = engine.getSession();
+        this.netInLease = BufferPool.shared().acquire(session.getPacketBufferSize());
+        this.netIn = netInLease.buffer();
+        this.appInLease = BufferPool.shared().acquire(session.getApplicationBufferSize());
+        this.appIn = appInLease.buffer().flip();
+        this.netOutLease = BufferPool.shared().acquire(session.getPacketBufferSize());
+        this.netOut = netOutLease.buffer().flip();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        try {
+            while (true) {
+                if (appIn.hasRemaining()) {
+                    return transfer(appIn, dst);
+                }
+                if (inboundClosed) {
+                    return -1;
+                }
+                // Resposta do handshake ainda no buffer: só continua quando o socket aceitar
+                if (!flush()) {
+                    return 0;
+                }
+
+                SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+                if (status == NEED_TASK) {
+                    runDelegatedTasks();
+                    continue;
+                }
+                if (status == NEED_WRAP) {
+                    wrap(EMPTY);
+                    continue;
+                }
+
+                netIn.flip();
+                appIn.clear();
+                SSLEngineResult result;
+                try {
+                    result = engine.unwrap(netIn, appIn);
+                } finally {
+                    netIn.compact();
+                    appIn.flip();
+                }
+                handshakeProgress(result.getHandshakeStatus());
+
+                switch (result.getStatus()) {
+                    case OK -> {
+                    }
+                    case CLOSED -> inboundClosed = true;
+                    case BUFFER_OVERFLOW -> {
+                        appInLease.release();
+                        appInLease = BufferPool.shared().acquire(appIn.capacity() * 2);
+                        appIn = appInLease.buffer().flip();
+                    }
+                    case BUFFER_UNDERFLOW -> {
+                        // Registro incompleto: ler mais do socket
+                        int read = readNetwork();
+                        if (read < 0) {
+                            inboundClosed = true;
+                        } else if (read == 0) {
+                            return 0;
+                        }
+                    }
+                }
+            }
+        } catch (SSLException ex) {
+            if (!handshakeDone) {
+                context.handshakeFailed();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int consumed = 0;
+        while (src.hasRemaining() && flush()) {
+            if (engine.getHandshakeStatus() == NEED_TASK) {
+                runDelegatedTasks();
+            }
+            SSLEngineResult result = wrap(src);
+            if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                // Só acontece se o cliente pedir renegociação no meio da resposta
+                throw new SSLException("Renegociação TLS não suportada");
+            }
+            consumed += result.bytesConsumed();
+        }
+        flush();
+        return consumed;
+    }
+
+    // Envia o que já foi cifrado; false se o socket (não bloqueante) encheu antes
+    public boolean flush() throws IOException {
+        while (netOut.hasRemaining()) {
+            if (channel.write(netOut) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasPendingOutput() {
+        return netOut.hasRemaining();
+    }
+
+    /**
+     * Há dados que já saíram do socket e ainda não foram entregues (decifrados ou um
+     * registro inteiro): o selector não vai avisar sobre eles, quem lê precisa voltar aqui.
+     */
+    public boolean hasBufferedInput() {
+        if (appIn.hasRemaining()) {
+            return true;
+        }
+        int buffered = netIn.position();
+        return buffered >= RECORD_HEADER
+                && buffered >= RECORD_HEADER + (((netIn.get(3) & 0xff) << 8) | (netIn.get(4) & 0xff));
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && channel.isOpen();
+    }
+
+    // Envia o close_notify se o socket aceitar na hora e fecha o canal
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            engine.closeOutbound();
+            if (flush()) {
+                wrap(EMPTY);
+                flush();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            channel.close();
+            netInLease.release();
+            appInLease.release();
+            netOutLease.release();
+            netIn = appIn = netOut = null;
+        }
+    }
+
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        while (true) {
+            netOut.clear();
+            SSLEngineResult result;
+            try {
+                result = engine.wrap(src, netOut);
+            } finally {
+                netOut.flip();
+            }
+            handshakeProgress(result.getHandshakeStatus());
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW -> {
+                    netOutLease.release();
+                    netOutLease = BufferPool.shared().acquire(netOut.capacity() * 2);
+                    netOut = netOutLease.buffer().flip();
+                }
+                case CLOSED -> {
+                    if (open) {
+                        throw new SSLException("Conexão TLS encerrada pelo cliente");
+                    }
+                    return result;
+                }
+                default -> {
+                    return result;
+                }
+            }
+        }
+    }
+
+    private int readNetwork() throws IOException {
+        if (!netIn.hasRemaining()) {
+            netInLease = BufferPool.shared().grow(netInLease, netIn.capacity() * 2);
+            netIn = netInLease.buffer();
+        }
+
+        int read = channel.read(netIn);
+
+        if (read > 0 && handshakeStartNanos == 0) {
+            // O relógio do handshake começa no primeiro byte do ClientHello
+            handshakeStartNanos = System.nanoTime();
+            handshakeStartMillis = System.currentTimeMillis();
+        }
+        return read;
+    }
+
+    // As tarefas delegadas (criptografia do handshake) rodam na própria thread
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private void handshakeProgress(SSLEngineResult.HandshakeStatus status) {
+        if (status != FINISHED || handshakeDone) {
+            return;
+        }
+        handshakeDone = true;
+        // Sessão retomada (cache ou ticket) conserva a data de criação da original
+        boolean resumed = engine.getSession().getCreationTime() < handshakeStartMillis;
+        context.handshakeCompleted(resumed, System.nanoTime() - handshakeStartNanos);
+    }
+
+    private static int transfer(ByteBuffer from, ByteBuffer to) {
+        int count = Math.min(from.remaining(), to.remaining());
+        ByteBuffer slice = from.slice(from.position(), count);
+        to.put(slice);
+        from.position(from.position() + count);
+        return count;
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.example;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.function.Consumer;
+
+/**
+ * Configuração TLS do servidor: carrega o keystore (gerando um certificado autoassinado para
+ * localhost na primeira vez), monta o {@link SSLContext} com o cache de sessões e os session
+ * tickets configurados e cria um {@link TlsChannel} por conexão. Clientes que voltam com uma
+ * sessão (ID no cache ou ticket) fazem o handshake abreviado, sem troca de certificado nem
+ * acordo de chaves; os dois tipos são contados em {@link ServerMetrics}.
+ */
+public class TlsContext {
+
+    public static final String KEY_ALIAS = "fileserver";
+    private static final String PASSWORD_VARIABLE = "FILESERVER_KEYSTORE_PASSWORD";
+
+    private final SSLContext sslContext;
+    private final ServerMetrics metrics;
+
+    private TlsContext(SSLContext sslContext, ServerMetrics metrics) {
+        this.sslContext = sslContext;
+        this.metrics = metrics;
+    }
+
+    public static TlsContext create(ServerConfig config, ServerMetrics metrics, Consumer<String> log) throws IOException {
+        Path keystore = config.getTlsKeystore().toPath();
+        char[] password = config.getTlsPassword().toCharArray();
+        if (!Files.exists(keystore)) {
+            generateKeystore(keystore, config.getTlsPassword(), log);
+        }
+
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            try (InputStream in = Files.newInputStream(keystore)) {
+                keyStore.load(in, password);
+            }
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, password);
+
+            // O JDK lê a propriedade ao criar o cache de sessões do SSLContext
+            System.setProperty("jdk.tls.server.enableSessionTicketExtension", String.valueOf(config.isTlsTickets()));
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers.getKeyManagers(), null, null);
+
+            SSLSessionContext sessions = sslContext.getServerSessionContext();
+            sessions.setSessionCacheSize(config.getTlsSessionCache());
+            sessions.setSessionTimeout(config.getTlsSessionTimeout());
+
+            log.accept("🔐 TLS ativo (keystore " + keystore + ", cache de " + config.getTlsSessionCache()
+                    + " sessões por " + config.getTlsSessionTimeout() + " s, tickets "
+                    + (config.isTlsTickets() ? "ligados" : "desligados") + ")");
+            return new TlsContext(sslContext, metrics);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Keystore inválido (" + keystore + "): " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Gera com o keytool do próprio JDK um par de chaves EC P-256 e um certificado autoassinado
+     * para localhost/127.0.0.1. A senha vai por variável de ambiente, não pela linha de comando.
+     */
+    public static void generateKeystore(Path keystore, String password, Consumer<String> log) throws IOException {
+        Path parent = keystore.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+
+        ProcessBuilder builder = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", KEY_ALIAS,
+                "-keyalg", "EC", "-groupname", "secp256r1",
+                "-validity", "825",
+                "-dname", "CN=localhost",
+                "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-storetype", "PKCS12",
+                "-keystore", keystore.toString(),
+                "-storepass:env", PASSWORD_VARIABLE,
+                "-keypass:env", PASSWORD_VARIABLE)
+                .redirectErrorStream(true);
+        builder.environment().put(PASSWORD_VARIABLE, password);
+
+        Process process = builder.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("keytool falhou: " + output);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Geração do keystore interrompida", ex);
+        }
+        log.accept("🔑 Keystore gerado: " + keystore + " (certificado autoassinado para localhost)");
+    }
+
+    public TlsChannel wrap(SocketChannel channel) {
+        SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        return new TlsChannel(channel, engine, this);
+    }
+
+    void handshakeCompleted(boolean resumed, long nanos) {
+        metrics.recordHandshake(resumed, nanos);
+    }
+
+    void handshakeFailed() {
+        metrics.recordHandshakeFailure();
+    }
+
+}
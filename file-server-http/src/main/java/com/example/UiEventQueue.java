@@ -0,0 +1,80 @@
+package com.example;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Fila sem locks entre as threads do servidor e a interface. O servidor só enfileira
+ * eventos (nada de invokeLater por requisição); um timer da EDT drena tudo em lote.
+ * Se a interface ficar para trás, novos logs e conexões são descartados e contados.
+ */
+public class UiEventQueue implements ServerListener {
+
+    public sealed interface Event permits LogLine, RequestStarted, RequestCompleted {
+    }
+
+    public record LogLine(long timeMillis, String message) implements Event {
+    }
+
+    public record RequestStarted(long id, long timeMillis, String clientAddress, String method, String path)
+            implements Event {
+    }
+
+    public record RequestCompleted(long id, String status) implements Event {
+    }
+
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final int maxPending;
+
+    public UiEventQueue(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    public void log(String message) {
+        offer(new LogLine(System.currentTimeMillis(), message), maxPending);
+    }
+
+    @Override
+    public void requestStarted(long requestId, String clientAddress, String method, String path) {
+        offer(new RequestStarted(requestId, System.currentTimeMillis(), clientAddress, method, path), maxPending);
+    }
+
+    @Override
+    public void requestCompleted(long requestId, HttpResponse response) {
+        // Conclusões têm folga extra para que linhas aceitas não fiquem "Processando"
+        offer(new RequestCompleted(requestId, "Concluído"), maxPending * 2);
+    }
+
+    private void offer(Event event, int limit) {
+        if (pending.incrementAndGet() > limit) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.add(event);
+    }
+
+    // Entrega, na ordem, todos os eventos pendentes; chamado pela EDT
+    public int drain(Consumer<Event> consumer) {
+        int count = 0;
+        Event event;
+        while ((event = queue.poll()) != null) {
+            pending.decrementAndGet();
+            consumer.accept(event);
+            count++;
+        }
+        return count;
+    }
+
+    // Descartes desde a última chamada
+    public long takeDropped() {
+        return dropped.sumThenReset();
+    }
+
+}
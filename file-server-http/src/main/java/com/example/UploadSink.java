@@ -0,0 +1,51 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Base dos uploads: conta os bytes recebidos, aplica o limite de tamanho (413) e mede
+ * o tempo total; a resposta é montada pelo servidor a partir do {@link Result}.
+ */
+public abstract class UploadSink implements RequestBodySink {
+
+    public record SavedFile(File file, long size, boolean replaced) {
+    }
+
+    public record Result(List<SavedFile> files, long bodyBytes, long nanos) {
+    }
+
+    private final long maxBytes;
+    private final Function<Result, HttpResponse> responder;
+    private final long start = System.nanoTime();
+    private long received = 0;
+
+    protected UploadSink(long maxBytes, Function<Result, HttpResponse> responder) {
+        this.maxBytes = maxBytes;
+        this.responder = responder;
+    }
+
+    @Override
+    public final void write(ByteBuffer data) throws IOException, HttpParseException {
+        received += data.remaining();
+        if (received > maxBytes) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+        receive(data);
+    }
+
+    @Override
+    public final HttpResponse finish() throws IOException, HttpParseException {
+        List<SavedFile> files = complete();
+        return responder.apply(new Result(files, received, System.nanoTime() - start));
+    }
+
+    protected abstract void receive(ByteBuffer data) throws IOException, HttpParseException;
+
+    // Corpo terminou: grava os arquivos no destino final
+    protected abstract List<SavedFile> complete() throws IOException, HttpParseException;
+
+}
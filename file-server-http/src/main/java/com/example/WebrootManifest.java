@@ -0,0 +1,606 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Manifesto do webroot: para cada caminho, tamanho, data de modificação, content type e um
+ * hash do conteúdo (CRC32C), consultado pelas requisições no lugar de um {@code stat} por arquivo.
+ *
+ * <ul>
+ *   <li>Na partida o arquivo binário salvo ao lado do webroot é recarregado em milissegundos;
+ *       essas entradas ainda não foram conferidas e a primeira consulta a cada uma faz um único
+ *       {@code stat} para confirmá-la.</li>
+ *   <li>Em segundo plano um {@link ForkJoinPool} percorre o webroot em paralelo, um diretório por
+ *       tarefa, confere tudo e só recalcula o hash dos arquivos cujo tamanho ou data mudou.</li>
+ *   <li>Depois disso um {@link WatchService} em cada diretório mantém o manifesto em dia: a entrada
+ *       de um arquivo alterado sai na hora e volta quando o hash novo fica pronto. Quem guarda algo
+ *       derivado das entradas (listagens em cache) é avisado com o diretório do caminho que saiu.</li>
+ * </ul>
+ *
+ * Links simbólicos não são seguidos nem entram no manifesto, então uma entrada encontrada está
+ * sempre dentro do webroot.
+ */
+public class WebrootManifest implements Closeable {
+
+    // "WMF1": formato do arquivo; outro valor faz o manifesto ser reconstruído do zero
+    private static final int MAGIC = 0x574D4631;
+    private static final int HASH_BUFFER = 64 * 1024;
+
+    /**
+     * O que se sabe de um caminho. {@code verified} é false nas entradas carregadas do arquivo
+     * que ainda não foram conferidas com o disco.
+     */
+    public record Entry(long size, long lastModified, boolean directory, String contentType, long hash,
+                        boolean verified) {
+
+        // ETag forte derivado do conteúdo: sobrevive a cópias e a um touch sem mudança
+        public String etag() {
+            return ConditionalGet.contentEtag(size, hash);
+        }
+
+        private Entry asVerified() {
+            return new Entry(size, lastModified, directory, contentType, hash, true);
+        }
+    }
+
+    private final File webRoot;
+    private final String rootPrefix;
+    private final String canonicalRoot;
+    private final File file;
+    private final Function<String, String> contentTypes;
+    private final Consumer<File> changes;
+    private final Consumer<String> log;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Mudanças observadas ainda sendo indexadas: só a tarefa da versão mais nova publica
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final Map<WatchKey, String> watchedKeys = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    private final WatchService watchService;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder hashedFiles = new LongAdder();
+    private final LongAdder hashedBytes = new LongAdder();
+    private volatile boolean indexed = false;
+
+    public WebrootManifest(File webRoot, File file, Function<String, String> contentTypes, Consumer<File> changes,
+                           Consumer<String> log) throws IOException {
+        this.webRoot = webRoot;
+        String root = webRoot.getPath();
+        this.rootPrefix = root.endsWith(File.separator) ? root : root + File.separator;
+        this.canonicalRoot = webRoot.getCanonicalPath();
+        this.file = file.getAbsoluteFile();
+        this.contentTypes = contentTypes;
+        this.changes = changes;
+        this.log = log;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    // Arquivo padrão: oculto, no diretório pai do webroot (fora do que é servido)
+    public static File defaultFile(File webRoot) {
+        File root = webRoot.getAbsoluteFile();
+        File parent = root.getParentFile();
+        return parent != null ? new File(parent, "." + root.getName() + ".manifest") : new File(root, ".fileserver.manifest");
+    }
+
+    /**
+     * Carrega o manifesto salvo (se houver) e dispara a indexação e a observação em segundo plano.
+     */
+    public void start() {
+        long start = System.nanoTime();
+        int loaded = load();
+        if (loaded > 0) {
+            log.accept("🗂 Manifesto carregado: " + loaded + " entradas em "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+
+        Thread watcher = new Thread(this::watchLoop, "manifest-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        pool.execute(this::indexAll);
+    }
+
+    /**
+     * Entrada conferida do arquivo, ou null quando o manifesto não sabe dele (ainda não indexado,
+     * mudando agora, fora do webroot); nesse caso quem chama consulta o disco.
+     */
+    public Entry lookup(File target) {
+        String path = target.getPath();
+        String key;
+        if (path.startsWith(rootPrefix)) {
+            key = path.substring(rootPrefix.length());
+        } else if (path.equals(webRoot.getPath())) {
+            key = "";
+        } else {
+            misses.increment();
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.verified()) {
+            entry = verify(target, key, entry);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    // Chamado por quem acabou de gravar o arquivo (uploads), sem esperar o aviso do WatchService
+    public void invalidate(File target) {
+        String path = target.getPath();
+        if (path.startsWith(rootPrefix)) {
+            changed(target.toPath(), path.substring(rootPrefix.length()), false);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Entrada do arquivo salvo: um único stat confirma tamanho e data (e que o caminho continua dentro do webroot)
+    private Entry verify(File target, String key, Entry entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(target.toPath(), BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory() == entry.directory()
+                    && (attributes.isDirectory() || attributes.isRegularFile() && attributes.size() == entry.size())
+                    && attributes.lastModifiedTime().toMillis() == entry.lastModified()
+                    && target.getCanonicalPath().startsWith(canonicalRoot)) {
+                Entry checked = entry.asVerified();
+                entries.replace(key, entry, checked);
+                return checked;
+            }
+        } catch (IOException ignored) {
+        }
+        changed(target.toPath(), key, false);
+        return null;
+    }
+
+    // Tira a entrada na hora e agenda a reindexação; tarefas de versões anteriores não publicam mais
+    private void changed(Path path, String key, boolean created) {
+        long version = versions.compute(key, (k, v) -> {
+            entries.remove(k);
+            return v == null ? 1 : v + 1;
+        });
+        dirty.set(true);
+        // Depois da remoção: quem renderizar de novo já não vê a entrada antiga
+        Path parent = path.getParent();
+        if (parent != null) {
+            changes.accept(parent.toFile());
+        }
+        try {
+            pool.execute(() -> refresh(path, key, version, created));
+        } catch (RejectedExecutionException ex) {
+            // Manifesto já fechado
+        }
+    }
+
+    private void refresh(Path path, String key, long version, boolean created) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException ex) {
+            // Removido antes de ser indexado
+            versions.remove(key, version);
+            return;
+        }
+        Entry entry = null;
+        if (attributes.isDirectory()) {
+            entry = directoryEntry(attributes);
+            if (created) {
+                // Diretório novo: passa a ser observado e o que já existir nele é indexado
+                pool.execute(new IndexTask(path, key, null));
+            }
+        } else if (attributes.isRegularFile()) {
+            entry = hashed(path, attributes);
+        }
+
+        Entry published = entry;
+        versions.compute(key, (k, v) -> {
+            if (v == null || v != version) {
+                return v;
+            }
+            if (published != null) {
+                entries.put(k, published);
+            }
+            return null;
+        });
+    }
+
+    // Publica o resultado da varredura, a menos que uma mudança observada esteja em andamento
+    private void publish(String key, Entry entry) {
+        versions.compute(key, (k, v) -> {
+            if (v == null) {
+                entries.put(k, entry);
+            }
+            return v;
+        });
+    }
+
+    private void removeTree(String key) {
+        // Sem versão pendente, nenhuma tarefa em andamento publica mais este caminho
+        versions.compute(key, (k, v) -> {
+            entries.remove(k);
+            return null;
+        });
+        String prefix = key + File.separator;
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+        dirty.set(true);
+    }
+
+    private Entry directoryEntry(BasicFileAttributes attributes) {
+        return new Entry(0, attributes.lastModifiedTime().toMillis(), true, null, 0, true);
+    }
+
+    // Lê o arquivo inteiro para o hash; null se ele mudou no meio da leitura
+    private Entry hashed(Path path, BasicFileAttributes attributes) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+            BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (after.size() != attributes.size() || !after.lastModifiedTime().equals(attributes.lastModifiedTime())) {
+                return null;
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        hashedFiles.increment();
+        hashedBytes.add(attributes.size());
+        return new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), false,
+                contentTypes.apply(path.getFileName().toString()), crc.getValue(), true);
+    }
+
+    private static String child(String parent, String name) {
+        return parent.isEmpty() ? name : parent + File.separator + name;
+    }
+
+    private boolean ignored(Path path, String name) {
+        // Uploads em andamento e o próprio manifesto (caso ele fique dentro do webroot)
+        return name.startsWith(AtomicFileWriter.TEMP_PREFIX)
+                || name.startsWith(file.getName()) && file.toPath().getParent().equals(path.toAbsolutePath().getParent());
+    }
+
+    // Varredura completa: confere as entradas carregadas e descarta as de arquivos que sumiram
+    private void indexAll() {
+        long start = System.nanoTime();
+        long hashedBefore = hashedFiles.sum();
+        long bytesBefore = hashedBytes.sum();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        try {
+            new IndexTask(webRoot.toPath(), "", seen).invoke();
+        } catch (RuntimeException ex) {
+            log.accept("Erro ao indexar o webroot: " + ex.getMessage());
+            return;
+        }
+        entries.entrySet().removeIf(e -> !e.getValue().verified() && !seen.contains(e.getKey()));
+        indexed = true;
+        dirty.set(true);
+
+        int files = 0;
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            if (!entry.directory()) {
+                files++;
+                bytes += entry.size();
+            }
+        }
+        log.accept("🗂 Webroot indexado: " + files + " arquivos (" + FileServer.formatFileSize(bytes) + ") em "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, hash recalculado de "
+                + (hashedFiles.sum() - hashedBefore) + " (" + FileServer.formatFileSize(hashedBytes.sum() - bytesBefore) + ")");
+        save();
+    }
+
+    /**
+     * Um diretório: passa a ser observado, cada filho recebe um stat, subdiretórios viram
+     * subtarefas e os arquivos com tamanho ou data diferentes do manifesto têm o hash recalculado
+     * em paralelo.
+     */
+    private final class IndexTask extends RecursiveAction {
+
+        // Tarefas do ForkJoinPool nunca são serializadas
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+        private final String key;
+        private final transient Set<String> seen;
+
+        IndexTask(Path directory, String key, Set<String> seen) {
+            this.directory = directory;
+            this.key = key;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            watch(directory, key);
+            List<RecursiveAction> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    String name = path.getFileName().toString();
+                    if (ignored(path, name)) {
+                        continue;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException ex) {
+                        continue;
+                    }
+                    String childKey = child(key, name);
+                    if (attributes.isDirectory()) {
+                        mark(childKey);
+                        publish(childKey, directoryEntry(attributes));
+                        tasks.add(new IndexTask(path, childKey, seen));
+                    } else if (attributes.isRegularFile()) {
+                        mark(childKey);
+                        Entry known = entries.get(childKey);
+                        long modified = attributes.lastModifiedTime().toMillis();
+                        if (known != null && !known.directory() && known.size() == attributes.size()
+                                && known.lastModified() == modified) {
+                            // Mesmo tamanho e data: o hash salvo continua valendo
+                            publish(childKey, new Entry(known.size(), modified, false,
+                                    contentTypes.apply(name), known.hash(), true));
+                        } else {
+                            tasks.add(new HashTask(path, childKey, attributes));
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException ex) {
+                log.accept("Não foi possível indexar " + directory + ": " + ex.getMessage());
+            }
+            invokeAll(tasks);
+        }
+
+        private void mark(String childKey) {
+            if (seen != null) {
+                seen.add(childKey);
+            }
+        }
+    }
+
+    private final class HashTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path path;
+        private final String key;
+        private final transient BasicFileAttributes attributes;
+
+        HashTask(Path path, String key, BasicFileAttributes attributes) {
+            this.path = path;
+            this.key = key;
+            this.attributes = attributes;
+        }
+
+        @Override
+        protected void compute() {
+            Entry entry = hashed(path, attributes);
+            if (entry != null) {
+                publish(key, entry);
+            }
+        }
+    }
+
+    private void watch(Path directory, String key) {
+        try {
+            WatchKey watchKey = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchedKeys.put(watchKey, key);
+        } catch (IOException | ClosedWatchServiceException ex) {
+            log.accept("Não foi possível observar " + directory + ": " + ex.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+
+            String key = watchedKeys.get(watchKey);
+            if (key != null) {
+                Path directory = (Path) watchKey.watchable();
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // Eventos perdidos: tudo volta a ser conferido e o webroot é varrido de novo
+                        entries.replaceAll((k, entry) -> entry.verified()
+                                ? new Entry(entry.size(), entry.lastModified(), entry.directory(), entry.contentType(), entry.hash(), false)
+                                : entry);
+                        pool.execute(this::indexAll);
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    String name = path.getFileName().toString();
+                    if (ignored(path, name)) {
+                        continue;
+                    }
+                    String childKey = child(key, name);
+                    if (event.kind() == ENTRY_DELETE) {
+                        removeTree(childKey);
+                    } else {
+                        changed(path, childKey, event.kind() == ENTRY_CREATE);
+                    }
+                }
+                // Criar ou remover um filho muda a data do próprio diretório
+                if (!key.isEmpty()) {
+                    changed(directory, key, false);
+                }
+            }
+
+            if (!watchKey.reset()) {
+                watchedKeys.remove(watchKey);
+            }
+        }
+    }
+
+    /**
+     * Formato: cabeçalho (magic, webroot canônico, tabela de content types) e as entradas em
+     * ordem de caminho, cada caminho gravado como o prefixo comum com o anterior mais o sufixo.
+     */
+    public synchronized void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        TreeMap<String, Entry> sorted = new TreeMap<>(entries);
+        Map<String, Integer> types = new HashMap<>();
+        List<String> typeTable = new ArrayList<>();
+        for (Entry entry : sorted.values()) {
+            if (entry.contentType() != null && !types.containsKey(entry.contentType())) {
+                types.put(entry.contentType(), typeTable.size());
+                typeTable.add(entry.contentType());
+            }
+        }
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(canonicalRoot);
+            out.writeShort(typeTable.size());
+            for (String type : typeTable) {
+                out.writeUTF(type);
+            }
+            out.writeInt(sorted.size());
+            String previous = "";
+            for (Map.Entry<String, Entry> item : sorted.entrySet()) {
+                String key = item.getKey();
+                Entry entry = item.getValue();
+                int shared = 0;
+                int max = Math.min(Math.min(previous.length(), key.length()), 0xFFFF);
+                while (shared < max && previous.charAt(shared) == key.charAt(shared)) {
+                    shared++;
+                }
+                out.writeShort(shared);
+                out.writeUTF(key.substring(shared));
+                out.writeBoolean(entry.directory());
+                out.writeLong(entry.lastModified());
+                if (!entry.directory()) {
+                    out.writeLong(entry.size());
+                    out.writeShort(entry.contentType() != null ? types.get(entry.contentType()) : -1);
+                    out.writeInt((int) entry.hash());
+                }
+                previous = key;
+            }
+        } catch (IOException ex) {
+            log.accept("Não foi possível salvar o manifesto " + file + ": " + ex.getMessage());
+            return;
+        }
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            log.accept("Não foi possível salvar o manifesto " + file + ": " + ex.getMessage());
+        }
+    }
+
+    // Entradas carregadas (ainda não conferidas); 0 se não há arquivo ou ele é de outro webroot
+    private int load() {
+        if (!file.isFile()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(canonicalRoot)) {
+                return 0;
+            }
+            String[] typeTable = new String[in.readUnsignedShort()];
+            for (int i = 0; i < typeTable.length; i++) {
+                typeTable[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            String previous = "";
+            for (int i = 0; i < count; i++) {
+                String key = previous.substring(0, in.readUnsignedShort()) + in.readUTF();
+                boolean directory = in.readBoolean();
+                long lastModified = in.readLong();
+                if (directory) {
+                    entries.put(key, new Entry(0, lastModified, true, null, 0, false));
+                } else {
+                    long size = in.readLong();
+                    short type = in.readShort();
+                    long hash = Integer.toUnsignedLong(in.readInt());
+                    entries.put(key, new Entry(size, lastModified, false, type >= 0 ? typeTable[type] : null, hash, false));
+                }
+                previous = key;
+            }
+            return count;
+        } catch (IOException | RuntimeException ex) {
+            log.accept("Manifesto " + file + " ignorado: " + ex.getMessage());
+            entries.clear();
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Só vale a pena salvar o que a varredura já conferiu
+        if (indexed) {
+            save();
+        }
+        watchedKeys.clear();
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.example;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRangeTest {
+
+    @Test
+    public void parsesSingleRanges() {
+        assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=0-99", 1000));
+        // Aberto, e fim além do arquivo: cortado no último byte
+        assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=900-5000", 1000));
+    }
+
+    @Test
+    public void parsesSuffixRanges() {
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+        // Sufixo maior que o arquivo: o arquivo inteiro
+        assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000));
+    }
+
+    @Test
+    public void parsesMultipleRangesInOrder() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-0, 10-19 ,,-5", 100);
+
+        assertEquals(List.of(new ByteRange(0, 0), new ByteRange(10, 19), new ByteRange(95, 99)), ranges);
+        assertEquals(1, ranges.get(0).length());
+        assertEquals("bytes 10-19/100", ranges.get(1).contentRange(100));
+    }
+
+    @Test
+    public void dropsUnsatisfiableRanges() {
+        // Só os que começam dentro do arquivo ficam; nenhum sobrando é 416
+        assertEquals(List.of(new ByteRange(0, 9)), ByteRange.parse("bytes=0-9,1000-1010", 1000));
+        assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-", 0).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-5", 0).isEmpty());
+    }
+
+    @Test
+    public void ignoresInvalidHeaders() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-9", 1000));
+        assertNull(ByteRange.parse("bytes=9-0", 1000));
+        assertNull(ByteRange.parse("bytes=5", 1000));
+        assertNull(ByteRange.parse("bytes=a-b", 1000));
+        assertNull(ByteRange.parse("bytes=1-2-3", 1000));
+        // Um intervalo inválido invalida o header inteiro
+        assertNull(ByteRange.parse("bytes=0-9,x", 1000));
+    }
+
+    @Test
+    public void ignoresTooManyRanges() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i < 16; i++) {
+            header.append(',').append(i * 10).append('-').append(i * 10);
+        }
+        assertEquals(16, ByteRange.parse(header.toString(), 1000).size());
+
+        header.append(",500-500");
+        assertNull(ByteRange.parse(header.toString(), 1000));
+    }
+
+}
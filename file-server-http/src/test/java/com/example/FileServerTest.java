@@ -0,0 +1,99 @@
+package com.example;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Webroot relativo ao diretório atual, como em --webroot=.
+    private File relativeWebRoot;
+
+    @Before
+    public void createWebRoot() throws IOException {
+        Files.writeString(folder.newFile("a.txt").toPath(), "hello");
+        folder.newFolder("sub");
+        Path root = folder.getRoot().toPath();
+        relativeWebRoot = Path.of("").toAbsolutePath().relativize(root).toFile();
+    }
+
+    @Test
+    public void makesRelativeWebRootAbsolute() {
+        File webRoot = new ServerConfig().setWebRoot(relativeWebRoot).getWebRoot();
+
+        assertTrue(webRoot.isAbsolute());
+        assertEquals(folder.getRoot().getAbsoluteFile(), webRoot);
+    }
+
+    @Test
+    public void listsRootOfRelativeWebRoot() throws Exception {
+        FileServer server = new FileServer(new ServerConfig().setWebRoot(relativeWebRoot));
+
+        HttpResponse response = get(server, "/");
+        assertEquals(200, response.getStatusCode());
+        String html = body(response);
+        assertTrue(html, html.contains("a.txt"));
+        assertTrue(html, html.contains("sub/"));
+    }
+
+    @Test
+    public void listsRootOfDotWebRoot() throws Exception {
+        // "." não tem pai: era um NullPointerException no link de voltar (o Maven roda no diretório do módulo)
+        FileServer server = new FileServer(new ServerConfig().setWebRoot(new File(".")));
+
+        HttpResponse response = get(server, "/");
+        assertEquals(200, response.getStatusCode());
+        String html = body(response);
+        assertTrue(html, html.contains("pom.xml"));
+    }
+
+    @Test
+    public void rendersListingOfDirectoryWithoutParent() throws IOException {
+        File dot = new File(".");
+        try (DirectoryListing listing = new DirectoryListing(dot, dot, "/", DirectoryListing.Options.DEFAULT)) {
+            String html = new String(listing.prefetch(Integer.MAX_VALUE), StandardCharsets.UTF_8);
+            assertTrue(html, html.contains("<a href='../'>↩ Voltar</a>"));
+        }
+    }
+
+    @Test
+    public void linksSubdirectoryBackToRoot() throws Exception {
+        FileServer server = new FileServer(new ServerConfig().setWebRoot(relativeWebRoot));
+
+        HttpResponse response = get(server, "/sub/");
+        assertEquals(200, response.getStatusCode());
+        String html = body(response);
+        assertTrue(html, html.contains("<a href='/'>↩ Voltar</a>"));
+    }
+
+    private static HttpResponse get(FileServer server, String target) throws Exception {
+        byte[] head = ("GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.parse(ByteBuffer.wrap(head), 0, head.length);
+        return server.handle(parser.request(), "127.0.0.1");
+    }
+
+    private static String body(HttpResponse response) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (HttpResponse.Segment segment : response.getSegments()) {
+            out.write(segment.bytes(), (int) segment.offset(), (int) segment.length());
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.example;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Vetores do apêndice C do RFC 7541.
+ */
+public class HpackTest {
+
+    private static final int LIST_LIMIT = HttpRequestParser.MAX_HEAD_SIZE;
+
+    @Test
+    public void encodesIntegersWithPrefix() {
+        // C.1.1, C.1.2 e C.1.3
+        assertArrayEquals(bytes(0x0a), writeInt(0x00, 5, 10));
+        assertArrayEquals(bytes(0x1f, 0x9a, 0x0a), writeInt(0x00, 5, 1337));
+        assertArrayEquals(bytes(0x2a), writeInt(0x00, 8, 42));
+    }
+
+    @Test
+    public void integersRoundTrip() throws Http2Exception {
+        for (int prefix = 1; prefix <= 8; prefix++) {
+            for (int value : new int[]{0, 1, (1 << prefix) - 2, (1 << prefix) - 1, 1 << prefix, 127, 128, 1337,
+                    65_535, 1 << 20, Integer.MAX_VALUE >> 4}) {
+                byte[] encoded = writeInt(0x00, prefix, value);
+                int[] position = {0};
+                assertEquals("prefixo " + prefix, value, Hpack.readInt(encoded, position, encoded.length, prefix));
+                assertEquals(encoded.length, position[0]);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedAndOversizedIntegers() {
+        byte[] truncated = bytes(0x1f, 0x9a);
+        assertCompressionError(() -> Hpack.readInt(truncated, new int[]{0}, truncated.length, 5));
+
+        byte[] oversized = bytes(0x1f, 0xff, 0xff, 0xff, 0xff, 0xff, 0x01);
+        assertCompressionError(() -> Hpack.readInt(oversized, new int[]{0}, oversized.length, 5));
+    }
+
+    @Test
+    public void decodesHuffmanStrings() throws Http2Exception {
+        // C.4.1, C.4.2 e C.4.3
+        assertEquals("www.example.com", huffman(0xf1, 0xe3, 0xc2, 0xe5, 0xf2, 0x3a, 0x6b, 0xa0, 0xab, 0x90, 0xf4, 0xff));
+        assertEquals("no-cache", huffman(0xa8, 0xeb, 0x10, 0x64, 0x9c, 0xbf));
+        assertEquals("custom-value", huffman(0x25, 0xa8, 0x49, 0xe9, 0x5b, 0xb8, 0xe8, 0xb4, 0xbf));
+    }
+
+    @Test
+    public void rejectsInvalidHuffmanPadding() {
+        // '0' (00000) seguido de três bits 0: o preenchimento tem que ser só de bits 1
+        assertCompressionError(() -> huffman(0x00));
+        // Oito bits 1 de preenchimento: mais que um byte incompleto
+        assertCompressionError(() -> huffman(0x1f, 0xff));
+    }
+
+    @Test
+    public void decodesRequestsWithDynamicTable() throws Http2Exception {
+        Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE, LIST_LIMIT);
+
+        // C.4.1: :authority entra na tabela dinâmica
+        byte[] first = bytes(0x82, 0x86, 0x84, 0x41, 0x8c, 0xf1, 0xe3, 0xc2, 0xe5, 0xf2, 0x3a, 0x6b, 0xa0, 0xab, 0x90, 0xf4, 0xff);
+        assertEquals(List.of(header(":method", "GET"), header(":scheme", "http"), header(":path", "/"),
+                header(":authority", "www.example.com")), decoder.decode(first, 0, first.length));
+
+        // C.4.2: 0xbe é a entrada 62, a primeira da tabela dinâmica
+        byte[] second = bytes(0x82, 0x86, 0x84, 0xbe, 0x58, 0x86, 0xa8, 0xeb, 0x10, 0x64, 0x9c, 0xbf);
+        assertEquals(List.of(header(":method", "GET"), header(":scheme", "http"), header(":path", "/"),
+                header(":authority", "www.example.com"), header("cache-control", "no-cache")),
+                decoder.decode(second, 0, second.length));
+    }
+
+    @Test
+    public void encoderOutputRoundTrips() throws Http2Exception {
+        StringBuilder allBytes = new StringBuilder();
+        for (char c = 0; c < 256; c++) {
+            allBytes.append(c);
+        }
+        List<Hpack.Header> headers = List.of(
+                header(":status", "200"),
+                header("content-type", "text/html; charset=utf-8"),
+                header("content-length", "1234"),
+                header("etag", "\"4d2.9f3c\""),
+                header("x-binary", allBytes.toString()),
+                header("x-custom", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"));
+        Hpack.Encoder encoder = new Hpack.Encoder();
+        Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE, LIST_LIMIT);
+
+        // A segunda vez usa as entradas que a primeira pôs na tabela dinâmica
+        for (int round = 0; round < 2; round++) {
+            byte[] block = encoder.encode(headers);
+            assertEquals(headers, decoder.decode(block, 0, block.length));
+        }
+    }
+
+    @Test
+    public void rejectsTableSizeUpdateAfterHeader() {
+        byte[] block = bytes(0x82, 0x3f, 0xe1, 0x1f);
+        Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE, LIST_LIMIT);
+
+        assertCompressionError(() -> decoder.decode(block, 0, block.length));
+    }
+
+    @Test
+    public void capsDecodedHeaderList() throws Http2Exception {
+        // Uma entrada de 1 KB na tabela e depois só referências a ela (1 byte cada)
+        String value = "v".repeat(1024 - 32 - 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x40);
+        out.write(1);
+        out.write('x');
+        Hpack.writeInt(out, 0x00, 7, value.length());
+        out.writeBytes(value.getBytes(StandardCharsets.ISO_8859_1));
+        for (int i = 0; i < 3; i++) {
+            out.write(0x80 | 62);
+        }
+        byte[] block = out.toByteArray();
+
+        // Quatro headers de 1024 bytes cabem exatamente no limite
+        assertEquals(4, new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE, 4 * 1024).decode(block, 0, block.length).size());
+
+        Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE, 4 * 1024 - 1);
+        Http2Exception ex = assertThrows(Http2Exception.class, () -> decoder.decode(block, 0, block.length));
+        assertEquals(Http2Frame.ENHANCE_YOUR_CALM, ex.getErrorCode());
+        assertFalse(ex.isStreamError());
+    }
+
+    private static Hpack.Header header(String name, String value) {
+        return new Hpack.Header(name, value);
+    }
+
+    private static byte[] writeInt(int first, int prefixBits, int value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Hpack.writeInt(out, first, prefixBits, value);
+        return out.toByteArray();
+    }
+
+    private static String huffman(int... values) throws Http2Exception {
+        byte[] data = bytes(values);
+        return Hpack.huffmanDecode(data, 0, data.length);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static void assertCompressionError(ThrowingRunnable decode) {
+        Http2Exception ex = assertThrows(Http2Exception.class, decode);
+        assertEquals(Http2Frame.COMPRESSION_ERROR, ex.getErrorCode());
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.example;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class HttpRequestParserTest {
+
+    private final HttpRequestParser parser = new HttpRequestParser();
+
+    @Test
+    public void parsesRequestLineAndHeaders() throws HttpParseException {
+        String head = "GET /docs/a.txt?x=1 HTTP/1.1\r\nHost: localhost\r\nRange:  bytes=0-9 \r\n\r\n";
+        ByteBuffer buffer = buffer(head);
+
+        assertEquals(head.length(), parser.parse(buffer, 0, buffer.limit()));
+        HttpRequest request = parser.request();
+        assertEquals(HttpMethod.GET, request.method());
+        assertEquals("/docs/a.txt?x=1", request.path());
+        assertEquals("HTTP/1.1", request.version());
+        assertEquals("localhost", request.header(HttpHeader.HOST));
+        assertEquals("bytes=0-9", request.header("range"));
+        assertEquals(2, request.headerCount());
+    }
+
+    @Test
+    public void acceptsBareLineFeeds() throws HttpParseException {
+        String head = "GET / HTTP/1.0\nHost: a\n\n";
+        ByteBuffer buffer = buffer(head);
+
+        assertEquals(head.length(), parser.parse(buffer, 0, buffer.limit()));
+        assertEquals("HTTP/1.0", parser.request().version());
+        assertEquals("a", parser.request().header(HttpHeader.HOST));
+    }
+
+    @Test
+    public void waitsForHeadSplitAtEveryByte() throws HttpParseException {
+        String head = "PUT /up.bin HTTP/1.1\r\nHost: a\r\nContent-Length: 12\r\n\r\n";
+        ByteBuffer buffer = buffer(head);
+
+        // A mesma instância entre leituras parciais, como numa conexão
+        for (int end = 0; end < head.length(); end++) {
+            assertEquals("end=" + end, -1, parser.parse(buffer, 0, end));
+        }
+        assertEquals(head.length(), parser.parse(buffer, 0, head.length()));
+        assertEquals(12, parser.request().contentLength());
+    }
+
+    @Test
+    public void parsesPipelinedRequests() throws HttpParseException {
+        String first = "GET /a HTTP/1.1\r\nHost: a\r\n\r\n";
+        String second = "\r\nHEAD /b HTTP/1.1\r\nHost: b\r\n\r\n";
+        ByteBuffer buffer = buffer(first + second + "GET /c HT");
+
+        int consumed = parser.parse(buffer, 0, buffer.limit());
+        assertEquals(first.length(), consumed);
+        assertEquals("/a", parser.request().path());
+
+        // Linha em branco antes da segunda request line é ignorada
+        int start = consumed;
+        consumed = parser.parse(buffer, start, buffer.limit());
+        assertEquals(second.length(), consumed);
+        assertEquals(HttpMethod.HEAD, parser.request().method());
+        assertEquals("/b", parser.request().path());
+
+        assertEquals(-1, parser.parse(buffer, start + consumed, buffer.limit()));
+    }
+
+    @Test
+    public void rejectsLongRequestLineWith414() {
+        String target = "/" + "a".repeat(HttpRequestParser.MAX_REQUEST_LINE);
+
+        // Ainda sem o fim da linha
+        ByteBuffer partial = buffer("GET " + target);
+        assertStatus(414, () -> parser.parse(partial, 0, partial.limit()));
+
+        ByteBuffer complete = buffer("GET " + target + " HTTP/1.1\r\n\r\n");
+        assertStatus(414, () -> new HttpRequestParser().parse(complete, 0, complete.limit()));
+    }
+
+    @Test
+    public void rejectsLargeHeadWith431() {
+        StringBuilder head = new StringBuilder("GET / HTTP/1.1\r\n");
+        while (head.length() < HttpRequestParser.MAX_HEAD_SIZE) {
+            head.append("X-Filler: ").append("b".repeat(100)).append("\r\n");
+        }
+        ByteBuffer buffer = buffer(head.toString());
+
+        assertStatus(431, () -> parser.parse(buffer, 0, buffer.limit()));
+    }
+
+    @Test
+    public void rejectsTooManyHeadersWith431() {
+        StringBuilder head = new StringBuilder("GET / HTTP/1.1\r\n");
+        for (int i = 0; i <= HttpRequestParser.MAX_HEADERS; i++) {
+            head.append("X-H").append(i).append(": v\r\n");
+        }
+        ByteBuffer buffer = buffer(head.append("\r\n").toString());
+
+        assertStatus(431, () -> parser.parse(buffer, 0, buffer.limit()));
+    }
+
+    @Test
+    public void rejectsOtherMajorVersionsWith505() {
+        ByteBuffer buffer = buffer("GET / HTTP/2.0\r\n\r\n");
+
+        assertStatus(505, () -> parser.parse(buffer, 0, buffer.limit()));
+    }
+
+    @Test
+    public void rejectsMalformedRequestsWith400() {
+        for (String head : new String[]{
+                "GET /\r\n\r\n",
+                "GET / HTTX/1.1\r\n\r\n",
+                "GET / HTTP/1.1\r\nContent-Length: 12a\r\n\r\n",
+                "GET / HTTP/1.1\r\nContent-Length:\r\n\r\n"}) {
+            ByteBuffer buffer = buffer(head);
+            assertStatus(400, () -> new HttpRequestParser().parse(buffer, 0, buffer.limit()));
+        }
+    }
+
+    @Test
+    public void ignoresHeaderLinesWithoutName() throws HttpParseException {
+        ByteBuffer buffer = buffer("GET / HTTP/1.1\r\nno colon here\r\n: empty\r\nHost: a\r\n\r\n");
+
+        parser.parse(buffer, 0, buffer.limit());
+        assertEquals(1, parser.request().headerCount());
+        assertEquals("a", parser.request().header(HttpHeader.HOST));
+        assertNull(parser.request().header(HttpHeader.RANGE));
+    }
+
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static void assertStatus(int status, ThrowingRunnable parse) {
+        HttpParseException ex = assertThrows(HttpParseException.class, parse);
+        assertEquals(ex.getMessage(), status, ex.getStatusCode());
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class MultipartUploadTest {
+
+    private static final String BOUNDARY = "----form7MA4YWxkTrZu0gW";
+    // Parece o começo de um delimitador, mas não é: tem que chegar inteiro ao arquivo
+    private static final String CONTENT = "linha 1\r\n--" + BOUNDARY.substring(0, 10) + "X\r\nfim";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // O que o upload entregou ao servidor para montar a resposta
+    private UploadSink.Result result;
+
+    @Test
+    public void extractsBoundaryFromContentType() {
+        assertEquals("abc", MultipartUpload.boundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b;c", MultipartUpload.boundary("Multipart/Form-Data; charset=utf-8; boundary=\"a b;c\""));
+        assertNull(MultipartUpload.boundary("application/x-www-form-urlencoded"));
+        assertNull(MultipartUpload.boundary("multipart/form-data"));
+        assertNull(MultipartUpload.boundary("multipart/form-data; boundary=" + "b".repeat(71)));
+        assertNull(MultipartUpload.boundary(null));
+    }
+
+    @Test
+    public void savesFileWhenBodyIsSplitAtEveryByte() throws Exception {
+        byte[] body = body();
+
+        // Duas leituras, com o corte em cada posição (inclusive no meio dos delimitadores)
+        for (int split = 0; split <= body.length; split++) {
+            File directory = folder.newFolder();
+            MultipartUpload upload = upload(directory);
+            upload.write(ByteBuffer.wrap(body, 0, split));
+            upload.write(ByteBuffer.wrap(body, split, body.length - split));
+
+            upload.finish();
+            assertSaved(directory, body.length, "split=" + split);
+        }
+    }
+
+    @Test
+    public void savesFileWhenBodyArrivesByteByByte() throws Exception {
+        byte[] body = body();
+        File directory = folder.newFolder();
+        MultipartUpload upload = upload(directory);
+        for (int i = 0; i < body.length; i++) {
+            upload.write(ByteBuffer.wrap(body, i, 1));
+        }
+
+        upload.finish();
+        assertSaved(directory, body.length, "byte a byte");
+    }
+
+    @Test
+    public void rejectsBodyWithoutClosingDelimiter() throws Exception {
+        byte[] body = body();
+        // Corta no meio do delimitador final, logo depois do "\r\n--"
+        int tail = (BOUNDARY + "--\r\nepílogo ignorado").getBytes(StandardCharsets.UTF_8).length;
+        MultipartUpload upload = upload(folder.newFolder());
+        upload.write(ByteBuffer.wrap(body, 0, body.length - tail));
+
+        HttpParseException ex = assertThrows(HttpParseException.class, upload::finish);
+        assertEquals(400, ex.getStatusCode());
+        upload.close();
+    }
+
+    @Test
+    public void rejectsBodyAboveLimit() throws IOException {
+        byte[] body = body();
+        MultipartUpload upload = new MultipartUpload(folder.newFolder(), BOUNDARY, body.length - 1, result -> null);
+
+        HttpParseException ex = assertThrows(HttpParseException.class, () -> upload.write(ByteBuffer.wrap(body)));
+        assertEquals(413, ex.getStatusCode());
+        upload.close();
+    }
+
+    // Um campo comum (descartado) e um arquivo enviado com o caminho do Windows
+    private static byte[] body() {
+        String body = "preâmbulo ignorado\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"comment\"\r\n\r\n"
+                + "só um campo\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"C:\\fotos\\nota.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + CONTENT + "\r\n"
+                + "--" + BOUNDARY + "--\r\n"
+                + "epílogo ignorado";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private MultipartUpload upload(File directory) {
+        result = null;
+        return new MultipartUpload(directory, BOUNDARY, 1024 * 1024, completed -> {
+            result = completed;
+            return null;
+        });
+    }
+
+    private void assertSaved(File directory, long bodyBytes, String message) throws IOException {
+        byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        File saved = new File(directory, "nota.txt");
+        assertEquals(message, List.of(new UploadSink.SavedFile(saved, content.length, false)), result.files());
+        assertEquals(message, bodyBytes, result.bodyBytes());
+        assertArrayEquals(message, content, Files.readAllBytes(saved.toPath()));
+        // Nada além do arquivo (nem temporários do AtomicFileWriter)
+        assertEquals(message, List.of("nota.txt"), List.of(directory.list()));
+    }
+
+}
@@ -65,7 +65,7 @@ public class ClientHttpWithProxyExample implements Example {
 
             proxySocket.setSoTimeout(30000); // 30 segundos timeout
 
-            URL url = new URL(targetUrl);
+            URL url = toUrl(targetUrl);
             String host = url.getHost();
             String path = url.getPath().isEmpty() ? "/" : url.getPath();
             String query = url.getQuery() != null ? "?" + url.getQuery() : "";
@@ -163,7 +163,7 @@ public class ClientHttpWithProxyExample implements Example {
 
             proxySocket.setSoTimeout(30000);
 
-            URL url = new URL(targetUrl);
+            URL url = toUrl(targetUrl);
             String host = url.getHost();
             String path = url.getPath().isEmpty() ? "/" : url.getPath();
             String query = url.getQuery() != null ? "?" + url.getQuery() : "";
@@ -200,4 +200,12 @@ public class ClientHttpWithProxyExample implements Example {
         }
     }
 
-}
\ No newline at end of file
+    // new URL(String) está depreciado; URL digitada inválida continua sendo MalformedURLException
+    private static URL toUrl(String targetUrl) throws MalformedURLException {
+        try {
+            return URI.create(targetUrl).toURL();
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cliente HTTP/1.1 mínimo para o gerador de carga: envia GETs, lê a resposta inteira
+ * (Content-Length, chunked ou até o fim da conexão) e descarta o corpo. Com keep-alive
+ * a conexão é reaproveitada enquanto o servidor deixar; sem, cada requisição abre a sua.
+ */
+public class HttpLoadConnection implements Closeable {
+
+    private static final int MAX_LINE = 8192;
+
+    public record Response(int status, long bodyBytes) {
+    }
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final boolean keepAlive;
+    private final byte[] discard = new byte[64 * 1024];
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private int connects = 0;
+
+    public HttpLoadConnection(String host, int port, int timeoutMillis, boolean keepAlive) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+        this.keepAlive = keepAlive;
+    }
+
+    public Response get(String path) throws IOException {
+        byte[] request = ("GET " + path + " HTTP/1.1\r\n"
+                + "Host: " + host + ":" + port + "\r\n"
+                + "User-Agent: LoadGenerator/1.0\r\n"
+                + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n"
+                + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        boolean reused = socket != null;
+        if (!reused) {
+            connect();
+        }
+        try {
+            return exchange(request);
+        } catch (IOException ex) {
+            close();
+            // Conexão keep-alive que o servidor já fechou (ociosidade, limite de requisições):
+            // o GET é repetido uma vez numa conexão nova. Timeout não é repetido.
+            if (!reused || ex instanceof SocketTimeoutException) {
+                throw ex;
+            }
+        }
+
+        connect();
+        try {
+            return exchange(request);
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    // Conexões TCP abertas até agora
+    public int getConnects() {
+        return connects;
+    }
+
+    private void connect() throws IOException {
+        Socket opened = new Socket();
+        try {
+            opened.setTcpNoDelay(true);
+            opened.setSoTimeout(timeoutMillis);
+            opened.connect(new InetSocketAddress(host, port), timeoutMillis);
+        } catch (IOException ex) {
+            opened.close();
+            throw ex;
+        }
+        socket = opened;
+        in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+        out = socket.getOutputStream();
+        connects++;
+    }
+
+    private Response exchange(byte[] request) throws IOException {
+        out.write(request);
+        out.flush();
+
+        String statusLine = readLine();
+        if (statusLine == null) {
+            throw new EOFException("conexão encerrada antes da resposta");
+        }
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+            throw new IOException("status line inválida: " + statusLine);
+        }
+        int status = Integer.parseInt(parts[1]);
+        boolean http10 = parts[0].equals("HTTP/1.0");
+
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean serverClose = http10;
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.toLowerCase().contains("chunked");
+            } else if (name.equalsIgnoreCase("Connection")) {
+                String lower = value.toLowerCase();
+                serverClose = lower.contains("close") || (http10 && !lower.contains("keep-alive"));
+            }
+        }
+        if (line == null) {
+            throw new IOException("conexão encerrada no meio dos headers");
+        }
+
+        long bodyBytes;
+        if (status < 200 || status == 204 || status == 304) {
+            bodyBytes = 0;
+        } else if (chunked) {
+            bodyBytes = readChunked();
+        } else if (contentLength >= 0) {
+            skipFully(contentLength);
+            bodyBytes = contentLength;
+        } else {
+            // Sem tamanho: o corpo vai até o servidor fechar a conexão
+            bodyBytes = skipToEnd();
+            serverClose = true;
+        }
+
+        if (!keepAlive || serverClose) {
+            close();
+        }
+        return new Response(status, bodyBytes);
+    }
+
+    private long readChunked() throws IOException {
+        long total = 0;
+        while (true) {
+            String sizeLine = readLine();
+            if (sizeLine == null) {
+                throw new IOException("conexão encerrada no meio do corpo chunked");
+            }
+            int extension = sizeLine.indexOf(';');
+            long size = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+            if (size == 0) {
+                // Trailers até a linha vazia
+                String trailer;
+                while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                }
+                return total;
+            }
+            skipFully(size);
+            total += size;
+            readLine();
+        }
+    }
+
+    private void skipFully(long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(discard, 0, (int) Math.min(discard.length, remaining));
+            if (read < 0) {
+                throw new IOException("conexão encerrada no meio do corpo");
+            }
+            remaining -= read;
+        }
+    }
+
+    private long skipToEnd() throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(discard)) >= 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    // Linha sem o CRLF (ou LF); null se a conexão terminou antes de qualquer byte
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE) {
+                throw new IOException("linha maior que " + MAX_LINE + " bytes");
+            }
+            line.append((char) b);
+        }
+        return line.isEmpty() ? null : line.toString();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            socket = null;
+            in = null;
+            out = null;
+        }
+    }
+
+}
@@ -0,0 +1,380 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga HTTP para medir os servidores do repositório pelo loopback, sem
+ * ferramentas externas:
+ *
+ * <pre>
+ * java -cp target/classes com.example.LoadGenerator --url=http://localhost:8080/a.txt --connections=50 --duration=30
+ * java -cp target/classes com.example.LoadGenerator --mode=open --rate=2000 --urls=mix.txt --output=result.json
+ * </pre>
+ *
+ * <ul>
+ *   <li><b>closed</b> (padrão): N conexões, cada uma manda a próxima requisição quando a
+ *   anterior termina. Com {@code --rate} as conexões seguem um ritmo fixo (rate / N cada).</li>
+ *   <li><b>open</b>: requisições chegam a uma taxa fixa ({@code --rate}), não importa se o
+ *   servidor está atrasado; {@code --connections} limita quantas ficam em andamento.</li>
+ * </ul>
+ *
+ * Latência corrigida (coordinated omission): medida a partir do instante em que a requisição
+ * <i>deveria</i> ter saído, não de quando saiu. Se o servidor trava 1 s, as requisições que
+ * ficaram esperando contam esse tempo, em vez de sumirem das estatísticas. Sem uma taxa
+ * alvo (closed sem {@code --rate}) não há horário previsto e as duas medidas coincidem.
+ */
+public class LoadGenerator {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public enum Mode { CLOSED, OPEN }
+
+    private final UrlMix urls;
+    private final Mode mode;
+    private final int connections;
+    private final double rate;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final boolean keepAlive;
+    private final int timeoutMillis;
+
+    // Desde o horário previsto (corrigida) e desde o envio de fato (tempo de serviço)
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    private final LatencyHistogram uncorrected = new LatencyHistogram();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+    private final LongAdder bodyBytes = new LongAdder();
+    // Fim da última resposta medida: a vazão é calculada até ele, não até o fim da janela
+    private final LongAccumulator lastDone = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final Queue<HttpLoadConnection> opened = new ConcurrentLinkedQueue<>();
+
+    private long measureStart;
+    private long measureEnd;
+
+    public LoadGenerator(UrlMix urls, Mode mode, int connections, double rate, int warmupSeconds,
+                         int durationSeconds, boolean keepAlive, int timeoutMillis) {
+        this.urls = urls;
+        this.mode = mode;
+        this.connections = connections;
+        this.rate = rate;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+        this.keepAlive = keepAlive;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator;
+        String output;
+        try {
+            Map<String, String> options = parseArgs(args);
+            output = options.remove("output");
+            generator = fromOptions(options);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("❌ " + ex.getMessage());
+            System.err.println("Uso: LoadGenerator --url=http://host:porta/caminho [--urls=mix.txt] [--mode=closed|open]"
+                    + " [--connections=10] [--rate=REQ_POR_S] [--warmup=2] [--duration=10]"
+                    + " [--keep-alive=true] [--timeout=5000] [--output=resultado.json]");
+            System.exit(2);
+            return;
+        }
+
+        String json = generator.run();
+        if (output != null) {
+            Files.writeString(Path.of(output), json, StandardCharsets.UTF_8);
+            System.out.println("Resultado salvo em " + output);
+        } else {
+            System.out.println(json);
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(arg.substring(2), args[++i]);
+            } else {
+                options.put(arg.substring(2), "true");
+            }
+        }
+        return options;
+    }
+
+    private static LoadGenerator fromOptions(Map<String, String> options) throws IOException {
+        String url = options.remove("url");
+        String urlsFile = options.remove("urls");
+        UrlMix urls;
+        if (urlsFile != null) {
+            urls = UrlMix.fromFile(Path.of(urlsFile), url);
+        } else if (url != null) {
+            urls = UrlMix.single(url);
+        } else {
+            throw new IllegalArgumentException("Informe --url ou --urls");
+        }
+
+        Mode mode;
+        try {
+            mode = Mode.valueOf(options.getOrDefault("mode", "closed").trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Modo inválido: " + options.get("mode") + " (use closed ou open)");
+        }
+        int connections = intOption(options, "connections", 10);
+        double rate;
+        try {
+            rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor inválido para rate: " + options.get("rate"));
+        }
+        int warmup = intOption(options, "warmup", 2);
+        int duration = intOption(options, "duration", 10);
+        boolean keepAlive = Boolean.parseBoolean(options.getOrDefault("keep-alive", "true"));
+        int timeout = intOption(options, "timeout", 5000);
+        for (String key : List.of("mode", "connections", "rate", "warmup", "duration", "keep-alive", "timeout")) {
+            options.remove(key);
+        }
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Opção desconhecida: " + options.keySet().iterator().next());
+        }
+
+        if (connections < 1 || duration < 1 || warmup < 0 || timeout < 1 || rate < 0) {
+            throw new IllegalArgumentException("Valores inválidos: use connections, duration e timeout positivos");
+        }
+        if (mode == Mode.OPEN && rate <= 0) {
+            throw new IllegalArgumentException("O modo open precisa de --rate (requisições por segundo)");
+        }
+        return new LoadGenerator(urls, mode, connections, rate, warmup, duration, keepAlive, timeout);
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Valor inválido para " + key + ": " + value);
+        }
+    }
+
+    // Executa a carga e devolve o resultado em JSON
+    public String run() throws InterruptedException {
+        System.out.printf("=== Load Generator: %s em %s:%d, %d conexões%s, keep-alive %s ===%n",
+                mode.name().toLowerCase(), urls.getHost(), urls.getPort(), connections,
+                rate > 0 ? String.format(Locale.ROOT, ", %.0f req/s", rate) : "",
+                keepAlive ? "ligado" : "desligado");
+        System.out.println("Aquecendo por " + warmupSeconds + " s, medindo por " + durationSeconds + " s...");
+
+        long start = System.nanoTime();
+        measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        measureEnd = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        if (mode == Mode.OPEN) {
+            runOpen(start);
+        } else {
+            runClosed(start);
+        }
+
+        for (HttpLoadConnection connection : opened) {
+            connection.close();
+        }
+        printSummary();
+        return toJson();
+    }
+
+    // N conexões em laço; com --rate cada uma segue seu próprio horário previsto
+    private void runClosed(long start) throws InterruptedException {
+        long interval = rate > 0 ? (long) (connections * 1_000_000_000.0 / rate) : 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                // Horários das conexões defasados entre si para não saírem todas juntas
+                long first = start + (interval * c) / connections;
+                executor.execute(() -> {
+                    HttpLoadConnection connection = newConnection();
+                    long next = first;
+                    while (true) {
+                        long intended;
+                        if (interval > 0) {
+                            intended = next;
+                            next += interval;
+                            sleepUntil(intended);
+                        } else {
+                            intended = System.nanoTime();
+                        }
+                        if (intended >= measureEnd) {
+                            return;
+                        }
+                        execute(connection, intended);
+                    }
+                });
+            }
+        }
+    }
+
+    // Chegadas a taxa fixa, independentes das respostas; conexões vêm de um pool limitado
+    private void runOpen(long start) throws InterruptedException {
+        double interval = 1_000_000_000.0 / rate;
+        Semaphore slots = new Semaphore(connections);
+        Queue<HttpLoadConnection> idle = new ConcurrentLinkedQueue<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * interval);
+                if (intended >= measureEnd) {
+                    break;
+                }
+                sleepUntil(intended);
+                executor.execute(() -> {
+                    // Espera por uma conexão livre conta na latência corrigida
+                    slots.acquireUninterruptibly();
+                    HttpLoadConnection connection = idle.poll();
+                    if (connection == null) {
+                        connection = newConnection();
+                    }
+                    try {
+                        execute(connection, intended);
+                    } finally {
+                        idle.offer(connection);
+                        slots.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private HttpLoadConnection newConnection() {
+        HttpLoadConnection connection = new HttpLoadConnection(urls.getHost(), urls.getPort(), timeoutMillis, keepAlive);
+        opened.add(connection);
+        return connection;
+    }
+
+    private void execute(HttpLoadConnection connection, long intended) {
+        long sent = System.nanoTime();
+        try {
+            HttpLoadConnection.Response response = connection.get(urls.next());
+            long done = System.nanoTime();
+            if (intended >= measureStart) {
+                corrected.record((done - intended) / 1000);
+                uncorrected.record((done - sent) / 1000);
+                statusCounts.computeIfAbsent(response.status(), status -> new LongAdder()).increment();
+                bodyBytes.add(response.bodyBytes());
+                lastDone.accumulate(done);
+            }
+        } catch (IOException | RuntimeException ex) {
+            if (intended >= measureStart) {
+                errors.computeIfAbsent(ex.getClass().getSimpleName(), type -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    // Respostas por segundo de fato; no modo open fica abaixo do --rate se o servidor não acompanhar
+    private double throughput() {
+        long requests = corrected.getCount();
+        if (requests == 0) {
+            return 0;
+        }
+        double seconds = Math.max(lastDone.get() - measureStart, measureEnd - measureStart) / 1_000_000_000.0;
+        return requests / seconds;
+    }
+
+    private long errorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private void printSummary() {
+        long requests = corrected.getCount();
+        System.out.println("\n==============================================");
+        System.out.printf("Requisições: %d (%.1f req/s)   Erros: %d   Recebido: %.1f MB%n",
+                requests, throughput(), errorCount(), bodyBytes.sum() / (1024.0 * 1024.0));
+        System.out.println("Status: " + statusCounts + (errors.isEmpty() ? "" : "   Erros: " + errors));
+        System.out.printf("%-26s %10s %10s %10s %10s %10s%n", "Latência (ms)", "p50", "p90", "p99", "p99.9", "máx");
+        printLatency("corrigida (desde o previsto)", corrected);
+        printLatency("tempo de serviço", uncorrected);
+        System.out.println("==============================================\n");
+    }
+
+    private static void printLatency(String label, LatencyHistogram histogram) {
+        System.out.printf("%-26s", label);
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %10.2f", histogram.percentile(percentile) / 1000.0);
+        }
+        System.out.printf(" %10.2f%n", histogram.getMaxMicros() / 1000.0);
+    }
+
+    private String toJson() {
+        long requests = corrected.getCount();
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"mode\": \"").append(mode.name().toLowerCase()).append("\",\n");
+        json.append("  \"host\": \"").append(escape(urls.getHost())).append("\",\n");
+        json.append("  \"port\": ").append(urls.getPort()).append(",\n");
+        json.append("  \"paths\": [");
+        for (int i = 0; i < urls.getPaths().size(); i++) {
+            json.append(i == 0 ? "" : ", ").append('"').append(escape(urls.getPaths().get(i))).append('"');
+        }
+        json.append("],\n");
+        json.append("  \"connections\": ").append(connections).append(",\n");
+        json.append("  \"targetRate\": ").append(number(rate)).append(",\n");
+        json.append("  \"keepAlive\": ").append(keepAlive).append(",\n");
+        json.append("  \"warmupSeconds\": ").append(warmupSeconds).append(",\n");
+        json.append("  \"durationSeconds\": ").append(durationSeconds).append(",\n");
+        json.append("  \"coordinatedOmissionCorrected\": ").append(mode == Mode.OPEN || rate > 0).append(",\n");
+        json.append("  \"requests\": ").append(requests).append(",\n");
+        json.append("  \"throughput\": ").append(number(throughput())).append(",\n");
+        json.append("  \"bodyBytes\": ").append(bodyBytes.sum()).append(",\n");
+        json.append("  \"tcpConnections\": ").append(opened.stream().mapToLong(HttpLoadConnection::getConnects).sum()).append(",\n");
+        json.append("  \"status\": ").append(countsJson(statusCounts)).append(",\n");
+        json.append("  \"errors\": ").append(errorCount()).append(",\n");
+        json.append("  \"errorsByType\": ").append(countsJson(errors)).append(",\n");
+        json.append("  \"latencyMillis\": {\n");
+        json.append("    \"corrected\": ").append(latencyJson(corrected)).append(",\n");
+        json.append("    \"uncorrected\": ").append(latencyJson(uncorrected)).append('\n');
+        json.append("  }\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static String latencyJson(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT,
+                "{\"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"p999\": %.3f, \"max\": %.3f, \"mean\": %.3f}",
+                histogram.percentile(0.5) / 1000.0, histogram.percentile(0.9) / 1000.0,
+                histogram.percentile(0.99) / 1000.0, histogram.percentile(0.999) / 1000.0,
+                histogram.getMaxMicros() / 1000.0, histogram.getMeanMicros() / 1000.0);
+    }
+
+    private static String countsJson(Map<?, LongAdder> counts) {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        counts.forEach((key, count) -> joiner.add("\"" + escape(String.valueOf(key)) + "\": " + count.sum()));
+        return joiner.toString();
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+}
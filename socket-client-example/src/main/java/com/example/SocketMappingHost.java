@@ -7,6 +7,17 @@ import java.util.concurrent.*;
 
 public class SocketMappingHost implements Example {
 
+    private final boolean virtualThreads;
+
+    public SocketMappingHost() {
+        this(false);
+    }
+
+    // virtualThreads = true: uma virtual thread por porta em vez do pool fixo de 50
+    public SocketMappingHost(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     @Override
     public void example() {
         System.out.println("\n=== Socket Mapping Host - Scanner de Portas ===\n");
@@ -31,7 +42,9 @@ public class SocketMappingHost implements Example {
     }
 
     private void scanPorts(String host, int startPort, int endPort, int timeout, boolean showHandshake) {
-        ExecutorService executor = Executors.newFixedThreadPool(50);
+        ExecutorService executor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(50);
         List<Future<PortResult>> results = new ArrayList<>();
 
         System.out.println("Scanning...");
@@ -228,6 +241,6 @@ public class SocketMappingHost implements Example {
     }
 
     public static void main(String[] args) {
-        new SocketMappingHost().example();
+        new SocketMappingHost(args.length > 0 && args[0].equals("--virtual")).example();
     }
 }
\ No newline at end of file
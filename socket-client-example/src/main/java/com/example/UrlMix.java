@@ -0,0 +1,155 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Conjunto de URLs sorteadas com peso. No arquivo, uma por linha, com peso opcional
+ * na frente; linhas vazias e comentários (#) são ignorados:
+ *
+ * <pre>
+ * # peso url
+ * 80 http://localhost:8080/index.html
+ * 15 /docs/manual.pdf
+ * 5  /
+ * </pre>
+ *
+ * Caminhos sem host usam o host da primeira URL completa. Todas precisam apontar
+ * para o mesmo host e porta (as conexões keep-alive são reaproveitadas entre elas).
+ */
+public class UrlMix {
+
+    private final String host;
+    private final int port;
+    private final List<String> paths = new ArrayList<>();
+    // Pesos acumulados, para sortear com busca binária
+    private final List<Long> cumulativeWeights = new ArrayList<>();
+    private long totalWeight = 0;
+
+    private UrlMix(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public static UrlMix single(String url) {
+        URI uri = parse(url);
+        UrlMix mix = new UrlMix(uri.getHost(), port(uri));
+        mix.add(pathOf(uri), 1);
+        return mix;
+    }
+
+    public static UrlMix fromFile(Path file, String defaultUrl) throws IOException {
+        UrlMix mix = defaultUrl != null ? single(defaultUrl) : null;
+        if (mix != null) {
+            // A URL de --url só define o host; o sorteio vem do arquivo
+            mix.paths.clear();
+            mix.cumulativeWeights.clear();
+            mix.totalWeight = 0;
+        }
+
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length > 2) {
+                throw new IllegalArgumentException("Linha inválida " + lineNumber + ": " + line);
+            }
+            long weight = 1;
+            String target = parts[parts.length - 1];
+            if (parts.length == 2) {
+                try {
+                    weight = Long.parseLong(parts[0]);
+                } catch (NumberFormatException ex) {
+                    weight = 0;
+                }
+                if (weight < 1) {
+                    throw new IllegalArgumentException("Peso inválido na linha " + lineNumber + ": " + line);
+                }
+            }
+
+            if (target.startsWith("/")) {
+                if (mix == null) {
+                    throw new IllegalArgumentException("Linha " + lineNumber + ": caminho sem host antes de qualquer URL completa (use --url)");
+                }
+                mix.add(target, weight);
+            } else {
+                URI uri = parse(target);
+                if (mix == null) {
+                    mix = new UrlMix(uri.getHost(), port(uri));
+                } else if (!mix.host.equalsIgnoreCase(uri.getHost()) || mix.port != port(uri)) {
+                    throw new IllegalArgumentException("Linha " + lineNumber + ": todas as URLs devem usar " + mix.host + ":" + mix.port);
+                }
+                mix.add(pathOf(uri), weight);
+            }
+        }
+
+        if (mix == null || mix.paths.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma URL em " + file);
+        }
+        return mix;
+    }
+
+    private void add(String path, long weight) {
+        totalWeight += weight;
+        paths.add(path);
+        cumulativeWeights.add(totalWeight);
+    }
+
+    public String next() {
+        if (paths.size() == 1) {
+            return paths.get(0);
+        }
+        long ticket = ThreadLocalRandom.current().nextLong(totalWeight);
+        int low = 0;
+        int high = cumulativeWeights.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights.get(middle) > ticket) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return paths.get(low);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    private static URI parse(String url) {
+        URI uri = URI.create(url);
+        if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalArgumentException("URL inválida (só http://host[:porta]/caminho): " + url);
+        }
+        return uri;
+    }
+
+    private static int port(URI uri) {
+        return uri.getPort() == -1 ? 80 : uri.getPort();
+    }
+
+    private static String pathOf(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+}
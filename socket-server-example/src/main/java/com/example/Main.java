@@ -10,6 +10,9 @@ public class Main {
         // socket server http multi thread example
         new ServerHttpMultiThreadExample().example();
 
+        // mesmo servidor com uma virtual thread por conexão
+        new ServerHttpMultiThreadExample(8083, true).example();
+
     }
 
 }
@@ -14,13 +14,27 @@ import java.util.concurrent.Executors;
 
 public class ServerHttpMultiThreadExample implements Example {
 
-    private final int PORT = 8082;
+    private final int PORT;
+    private final boolean virtualThreads;
+
+    public ServerHttpMultiThreadExample() {
+        this(8082, false);
+    }
+
+    // virtualThreads = true: uma virtual thread por conexão em vez do pool fixo de 3
+    public ServerHttpMultiThreadExample(int port, boolean virtualThreads) {
+        this.PORT = port;
+        this.virtualThreads = virtualThreads;
+    }
 
     @Override
     public void example() {
-        System.out.println("== Http server run in port: " + PORT + " ===");
+        System.out.println("== Http server run in port: " + PORT
+                + (virtualThreads ? " (virtual threads)" : " (pool de 3 threads)") + " ===");
 
-        var executeService = Executors.newFixedThreadPool(3);
+        ExecutorService executeService = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(3);
 
         var thread = new Thread(() -> {
             try {